@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client;
+
+import java.util.Collection;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Reads and writes a table without blocking the calling thread.
+ *
+ * <p>
+ * Lookups that are requested while others are in flight are sent together as one batch scan, and
+ * writes are flushed together, so a large number of concurrent requests is served by a small,
+ * fixed number of threads instead of a thread per request.
+ *
+ * <p>
+ * Callbacks and subscribers are called from the threads of the table and should not block.
+ *
+ * @since 1.9.2
+ */
+public interface AsyncTable {
+
+  /**
+   * Receives the outcome of an asynchronous request.
+   */
+  interface Callback<T> {
+    void onSuccess(T result);
+
+    void onFailure(Throwable t);
+  }
+
+  /**
+   * Controls the flow of entries from a scan to its {@link Subscriber}.
+   */
+  interface Subscription {
+    /**
+     * Asks for up to n more entries. Entries are only read from tablet servers as fast as they are
+     * requested.
+     */
+    void request(long n);
+
+    /**
+     * Stops the scan. No more entries are delivered, though entries that are being delivered may
+     * still arrive.
+     */
+    void cancel();
+  }
+
+  /**
+   * Receives the entries of a scan, at most as many as it has requested.
+   */
+  interface Subscriber {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(Entry<Key,Value> entry);
+
+    void onError(Throwable t);
+
+    void onComplete();
+  }
+
+  /**
+   * Reads a row.
+   *
+   * @param callback
+   *          called with the row, may be null
+   * @return the entries of the row, empty if the row does not exist
+   */
+  Future<SortedMap<Key,Value>> lookup(Text row, Callback<SortedMap<Key,Value>> callback);
+
+  /**
+   * Scans ranges, delivering the entries to the subscriber in no particular order. The subscriber
+   * is given a {@link Subscription} before this method returns, and receives entries as it
+   * requests them.
+   */
+  void scan(Collection<Range> ranges, Subscriber subscriber);
+
+  /**
+   * Writes a mutation.
+   *
+   * @param callback
+   *          called once the mutation is written, may be null
+   * @return completes once the mutation is written, or fails with a
+   *         {@link MutationsRejectedException} if it or a mutation written with it was rejected
+   */
+  Future<Void> write(Mutation m, Callback<Void> callback);
+
+  /**
+   * Waits for the lookups and writes that have been sent to finish, fails the ones that have not
+   * been sent yet and cancels scans.
+   */
+  void close();
+}
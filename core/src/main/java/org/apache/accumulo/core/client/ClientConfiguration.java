@@ -107,7 +107,17 @@ public class ClientConfiguration extends CompositeConfiguration {
      */
     KERBEROS_SERVER_PRIMARY("kerberos.server.primary", "accumulo", PropertyType.STRING,
         "The first component of the Kerberos principal, the 'primary', "
-            + "that Accumulo servers use to login");
+            + "that Accumulo servers use to login"),
+
+    // Scanners
+    /**
+     * @since 1.9.2
+     */
+    SCANNER_ADAPTIVE_BATCHING("scanner.adaptive.batching", "false", PropertyType.BOOLEAN,
+        "Whether scanners adapt their batch size, and the number of batches they read ahead, to"
+            + " how quickly batches are consumed and fetched. The batch size starts at the size"
+            + " set on the scanner and stays between an eighth of it and sixteen times it. The"
+            + " read-ahead threshold of the scanner is not used.");
 
     private String key;
     private String defaultValue;
@@ -208,6 +208,27 @@ public abstract class Connector {
   public abstract ConditionalWriter createConditionalWriter(String tableName,
       ConditionalWriterConfig config) throws TableNotFoundException;
 
+  /**
+   * Factory method to create an AsyncTable connected to Accumulo.
+   *
+   * @param tableName
+   *          the name of the table to read and write
+   * @param authorizations
+   *          A set of authorization labels that will be checked against the column visibility of
+   *          each key read from the table.
+   * @param numQueryThreads
+   *          the number of concurrent threads to spawn for querying
+   * @param config
+   *          configuration used to write mutations
+   *
+   * @return AsyncTable object for reading and writing without blocking
+   * @throws TableNotFoundException
+   *           when the specified table doesn't exist
+   * @since 1.9.2
+   */
+  public abstract AsyncTable createAsyncTable(String tableName, Authorizations authorizations,
+      int numQueryThreads, BatchWriterConfig config) throws TableNotFoundException;
+
   /**
    * Accessor method for internal instance object.
    *
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+/**
+ * Chooses the batch size of a scan, and how many batches to read ahead of its consumer, from how
+ * long batches take to fetch and to consume.
+ *
+ * <p>
+ * A consumer that waits for batches is faster than the tablet server can serve it one batch at a
+ * time, so more batches are read ahead, and larger ones, to spend less of the time on round trips.
+ * A consumer that takes much longer to consume a batch than it takes to fetch one does not need
+ * batches read that far ahead, so fewer and smaller batches are read, to hold less of the scan on
+ * the client and on the tablet server.
+ */
+class AdaptiveBatchSizer {
+
+  static final int MAX_READ_AHEAD = 4;
+  // the batch size stays within these factors of the configured one
+  static final int MIN_BATCH_SIZE_DIVISOR = 8;
+  static final int MAX_BATCH_SIZE_MULTIPLIER = 16;
+  // the batch size changes at most once in this many batches, since a change restarts the session
+  static final int RESIZE_INTERVAL = 4;
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final ScannerMetrics metrics;
+
+  private int batchSize;
+  private int readAhead = 1;
+  private long fetchNanos = 0;
+  private long batches = 0;
+  private long lastResize = 0;
+
+  AdaptiveBatchSizer(int batchSize, ScannerMetrics metrics) {
+    this.batchSize = batchSize;
+    this.minBatchSize = Math.max(1, batchSize / MIN_BATCH_SIZE_DIVISOR);
+    this.maxBatchSize = (int) Math.min(Integer.MAX_VALUE,
+        (long) batchSize * MAX_BATCH_SIZE_MULTIPLIER);
+    this.metrics = metrics;
+    metrics.scanStarted();
+  }
+
+  synchronized int getBatchSize() {
+    return batchSize;
+  }
+
+  synchronized int getReadAhead() {
+    return readAhead;
+  }
+
+  /**
+   * Records how long a batch took to fetch.
+   */
+  synchronized void batchFetched(long nanos) {
+    fetchNanos = fetchNanos == 0 ? nanos : (3 * fetchNanos + nanos) / 4;
+  }
+
+  /**
+   * Records that the consumer took a batch.
+   *
+   * @param waitNanos
+   *          how long the consumer waited for the batch
+   * @param consumeNanos
+   *          how long the consumer took to consume the previous batch
+   */
+  synchronized void batchTaken(long waitNanos, long consumeNanos) {
+    batches++;
+    long cycleNanos = waitNanos + consumeNanos;
+    boolean resize = batches - lastResize >= RESIZE_INTERVAL;
+
+    if (waitNanos > cycleNanos / 10) {
+      // the consumer waited for a tenth of the time or more
+      if (readAhead < MAX_READ_AHEAD)
+        readAhead++;
+      if (resize && batchSize < maxBatchSize) {
+        batchSize = (int) Math.min(maxBatchSize, 2L * batchSize);
+        lastResize = batches;
+        metrics.batchSizeChanged(true);
+      }
+    } else if (waitNanos <= cycleNanos / 100 && consumeNanos > 4 * fetchNanos) {
+      if (readAhead > 1) {
+        readAhead--;
+      } else if (resize && batchSize > minBatchSize) {
+        batchSize = Math.max(minBatchSize, batchSize / 2);
+        lastResize = batches;
+        metrics.batchSizeChanged(false);
+      }
+    }
+
+    metrics.batchTaken(batchSize, readAhead);
+  }
+}
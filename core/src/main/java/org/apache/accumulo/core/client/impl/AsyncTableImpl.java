@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.AsyncTable;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.SimpleThreadPool;
+import org.apache.hadoop.io.Text;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Runs lookups and writes in batches on the existing batch scan and batch write machinery. While a
+ * batch is in flight, new requests queue up and are sent together as the next batch, so one thread
+ * for lookups and one for writes serve any number of concurrent requests.
+ */
+public class AsyncTableImpl implements AsyncTable {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncTableImpl.class);
+
+  private final ClientContext context;
+  private final String tableId;
+  private final Authorizations authorizations;
+  private final int numQueryThreads;
+  private final BatchWriterConfig writerConfig;
+  private final ScannerOptions options = new ScannerOptions();
+
+  // runs the lookup and the write batches, one at a time each
+  private final ExecutorService dispatchPool;
+  // delivers the entries of scans
+  private final ExecutorService scanPool;
+
+  private final BatchTask<SortedMap<Key,Value>> lookups = new BatchTask<SortedMap<Key,Value>>() {
+    @Override
+    void run(List<Request<SortedMap<Key,Value>>> batch) {
+      lookup(batch);
+    }
+  };
+  // replaced when a lookup fails, since its query threads may be stuck on results no one reads
+  private volatile ExecutorService lookupPool;
+
+  private final BatchTask<Void> writes = new BatchTask<Void>() {
+    @Override
+    void run(List<Request<Void>> batch) throws MutationsRejectedException {
+      write(batch);
+    }
+  };
+  // only used by the write batches, which run one at a time
+  private BatchWriter writer;
+
+  private final Set<ScanSubscription> scans = Collections
+      .newSetFromMap(new ConcurrentHashMap<ScanSubscription,Boolean>());
+
+  private volatile boolean closed = false;
+
+  public AsyncTableImpl(ClientContext context, String tableId, Authorizations authorizations,
+      int numQueryThreads, BatchWriterConfig writerConfig) {
+    checkArgument(context != null, "context is null");
+    checkArgument(tableId != null, "tableId is null");
+    checkArgument(authorizations != null, "authorizations is null");
+    checkArgument(numQueryThreads > 0, "numQueryThreads must be positive");
+    checkArgument(writerConfig != null, "writerConfig is null");
+    this.context = context;
+    this.tableId = tableId;
+    this.authorizations = authorizations;
+    this.numQueryThreads = numQueryThreads;
+    this.writerConfig = writerConfig;
+    this.dispatchPool = new SimpleThreadPool(2, "async table dispatch");
+    this.scanPool = new SimpleThreadPool(numQueryThreads, "async table scan");
+    this.lookupPool = new SimpleThreadPool(numQueryThreads, "async table lookup");
+  }
+
+  private Iterator<Entry<Key,Value>> batchScan(ArrayList<Range> ranges,
+      ExecutorService queryPool) {
+    return new TabletServerBatchReaderIterator(context, tableId, authorizations, ranges,
+        numQueryThreads, queryPool, options, Long.MAX_VALUE);
+  }
+
+  /**
+   * A pending lookup or write and the future it completes.
+   */
+  private static class Request<T> {
+    final SettableFuture<T> future = SettableFuture.create();
+    final Callback<T> callback;
+    final Text row;
+    final Mutation mutation;
+
+    Request(Callback<T> callback, Text row, Mutation mutation) {
+      this.callback = callback;
+      this.row = row;
+      this.mutation = mutation;
+    }
+
+    void succeed(T result) {
+      if (future.set(result) && callback != null) {
+        try {
+          callback.onSuccess(result);
+        } catch (RuntimeException e) {
+          log.warn("Callback failed", e);
+        }
+      }
+    }
+
+    void fail(Throwable t) {
+      if (future.setException(t) && callback != null) {
+        try {
+          callback.onFailure(t);
+        } catch (RuntimeException e) {
+          log.warn("Callback failed", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Queues requests and runs them in batches, taking all of the queued requests for each batch
+   * until there are none left.
+   */
+  private abstract class BatchTask<T> implements Runnable {
+
+    private final List<Request<T>> pending = new ArrayList<>();
+    private boolean running = false;
+
+    abstract void run(List<Request<T>> batch) throws Exception;
+
+    Future<T> submit(Request<T> request) {
+      boolean start;
+      synchronized (pending) {
+        if (closed)
+          throw new IllegalStateException("closed");
+        pending.add(request);
+        start = !running;
+        running = true;
+      }
+      if (start) {
+        try {
+          dispatchPool.execute(this);
+        } catch (RejectedExecutionException e) {
+          // closed concurrently, which fails the request
+        }
+      }
+      return request.future;
+    }
+
+    void failPending(Throwable t) {
+      List<Request<T>> failed;
+      synchronized (pending) {
+        failed = new ArrayList<>(pending);
+        pending.clear();
+      }
+      for (Request<T> request : failed) {
+        request.fail(t);
+      }
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        List<Request<T>> batch;
+        synchronized (pending) {
+          if (pending.isEmpty()) {
+            running = false;
+            return;
+          }
+          batch = new ArrayList<>(pending);
+          pending.clear();
+        }
+        try {
+          run(batch);
+        } catch (Throwable t) {
+          for (Request<T> request : batch) {
+            request.fail(t);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public Future<SortedMap<Key,Value>> lookup(Text row, Callback<SortedMap<Key,Value>> callback) {
+    checkArgument(row != null, "row is null");
+    return lookups.submit(new Request<>(callback, new Text(row), null));
+  }
+
+  private void lookup(List<Request<SortedMap<Key,Value>>> batch) {
+    Map<Text,SortedMap<Key,Value>> rows = new HashMap<>();
+    ArrayList<Range> ranges = new ArrayList<>();
+    for (Request<SortedMap<Key,Value>> request : batch) {
+      if (!rows.containsKey(request.row)) {
+        rows.put(request.row, new TreeMap<Key,Value>());
+        ranges.add(new Range(request.row));
+      }
+    }
+
+    try {
+      Iterator<Entry<Key,Value>> iter = batchScan(ranges, lookupPool);
+      Text row = new Text();
+      while (iter.hasNext()) {
+        Entry<Key,Value> entry = iter.next();
+        rows.get(entry.getKey().getRow(row)).put(entry.getKey(), entry.getValue());
+      }
+    } catch (RuntimeException e) {
+      ExecutorService failedPool = lookupPool;
+      lookupPool = new SimpleThreadPool(numQueryThreads, "async table lookup");
+      failedPool.shutdownNow();
+      throw e;
+    }
+
+    for (Request<SortedMap<Key,Value>> request : batch) {
+      request.succeed(Collections.unmodifiableSortedMap(rows.get(request.row)));
+    }
+  }
+
+  @Override
+  public void scan(Collection<Range> ranges, Subscriber subscriber) {
+    checkArgument(ranges != null && ranges.size() > 0,
+        "ranges must be non null and contain at least 1 range");
+    checkArgument(subscriber != null, "subscriber is null");
+    if (closed)
+      throw new IllegalStateException("closed");
+    ScanSubscription subscription = new ScanSubscription(new ArrayList<>(ranges), subscriber);
+    scans.add(subscription);
+    subscriber.onSubscribe(subscription);
+  }
+
+  /**
+   * Delivers the entries of a scan as they are requested. The entries are read by a batch scan with
+   * its own query threads, whose bounded queue of results stops the scan from reading ahead of the
+   * subscriber.
+   */
+  private class ScanSubscription implements Subscription, Runnable {
+
+    private final ArrayList<Range> ranges;
+    private final Subscriber subscriber;
+    private final AtomicLong demand = new AtomicLong(0);
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean cancelled = false;
+
+    // only used by run, which the scheduled flag keeps to one thread at a time
+    private ExecutorService queryPool;
+    private Iterator<Entry<Key,Value>> iter;
+    private boolean finished = false;
+
+    ScanSubscription(ArrayList<Range> ranges, Subscriber subscriber) {
+      this.ranges = ranges;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      checkArgument(n > 0, "n must be positive");
+      long current, next;
+      do {
+        current = demand.get();
+        next = current + n < 0 ? Long.MAX_VALUE : current + n;
+      } while (!demand.compareAndSet(current, next));
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          scanPool.execute(this);
+        } catch (RejectedExecutionException e) {
+          // closed, which cancels the scan
+          scheduled.set(false);
+        }
+      }
+    }
+
+    // only called by run, or once no run can start
+    private void finish() {
+      finished = true;
+      scans.remove(this);
+      if (queryPool != null) {
+        queryPool.shutdownNow();
+      }
+    }
+
+    @Override
+    public void run() {
+      if (finished) {
+        return;
+      }
+      try {
+        if (!cancelled && iter == null) {
+          queryPool = new SimpleThreadPool(numQueryThreads, "async table scan query");
+          iter = batchScan(ranges, queryPool);
+        }
+        boolean exhausted = false;
+        while (!cancelled && demand.get() > 0) {
+          if (!iter.hasNext()) {
+            exhausted = true;
+            break;
+          }
+          demand.decrementAndGet();
+          subscriber.onNext(iter.next());
+        }
+        if (cancelled) {
+          finish();
+          return;
+        }
+        if (exhausted) {
+          finish();
+          subscriber.onComplete();
+          return;
+        }
+      } catch (Throwable t) {
+        finish();
+        if (!cancelled) {
+          subscriber.onError(t);
+        }
+        return;
+      } finally {
+        scheduled.set(false);
+      }
+
+      // entries may have been requested after the loop last looked
+      if (demand.get() > 0 || cancelled) {
+        schedule();
+      }
+    }
+  }
+
+  @Override
+  public Future<Void> write(Mutation m, Callback<Void> callback) {
+    checkArgument(m != null, "mutation is null");
+    // the caller is free to reuse the mutation once this returns
+    return writes.submit(new Request<>(callback, null, new Mutation(m)));
+  }
+
+  private void write(List<Request<Void>> batch) throws MutationsRejectedException {
+    try {
+      if (writer == null) {
+        writer = new BatchWriterImpl(context, tableId, writerConfig);
+      }
+      for (Request<Void> request : batch) {
+        writer.addMutation(request.mutation);
+      }
+      writer.flush();
+    } catch (MutationsRejectedException | RuntimeException e) {
+      // a writer that rejected mutations rejects everything after them, so start over
+      closeWriter();
+      throw e;
+    }
+
+    for (Request<Void> request : batch) {
+      request.succeed(null);
+    }
+  }
+
+  private void closeWriter() {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (MutationsRejectedException e) {
+        log.debug("Closed writer rejected mutations", e);
+      }
+      writer = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+    closed = true;
+
+    IllegalStateException e = new IllegalStateException("closed");
+    lookups.failPending(e);
+    writes.failPending(e);
+    for (ScanSubscription scan : scans) {
+      scan.cancel();
+    }
+
+    // let the batches in flight finish, and interrupt scans waiting on tablet servers
+    dispatchPool.shutdown();
+    scanPool.shutdownNow();
+    boolean interrupted = false;
+    for (ExecutorService pool : Arrays.asList(dispatchPool, scanPool)) {
+      while (true) {
+        try {
+          if (pool.awaitTermination(1, TimeUnit.SECONDS))
+            break;
+          log.debug("Waiting for requests in flight before closing");
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+
+    // nothing runs anymore, so the writer and the query threads can be released
+    closeWriter();
+    lookupPool.shutdownNow();
+    for (ScanSubscription scan : scans) {
+      scan.finish();
+    }
+
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+}
@@ -37,6 +37,7 @@ import org.apache.accumulo.core.conf.DefaultConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.rpc.SaslConnectionParams;
 import org.apache.accumulo.core.rpc.SslConnectionParams;
+import org.apache.accumulo.core.rpc.ThriftUtil;
 import org.apache.accumulo.core.security.thrift.TCredentials;
 import org.apache.commons.configuration.Configuration;
 import org.slf4j.Logger;
@@ -70,6 +71,7 @@ public class ClientContext {
   private Supplier<Long> timeoutSupplier;
   private Supplier<SaslConnectionParams> saslSupplier;
   private Supplier<SslConnectionParams> sslSupplier;
+  private Supplier<Boolean> multiplexedSupplier;
   private TCredentials rpcCreds;
 
   /**
@@ -124,9 +126,23 @@ public class ClientContext {
       }
     };
 
+    multiplexedSupplier = new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        // servers only start multiplexed thrift servers when neither SSL nor SASL is enabled
+        if (getClientSslParams() != null || getSaslParams() != null) {
+          return false;
+        }
+        return ThriftUtil.MULTIPLEXED_SERVER_TYPE
+            .equalsIgnoreCase(getConfiguration().get(Property.GENERAL_RPC_SERVER_TYPE).trim());
+      }
+    };
+
     timeoutSupplier = Suppliers.memoizeWithExpiration(timeoutSupplier, 100, TimeUnit.MILLISECONDS);
     sslSupplier = Suppliers.memoizeWithExpiration(sslSupplier, 100, TimeUnit.MILLISECONDS);
     saslSupplier = Suppliers.memoizeWithExpiration(saslSupplier, 100, TimeUnit.MILLISECONDS);
+    multiplexedSupplier = Suppliers.memoizeWithExpiration(multiplexedSupplier, 100,
+        TimeUnit.MILLISECONDS);
 
   }
 
@@ -182,6 +198,25 @@ public class ClientContext {
     return saslSupplier.get();
   }
 
+  /**
+   * Whether RPCs to servers are multiplexed over a {@link
+   * org.apache.accumulo.core.rpc.MultiplexedConnection} per server
+   */
+  public boolean isRpcMultiplexed() {
+    return multiplexedSupplier.get();
+  }
+
+  /**
+   * Whether scanners adapt their batch size and read-ahead by default, see
+   * {@link ClientProperty#SCANNER_ADAPTIVE_BATCHING}
+   */
+  public boolean isScannerAdaptiveBatching() {
+    if (null == clientConf) {
+      return false;
+    }
+    return Boolean.parseBoolean(clientConf.get(ClientProperty.SCANNER_ADAPTIVE_BATCHING));
+  }
+
   /**
    * Retrieve a connector
    */
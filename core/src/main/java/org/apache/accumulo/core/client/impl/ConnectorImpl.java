@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncTable;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -162,6 +163,15 @@ public class ConnectorImpl extends Connector {
     return new ConditionalWriterImpl(context, getTableId(tableName), config);
   }
 
+  @Override
+  public AsyncTable createAsyncTable(String tableName, Authorizations authorizations,
+      int numQueryThreads, BatchWriterConfig config) throws TableNotFoundException {
+    checkArgument(tableName != null, "tableName is null");
+    checkArgument(authorizations != null, "authorizations is null");
+    return new AsyncTableImpl(context, getTableId(tableName), authorizations, numQueryThreads,
+        config);
+  }
+
   @Override
   public Scanner createScanner(String tableName, Authorizations authorizations)
       throws TableNotFoundException {
@@ -23,6 +23,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.Constants;
+import org.apache.accumulo.core.client.ClientConfiguration.ClientProperty;
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -53,6 +54,7 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
 
   private Range range;
   private boolean isolated = false;
+  private boolean adaptive;
   private long readaheadThreshold = Constants.SCANNER_DEFAULT_READAHEAD_THRESHOLD;
 
   public ScannerImpl(ClientContext context, String tableId, Authorizations authorizations) {
@@ -65,6 +67,7 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
     this.authorizations = authorizations;
 
     this.size = Constants.SCAN_BATCH_SIZE;
+    this.adaptive = context.isScannerAdaptiveBatching();
   }
 
   @Override
@@ -94,7 +97,7 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
   @Override
   public synchronized Iterator<Entry<Key,Value>> iterator() {
     return new ScannerIterator(context, tableId, authorizations, range, size, getTimeOut(), this,
-        isolated, readaheadThreshold);
+        isolated, readaheadThreshold, adaptive);
   }
 
   @Override
@@ -112,6 +115,24 @@ public class ScannerImpl extends ScannerOptions implements Scanner {
     this.isolated = false;
   }
 
+  /**
+   * Enables adaptive batching, overriding {@link ClientProperty#SCANNER_ADAPTIVE_BATCHING}.
+   */
+  public synchronized void enableAdaptiveBatching() {
+    this.adaptive = true;
+  }
+
+  /**
+   * Disables adaptive batching, overriding {@link ClientProperty#SCANNER_ADAPTIVE_BATCHING}.
+   */
+  public synchronized void disableAdaptiveBatching() {
+    this.adaptive = false;
+  }
+
+  public synchronized boolean isAdaptiveBatching() {
+    return adaptive;
+  }
+
   @Deprecated
   @Override
   public void setTimeOut(int timeOut) {
@@ -25,6 +25,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -64,6 +65,12 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
   private long batchCount = 0;
   private long readaheadThreshold;
 
+  // only set when batches are adaptive, in which case a reader keeps reading until it is as many
+  // batches ahead as the sizer asks for
+  private final AdaptiveBatchSizer sizer;
+  private final AtomicBoolean readerRunning = new AtomicBoolean(false);
+  private long lastBatchTaken = 0;
+
   private static final List<KeyValue> EMPTY_LIST = Collections.emptyList();
 
   private static ThreadPoolExecutor readaheadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 3l,
@@ -74,21 +81,31 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
 
     @Override
     public void run() {
+      readBatch();
+    }
+
+    /**
+     * @return false if the scan ended or failed
+     */
+    boolean readBatch() {
 
       try {
         while (true) {
+          long t1 = System.nanoTime();
           List<KeyValue> currentBatch = ThriftScanner.scan(scanState.context, scanState, timeOut);
 
           if (currentBatch == null) {
             synchQ.add(EMPTY_LIST);
-            return;
+            return false;
           }
 
           if (currentBatch.size() == 0)
             continue;
 
+          if (sizer != null)
+            sizer.batchFetched(System.nanoTime() - t1);
           synchQ.add(currentBatch);
-          return;
+          return true;
         }
       } catch (IsolationException | ScanTimedOutException | AccumuloException
           | AccumuloSecurityException | TableDeletedException | TableOfflineException
@@ -102,18 +119,64 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
         log.error("{}", e.getMessage(), e);
         synchQ.add(e);
       }
+      return false;
     }
 
   }
 
+  /**
+   * Reads batches until it is as many batches ahead of the consumer as the sizer asks for. Only one
+   * runs at a time, and none once the scan ended or failed.
+   */
+  private class AdaptiveReader extends Reader {
+
+    @Override
+    public void run() {
+      while (true) {
+        int size = sizer.getBatchSize();
+        if (size != scanState.size) {
+          scanState.size = size;
+          // the batch size is fixed for a session, restarting it would break isolation
+          if (!scanState.isolated)
+            ThriftScanner.closeSession(scanState);
+        }
+
+        if (!readBatch())
+          return;
+
+        if (synchQ.size() < sizer.getReadAhead())
+          continue;
+
+        readerRunning.set(false);
+        // the consumer may have taken a batch, and not started a reader, since the check
+        if (synchQ.size() >= sizer.getReadAhead() || !readerRunning.compareAndSet(false, true))
+          return;
+      }
+    }
+  }
+
   ScannerIterator(ClientContext context, String tableId, Authorizations authorizations, Range range,
       int size, int timeOut, ScannerOptions options, boolean isolated, long readaheadThreshold) {
+    this(context, tableId, authorizations, range, size, timeOut, options, isolated,
+        readaheadThreshold, false);
+  }
+
+  ScannerIterator(ClientContext context, String tableId, Authorizations authorizations, Range range,
+      int size, int timeOut, ScannerOptions options, boolean isolated, long readaheadThreshold,
+      boolean adaptive) {
     this.timeOut = timeOut;
     this.readaheadThreshold = readaheadThreshold;
 
     this.options = new ScannerOptions(options);
 
-    synchQ = new ArrayBlockingQueue<>(1);
+    if (adaptive) {
+      sizer = new AdaptiveBatchSizer(size, ScannerMetrics.getInstance());
+      // the batches read ahead, and the end of the scan
+      synchQ = new ArrayBlockingQueue<>(AdaptiveBatchSizer.MAX_READ_AHEAD + 1);
+    } else {
+      sizer = null;
+      synchQ = new ArrayBlockingQueue<>(1);
+    }
 
     if (this.options.fetchedColumns.size() > 0) {
       range = range.bound(this.options.fetchedColumns.first(), this.options.fetchedColumns.last());
@@ -125,7 +188,9 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
         options.getSamplerConfiguration(), options.batchTimeOut, options.classLoaderContext);
 
     // If we want to start readahead immediately, don't wait for hasNext to be called
-    if (0l == readaheadThreshold) {
+    if (sizer != null) {
+      startAdaptiveReader();
+    } else if (0l == readaheadThreshold) {
       initiateReadAhead();
     }
     iter = null;
@@ -136,6 +201,11 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     readaheadPool.execute(new Reader());
   }
 
+  private void startAdaptiveReader() {
+    if (readerRunning.compareAndSet(false, true))
+      readaheadPool.execute(new AdaptiveReader());
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public boolean hasNext() {
@@ -149,7 +219,12 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
     // this is done in order to find see if there is another batch to get
 
     try {
-      if (!readaheadInProgress) {
+      long t1 = System.nanoTime();
+      if (sizer != null) {
+        // a reader that has stopped because it was far enough ahead has to start again
+        if (synchQ.isEmpty())
+          startAdaptiveReader();
+      } else if (!readaheadInProgress) {
         // no read ahead run, fetch the next batch right now
         new Reader().run();
       }
@@ -174,7 +249,14 @@ public class ScannerIterator implements Iterator<Entry<Key,Value>> {
       iter = currentBatch.iterator();
       batchCount++;
 
-      if (batchCount > readaheadThreshold) {
+      if (sizer != null) {
+        long t2 = System.nanoTime();
+        if (lastBatchTaken != 0)
+          sizer.batchTaken(t2 - t1, t1 - lastBatchTaken);
+        lastBatchTaken = t2;
+        if (synchQ.size() < sizer.getReadAhead())
+          startAdaptiveReader();
+      } else if (batchCount > readaheadThreshold) {
         // start a thread to read the next batch
         initiateReadAhead();
       }
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the batch sizes that scanners with adaptive batching choose, over JMX, for all of the
+ * scanners of the process.
+ */
+public class ScannerMetrics implements ScannerMetricsMBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ScannerMetrics.class);
+
+  private static final ScannerMetrics INSTANCE = new ScannerMetrics();
+  private static boolean registered = false;
+
+  static synchronized ScannerMetrics getInstance() {
+    if (!registered) {
+      registered = true;
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+            new ObjectName("accumulo.client.metrics:service=Scanner,name=ScannerMetrics"));
+      } catch (Exception e) {
+        log.debug("Failed to register scanner metrics", e);
+      }
+    }
+    return INSTANCE;
+  }
+
+  private final AtomicLong adaptiveScans = new AtomicLong(0);
+  private final AtomicLong batches = new AtomicLong(0);
+  private final AtomicLong batchSizeSum = new AtomicLong(0);
+  private final AtomicLong increases = new AtomicLong(0);
+  private final AtomicLong decreases = new AtomicLong(0);
+  private volatile int batchSize = 0;
+  private volatile int readAhead = 0;
+
+  void scanStarted() {
+    adaptiveScans.incrementAndGet();
+  }
+
+  void batchTaken(int batchSize, int readAhead) {
+    batches.incrementAndGet();
+    batchSizeSum.addAndGet(batchSize);
+    this.batchSize = batchSize;
+    this.readAhead = readAhead;
+  }
+
+  void batchSizeChanged(boolean increased) {
+    (increased ? increases : decreases).incrementAndGet();
+  }
+
+  @Override
+  public long getAdaptiveScans() {
+    return adaptiveScans.get();
+  }
+
+  @Override
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  @Override
+  public double getAverageBatchSize() {
+    long count = batches.get();
+    return count == 0 ? 0 : batchSizeSum.get() / (double) count;
+  }
+
+  @Override
+  public int getReadAheadBatches() {
+    return readAhead;
+  }
+
+  @Override
+  public long getBatchSizeIncreases() {
+    return increases.get();
+  }
+
+  @Override
+  public long getBatchSizeDecreases() {
+    return decreases.get();
+  }
+}
@@ -88,6 +88,8 @@ import com.google.common.base.Joiner;
  *     mutations are merged with mutations currently processing in the background
  *   + Failed mutations are held for 1000ms and then re-added to the unprocessed queue
  *   + Flush holds adding of new mutations so it does not wait indefinitely
+ *   + Threads adding mutations append to one of several buffers without taking the writer's
+ *     lock, and bin the mutations they push to the background threads outside of it
  *
  * Considerations
  *   + All background threads must catch and note Throwable
@@ -95,6 +97,8 @@ import com.google.common.base.Joiner;
  *     concurrently (if new mutations come in for a tablet server while one
  *     thread is processing mutations for it, no other thread should
  *     start processing those mutations)
+ *   + flushing and closed only change while holding the writer's lock, and are set before the
+ *     buffers are drained, so a mutation is either drained or added after the flush or close
  *
  * Memory accounting
  *   + when a mutation enters the system memory is incremented
@@ -114,9 +118,12 @@ public class TabletServerBatchWriter {
   private final Durability durability;
 
   // state
-  private boolean flushing;
-  private boolean closed;
+  private volatile boolean flushing;
+  private volatile boolean closed;
+  // failed mutations waiting to be processed again, and mutations drained from the buffers
   private MutationSet mutations;
+  private final MutationBuffer[] buffers;
+  private final AtomicLong bufferedMemUsed = new AtomicLong(0);
 
   // background writer
   private final MutationWriter writer;
@@ -127,15 +134,15 @@ public class TabletServerBatchWriter {
       .synchronizedMap(new HashMap<String,TabletServerBatchWriter.TimeoutTracker>());
 
   // stats
-  private long totalMemUsed = 0;
-  private long lastProcessingStartTime;
+  private final AtomicLong totalMemUsed = new AtomicLong(0);
+  private volatile long lastProcessingStartTime;
 
-  private long totalAdded = 0;
+  private final AtomicLong totalAdded = new AtomicLong(0);
   private final AtomicLong totalSent = new AtomicLong(0);
   private final AtomicLong totalBinned = new AtomicLong(0);
   private final AtomicLong totalBinTime = new AtomicLong(0);
   private final AtomicLong totalSendTime = new AtomicLong(0);
-  private long startTime = 0;
+  private volatile long startTime = 0;
   private long initialGCTimes;
   private long initialCompileTimes;
   private double initialSystemLoad;
@@ -154,7 +161,7 @@ public class TabletServerBatchWriter {
   private final HashSet<String> serverSideErrors = new HashSet<>();
   private final FailedMutations failedMutations = new FailedMutations();
   private int unknownErrors = 0;
-  private boolean somethingFailed = false;
+  private volatile boolean somethingFailed = false;
   private Throwable lastUnknownError = null;
 
   private static class TimeoutTracker {
@@ -202,6 +209,10 @@ public class TabletServerBatchWriter {
         : config.getMaxLatency(TimeUnit.MILLISECONDS);
     this.timeout = config.getTimeout(TimeUnit.MILLISECONDS);
     this.mutations = new MutationSet();
+    this.buffers = new MutationBuffer[Runtime.getRuntime().availableProcessors()];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = new MutationBuffer();
+    }
     this.lastProcessingStartTime = System.currentTimeMillis();
     this.durability = config.getDurability();
 
@@ -212,11 +223,9 @@ public class TabletServerBatchWriter {
         @Override
         public void run() {
           try {
-            synchronized (TabletServerBatchWriter.this) {
-              if ((System.currentTimeMillis()
-                  - lastProcessingStartTime) > TabletServerBatchWriter.this.maxLatency)
-                startProcessing();
-            }
+            if ((System.currentTimeMillis()
+                - lastProcessingStartTime) > TabletServerBatchWriter.this.maxLatency)
+              startProcessing();
           } catch (Throwable t) {
             updateUnknownErrors("Max latency task failed " + t.getMessage(), t);
           }
@@ -225,37 +234,121 @@ public class TabletServerBatchWriter {
     }
   }
 
-  private synchronized void startProcessing() {
-    if (mutations.getMemoryUsed() == 0)
+  /**
+   * Mutations added by the threads that map to it, appended to without taking the writer's lock.
+   */
+  private class MutationBuffer {
+
+    private MutationSet mutations = new MutationSet();
+
+    /**
+     * Adds a mutation whose memory was already reserved in totalMemUsed.
+     *
+     * @return false if the writer is flushing or closed, in which case the mutation was not added
+     */
+    synchronized boolean add(String table, Mutation m, long memUsed) {
+      if (flushing || closed)
+        return false;
+      mutations.addMutation(table, m, memUsed);
+      bufferedMemUsed.addAndGet(memUsed);
+      return true;
+    }
+
+    synchronized void drainTo(MutationSet target) {
+      if (mutations.getMemoryUsed() > 0) {
+        bufferedMemUsed.addAndGet(-mutations.getMemoryUsed());
+        target.addAll(mutations);
+        mutations = new MutationSet();
+      }
+    }
+  }
+
+  private MutationBuffer getBuffer() {
+    return buffers[(int) (Thread.currentThread().getId() % buffers.length)];
+  }
+
+  private void startProcessing() {
+    MutationSet mutationsToProcess = drainMutations();
+    if (mutationsToProcess == null)
       return;
-    lastProcessingStartTime = System.currentTimeMillis();
     try {
-      writer.queueMutations(mutations);
+      writer.queueMutations(mutationsToProcess);
     } catch (InterruptedException e) {
       log.warn("Mutations rejected from binning thread, retrying...");
-      failedMutations.add(mutations);
+      failedMutations.add(mutationsToProcess);
     }
+  }
+
+  private synchronized MutationSet drainMutations() {
+    for (MutationBuffer buffer : buffers) {
+      buffer.drainTo(mutations);
+    }
+    if (mutations.getMemoryUsed() == 0)
+      return null;
+    lastProcessingStartTime = System.currentTimeMillis();
+    MutationSet drained = mutations;
     mutations = new MutationSet();
+    return drained;
   }
 
   private synchronized void decrementMemUsed(long amount) {
-    totalMemUsed -= amount;
+    totalMemUsed.addAndGet(-amount);
     this.notifyAll();
   }
 
-  public synchronized void addMutation(String table, Mutation m) throws MutationsRejectedException {
+  public void addMutation(String table, Mutation m) throws MutationsRejectedException {
 
     if (closed)
       throw new IllegalStateException("Closed");
     if (m.size() == 0)
       throw new IllegalArgumentException("Can not add empty mutations");
 
+    if (startTime == 0)
+      initStats();
+
+    // create a copy of mutation so that after this method returns the user
+    // is free to reuse the mutation object, like calling readFields... this
+    // is important for the case where a mutation is passed from map to reduce
+    // to batch writer... the map reduce code will keep passing the same mutation
+    // object into the reduce method
+    m = new Mutation(m);
+    long memUsed = m.estimatedMemoryUsed();
+
+    MutationBuffer buffer = getBuffer();
+    boolean added = false;
+    if (!somethingFailed) {
+      // reserve the memory before adding, so concurrent writers can not all see room for their
+      // mutation and together exceed maxMem
+      if (totalMemUsed.addAndGet(memUsed) <= maxMem && buffer.add(table, m, memUsed)) {
+        added = true;
+      } else {
+        decrementMemUsed(memUsed);
+      }
+    }
+    if (!added) {
+      addMutation(buffer, table, m, memUsed);
+    }
+    totalAdded.incrementAndGet();
+
+    if (bufferedMemUsed.get() >= maxMem / 2) {
+      startProcessing();
+      checkForFailures();
+    }
+  }
+
+  /**
+   * Adds a mutation while holding the writer's lock, waiting for memory to be freed or for a flush
+   * to finish first.
+   */
+  private synchronized void addMutation(MutationBuffer buffer, String table, Mutation m,
+      long memUsed) throws MutationsRejectedException {
+
     checkForFailures();
 
     waitRTE(new WaitCondition() {
       @Override
       public boolean shouldWait() {
-        return (totalMemUsed > maxMem || flushing) && !somethingFailed;
+        return (totalMemUsed.get() > maxMem || flushing) && !somethingFailed;
       }
     });
 
@@ -264,9 +357,13 @@ public class TabletServerBatchWriter {
       throw new IllegalStateException("Closed");
     checkForFailures();
 
-    if (startTime == 0) {
-      startTime = System.currentTimeMillis();
+    // can not fail, flushing and closed only change while holding the lock
+    totalMemUsed.addAndGet(memUsed);
+    buffer.add(table, m, memUsed);
+  }
 
+  private synchronized void initStats() {
+    if (startTime == 0) {
       List<GarbageCollectorMXBean> gcmBeans = ManagementFactory.getGarbageCollectorMXBeans();
       for (GarbageCollectorMXBean garbageCollectorMXBean : gcmBeans) {
         initialGCTimes += garbageCollectorMXBean.getCollectionTime();
@@ -278,22 +375,8 @@ public class TabletServerBatchWriter {
       }
 
       initialSystemLoad = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
-    }
-
-    // create a copy of mutation so that after this method returns the user
-    // is free to reuse the mutation object, like calling readFields... this
-    // is important for the case where a mutation is passed from map to reduce
-    // to batch writer... the map reduce code will keep passing the same mutation
-    // object into the reduce method
-    m = new Mutation(m);
 
-    totalMemUsed += m.estimatedMemoryUsed();
-    mutations.addMutation(table, m);
-    totalAdded++;
-
-    if (mutations.getMemoryUsed() >= maxMem / 2) {
-      startProcessing();
-      checkForFailures();
+      startTime = System.currentTimeMillis();
     }
   }
 
@@ -336,7 +419,7 @@ public class TabletServerBatchWriter {
       waitRTE(new WaitCondition() {
         @Override
         public boolean shouldWait() {
-          return totalMemUsed > 0 && !somethingFailed;
+          return totalMemUsed.get() > 0 && !somethingFailed;
         }
       });
 
@@ -364,7 +447,7 @@ public class TabletServerBatchWriter {
       waitRTE(new WaitCondition() {
         @Override
         public boolean shouldWait() {
-          return totalMemUsed > 0 && !somethingFailed;
+          return totalMemUsed.get() > 0 && !somethingFailed;
         }
       });
 
@@ -397,16 +480,16 @@ public class TabletServerBatchWriter {
       }
 
       double averageRate = totalSent.get() / (totalSendTime.get() / 1000.0);
-      double overallRate = totalAdded / ((finishTime - startTime) / 1000.0);
+      double overallRate = totalAdded.get() / ((finishTime - startTime) / 1000.0);
 
       double finalSystemLoad = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
 
       log.trace("");
       log.trace("TABLET SERVER BATCH WRITER STATISTICS");
-      log.trace(String.format("Added                : %,10d mutations", totalAdded));
+      log.trace(String.format("Added                : %,10d mutations", totalAdded.get()));
       log.trace(String.format("Sent                 : %,10d mutations", totalSent.get()));
       log.trace(String.format("Resent percentage   : %10.2f%s",
-          (totalSent.get() - totalAdded) / (double) totalAdded * 100.0, "%"));
+          (totalSent.get() - totalAdded.get()) / (double) totalAdded.get() * 100.0, "%"));
       log.trace(
           String.format("Overall time         : %,10.2f secs", (finishTime - startTime) / 1000.0));
       log.trace(String.format("Overall send rate    : %,10.2f mutations/sec", overallRate));
@@ -578,21 +661,26 @@ public class TabletServerBatchWriter {
 
   private void checkForFailures() throws MutationsRejectedException {
     if (somethingFailed) {
-      List<ConstraintViolationSummary> cvsList = violations.asList();
-      HashMap<TabletId,Set<org.apache.accumulo.core.client.security.SecurityErrorCode>> af = new HashMap<>();
-      for (Entry<KeyExtent,Set<SecurityErrorCode>> entry : authorizationFailures.entrySet()) {
-        HashSet<org.apache.accumulo.core.client.security.SecurityErrorCode> codes = new HashSet<>();
+      throw newMutationsRejectedException();
+    }
+  }
 
-        for (SecurityErrorCode sce : entry.getValue()) {
-          codes.add(org.apache.accumulo.core.client.security.SecurityErrorCode.valueOf(sce.name()));
-        }
+  // the errors are updated by background threads while holding the lock
+  private synchronized MutationsRejectedException newMutationsRejectedException() {
+    List<ConstraintViolationSummary> cvsList = violations.asList();
+    HashMap<TabletId,Set<org.apache.accumulo.core.client.security.SecurityErrorCode>> af = new HashMap<>();
+    for (Entry<KeyExtent,Set<SecurityErrorCode>> entry : authorizationFailures.entrySet()) {
+      HashSet<org.apache.accumulo.core.client.security.SecurityErrorCode> codes = new HashSet<>();
 
-        af.put(new TabletIdImpl(entry.getKey()), codes);
+      for (SecurityErrorCode sce : entry.getValue()) {
+        codes.add(org.apache.accumulo.core.client.security.SecurityErrorCode.valueOf(sce.name()));
       }
 
-      throw new MutationsRejectedException(context.getInstance(), cvsList, af, serverSideErrors,
-          unknownErrors, lastUnknownError);
+      af.put(new TabletIdImpl(entry.getKey()), codes);
     }
+
+    return new MutationsRejectedException(context.getInstance(), cvsList, af, serverSideErrors,
+        unknownErrors, lastUnknownError);
   }
 
   // END code for handling unrecoverable errors
@@ -602,9 +690,14 @@ public class TabletServerBatchWriter {
   /**
    * Add mutations that previously failed back into the mix
    */
-  private synchronized void addFailedMutations(MutationSet failedMutations) throws Exception {
-    mutations.addAll(failedMutations);
-    if (mutations.getMemoryUsed() >= maxMem / 2 || closed || flushing) {
+  private void addFailedMutations(MutationSet failedMutations) throws Exception {
+    boolean process;
+    synchronized (this) {
+      mutations.addAll(failedMutations);
+      process = mutations.getMemoryUsed() + bufferedMemUsed.get() >= maxMem / 2 || closed
+          || flushing;
+    }
+    if (process) {
       startProcessing();
     }
   }
@@ -1059,6 +1152,10 @@ public class TabletServerBatchWriter {
     }
 
     void addMutation(String table, Mutation mutation) {
+      addMutation(table, mutation, mutation.estimatedMemoryUsed());
+    }
+
+    void addMutation(String table, Mutation mutation, long estimatedMemoryUsed) {
       List<Mutation> tabMutList = mutations.get(table);
       if (tabMutList == null) {
         tabMutList = new ArrayList<>();
@@ -1067,7 +1164,7 @@ public class TabletServerBatchWriter {
 
       tabMutList.add(mutation);
 
-      memoryUsed += mutation.estimatedMemoryUsed();
+      memoryUsed += estimatedMemoryUsed;
     }
 
     Map<String,List<Mutation>> getMutations() {
@@ -209,6 +209,28 @@ public class ThriftScanner {
     }
   }
 
+  /**
+   * Closes the scan session of the tablet being scanned, if there is one, so that the next batch
+   * starts a new session at the position the scan reached, with the current batch size.
+   */
+  static void closeSession(ScanState scanState) {
+    Long scanID = scanState.scanID;
+    if (scanID == null || scanState.prevLoc == null)
+      return;
+    scanState.scanID = null;
+    try {
+      TabletClientService.Client client = ThriftUtil.getTServerClient(
+          HostAndPort.fromString(scanState.prevLoc.tablet_location), scanState.context);
+      try {
+        client.closeScan(Tracer.traceInfo(), scanID);
+      } finally {
+        ThriftUtil.returnClient(client);
+      }
+    } catch (TException e) {
+      log.debug("Failed to close scan session {}, it will time out", scanID, e);
+    }
+  }
+
   public static class ScanTimedOutException extends IOException {
 
     private static final long serialVersionUID = 1L;
@@ -32,6 +32,7 @@ public class ThriftTransportKey {
   private final long timeout;
   private final SslConnectionParams sslParams;
   private final SaslConnectionParams saslParams;
+  private final boolean multiplexed;
 
   private int hash = -1;
 
@@ -48,6 +49,7 @@ public class ThriftTransportKey {
         throw new RuntimeException("Cannot use both SSL and SASL thrift transports");
       }
     }
+    this.multiplexed = sslParams == null && saslParams == null && context.isRpcMultiplexed();
   }
 
   /**
@@ -60,6 +62,7 @@ public class ThriftTransportKey {
     this.timeout = timeout;
     this.sslParams = sslParams;
     this.saslParams = saslParams;
+    this.multiplexed = false;
   }
 
   HostAndPort getServer() {
@@ -78,12 +81,16 @@ public class ThriftTransportKey {
     return saslParams != null;
   }
 
+  public boolean isMultiplexed() {
+    return multiplexed;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof ThriftTransportKey))
       return false;
     ThriftTransportKey ttk = (ThriftTransportKey) o;
-    return server.equals(ttk.server) && timeout == ttk.timeout
+    return server.equals(ttk.server) && timeout == ttk.timeout && multiplexed == ttk.multiplexed
         && (!isSsl() || (ttk.isSsl() && sslParams.equals(ttk.sslParams)))
         && (!isSasl() || (ttk.isSasl() && saslParams.equals(ttk.saslParams)));
   }
@@ -95,7 +102,7 @@ public class ThriftTransportKey {
   @Override
   public int hashCode() {
     if (hash == -1)
-      hash = Objects.hash(server, timeout, sslParams, saslParams);
+      hash = Objects.hash(server, timeout, sslParams, saslParams, multiplexed);
     return hash;
   }
 
@@ -106,6 +113,8 @@ public class ThriftTransportKey {
       prefix = "ssl:";
     } else if (isSasl()) {
       prefix = saslParams.toString() + ":";
+    } else if (isMultiplexed()) {
+      prefix = "multiplexed:";
     }
     return prefix + server + " (" + Long.toString(timeout) + ")";
   }
@@ -19,18 +19,20 @@ package org.apache.accumulo.core.client.impl;
 import java.security.SecurityPermission;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.accumulo.core.rpc.MultiplexedConnection;
 import org.apache.accumulo.core.rpc.ThriftUtil;
 import org.apache.accumulo.core.util.Daemon;
 import org.apache.accumulo.core.util.HostAndPort;
@@ -44,20 +46,52 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterables;
 
+/**
+ * A pool of thrift connections, shared by every client in the process.
+ *
+ * <p>
+ * Connections are kept per server in concurrent collections, so reserving and returning a
+ * connection never takes a lock. Unreserved connections are removed from their deque atomically,
+ * by whichever of a reserving thread or the thread closing idle connections gets to them first.
+ *
+ * <p>
+ * The connections to servers that multiplex RPCs are channels of one {@link MultiplexedConnection}
+ * per server, which is closed once all of its channels are.
+ */
 public class ThriftTransportPool {
   private static SecurityPermission TRANSPORT_POOL_PERMISSION = new SecurityPermission(
       "transportPoolPermission");
 
   private static final Random random = new Random();
-  private long killTime = 1000 * 3;
+  private volatile long killTime = 1000 * 3;
 
   private static class CachedConnections {
-    LinkedList<CachedConnection> unreserved = new LinkedList<>();
-    Map<CachedTTransport,CachedConnection> reserved = new HashMap<>();
+    final ConcurrentLinkedDeque<CachedConnection> unreserved = new ConcurrentLinkedDeque<>();
+    final ConcurrentMap<CachedTTransport,CachedConnection> reserved = new ConcurrentHashMap<>();
+
+    // errors seen since errorTime, both are reset by the Closer once the errors are old enough
+    final AtomicLong errorCount = new AtomicLong(0);
+    final AtomicLong errorTime = new AtomicLong(0);
+
+    // the connection that the connections to a multiplexed server are channels of
+    private MultiplexedConnection multiplexedConnection;
+
+    synchronized TTransport newChannel(ThriftTransportKey cacheKey) throws TTransportException {
+      TTransport channel = null;
+      if (multiplexedConnection != null) {
+        channel = multiplexedConnection.newChannel();
+      }
+      if (channel == null) {
+        multiplexedConnection = MultiplexedConnection.open(cacheKey.getServer(),
+            cacheKey.getTimeout());
+        channel = multiplexedConnection.newChannel();
+      }
+      return channel;
+    }
 
     public CachedConnection reserveAny() {
-      if (unreserved.size() > 0) {
-        CachedConnection cachedConnection = unreserved.removeFirst();
+      CachedConnection cachedConnection = unreserved.pollFirst();
+      if (cachedConnection != null) {
         cachedConnection.reserve();
         reserved.put(cachedConnection.transport, cachedConnection);
         if (log.isTraceEnabled()) {
@@ -70,16 +104,17 @@ public class ThriftTransportPool {
     }
   }
 
-  private Map<ThriftTransportKey,CachedConnections> cache = new HashMap<>();
-  private Map<ThriftTransportKey,Long> errorCount = new HashMap<>();
-  private Map<ThriftTransportKey,Long> errorTime = new HashMap<>();
-  private Set<ThriftTransportKey> serversWarnedAbout = new HashSet<>();
+  // null once the pool is shut down
+  private volatile ConcurrentMap<ThriftTransportKey,CachedConnections> cache =
+      new ConcurrentHashMap<>();
+  private Set<ThriftTransportKey> serversWarnedAbout = Collections
+      .newSetFromMap(new ConcurrentHashMap<ThriftTransportKey,Boolean>());
 
-  private CountDownLatch closerExitLatch;
+  private volatile CountDownLatch closerExitLatch;
 
   private static final Logger log = LoggerFactory.getLogger(ThriftTransportPool.class);
 
-  private static final Long ERROR_THRESHOLD = 20l;
+  private static final long ERROR_THRESHOLD = 20l;
   private static final int STUCK_THRESHOLD = 2 * 60 * 1000;
 
   private static class CachedConnection {
@@ -100,7 +135,7 @@ public class ThriftTransportPool {
 
     final CachedTTransport transport;
 
-    long lastReturnTime;
+    volatile long lastReturnTime;
   }
 
   public static class TransportPoolShutdownException extends RuntimeException {
@@ -121,35 +156,31 @@ public class ThriftTransportPool {
 
         ArrayList<CachedConnection> connectionsToClose = new ArrayList<>();
 
-        synchronized (pool) {
-          for (CachedConnections cachedConns : pool.getCache().values()) {
-            Iterator<CachedConnection> iter = cachedConns.unreserved.iterator();
-            while (iter.hasNext()) {
-              CachedConnection cachedConnection = iter.next();
+        for (CachedConnections cachedConns : pool.getCache().values()) {
+          // the deque is used as a LIFO, so the longest idle connections are at its end
+          Iterator<CachedConnection> iter = cachedConns.unreserved.descendingIterator();
+          while (iter.hasNext()) {
+            CachedConnection cachedConnection = iter.next();
 
-              if (System.currentTimeMillis() - cachedConnection.lastReturnTime > pool.killTime) {
+            if (System.currentTimeMillis() - cachedConnection.lastReturnTime > pool.killTime) {
+              // only close the connection if it was not reserved in the meantime
+              if (cachedConns.unreserved.removeLastOccurrence(cachedConnection)) {
                 connectionsToClose.add(cachedConnection);
-                iter.remove();
               }
             }
+          }
 
-            for (CachedConnection cachedConnection : cachedConns.reserved.values()) {
-              cachedConnection.transport.checkForStuckIO(STUCK_THRESHOLD);
-            }
+          for (CachedConnection cachedConnection : cachedConns.reserved.values()) {
+            cachedConnection.transport.checkForStuckIO(STUCK_THRESHOLD);
           }
 
-          Iterator<Entry<ThriftTransportKey,Long>> iter = pool.errorTime.entrySet().iterator();
-          while (iter.hasNext()) {
-            Entry<ThriftTransportKey,Long> entry = iter.next();
-            long delta = System.currentTimeMillis() - entry.getValue();
-            if (delta >= STUCK_THRESHOLD) {
-              pool.errorCount.remove(entry.getKey());
-              iter.remove();
-            }
+          long etime = cachedConns.errorTime.get();
+          if (etime != 0 && System.currentTimeMillis() - etime >= STUCK_THRESHOLD) {
+            cachedConns.errorCount.set(0);
+            cachedConns.errorTime.compareAndSet(etime, 0);
           }
         }
 
-        // close connections outside of sync block
         for (CachedConnection cachedConnection : connectionsToClose) {
           cachedConnection.transport.close();
         }
@@ -191,7 +222,8 @@ public class ThriftTransportPool {
       sawError = true;
     }
 
-    final void setReserved(boolean reserved) {
+    // synchronized because the Closer checks for stuck io while connections are reserved
+    final synchronized void setReserved(boolean reserved) {
       this.reserved = reserved;
       if (reserved) {
         ioThreadName = Thread.currentThread().getName();
@@ -211,7 +243,7 @@ public class ThriftTransportPool {
       checkForStuckIO(STUCK_THRESHOLD);
     }
 
-    final void checkForStuckIO(long threshold) {
+    final synchronized void checkForStuckIO(long threshold) {
       // checking for stuck io needs to be light weight.
 
       // Tried to call System.currentTimeMillis() and Thread.currentThread() before every io
@@ -416,25 +448,25 @@ public class ThriftTransportPool {
   }
 
   private TTransport getTransport(ThriftTransportKey cacheKey) throws TTransportException {
-    // compute hash code outside of lock, this lowers the time the lock is held
-    cacheKey.precomputeHashCode();
-    synchronized (this) {
-      // atomically reserve location if it exist in cache
-      CachedConnections ccl = getCache().get(cacheKey);
+    CachedConnection cachedConnection = getCachedConnections(cacheKey).reserveAny();
+    if (cachedConnection != null) {
+      log.trace("Using existing connection to {}", cacheKey.getServer());
+      return cachedConnection.transport;
+    }
 
-      if (ccl == null) {
-        ccl = new CachedConnections();
-        getCache().put(cacheKey, ccl);
-      }
+    return createNewTransport(cacheKey);
+  }
 
-      CachedConnection cachedConnection = ccl.reserveAny();
-      if (cachedConnection != null) {
-        log.trace("Using existing connection to {}", cacheKey.getServer());
-        return cachedConnection.transport;
+  private CachedConnections getCachedConnections(ThriftTransportKey cacheKey) {
+    ConcurrentMap<ThriftTransportKey,CachedConnections> cache = getCache();
+    CachedConnections ccl = cache.get(cacheKey);
+    if (ccl == null) {
+      CachedConnections existing = cache.putIfAbsent(cacheKey, ccl = new CachedConnections());
+      if (existing != null) {
+        ccl = existing;
       }
     }
-
-    return createNewTransport(cacheKey);
+    return ccl;
   }
 
   @VisibleForTesting
@@ -446,22 +478,19 @@ public class ThriftTransportPool {
     if (preferCachedConnection) {
       HashSet<ThriftTransportKey> serversSet = new HashSet<>(servers);
 
-      synchronized (this) {
+      // randomly pick a server from the connection cache
+      serversSet.retainAll(getCache().keySet());
 
-        // randomly pick a server from the connection cache
-        serversSet.retainAll(getCache().keySet());
+      if (serversSet.size() > 0) {
+        ArrayList<ThriftTransportKey> cachedServers = new ArrayList<>(serversSet);
+        Collections.shuffle(cachedServers, random);
 
-        if (serversSet.size() > 0) {
-          ArrayList<ThriftTransportKey> cachedServers = new ArrayList<>(serversSet);
-          Collections.shuffle(cachedServers, random);
-
-          for (ThriftTransportKey ttk : cachedServers) {
-            CachedConnection cachedConnection = getCache().get(ttk).reserveAny();
-            if (cachedConnection != null) {
-              final String serverAddr = ttk.getServer().toString();
-              log.trace("Using existing connection to {}", serverAddr);
-              return new Pair<String,TTransport>(serverAddr, cachedConnection.transport);
-            }
+        for (ThriftTransportKey ttk : cachedServers) {
+          CachedConnection cachedConnection = getCachedConnections(ttk).reserveAny();
+          if (cachedConnection != null) {
+            final String serverAddr = ttk.getServer().toString();
+            log.trace("Using existing connection to {}", serverAddr);
+            return new Pair<String,TTransport>(serverAddr, cachedConnection.transport);
           }
         }
       }
@@ -473,14 +502,12 @@ public class ThriftTransportPool {
       ThriftTransportKey ttk = servers.get(index);
 
       if (preferCachedConnection) {
-        synchronized (this) {
-          CachedConnections cachedConns = getCache().get(ttk);
-          if (cachedConns != null) {
-            CachedConnection cachedConnection = cachedConns.reserveAny();
-            if (cachedConnection != null) {
-              final String serverAddr = ttk.getServer().toString();
-              return new Pair<String,TTransport>(serverAddr, cachedConnection.transport);
-            }
+        CachedConnections cachedConns = getCache().get(ttk);
+        if (cachedConns != null) {
+          CachedConnection cachedConnection = cachedConns.reserveAny();
+          if (cachedConnection != null) {
+            final String serverAddr = ttk.getServer().toString();
+            return new Pair<String,TTransport>(serverAddr, cachedConnection.transport);
           }
         }
       }
@@ -498,10 +525,15 @@ public class ThriftTransportPool {
   }
 
   private TTransport createNewTransport(ThriftTransportKey cacheKey) throws TTransportException {
-    TTransport transport = ThriftUtil.createClientTransport(cacheKey.getServer(),
-        (int) cacheKey.getTimeout(), cacheKey.getSslParams(), cacheKey.getSaslParams());
-
-    log.trace("Creating new connection to connection to {}", cacheKey.getServer());
+    TTransport transport;
+    if (cacheKey.isMultiplexed()) {
+      transport = getCachedConnections(cacheKey).newChannel(cacheKey);
+      log.trace("Creating new channel to {}", cacheKey.getServer());
+    } else {
+      transport = ThriftUtil.createClientTransport(cacheKey.getServer(),
+          (int) cacheKey.getTimeout(), cacheKey.getSslParams(), cacheKey.getSaslParams());
+      log.trace("Creating new connection to connection to {}", cacheKey.getServer());
+    }
 
     CachedTTransport tsc = new CachedTTransport(transport, cacheKey);
 
@@ -509,16 +541,10 @@ public class ThriftTransportPool {
     cc.reserve();
 
     try {
-      synchronized (this) {
-        CachedConnections cachedConns = getCache().get(cacheKey);
-
-        if (cachedConns == null) {
-          cachedConns = new CachedConnections();
-          getCache().put(cacheKey, cachedConns);
-        }
-
-        cachedConns.reserved.put(cc.transport, cc);
-      }
+      getCachedConnections(cacheKey).reserved.put(cc.transport, cc);
+      // the pool may have been shut down after the connections were closed, but before this one
+      // was added
+      getCache();
     } catch (TransportPoolShutdownException e) {
       cc.transport.close();
       throw e;
@@ -536,60 +562,49 @@ public class ThriftTransportPool {
 
     ArrayList<CachedConnection> closeList = new ArrayList<>();
 
-    synchronized (this) {
-      CachedConnections cachedConns = getCache().get(ctsc.getCacheKey());
-      if (cachedConns != null) {
-        CachedConnection cachedConnection = cachedConns.reserved.remove(ctsc);
-        if (cachedConnection != null) {
-          if (ctsc.sawError) {
-            closeList.add(cachedConnection);
-
-            log.trace("Returned connection had error {}", ctsc.getCacheKey());
-
-            Long ecount = errorCount.get(ctsc.getCacheKey());
-            if (ecount == null)
-              ecount = 0l;
-            ecount++;
-            errorCount.put(ctsc.getCacheKey(), ecount);
-
-            Long etime = errorTime.get(ctsc.getCacheKey());
-            if (etime == null) {
-              errorTime.put(ctsc.getCacheKey(), System.currentTimeMillis());
-            }
+    CachedConnections cachedConns = getCache().get(ctsc.getCacheKey());
+    if (cachedConns != null) {
+      CachedConnection cachedConnection = cachedConns.reserved.remove(ctsc);
+      if (cachedConnection != null) {
+        if (ctsc.sawError) {
+          closeList.add(cachedConnection);
 
-            if (ecount >= ERROR_THRESHOLD && !serversWarnedAbout.contains(ctsc.getCacheKey())) {
-              log.warn(
-                  "Server {} had {} failures in a short time period, will not complain anymore",
-                  ctsc.getCacheKey(), ecount);
-              serversWarnedAbout.add(ctsc.getCacheKey());
-            }
+          log.trace("Returned connection had error {}", ctsc.getCacheKey());
 
-            cachedConnection.unreserve();
-
-            // remove all unreserved cached connection when a sever has an error, not just the
-            // connection that was returned
-            closeList.addAll(cachedConns.unreserved);
-            cachedConns.unreserved.clear();
-
-          } else {
-            log.trace("Returned connection {} ioCount: {}", ctsc.getCacheKey(),
-                cachedConnection.transport.ioCount);
-
-            cachedConnection.lastReturnTime = System.currentTimeMillis();
-            cachedConnection.unreserve();
-            // Calling addFirst to use unreserved as LIFO queue. Using LIFO ensures that when the #
-            // of pooled connections exceeds the working set size that the
-            // idle times at the end of the list grow. The connections with large idle times will be
-            // cleaned up. Using a FIFO could continually reset the idle
-            // times of all connections, even when there are more than the working set size.
-            cachedConns.unreserved.addFirst(cachedConnection);
+          long ecount = cachedConns.errorCount.incrementAndGet();
+          cachedConns.errorTime.compareAndSet(0, System.currentTimeMillis());
+
+          if (ecount >= ERROR_THRESHOLD && serversWarnedAbout.add(ctsc.getCacheKey())) {
+            log.warn("Server {} had {} failures in a short time period, will not complain anymore",
+                ctsc.getCacheKey(), ecount);
           }
-          existInCache = true;
+
+          cachedConnection.unreserve();
+
+          // remove all unreserved cached connection when a sever has an error, not just the
+          // connection that was returned
+          CachedConnection unreserved;
+          while ((unreserved = cachedConns.unreserved.pollFirst()) != null) {
+            closeList.add(unreserved);
+          }
+
+        } else {
+          log.trace("Returned connection {} ioCount: {}", ctsc.getCacheKey(),
+              cachedConnection.transport.ioCount);
+
+          cachedConnection.lastReturnTime = System.currentTimeMillis();
+          cachedConnection.unreserve();
+          // Calling addFirst to use unreserved as LIFO queue. Using LIFO ensures that when the #
+          // of pooled connections exceeds the working set size that the
+          // idle times at the end of the list grow. The connections with large idle times will be
+          // cleaned up. Using a FIFO could continually reset the idle
+          // times of all connections, even when there are more than the working set size.
+          cachedConns.unreserved.addFirst(cachedConnection);
         }
+        existInCache = true;
       }
     }
 
-    // close outside of sync block
     for (CachedConnection cachedConnection : closeList) {
       try {
         cachedConnection.transport.close();
@@ -600,7 +615,6 @@ public class ThriftTransportPool {
 
     if (!existInCache) {
       log.warn("Returned tablet server connection to cache that did not come from cache");
-      // close outside of sync block
       tsc.close();
     }
   }
@@ -608,7 +622,7 @@ public class ThriftTransportPool {
   /**
    * Set the time after which idle connections should be closed
    */
-  public synchronized void setIdleTime(long time) {
+  public void setIdleTime(long time) {
     this.killTime = time;
     log.debug("Set thrift transport pool idle time to {}", time);
   }
@@ -630,31 +644,33 @@ public class ThriftTransportPool {
     return instance;
   }
 
-  private synchronized void setCloserExitLatch(CountDownLatch closerExitLatch) {
+  private void setCloserExitLatch(CountDownLatch closerExitLatch) {
     this.closerExitLatch = closerExitLatch;
   }
 
   public void shutdown() {
+    Map<ThriftTransportKey,CachedConnections> cache;
     synchronized (this) {
+      cache = this.cache;
       if (cache == null)
         return;
 
-      // close any connections in the pool... even ones that are in use
-      for (CachedConnections cachedConn : getCache().values()) {
-        for (CachedConnection cc : Iterables.concat(cachedConn.reserved.values(),
-            cachedConn.unreserved)) {
-          try {
-            cc.transport.close();
-          } catch (Exception e) {
-            log.debug("Error closing transport during shutdown", e);
-          }
-        }
-      }
-
       // this will render the pool unusable and cause the background thread to exit
       this.cache = null;
     }
 
+    // close any connections in the pool... even ones that are in use
+    for (CachedConnections cachedConn : cache.values()) {
+      for (CachedConnection cc : Iterables.concat(cachedConn.reserved.values(),
+          cachedConn.unreserved)) {
+        try {
+          cc.transport.close();
+        } catch (Exception e) {
+          log.debug("Error closing transport during shutdown", e);
+        }
+      }
+    }
+
     try {
       closerExitLatch.await();
     } catch (InterruptedException e) {
@@ -662,7 +678,8 @@ public class ThriftTransportPool {
     }
   }
 
-  private Map<ThriftTransportKey,CachedConnections> getCache() {
+  private ConcurrentMap<ThriftTransportKey,CachedConnections> getCache() {
+    ConcurrentMap<ThriftTransportKey,CachedConnections> cache = this.cache;
     if (cache == null)
       throw new TransportPoolShutdownException();
     return cache;
@@ -19,6 +19,7 @@ package org.apache.accumulo.core.client.mock;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncTable;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -165,6 +166,12 @@ public class MockConnector extends Connector {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public AsyncTable createAsyncTable(String tableName, Authorizations authorizations,
+      int numQueryThreads, BatchWriterConfig config) throws TableNotFoundException {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public ReplicationOperations replicationOperations() {
     // TODO add implementation
@@ -113,6 +113,21 @@ class RFileScanner extends ScannerOptions implements Scanner {
     public long getMaxSize() {
       return Integer.MAX_VALUE;
     }
+
+    @Override
+    public Stats getStats() {
+      return new Stats() {
+        @Override
+        public long getHitCount() {
+          return 0L;
+        }
+
+        @Override
+        public long getRequestCount() {
+          return 0L;
+        }
+      };
+    }
   }
 
   RFileScanner(Opts opts) {
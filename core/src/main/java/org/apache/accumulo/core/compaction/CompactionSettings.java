@@ -28,6 +28,7 @@ public enum CompactionSettings {
   SF_PATH_RE_OPT(new PatternType()),
   MIN_FILES_OPT(new UIntType()),
   OUTPUT_COMPRESSION_OPT(new StringType()),
+  OUTPUT_COMPRESSION_LEVEL_OPT(new UIntType()),
   OUTPUT_BLOCK_SIZE_OPT(new SizeType()),
   OUTPUT_HDFS_BLOCK_SIZE_OPT(new SizeType()),
   OUTPUT_INDEX_BLOCK_SIZE_OPT(new SizeType()),
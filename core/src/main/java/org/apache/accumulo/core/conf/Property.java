@@ -255,7 +255,9 @@ public enum Property {
   GENERAL_RPC_SERVER_TYPE("general.rpc.server.type", "", PropertyType.STRING,
       "Type of Thrift server to instantiate, see "
           + "org.apache.accumulo.server.rpc.ThriftServerType for more information. "
-          + "Only useful for benchmarking thrift servers"),
+          + "Only useful for benchmarking thrift servers, except for multiplexed, which "
+          + "clients must also be configured with to multiplex their RPCs to a server over "
+          + "one connection"),
   GENERAL_KERBEROS_KEYTAB("general.kerberos.keytab", "", PropertyType.PATH,
       "Path to the kerberos keytab to use. Leave blank if not using kerberoized hdfs"),
   GENERAL_KERBEROS_PRINCIPAL("general.kerberos.principal", "", PropertyType.STRING,
@@ -358,6 +360,29 @@ public enum Property {
       "Specifies the size of the cache for file data blocks."),
   TSERV_INDEXCACHE_SIZE("tserver.cache.index.size", "512M", PropertyType.MEMORY,
       "Specifies the size of the cache for file indices."),
+  TSERV_CACHE_POLICY("tserver.cache.policy", "LRU", PropertyType.STRING,
+      "Specifies the eviction policy of the data and index caches. 'LRU' uses a single map"
+          + " with a background thread that evicts the least recently used blocks of each"
+          + " priority. 'TINYLFU' uses a sharded cache that admits new blocks based on how"
+          + " frequently they are accessed and evicts incrementally on insert. 'OFFHEAP' stores"
+          + " blocks in direct memory, outside of the Java heap; the JVM's maximum direct memory"
+          + " must be larger than the sum of the cache sizes. Indexes parsed from its blocks"
+          + " are kept on the heap, in up to a tenth of the cache sizes."),
+  TSERV_CACHE_LOCAL_DIR("tserver.cache.local.dir", "", PropertyType.ABSOLUTEPATH,
+      "A directory on the local filesystem, ideally on an SSD, in which to keep a second tier of"
+          + " the data and index caches. Blocks are written there as they are cached and are"
+          + " read back when they are no longer in memory, including after a restart. The"
+          + " local cache is disabled when this is empty, or when crypto.module.class is set, as"
+          + " the blocks are stored decrypted. The directory is only accessible to its owner."),
+  TSERV_CACHE_LOCAL_SIZE("tserver.cache.local.size", "10G", PropertyType.MEMORY,
+      "Specifies the maximum size of the blocks kept in tserver.cache.local.dir. The least"
+          + " recently read blocks are removed when it is exceeded."),
+  TSERV_FILE_PREFETCH_MEMORY("tserver.file.prefetch.memory.max", "64M", PropertyType.MEMORY,
+      "The maximum memory used by data blocks that scans of tables with table.file.prefetch.blocks"
+          + " set have fetched ahead of time and not yet read. Blocks are not fetched ahead while"
+          + " this is exceeded."),
+  TSERV_FILE_PREFETCH_THREADS("tserver.file.prefetch.threads", "4", PropertyType.COUNT,
+      "The number of threads fetching data blocks ahead of scans."),
   TSERV_PORTSEARCH("tserver.port.search", "false", PropertyType.BOOLEAN,
       "if the ports above are in use, search higher ports until one is available"),
   TSERV_CLIENTPORT("tserver.port.client", "9997", PropertyType.PORT,
@@ -384,6 +409,9 @@ public enum Property {
       "The maximum size for each write-ahead log. See comment for tserver.memory.maps.max"),
   TSERV_WALOG_MAX_AGE("tserver.walog.max.age", "24h", PropertyType.TIMEDURATION,
       "The maximum age for each write-ahead log."),
+  TSERV_WALOG_COUNT("tserver.walog.count", "1", PropertyType.COUNT,
+      "The number of write-ahead logs a tablet server writes to at once. Each tablet writes to"
+          + " one of them, so a slow sync of one log only delays writes to the tablets using it."),
   TSERV_WALOG_TOLERATED_CREATION_FAILURES("tserver.walog.tolerated.creation.failures", "50",
       PropertyType.COUNT,
       "The maximum number of failures tolerated when creating a new WAL file. "
@@ -410,6 +438,10 @@ public enum Property {
   TSERV_NATIVEMAP_ENABLED("tserver.memory.maps.native.enabled", "true", PropertyType.BOOLEAN,
       "An in-memory data store for accumulo implemented in c++ that increases "
           + "the amount of data accumulo can hold in memory and avoids Java GC " + "pauses."),
+  TSERV_OFFHEAP_MAP_ENABLED("tserver.memory.maps.offheap.enabled", "false", PropertyType.BOOLEAN,
+      "An in-memory data store for accumulo implemented in Java that keeps its data outside of the"
+          + " Java heap. It is used when the native map is disabled or can not be loaded, and"
+          + " avoids Java GC pauses without needing a native library."),
   TSERV_MAXMEM("tserver.memory.maps.max", "1G", PropertyType.MEMORY,
       "Maximum amount of memory that can be used to buffer data written to a"
           + " tablet server. There are two other properties that can effectively limit"
@@ -497,6 +529,13 @@ public enum Property {
       "The maximum number of threads to use to sort logs during" + " recovery"),
   TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "200M", PropertyType.MEMORY,
       "The amount of memory to use when sorting logs during recovery."),
+  TSERV_SORT_COMPRESSION_TYPE("tserver.sort.compress.type", "gz", PropertyType.STRING,
+      "The compression used for the sorted parts of write-ahead logs written during recovery. One"
+          + " of gz,snappy,lzo,zstd,lz4,none"),
+  TSERV_SORT_MAX_CONCURRENT("tserver.sort.concurrent.max", "2", PropertyType.COUNT,
+      "The maximum number of threads each log sort uses to sort and write out sorted parts while"
+          + " the log is read. The sort buffer memory is divided between the part being read and"
+          + " the parts being written."),
   TSERV_ARCHIVE_WALOGS("tserver.archive.walogs", "false", PropertyType.BOOLEAN,
       "Keep copies of the WALOGs for debugging purposes"),
   TSERV_WORKQ_THREADS("tserver.workq.threads", "2", PropertyType.COUNT,
@@ -648,6 +687,10 @@ public enum Property {
       "After a tablet has been idle (no mutations) for this time period it may have its "
           + "in-memory map flushed to disk in a minor compaction. There is no guarantee an idle "
           + "tablet will be compacted."),
+  TABLE_MINC_COMPRESSION_TYPE("table.compaction.minor.compress.type", "", PropertyType.STRING,
+      "The compression used for files written by minor compactions, which are small and read"
+          + " often while they are recent. One of gz,snappy,lzo,zstd,lz4,none, or empty to use "
+          + "table.file.compress.type."),
   TABLE_MINC_MAX_MERGE_FILE_SIZE("table.compaction.minor.merge.file.size.max", "0",
       PropertyType.MEMORY,
       "The max file size used for a merging minor compaction. The default value"
@@ -662,7 +705,27 @@ public enum Property {
       "This property can be set to allow the LoadBalanceByTable load balancer"
           + " to change the called Load Balancer for this table"),
   TABLE_FILE_COMPRESSION_TYPE("table.file.compress.type", "gz", PropertyType.STRING,
-      "One of gz,snappy,lzo,none"),
+      "One of gz,snappy,lzo,zstd,lz4,none"),
+  TABLE_FILE_COMPRESSION_ZSTD_LEVEL("table.file.compress.zstd.level", "0", PropertyType.COUNT,
+      "The level files compressed with zstd are written at, from 1 for the fastest to 22 for the"
+          + " smallest. 0 uses io.compression.codec.zstd.level from the Hadoop configuration,"
+          + " which defaults to 3. Levels do not apply when zstd falls back to its pure Java"
+          + " codec."),
+  TABLE_FILE_COMPRESSION_DICTIONARY_SIZE("table.file.compress.dictionary.size", "0",
+      PropertyType.MEMORY,
+      "The size of a dictionary trained from the first keys written to each file, that its data"
+          + " blocks are compressed with. Blocks are compressed independently, the dictionary"
+          + " gives each the row prefixes and columns seen throughout the file, so smaller"
+          + " blocks compress well. Only gz uses dictionaries, and at most 32K of one. Files with"
+          + " a dictionary need a reader that knows dictionaries. 0 trains no dictionary."),
+  TABLE_FILE_BLOCK_ENCODING("table.file.block.encoding", "relative", PropertyType.STRING,
+      "How the entries of the data blocks of each file are encoded. relative writes each key as"
+          + " the fields that changed from the key before it, followed by its value. columnar"
+          + " writes each field of a block's entries as a column of its own, with column families"
+          + " and visibilities as ids into a dictionary of the block, and timestamps as the"
+          + " difference to the previous one. Columnar blocks compress better when timestamps or"
+          + " visibilities vary, and their keys are read without reading their values. Only"
+          + " files with columnar blocks need a reader that knows the columnar encoding."),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE("table.file.compress.blocksize", "100K", PropertyType.MEMORY,
       "Similar to the hadoop io.seqfile.compress.blocksize setting, so that"
           + " files have better query performance. The maximum value for this is "
@@ -677,6 +740,12 @@ public enum Property {
   TABLE_FILE_BLOCK_SIZE("table.file.blocksize", "0B", PropertyType.MEMORY,
       "Overrides the hadoop dfs.block.size setting so that files have better"
           + " query performance. The maximum value for this is " + Integer.MAX_VALUE),
+  TABLE_FILE_PREFETCH_BLOCKS("table.file.prefetch.blocks", "0", PropertyType.COUNT,
+      "The number of data blocks a scan reading a file sequentially fetches and decompresses in"
+          + " the background, ahead of the block it is reading. This helps long scans that"
+          + " would otherwise wait for each block to be read. Blocks are only fetched ahead while"
+          + " the tablet server is within tserver.file.prefetch.memory.max. 0 disables fetching"
+          + " ahead."),
   TABLE_FILE_REPLICATION("table.file.replication", "0", PropertyType.COUNT,
       "Determines how many replicas to keep of a tables' files in HDFS. "
           + "When this value is LTE 0, HDFS defaults are used."),
@@ -773,7 +842,9 @@ public enum Property {
           + " group called group1. Once configured, group1 can be enabled by adding"
           + " it to the list of groups in the " + TABLE_LOCALITY_GROUPS.getKey() + " property.\n"
           + "Additional group options may be specified for a named group by setting"
-          + " table.group.<name>.opt.<key>=<value>."),
+          + " table.group.<name>.opt.<key>=<value>. The option compress.type compresses the"
+          + " data of a group with one of gz,snappy,lzo,zstd,lz4,none instead of with "
+          + TABLE_FILE_COMPRESSION_TYPE.getKey() + "."),
   TABLE_FORMATTER_CLASS("table.formatter", DefaultFormatter.class.getName(), PropertyType.STRING,
       "The Formatter class to apply on results in the shell"),
   TABLE_INTERPRETER_CLASS("table.interepreter", DefaultScanInterpreter.class.getName(),
@@ -1157,8 +1228,9 @@ public enum Property {
       Property.TABLE_FAILURES_IGNORE, Property.TABLE_SCAN_MAXMEM);
 
   private static final EnumSet<Property> fixedProperties = EnumSet.of(Property.TSERV_CLIENTPORT,
-      Property.TSERV_NATIVEMAP_ENABLED, Property.TSERV_SCAN_MAX_OPENFILES,
-      Property.MASTER_CLIENTPORT, Property.GC_PORT);
+      Property.TSERV_NATIVEMAP_ENABLED, Property.TSERV_OFFHEAP_MAP_ENABLED,
+      Property.TSERV_WALOG_COUNT, Property.TSERV_SCAN_MAX_OPENFILES, Property.MASTER_CLIENTPORT,
+      Property.GC_PORT);
 
   /**
    * Checks if the given property may be changed via Zookeeper, but not recognized until the restart
@@ -24,9 +24,9 @@ import java.util.List;
 
 import org.apache.accumulo.core.data.ColumnUpdate;
 import org.apache.accumulo.core.data.Mutation;
-import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.accumulo.core.security.VisibilityEvaluator;
 import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.security.impl.VisibilityCache;
 import org.apache.accumulo.core.util.BadArgumentException;
 
 /**
@@ -74,7 +74,7 @@ public class VisibilityConstraint implements Constraint {
           if (ve == null)
             ve = new VisibilityEvaluator(env.getAuthorizationsContainer());
 
-          if (!ve.evaluate(new ColumnVisibility(cv)))
+          if (!ve.evaluate(VisibilityCache.getInstance().parse(cv)))
             return Collections.singletonList(Short.valueOf((short) 2));
 
         } catch (BadArgumentException bae) {
@@ -867,26 +867,22 @@ public class Key implements WritableComparable<Key>, Cloneable {
    */
   public int compareTo(Key other, PartialKey part) {
     // check for matching row
-    int result = WritableComparator.compareBytes(row, 0, row.length, other.row, 0,
-        other.row.length);
+    int result = compareBytes(row, other.row);
     if (result != 0 || part.equals(PartialKey.ROW))
       return result;
 
     // check for matching column family
-    result = WritableComparator.compareBytes(colFamily, 0, colFamily.length, other.colFamily, 0,
-        other.colFamily.length);
+    result = compareBytes(colFamily, other.colFamily);
     if (result != 0 || part.equals(PartialKey.ROW_COLFAM))
       return result;
 
     // check for matching column qualifier
-    result = WritableComparator.compareBytes(colQualifier, 0, colQualifier.length,
-        other.colQualifier, 0, other.colQualifier.length);
+    result = compareBytes(colQualifier, other.colQualifier);
     if (result != 0 || part.equals(PartialKey.ROW_COLFAM_COLQUAL))
       return result;
 
     // check for matching column visibility
-    result = WritableComparator.compareBytes(colVisibility, 0, colVisibility.length,
-        other.colVisibility, 0, other.colVisibility.length);
+    result = compareBytes(colVisibility, other.colVisibility);
     if (result != 0 || part.equals(PartialKey.ROW_COLFAM_COLQUAL_COLVIS))
       return result;
 
@@ -910,6 +906,13 @@ public class Key implements WritableComparable<Key>, Cloneable {
     return result;
   }
 
+  private static int compareBytes(byte[] a1, byte[] a2) {
+    // keys read from a file share the arrays of fields that did not change from the previous key
+    if (a1 == a2)
+      return 0;
+    return WritableComparator.compareBytes(a1, 0, a1.length, a2, 0, a2.length);
+  }
+
   @Override
   public int compareTo(Key other) {
     return compareTo(other, PartialKey.ROW_COLFAM_COLQUAL_COLVIS_TIME_DEL);
@@ -28,6 +28,7 @@ import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.BlockPrefetcher;
 import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
 import org.apache.hadoop.conf.Configuration;
@@ -157,6 +158,7 @@ public abstract class FileOperations {
    *     .withTableConfiguration(...)
    *     .withRateLimiter(...) // optional
    *     .withBlockCache(...) // optional
+   *     .withPrefetcher(...) // optional
    *     .seekToBeginning(...) // optional
    *     .build();
    * </pre>
@@ -376,6 +378,7 @@ public abstract class FileOperations {
     private BlockCache dataCache;
     private BlockCache indexCache;
     private Cache<String,Long> fileLenCache;
+    private BlockPrefetcher prefetcher;
 
     /**
      * (Optional) Set the block cache pair to be used to optimize reads within the constructed
@@ -410,6 +413,16 @@ public abstract class FileOperations {
       return (SubclassType) this;
     }
 
+    /**
+     * (Optional) set the prefetcher that fetches blocks ahead of sequential scans, for tables that
+     * enable it.
+     */
+    @SuppressWarnings("unchecked")
+    public SubclassType withPrefetcher(BlockPrefetcher prefetcher) {
+      this.prefetcher = prefetcher;
+      return (SubclassType) this;
+    }
+
     public BlockCache getDataCache() {
       return dataCache;
     }
@@ -421,6 +434,10 @@ public abstract class FileOperations {
     public Cache<String,Long> getFileLenCache() {
       return fileLenCache;
     }
+
+    public BlockPrefetcher getPrefetcher() {
+      return prefetcher;
+    }
   }
 
   /** Builder interface parallel to {@link FileReaderOperation}. */
@@ -444,6 +461,12 @@ public abstract class FileOperations {
      * (Optional) set the file len cache to be used to optimize reads within the constructed reader.
      */
     public SubbuilderType withFileLenCache(Cache<String,Long> fileLenCache);
+
+    /**
+     * (Optional) set the prefetcher that fetches blocks ahead of sequential scans, for tables that
+     * enable it.
+     */
+    public SubbuilderType withPrefetcher(BlockPrefetcher prefetcher);
   }
 
   /**
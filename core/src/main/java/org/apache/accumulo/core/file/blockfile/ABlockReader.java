@@ -20,6 +20,8 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 
+import org.apache.accumulo.core.file.blockfile.cache.HeapSize;
+
 /*
  * Minimal interface to read a block from a
  * block based file
@@ -51,5 +53,25 @@ public interface ABlockReader extends DataInput {
 
   <T> T getIndex(Class<T> clazz);
 
+  /**
+   * Builds an index from the contents of a block.
+   */
+  interface IndexBuilder<T extends HeapSize> {
+    T build(ABlockReader block) throws IOException;
+  }
+
+  /**
+   * Gets the index associated with an indexable block, building it from this reader if the block
+   * has none. Unlike {@link #getIndex(Class)}, the index is complete once it is associated with the
+   * block, so the cache holding the block can count its heap size. It is built at most once for as
+   * long as the block is cached.
+   */
+  <T extends HeapSize> T getIndex(Class<T> clazz, IndexBuilder<T> builder) throws IOException;
+
+  /**
+   * The array holding an indexable block, for read optimizations. It should not be modified.
+   *
+   * @return the array, or null if the block is not stored in a heap array
+   */
   byte[] getBuffer();
 }
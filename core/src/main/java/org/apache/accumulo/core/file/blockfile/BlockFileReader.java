@@ -39,4 +39,16 @@ public interface BlockFileReader {
 
   ABlockReader getDataBlock(long offset, long compressedSize, long rawSize) throws IOException;
 
+  /**
+   * Reads a data block compressed with the named algorithm, or with the algorithm of the file's
+   * other data blocks when the name is null.
+   */
+  ABlockReader getDataBlock(long offset, long compressedSize, long rawSize, String compressionName)
+      throws IOException;
+
+  /**
+   * Sets the dictionary the data blocks were compressed with, before any are read.
+   */
+  void setDataDictionary(byte[] dictionary);
+
 }
@@ -33,6 +33,17 @@ public interface BlockFileWriter {
 
   ABlockWriter prepareDataBlock() throws IOException;
 
+  /**
+   * Prepares a data block compressed with the named algorithm instead of the file's.
+   */
+  ABlockWriter prepareDataBlock(String compressionName) throws IOException;
+
+  /**
+   * Sets a dictionary to compress data blocks with, before any are prepared. Algorithms that do not
+   * support dictionaries ignore it.
+   */
+  void setDataDictionary(byte[] dictionary);
+
   void close() throws IOException;
 
   long getLength() throws IOException;
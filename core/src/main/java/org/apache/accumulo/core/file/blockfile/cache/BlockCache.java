@@ -58,4 +58,32 @@ public interface BlockCache {
    * @return max size in bytes
    */
   long getMaxSize();
+
+  /**
+   * Get the statistics of this cache.
+   *
+   * @return statistics
+   */
+  Stats getStats();
+
+  /**
+   * Cache statistics, common to all block cache implementations.
+   */
+  interface Stats {
+
+    /**
+     * Returns the number of lookups that have returned a cached value.
+     *
+     * @return the number of lookups that have returned a cached value
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times the lookup methods have returned either a cached or uncached
+     * value.
+     *
+     * @return the number of lookups
+     */
+    long getRequestCount();
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
+
+/**
+ * Creates the tablet server block caches according to {@link Property#TSERV_CACHE_POLICY}.
+ */
+public class BlockCacheFactory {
+
+  public static enum Policy {
+    LRU, TINYLFU, OFFHEAP
+  }
+
+  private BlockCacheFactory() {}
+
+  public static Policy getPolicy(AccumuloConfiguration conf) {
+    String policy = conf.get(Property.TSERV_CACHE_POLICY);
+    try {
+      return Policy.valueOf(policy.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown value " + policy + " for "
+          + Property.TSERV_CACHE_POLICY.getKey() + ", expected one of LRU, TINYLFU or OFFHEAP", e);
+    }
+  }
+
+  /**
+   * @param maxSize
+   *          maximum size of the cache, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   */
+  public static BlockCache createCache(AccumuloConfiguration conf, long maxSize, long blockSize) {
+    switch (getPolicy(conf)) {
+      case TINYLFU:
+        return new TinyLfuBlockCache(maxSize, blockSize);
+      case OFFHEAP:
+        return new OffHeapBlockCache(maxSize, blockSize);
+      case LRU:
+      default:
+        return new LruBlockCache(maxSize, blockSize);
+    }
+  }
+}
@@ -23,4 +23,10 @@ public interface CacheEntry {
 
   void setIndex(Object idx);
 
+  /**
+   * Sets an index that is complete, and the heap it uses. The heap is added to the size of the
+   * entry, replacing the heap of any index set before, and may cause the cache to evict entries.
+   */
+  void setIndex(Object idx, long heapSize);
+
 }
@@ -51,11 +51,24 @@ public class CachedBlock implements HeapSize, Comparable<CachedBlock>, CacheEntr
   private final String blockName;
   private final byte buf[];
   private volatile long accessTime;
-  private long size;
+  private volatile long size;
   private BlockPriority priority;
   private Object index;
 
+  // the cache holding the block, that the heap of its index is counted toward
+  private final LruBlockCache cache;
+  // guards the index size and evicted, only held while updating sizes so that it never waits on
+  // the cache
+  private final Object sizeLock = new Object();
+  private long indexSize = 0;
+  private boolean evicted = false;
+
   public CachedBlock(String blockName, byte buf[], long accessTime, boolean inMemory) {
+    this(blockName, buf, accessTime, inMemory, null);
+  }
+
+  CachedBlock(String blockName, byte buf[], long accessTime, boolean inMemory,
+      LruBlockCache cache) {
     this.blockName = blockName;
     this.buf = buf;
     this.accessTime = accessTime;
@@ -66,6 +79,7 @@ public class CachedBlock implements HeapSize, Comparable<CachedBlock>, CacheEntr
     } else {
       this.priority = BlockPriority.SINGLE;
     }
+    this.cache = cache;
   }
 
   /**
@@ -83,6 +97,19 @@ public class CachedBlock implements HeapSize, Comparable<CachedBlock>, CacheEntr
     return size;
   }
 
+  /**
+   * Marks the block evicted, so that the heap of an index set after is no longer counted toward
+   * the size of the cache.
+   *
+   * @return the size of the block, including its index
+   */
+  long evict() {
+    synchronized (sizeLock) {
+      evicted = true;
+      return size;
+    }
+  }
+
   @Override
   public int hashCode() {
     return Objects.hashCode(accessTime);
@@ -121,6 +148,25 @@ public class CachedBlock implements HeapSize, Comparable<CachedBlock>, CacheEntr
 
   @Override
   public void setIndex(Object idx) {
+    setIndex(idx, 0);
+  }
+
+  @Override
+  public void setIndex(Object idx, long heapSize) {
     this.index = idx;
+    if (cache == null) {
+      return;
+    }
+
+    synchronized (sizeLock) {
+      if (evicted) {
+        return;
+      }
+      long delta = ClassSize.align(heapSize) - indexSize;
+      indexSize += delta;
+      size += delta;
+      cache.addIndexSize(delta);
+    }
+    cache.evictIfNeeded();
   }
 }
@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.util.NamingThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A block cache that stores blocks in files in a local directory, meant to sit under one of the
+ * memory caches as a second tier, see {@link TieredBlockCache}. The directory outlives the process,
+ * so a restarted tablet server reads the blocks it cached before the restart from local disk
+ * instead of from HDFS.
+ *
+ * <p>
+ * Each block is stored in its own file, named after a digest of the block name. The file holds the
+ * block name and a CRC32 of the data, and a block whose file does not match either is treated as a
+ * miss and removed. Blocks are written by a single background thread, so caching a block never
+ * waits on the local disk; when the thread falls behind, new blocks are not written. The same
+ * thread finds the blocks left by a previous process when the cache is created, and evicts the
+ * least recently read blocks when the directory grows above its maximum size.
+ *
+ * <p>
+ * Blocks are stored as they are cached, after they were decrypted, so the directory and the files
+ * in it are only accessible to the user running the process, and the cache should not be used when
+ * files are encrypted.
+ */
+public class LocalDiskBlockCache {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalDiskBlockCache.class);
+
+  static final float DEFAULT_MIN_FACTOR = 0.90f;
+
+  private static final int MAGIC = 0x4c424331;
+  private static final int DIGEST_LENGTH = 40;
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int MAX_PENDING_WRITES = 256;
+
+  /** Only update the modification time of a block file when it was last updated longer ago */
+  private static final long TOUCH_INTERVAL_MS = 60 * 1000;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final File dir;
+  private final long maxSize;
+  private final long minSize;
+
+  private final ConcurrentHashMap<String,DiskBlock> blocks = new ConcurrentHashMap<>();
+  private final AtomicLong size = new AtomicLong(0);
+  private final AtomicLong droppedWrites = new AtomicLong(0);
+  private final CacheStats stats = new CacheStats();
+
+  private final ThreadPoolExecutor writer;
+
+  /**
+   * @param dir
+   *          local directory to store blocks in, created if it does not exist
+   * @param maxSize
+   *          maximum size of the blocks stored in the directory, in bytes
+   */
+  public LocalDiskBlockCache(File dir, long maxSize) {
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IllegalArgumentException("Unable to create local block cache directory " + dir);
+    }
+    if (!dir.canWrite()) {
+      throw new IllegalArgumentException("Local block cache directory " + dir + " is not writable");
+    }
+    try {
+      restrictToOwner(dir);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    this.dir = dir;
+    this.maxSize = maxSize;
+    this.minSize = (long) Math.floor(maxSize * DEFAULT_MIN_FACTOR);
+
+    this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(MAX_PENDING_WRITES),
+        new NamingThreadFactory("local block cache writer"));
+
+    // runs before any write, lookups miss until it completes
+    writer.execute(new Runnable() {
+      @Override
+      public void run() {
+        load();
+      }
+    });
+  }
+
+  /**
+   * Reads a block from the local directory.
+   *
+   * @return the block data, or null if the block is not stored or could not be read
+   */
+  public byte[] getBlock(String blockName) {
+    String digest = digest(blockName);
+    DiskBlock block = blocks.get(digest);
+    if (block == null) {
+      stats.miss();
+      return null;
+    }
+
+    byte[] data = null;
+    try {
+      data = read(block.file, blockName);
+    } catch (IOException e) {
+      log.debug("Failed to read {} from local block cache", blockName, e);
+    }
+
+    if (data == null) {
+      remove(digest, block);
+      stats.miss();
+      return null;
+    }
+
+    stats.hit();
+    long now = System.currentTimeMillis();
+    block.lastAccess = now;
+    if (now - block.lastModified > TOUCH_INTERVAL_MS) {
+      // keeps the eviction order across restarts
+      block.lastModified = now;
+      block.file.setLastModified(now);
+    }
+    return data;
+  }
+
+  /**
+   * Writes a block to the local directory in the background. Does nothing if the block is already
+   * stored or too many blocks are waiting to be written.
+   */
+  public void cacheBlock(final String blockName, final byte[] buf) {
+    if (buf.length > maxSize - minSize) {
+      return;
+    }
+    final String digest = digest(blockName);
+    if (blocks.containsKey(digest)) {
+      stats.duplicateReads();
+      return;
+    }
+
+    try {
+      writer.execute(new Runnable() {
+        @Override
+        public void run() {
+          write(blockName, digest, buf);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      droppedWrites.incrementAndGet();
+    }
+  }
+
+  private void write(String blockName, String digest, byte[] buf) {
+    if (blocks.containsKey(digest)) {
+      return;
+    }
+
+    File file = blockFile(digest);
+    File tmp = new File(file.getParentFile(), digest + TMP_SUFFIX);
+    try {
+      File parent = file.getParentFile();
+      if (!parent.isDirectory()) {
+        if (!parent.mkdirs()) {
+          throw new IOException("Unable to create directory " + parent);
+        }
+        restrictToOwner(parent);
+      }
+
+      // restricted before any data is written to it
+      if ((tmp.exists() && !tmp.delete()) || !tmp.createNewFile()) {
+        throw new IOException("Unable to create " + tmp);
+      }
+      restrictToOwner(tmp);
+
+      CRC32 crc = new CRC32();
+      crc.update(buf, 0, buf.length);
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeUTF(blockName);
+        out.writeInt(buf.length);
+        out.writeLong(crc.getValue());
+        out.write(buf);
+      }
+
+      // a crash can only leave a temporary file behind, never a partially written block
+      if (!tmp.renameTo(file)) {
+        throw new IOException("Unable to rename " + tmp + " to " + file);
+      }
+    } catch (IOException e) {
+      log.warn("Failed to write {} to local block cache", blockName, e);
+      tmp.delete();
+      return;
+    }
+
+    add(digest, new DiskBlock(file, file.length(), System.currentTimeMillis()));
+    if (size.get() > maxSize) {
+      evict();
+    }
+  }
+
+  private static byte[] read(File file, String blockName) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        log.warn("Local block cache file {} is not a cached block", file);
+        return null;
+      }
+      if (!blockName.equals(in.readUTF())) {
+        return null;
+      }
+      int length = in.readInt();
+      long checksum = in.readLong();
+      if (length < 0 || length > file.length()) {
+        log.warn("Local block cache file {} is truncated", file);
+        return null;
+      }
+
+      byte[] data = new byte[length];
+      in.readFully(data);
+
+      CRC32 crc = new CRC32();
+      crc.update(data, 0, length);
+      if (crc.getValue() != checksum) {
+        log.warn("Checksum mismatch for local block cache file {}", file);
+        return null;
+      }
+      return data;
+    }
+  }
+
+  /**
+   * Finds the blocks stored by a previous process.
+   */
+  private void load() {
+    long start = System.currentTimeMillis();
+    File[] subdirs = dir.listFiles();
+    if (subdirs != null) {
+      for (File subdir : subdirs) {
+        File[] files = subdir.listFiles();
+        if (files == null) {
+          continue;
+        }
+        for (File file : files) {
+          String name = file.getName();
+          if (name.endsWith(TMP_SUFFIX)) {
+            file.delete();
+          } else if (name.length() == DIGEST_LENGTH) {
+            add(name, new DiskBlock(file, file.length(), file.lastModified()));
+          }
+        }
+      }
+    }
+
+    log.info("Found {} blocks using {} bytes in local block cache {} in {} ms", blocks.size(),
+        size.get(), dir, System.currentTimeMillis() - start);
+
+    if (size.get() > maxSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Removes the least recently read blocks until the cache is below its minimum size. Only called
+   * from the writer thread.
+   */
+  private void evict() {
+    long bytesToFree = size.get() - minSize;
+    if (bytesToFree <= 0) {
+      return;
+    }
+
+    List<Entry<String,DiskBlock>> entries = new ArrayList<>(blocks.entrySet());
+    Collections.sort(entries, new Comparator<Entry<String,DiskBlock>>() {
+      @Override
+      public int compare(Entry<String,DiskBlock> e1, Entry<String,DiskBlock> e2) {
+        return Long.compare(e1.getValue().lastAccess, e2.getValue().lastAccess);
+      }
+    });
+
+    long bytesFreed = 0;
+    for (Entry<String,DiskBlock> entry : entries) {
+      if (bytesFreed >= bytesToFree) {
+        break;
+      }
+      if (remove(entry.getKey(), entry.getValue())) {
+        bytesFreed += entry.getValue().length;
+        stats.evicted();
+      }
+    }
+    stats.evict();
+
+    log.trace("Local block cache eviction freed {} bytes", bytesFreed);
+  }
+
+  private void add(String digest, DiskBlock block) {
+    DiskBlock prior = blocks.put(digest, block);
+    size.addAndGet(block.length);
+    if (prior != null) {
+      size.addAndGet(-1 * prior.length);
+    }
+  }
+
+  private boolean remove(String digest, DiskBlock block) {
+    if (blocks.remove(digest, block)) {
+      size.addAndGet(-1 * block.length);
+      block.file.delete();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Makes a file or directory only accessible to its owner, 0600 for a file and 0700 for a
+   * directory.
+   */
+  private static void restrictToOwner(File file) throws IOException {
+    boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+        && file.setWritable(false, false) && file.setWritable(true, true)
+        && file.setExecutable(false, false);
+    if (restricted && file.isDirectory()) {
+      restricted = file.setExecutable(true, true);
+    }
+    if (!restricted) {
+      throw new IOException("Unable to restrict the permissions of " + file + " to its owner");
+    }
+  }
+
+  private File blockFile(String digest) {
+    return new File(new File(dir, digest.substring(0, 2)), digest);
+  }
+
+  static String digest(String blockName) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    byte[] hash = md.digest(blockName.getBytes(UTF_8));
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+      hex[2 * i + 1] = HEX[hash[i] & 0xf];
+    }
+    return new String(hex);
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Get the size of the blocks stored in the local directory.
+   *
+   * @return current size in bytes
+   */
+  public long getCurrentSize() {
+    return size.get();
+  }
+
+  /**
+   * Get the number of blocks stored in the local directory.
+   *
+   * @return number of cached blocks
+   */
+  public long size() {
+    return blocks.size();
+  }
+
+  /**
+   * @return number of blocks that were not written because the writer thread was behind
+   */
+  public long getDroppedWriteCount() {
+    return droppedWrites.get();
+  }
+
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Waits for the blocks that are queued to be written.
+   */
+  void flush() throws Exception {
+    while (true) {
+      try {
+        // runs after everything queued before it
+        writer.submit(new Runnable() {
+          @Override
+          public void run() {}
+        }).get();
+        return;
+      } catch (RejectedExecutionException e) {
+        Thread.sleep(1);
+      }
+    }
+  }
+
+  /**
+   * Stops writing blocks. Blocks already in the directory are kept for the next process.
+   */
+  public void shutdown() {
+    writer.shutdownNow();
+  }
+
+  private static final class DiskBlock {
+    final File file;
+    final long length;
+    volatile long lastAccess;
+    volatile long lastModified;
+
+    DiskBlock(File file, long length, long lastModified) {
+      this.file = file;
+      this.length = length;
+      this.lastAccess = lastModified;
+      this.lastModified = lastModified;
+    }
+  }
+}
@@ -269,7 +269,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
       stats.duplicateReads();
       cb.access(count.incrementAndGet());
     } else {
-      cb = new CachedBlock(blockName, buf, count.incrementAndGet(), inMemory);
+      cb = new CachedBlock(blockName, buf, count.incrementAndGet(), inMemory, this);
       CachedBlock currCb = map.putIfAbsent(blockName, cb);
       if (currCb != null) {
         stats.duplicateReads();
@@ -324,12 +324,26 @@ public class LruBlockCache implements BlockCache, HeapSize {
     return cb;
   }
 
+  /**
+   * Counts a change to the heap used by the index of a cached block toward the size of the cache.
+   */
+  void addIndexSize(long delta) {
+    size.addAndGet(delta);
+  }
+
+  void evictIfNeeded() {
+    if (size.get() > acceptableSize() && !evictionInProgress) {
+      runEviction();
+    }
+  }
+
   protected long evictBlock(CachedBlock block) {
     map.remove(block.getName());
-    size.addAndGet(-1 * block.heapSize());
+    long heapSize = block.evict();
+    size.addAndGet(-1 * heapSize);
     elements.decrementAndGet();
     stats.evicted();
-    return block.heapSize();
+    return heapSize;
   }
 
   /**
@@ -616,11 +630,12 @@ public class LruBlockCache implements BlockCache, HeapSize {
    * <p>
    * Includes: total accesses, hits, misses, evicted blocks, and runs of the eviction processes.
    */
+  @Override
   public CacheStats getStats() {
     return this.stats;
   }
 
-  public static class CacheStats {
+  public static class CacheStats implements BlockCache.Stats {
     private final AtomicLong accessCount = new AtomicLong(0);
     private final AtomicLong hitCount = new AtomicLong(0);
     private final AtomicLong missCount = new AtomicLong(0);
@@ -650,6 +665,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
       evictedCount.incrementAndGet();
     }
 
+    @Override
     public long getRequestCount() {
       return accessCount.get();
     }
@@ -658,6 +674,7 @@ public class LruBlockCache implements BlockCache, HeapSize {
       return missCount.get();
     }
 
+    @Override
     public long getHitCount() {
       return hitCount.get();
     }
@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.apache.accumulo.core.file.blockfile.cache.SlabAllocator.Slice;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A block cache that stores blocks in direct memory, so that a large cache does not add to the old
+ * generation that the garbage collector has to trace. Only the small per block bookkeeping objects
+ * live on the heap.
+ *
+ * <p>
+ * Entries are {@link OffHeapCacheEntry}s. Each block is copied once into a slice of a larger slab
+ * of direct memory when it is cached, and readers then read it in place. The slice of an evicted
+ * block is returned to its slab once the last reader releases it. The slabs are allocated as the
+ * cache fills and are kept for the life of the cache, so caching a block never allocates direct
+ * memory, and freeing it never waits for the garbage collector. Blocks larger than a slab are not
+ * cached.
+ *
+ * <p>
+ * Eviction uses the CLOCK approximation of LRU. Lookups only set a referenced flag on the block.
+ * When an insert takes the cache above its acceptable size, the inserting thread sweeps the clock,
+ * giving recently referenced blocks a second chance and evicting the rest until the cache is below
+ * its minimum size. Only one thread sweeps at a time, others continue without waiting.
+ *
+ * <p>
+ * Indexes parsed from cached blocks live on the heap. Their heap is counted apart from the blocks,
+ * reported by {@link #heapSize()}, and bounded by {@link #getMaxIndexHeapSize(long)}. Going over
+ * the bound drops the parsed indexes of the blocks nearest the hand of the clock, the blocks stay
+ * cached.
+ */
+public class OffHeapBlockCache implements BlockCache, HeapSize {
+
+  private static final Logger log = LoggerFactory.getLogger(OffHeapBlockCache.class);
+
+  /** Eviction thresholds */
+  static final float DEFAULT_MIN_FACTOR = 0.90f;
+  static final float DEFAULT_ACCEPTABLE_FACTOR = 0.95f;
+
+  /** Slabs emptied at most to make room for a block, blocks retained by readers keep theirs */
+  static final int MAX_SLAB_EVICTIONS = 3;
+
+  /** Heap allowed for parsed indexes, relative to the direct memory allowed for blocks */
+  static final float INDEX_HEAP_FACTOR = 0.10f;
+
+  public final static long CACHE_FIXED_OVERHEAD = ClassSize.align(
+      (4 * SizeConstants.SIZEOF_LONG) + (10 * ClassSize.REFERENCE) + ClassSize.OBJECT
+          + ClassSize.CONCURRENT_HASHMAP + (2 * ClassSize.REENTRANT_LOCK)
+          + (5 * ClassSize.ATOMIC_LONG));
+
+  private final ConcurrentHashMap<String,OffHeapBlock> map;
+  private final ConcurrentLinkedQueue<OffHeapBlock> clock = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ReentrantLock indexEvictionLock = new ReentrantLock();
+
+  /** Bytes of direct memory used by cached blocks */
+  private final AtomicLong size = new AtomicLong(0);
+
+  /** Bytes of heap used by the bookkeeping of the cache */
+  private final AtomicLong heapSize;
+
+  /** Bytes of heap used by the parsed indexes set on cached blocks */
+  private final AtomicLong indexHeapSize = new AtomicLong(0);
+
+  /** Bytes of direct memory held by blocks that have not been released */
+  private final AtomicLong allocated = new AtomicLong(0);
+
+  private final AtomicLong elements = new AtomicLong(0);
+  private final CacheStats stats = new CacheStats();
+  private final SlabAllocator allocator;
+
+  private final long maxSize;
+  private final long acceptableSize;
+  private final long minSize;
+  private final long maxIndexHeapSize;
+  private final long minIndexHeapSize;
+
+  /**
+   * @param maxSize
+   *          maximum amount of direct memory used for blocks, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   */
+  public OffHeapBlockCache(long maxSize, long blockSize) {
+    this(maxSize, blockSize, DEFAULT_MIN_FACTOR, DEFAULT_ACCEPTABLE_FACTOR);
+  }
+
+  /**
+   * @param maxSize
+   *          maximum amount of direct memory used for blocks, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   * @param minFactor
+   *          percentage of total size that eviction will evict until
+   * @param acceptableFactor
+   *          percentage of total size that triggers eviction
+   */
+  public OffHeapBlockCache(long maxSize, long blockSize, float minFactor, float acceptableFactor) {
+    if (minFactor >= acceptableFactor) {
+      throw new IllegalArgumentException("minFactor must be smaller than acceptableFactor");
+    }
+    if (minFactor >= 1.0f || acceptableFactor >= 1.0f) {
+      throw new IllegalArgumentException("all factors must be < 1");
+    }
+    this.maxSize = maxSize;
+    this.acceptableSize = (long) Math.floor(maxSize * acceptableFactor);
+    this.minSize = (long) Math.floor(maxSize * minFactor);
+    this.maxIndexHeapSize = getMaxIndexHeapSize(maxSize);
+    this.minIndexHeapSize = (long) Math.floor(maxIndexHeapSize * minFactor);
+    this.allocator = new SlabAllocator(maxSize);
+    int mapInitialSize = (int) Math.ceil(1.2 * maxSize / blockSize);
+    this.map = new ConcurrentHashMap<>(mapInitialSize);
+    this.heapSize = new AtomicLong(CACHE_FIXED_OVERHEAD
+        + ((long) mapInitialSize * ClassSize.CONCURRENT_HASHMAP_ENTRY));
+  }
+
+  /**
+   * @param maxSize
+   *          maximum amount of direct memory used for blocks, in bytes
+   * @return the maximum amount of heap used by the indexes parsed from the blocks of a cache of
+   *         that size, in bytes
+   */
+  public static long getMaxIndexHeapSize(long maxSize) {
+    return (long) Math.floor(maxSize * INDEX_HEAP_FACTOR);
+  }
+
+  @Override
+  public OffHeapCacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+    OffHeapBlock block = map.get(blockName);
+    if (block != null) {
+      stats.duplicateReads();
+      block.referenced = true;
+      return block;
+    }
+
+    if (buf.length > acceptableSize) {
+      return null;
+    }
+
+    Slice slice = allocator.allocate(buf.length);
+    if (slice == null) {
+      slice = allocateByEvicting(buf.length);
+      if (slice == null) {
+        return null;
+      }
+    }
+    slice.buffer.put(buf);
+    slice.buffer.flip();
+
+    block = new OffHeapBlock(blockName, slice, this);
+    OffHeapBlock prior = map.putIfAbsent(blockName, block);
+    if (prior != null) {
+      stats.duplicateReads();
+      // nothing else could have seen this buffer
+      block.release();
+      prior.referenced = true;
+      return prior;
+    }
+
+    clock.offer(block);
+    elements.incrementAndGet();
+    heapSize.addAndGet(block.heapSize());
+    if (size.addAndGet(buf.length) > acceptableSize) {
+      evict();
+    }
+
+    return block;
+  }
+
+  @Override
+  public OffHeapCacheEntry cacheBlock(String blockName, byte[] buf) {
+    return cacheBlock(blockName, buf, false);
+  }
+
+  @Override
+  public OffHeapCacheEntry getBlock(String blockName) {
+    OffHeapBlock block = map.get(blockName);
+    if (block == null) {
+      stats.miss();
+      return null;
+    }
+    stats.hit();
+    block.referenced = true;
+    return block;
+  }
+
+  /**
+   * Sweeps the clock until the cache is below its minimum size. Returns immediately if another
+   * thread is already sweeping.
+   */
+  void evict() {
+    if (!evictionLock.tryLock())
+      return;
+
+    try {
+      long bytesToFree = size.get() - minSize;
+      if (bytesToFree <= 0)
+        return;
+
+      log.trace("Off heap block cache eviction started. Attempting to free {} bytes", bytesToFree);
+
+      long bytesFreed = 0;
+      while (bytesFreed < bytesToFree) {
+        OffHeapBlock block = clock.poll();
+        if (block == null)
+          break;
+
+        if (block.referenced) {
+          // second chance
+          block.referenced = false;
+          clock.offer(block);
+        } else {
+          evictBlock(block);
+          bytesFreed += block.length;
+        }
+      }
+
+      log.trace("Off heap block cache eviction completed. Freed {} bytes", bytesFreed);
+      if (bytesFreed > 0) {
+        stats.evict();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Evicts the blocks of one slab at a time until a slice with room for length bytes can be
+   * allocated. Freed slices of other sizes are only reused once their whole slab is released, so
+   * the blocks evicted are picked by slab and not by their bytes. A slab carved for the size needed
+   * is picked first, any slice it releases can be used right away. Blocks retained by readers keep
+   * their slices until released, so this gives up after a few slabs, or if another thread is
+   * evicting.
+   *
+   * @return the slice allocated, or null
+   */
+  private Slice allocateByEvicting(int length) {
+    if (!evictionLock.tryLock())
+      return null;
+
+    try {
+      int sizeClass = SlabAllocator.getSizeClass(length);
+      for (int i = 0; i < MAX_SLAB_EVICTIONS; i++) {
+        Slice victim = pickVictimSlab(sizeClass);
+        if (victim == null)
+          return null;
+
+        long bytesReleased = 0;
+        Iterator<OffHeapBlock> iter = clock.iterator();
+        while (iter.hasNext()) {
+          OffHeapBlock block = iter.next();
+          if (block.slice.isInSameSlab(victim)) {
+            iter.remove();
+            if (evictBlock(block)) {
+              bytesReleased += block.length;
+            }
+          }
+        }
+        stats.evict();
+        log.trace("Off heap block cache evicted a slab for a block of {} bytes. Released {} bytes",
+            length, bytesReleased);
+
+        Slice slice = allocator.allocate(length);
+        if (slice != null)
+          return slice;
+      }
+      return null;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return a slice of the slab holding the first block the clock would evict, preferring slabs
+   *         of the given size class, or null if there are no blocks
+   */
+  private Slice pickVictimSlab(int sizeClass) {
+    Slice victim = null;
+    for (OffHeapBlock block : clock) {
+      if (!block.referenced) {
+        if (block.slice.getSizeClass() == sizeClass)
+          return block.slice;
+        if (victim == null)
+          victim = block.slice;
+      }
+    }
+    if (victim == null) {
+      OffHeapBlock first = clock.peek();
+      return first == null ? null : first.slice;
+    }
+    return victim;
+  }
+
+  /**
+   * @return true if the memory of the block was released, false if readers still retain it
+   */
+  private boolean evictBlock(OffHeapBlock block) {
+    map.remove(block.name, block);
+    indexHeapSize.addAndGet(-1 * block.evict());
+    size.addAndGet(-1 * block.length);
+    heapSize.addAndGet(-1 * block.heapSize());
+    elements.decrementAndGet();
+    stats.evicted();
+    // drop the reference held by the cache, the memory is released once readers are done with it
+    return block.releaseReference();
+  }
+
+  void addIndexHeapSize(long delta) {
+    if (indexHeapSize.addAndGet(delta) > maxIndexHeapSize) {
+      evictIndexes();
+    }
+  }
+
+  /**
+   * Drops the parsed indexes of cached blocks, in clock order, until their heap is below its
+   * minimum. Returns immediately if another thread is already dropping indexes.
+   */
+  private void evictIndexes() {
+    if (!indexEvictionLock.tryLock())
+      return;
+
+    try {
+      for (OffHeapBlock block : clock) {
+        if (indexHeapSize.get() <= minIndexHeapSize)
+          break;
+        indexHeapSize.addAndGet(-1 * block.dropIndex());
+      }
+    } finally {
+      indexEvictionLock.unlock();
+    }
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Get the amount of heap used by the indexes parsed from cached blocks.
+   *
+   * @return size in bytes
+   */
+  public long getIndexHeapSize() {
+    return indexHeapSize.get();
+  }
+
+  /**
+   * Get the amount of direct memory used by cached blocks.
+   *
+   * @return current size in bytes
+   */
+  public long getCurrentSize() {
+    return size.get();
+  }
+
+  /**
+   * Get the amount of direct memory allocated for the slabs blocks are stored in.
+   *
+   * @return size in bytes
+   */
+  public long getAllocatedSize() {
+    return allocator.getAllocatedSize();
+  }
+
+  /**
+   * Get the amount of direct memory of evicted blocks that has not yet been released because it is
+   * still being read.
+   *
+   * @return size in bytes
+   */
+  public long getPendingReleaseSize() {
+    return allocated.get() - size.get();
+  }
+
+  /**
+   * Get the size of this cache (number of cached blocks)
+   *
+   * @return number of cached blocks
+   */
+  public long size() {
+    return elements.get();
+  }
+
+  public long getEvictionCount() {
+    return stats.getEvictionCount();
+  }
+
+  public long getEvictedCount() {
+    return stats.getEvictedCount();
+  }
+
+  /**
+   * @return the size of the bookkeeping and the parsed indexes this cache keeps on the heap, in
+   *         bytes. This does not include the blocks, see {@link #getCurrentSize()}.
+   */
+  @Override
+  public long heapSize() {
+    return heapSize.get() + indexHeapSize.get();
+  }
+
+  private static final class OffHeapBlock implements OffHeapCacheEntry, HeapSize {
+
+    static final long PER_BLOCK_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+        + (8 * ClassSize.REFERENCE) + SizeConstants.SIZEOF_INT + (2 * SizeConstants.SIZEOF_LONG)
+        + (2 * SizeConstants.SIZEOF_BOOLEAN) + ClassSize.STRING + (2 * ClassSize.BYTE_BUFFER)
+        + ClassSize.ATOMIC_INTEGER + ClassSize.OBJECT);
+
+    final String name;
+    final int length;
+    private final Slice slice;
+    private final ByteBuffer buffer;
+    private final OffHeapBlockCache cache;
+    private volatile Object index;
+    volatile boolean referenced;
+
+    // guards the index size and evicted, like in CachedBlock, and setting the index
+    private final Object sizeLock = new Object();
+    private long indexSize = 0;
+    private boolean evicted = false;
+
+    /**
+     * Starts at one, for the reference held by the cache. Once it reaches zero the buffer is freed
+     * and the block can not be retained again.
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    OffHeapBlock(String name, Slice slice, OffHeapBlockCache cache) {
+      this.name = name;
+      this.slice = slice;
+      this.buffer = slice.buffer;
+      this.length = buffer.limit();
+      this.cache = cache;
+      cache.allocated.addAndGet(length);
+    }
+
+    /**
+     * Marks the block evicted, so that the heap of an index set after is no longer counted toward
+     * the cache.
+     *
+     * @return the heap of the index counted toward the cache
+     */
+    long evict() {
+      synchronized (sizeLock) {
+        evicted = true;
+        return indexSize;
+      }
+    }
+
+    /**
+     * Drops the index of the block if its heap is counted toward the cache.
+     *
+     * @return the heap of the index that was counted toward the cache
+     */
+    long dropIndex() {
+      synchronized (sizeLock) {
+        if (evicted || indexSize == 0) {
+          return 0;
+        }
+        long dropped = indexSize;
+        index = null;
+        indexSize = 0;
+        return dropped;
+      }
+    }
+
+    @Override
+    public boolean retain() {
+      while (true) {
+        int count = refCount.get();
+        if (count <= 0) {
+          return false;
+        }
+        if (refCount.compareAndSet(count, count + 1)) {
+          return true;
+        }
+      }
+    }
+
+    @Override
+    public void release() {
+      releaseReference();
+    }
+
+    /**
+     * @return true if this released the last reference, and with it the memory of the block
+     */
+    boolean releaseReference() {
+      int count = refCount.decrementAndGet();
+      if (count == 0) {
+        cache.allocated.addAndGet(-1 * length);
+        cache.allocator.free(slice);
+        return true;
+      } else if (count < 0) {
+        throw new IllegalStateException("Block " + name + " released more times than retained");
+      }
+      return false;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      ByteBuffer view = buffer.asReadOnlyBuffer();
+      // the slice may be larger than the block
+      view.limit(length).position(0);
+      return view;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      if (!retain()) {
+        throw new IllegalStateException("Block " + name + " has been released");
+      }
+      try {
+        byte[] copy = new byte[length];
+        getByteBuffer().get(copy);
+        return copy;
+      } finally {
+        release();
+      }
+    }
+
+    @Override
+    public Object getIndex() {
+      return index;
+    }
+
+    @Override
+    public void setIndex(Object idx) {
+      long delta;
+      synchronized (sizeLock) {
+        this.index = idx;
+        if (evicted || indexSize == 0) {
+          return;
+        }
+        // the index replaced was counted, this one is not
+        delta = -1 * indexSize;
+        indexSize = 0;
+      }
+      cache.addIndexHeapSize(delta);
+    }
+
+    @Override
+    public void setIndex(Object idx, long heapSize) {
+      long delta;
+      synchronized (sizeLock) {
+        this.index = idx;
+        if (evicted) {
+          return;
+        }
+        delta = ClassSize.align(heapSize) - indexSize;
+        indexSize += delta;
+      }
+      cache.addIndexHeapSize(delta);
+    }
+
+    @Override
+    public long heapSize() {
+      return PER_BLOCK_OVERHEAD + ClassSize.align(name.length());
+    }
+  }
+}
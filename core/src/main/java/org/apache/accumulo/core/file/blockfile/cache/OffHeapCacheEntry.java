@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A cache entry whose block is stored outside of the Java heap. The memory of an evicted block is
+ * released as soon as no reader holds a reference to it, so readers must {@link #retain()} the
+ * entry before reading from {@link #getByteBuffer()} and {@link #release()} it when done.
+ *
+ * <p>
+ * {@link #getBuffer()} is supported, but copies the block onto the heap.
+ */
+public interface OffHeapCacheEntry extends CacheEntry {
+
+  /**
+   * Acquires a reference to the block.
+   *
+   * @return false if the block was evicted and its memory already released, in which case it must
+   *         be treated as a cache miss
+   */
+  boolean retain();
+
+  /**
+   * Releases a reference acquired with {@link #retain()}.
+   */
+  void release();
+
+  /**
+   * @return a new read only view of the block, positioned at its start. Only valid while a
+   *         reference is retained.
+   */
+  ByteBuffer getByteBuffer();
+}
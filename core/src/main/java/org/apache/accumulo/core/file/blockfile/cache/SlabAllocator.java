@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Hands out slices of a few large direct buffers, so that caching a block does not allocate direct
+ * memory of its own, and freeing it does not depend on the garbage collector.
+ *
+ * <p>
+ * Slices come in power of two sizes. Each slab is carved into slices of one size when it is first
+ * needed for that size, and goes back to the pool of empty slabs once all of its slices are freed,
+ * so that it can be carved into slices of another size. The slabs themselves are never freed.
+ */
+class SlabAllocator {
+
+  static final int MIN_SLICE_SIZE = 1024;
+  static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * A slice of a slab, holding one block.
+   */
+  static final class Slice {
+    final ByteBuffer buffer;
+    private final Slab slab;
+
+    private Slice(ByteBuffer buffer, Slab slab) {
+      this.buffer = buffer;
+      this.slab = slab;
+    }
+
+    int capacity() {
+      return buffer.capacity();
+    }
+
+    int getSizeClass() {
+      return slab.sizeClass;
+    }
+
+    boolean isInSameSlab(Slice other) {
+      return slab == other.slab;
+    }
+  }
+
+  private static final class Slab {
+    final ByteBuffer memory;
+    final int sizeClass;
+    final int sliceSize;
+    // freed slices, and the offset of the first slice never handed out
+    final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+    int next = 0;
+    int used = 0;
+
+    Slab(ByteBuffer memory, int sizeClass, int sliceSize) {
+      this.memory = memory;
+      this.sizeClass = sizeClass;
+      this.sliceSize = sliceSize;
+    }
+
+    boolean isFull() {
+      return free.isEmpty() && next + sliceSize > memory.capacity();
+    }
+
+    ByteBuffer take() {
+      used++;
+      ByteBuffer slice = free.poll();
+      if (slice == null) {
+        ByteBuffer dup = memory.duplicate();
+        dup.position(next);
+        dup.limit(next + sliceSize);
+        slice = dup.slice();
+        next += sliceSize;
+      }
+      return slice;
+    }
+  }
+
+  private final int slabSize;
+  private final int maxSlabs;
+  private int slabs = 0;
+  private final ArrayDeque<ByteBuffer> emptySlabs = new ArrayDeque<>();
+  // for each size class, the slabs that have slices left
+  private final ArrayDeque<Slab>[] partialSlabs;
+
+  /**
+   * @param maxSize
+   *          maximum amount of direct memory to allocate, in bytes
+   */
+  @SuppressWarnings("unchecked")
+  SlabAllocator(long maxSize) {
+    int size = DEFAULT_SLAB_SIZE;
+    // small caches get smaller slabs, so that they have enough of them to share between sizes
+    while (size > MIN_SLICE_SIZE && size > maxSize / 4) {
+      size >>= 1;
+    }
+    this.slabSize = size;
+    this.maxSlabs = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxSize / slabSize));
+    int sizeClasses = Integer.numberOfTrailingZeros(slabSize / MIN_SLICE_SIZE) + 1;
+    this.partialSlabs = new ArrayDeque[sizeClasses];
+    for (int i = 0; i < sizeClasses; i++) {
+      partialSlabs[i] = new ArrayDeque<>();
+    }
+  }
+
+  /**
+   * @return the direct memory allocated for slabs, in bytes
+   */
+  synchronized long getAllocatedSize() {
+    return (long) slabs * slabSize;
+  }
+
+  /**
+   * @return a slice with room for length bytes, or null if the length is larger than a slab or
+   *         there is no slice left of the size needed
+   */
+  synchronized Slice allocate(int length) {
+    if (length > slabSize) {
+      return null;
+    }
+    int sizeClass = getSizeClass(length);
+
+    Slab slab = partialSlabs[sizeClass].peek();
+    if (slab == null) {
+      ByteBuffer memory = emptySlabs.poll();
+      if (memory == null) {
+        if (slabs == maxSlabs) {
+          return null;
+        }
+        memory = ByteBuffer.allocateDirect(slabSize);
+        slabs++;
+      }
+      slab = new Slab(memory, sizeClass, MIN_SLICE_SIZE << sizeClass);
+      partialSlabs[sizeClass].push(slab);
+    }
+
+    ByteBuffer buffer = slab.take();
+    if (slab.isFull()) {
+      partialSlabs[sizeClass].poll();
+    }
+    return new Slice(buffer, slab);
+  }
+
+  /**
+   * @return the size class of the slices that hold length bytes
+   */
+  static int getSizeClass(int length) {
+    int sizeClass = 0;
+    while ((MIN_SLICE_SIZE << sizeClass) < length) {
+      sizeClass++;
+    }
+    return sizeClass;
+  }
+
+  synchronized void free(Slice slice) {
+    Slab slab = slice.slab;
+    boolean wasFull = slab.isFull();
+    slab.used--;
+    if (slab.used == 0) {
+      if (!wasFull) {
+        partialSlabs[slab.sizeClass].remove(slab);
+      }
+      emptySlabs.push(slab.memory);
+    } else {
+      slice.buffer.clear();
+      slab.free.push(slice.buffer);
+      if (wasFull) {
+        partialSlabs[slab.sizeClass].push(slab);
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+/**
+ * A memory block cache backed by a {@link LocalDiskBlockCache}.
+ *
+ * <p>
+ * Blocks cached in memory are also written to the local disk, so the disk holds the blocks that
+ * are still in memory as well as the ones evicted from it, and a restarted process finds its whole
+ * working set there. A block that misses in memory but is found on disk is put back in memory.
+ *
+ * <p>
+ * The disk is read by the thread that looks up the block, like a read from HDFS would be, so a slow
+ * local disk slows down the scans that miss in memory. Only the writes happen in the background.
+ */
+public class TieredBlockCache implements BlockCache, HeapSize {
+
+  private final BlockCache memoryCache;
+  private final LocalDiskBlockCache diskCache;
+
+  public TieredBlockCache(BlockCache memoryCache, LocalDiskBlockCache diskCache) {
+    this.memoryCache = memoryCache;
+    this.diskCache = diskCache;
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+    CacheEntry ce = memoryCache.cacheBlock(blockName, buf, inMemory);
+    diskCache.cacheBlock(blockName, buf);
+    return ce;
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    return cacheBlock(blockName, buf, false);
+  }
+
+  /**
+   * Looks up a block in memory, then on the local disk. The disk read is done by the calling thread
+   * and is not bounded by a timeout, it takes as long as reading the block file.
+   */
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    CacheEntry ce = memoryCache.getBlock(blockName);
+    if (ce != null) {
+      return ce;
+    }
+
+    byte[] buf = diskCache.getBlock(blockName);
+    if (buf == null) {
+      return null;
+    }
+    return memoryCache.cacheBlock(blockName, buf);
+  }
+
+  @Override
+  public long getMaxSize() {
+    return memoryCache.getMaxSize();
+  }
+
+  /**
+   * @return the statistics of the memory tier, see {@link #getDiskCache()} for the disk tier
+   */
+  @Override
+  public Stats getStats() {
+    return memoryCache.getStats();
+  }
+
+  @Override
+  public long heapSize() {
+    return memoryCache instanceof HeapSize ? ((HeapSize) memoryCache).heapSize() : 0;
+  }
+
+  public BlockCache getMemoryCache() {
+    return memoryCache;
+  }
+
+  public LocalDiskBlockCache getDiskCache() {
+    return diskCache;
+  }
+}
@@ -0,0 +1,627 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sharded block cache that uses a frequency aware admission policy (W-TinyLFU) and evicts
+ * incrementally.
+ *
+ * <p>
+ * Blocks are partitioned by name into independent segments, each with its own
+ * {@link ConcurrentHashMap}, lock, and maximum size. Lookups never take a lock, they record the
+ * access in a small lossy ring buffer that is replayed against the eviction policy by whichever
+ * thread next acquires the segment lock. Inserts take the lock of their segment only.
+ *
+ * <p>
+ * Within a segment new blocks enter a small LRU admission window. Blocks leaving the window must
+ * compete with the least recently used block of the main region for a place in the cache; the one
+ * that a {@link FrequencySketch} estimates to have been accessed more often wins. The main region is
+ * a segmented LRU, blocks accessed while on probation are promoted to the protected part. Eviction
+ * removes only as many blocks as needed to make room for the block being inserted, so there is no
+ * background thread and no sort of the whole cache.
+ *
+ * <p>
+ * In-memory blocks are inserted directly into the protected region.
+ */
+public class TinyLfuBlockCache implements BlockCache, HeapSize {
+
+  private static final Logger log = LoggerFactory.getLogger(TinyLfuBlockCache.class);
+
+  /** Fraction of a segment used for the admission window */
+  static final float DEFAULT_WINDOW_FACTOR = 0.01f;
+
+  /** Fraction of the main region of a segment used for frequently accessed blocks */
+  static final float DEFAULT_PROTECTED_FACTOR = 0.80f;
+
+  /** Number of reads that are buffered before they are applied to the eviction policy */
+  static final int READ_BUFFER_SIZE = 64;
+
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  /** Maximum number of segments */
+  static final int MAX_SEGMENTS = 64;
+
+  public final static long CACHE_FIXED_OVERHEAD = ClassSize.align(
+      (2 * SizeConstants.SIZEOF_LONG) + (5 * ClassSize.REFERENCE) + SizeConstants.SIZEOF_INT
+          + ClassSize.OBJECT);
+
+  public final static long SEGMENT_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+      + (10 * ClassSize.REFERENCE) + (4 * SizeConstants.SIZEOF_LONG) + ClassSize.REENTRANT_LOCK
+      + ClassSize.CONCURRENT_HASHMAP + ClassSize.ATOMIC_LONG
+      + ClassSize.align(ClassSize.ARRAY + READ_BUFFER_SIZE * ClassSize.REFERENCE));
+
+  private final Segment[] segments;
+  private final int segmentMask;
+  private final long maxSize;
+  private final long overhead;
+  private final AtomicLong size;
+  private final AtomicLong elements;
+  private final CacheStats stats;
+
+  /**
+   * Default constructor. Specify maximum size and expected average block size (approximation is
+   * fine). The number of segments is derived from the number of available processors.
+   *
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   */
+  public TinyLfuBlockCache(long maxSize, long blockSize) {
+    this(maxSize, blockSize, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param maxSize
+   *          maximum size of cache, in bytes
+   * @param blockSize
+   *          approximate size of each block, in bytes
+   * @param concurrencyLevel
+   *          the desired number of segments, rounded up to a power of two. Fewer segments are used
+   *          if each segment would not be able to hold several blocks.
+   */
+  public TinyLfuBlockCache(long maxSize, long blockSize, int concurrencyLevel) {
+    if (maxSize <= 0 || blockSize <= 0) {
+      throw new IllegalArgumentException("maxSize and blockSize must be positive");
+    }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel must be positive");
+    }
+
+    int segmentCount = FrequencySketch
+        .ceilingPowerOfTwo(Math.min(concurrencyLevel, MAX_SEGMENTS));
+    // keep room for at least 16 blocks per segment, otherwise a skewed distribution of block names
+    // would leave some segments unable to hold their share of the working set
+    while (segmentCount > 1 && maxSize / segmentCount < 16 * blockSize) {
+      segmentCount >>>= 1;
+    }
+
+    this.maxSize = maxSize;
+    this.stats = new CacheStats();
+    this.elements = new AtomicLong(0);
+    this.overhead = calculateOverhead(maxSize, blockSize, segmentCount);
+    this.size = new AtomicLong(overhead);
+    this.segmentMask = segmentCount - 1;
+    this.segments = new Segment[segmentCount];
+
+    long segmentSize = Math.max(1, (maxSize - overhead) / segmentCount);
+    long expectedEntries = Math.max(1, segmentSize / blockSize);
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(segmentSize, expectedEntries);
+    }
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf, boolean inMemory) {
+    int hash = spread(blockName.hashCode());
+    return segmentFor(hash).put(blockName, hash, buf, inMemory);
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    return cacheBlock(blockName, buf, false);
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    int hash = spread(blockName.hashCode());
+    return segmentFor(hash).get(blockName);
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Get the current size of this cache.
+   *
+   * @return current size in bytes
+   */
+  public long getCurrentSize() {
+    return size.get();
+  }
+
+  /**
+   * Get the size of this cache (number of cached blocks)
+   *
+   * @return number of cached blocks
+   */
+  public long size() {
+    return elements.get();
+  }
+
+  /**
+   * Get the number of times an insert had to evict blocks
+   */
+  public long getEvictionCount() {
+    return stats.getEvictionCount();
+  }
+
+  /**
+   * Get the number of blocks that have been evicted during the lifetime of this cache.
+   */
+  public long getEvictedCount() {
+    return stats.getEvictedCount();
+  }
+
+  int getSegmentCount() {
+    return segments.length;
+  }
+
+  @Override
+  public long heapSize() {
+    return getCurrentSize();
+  }
+
+  public static long calculateOverhead(long maxSize, long blockSize, int segments) {
+    return CACHE_FIXED_OVERHEAD + ClassSize.align(ClassSize.ARRAY + segments * ClassSize.REFERENCE)
+        + segments * SEGMENT_OVERHEAD
+        + ((int) Math.ceil(maxSize * 1.2 / blockSize) * ClassSize.CONCURRENT_HASHMAP_ENTRY)
+        // frequency sketches, one long per expected entry rounded up to a power of two
+        + 2 * (long) Math.ceil(maxSize * 1.0 / blockSize) * SizeConstants.SIZEOF_LONG;
+  }
+
+  public void logStats() {
+    long totalSize = heapSize();
+    long freeSize = maxSize - totalSize;
+    float sizeMB = ((float) totalSize) / ((float) (1024 * 1024));
+    float freeMB = ((float) freeSize) / ((float) (1024 * 1024));
+    float maxMB = ((float) maxSize) / ((float) (1024 * 1024));
+    log.debug(
+        "Cache Stats: Sizes: Total={}MB ({}), Free={}MB ({}), Max={}MB"
+            + " ({}), Counts: Blocks={}, Access={}, Hit={}, Miss={}, Evictions={},"
+            + " Evicted={}, Ratios: Hit Ratio={}%, Miss Ratio={}%, Evicted/Run={},"
+            + " Duplicate Reads={}",
+        sizeMB, totalSize, freeMB, freeSize, maxMB, maxSize, size(), stats.getRequestCount(),
+        stats.getHitCount(), stats.getMissCount(), stats.getEvictionCount(),
+        stats.getEvictedCount(), stats.getHitRatio() * 100, stats.getMissRatio() * 100,
+        stats.evictedPerEviction(), stats.getDuplicateReads());
+  }
+
+  private Segment segmentFor(int hash) {
+    // the low bits are used by the segment's map and sketch, select the segment with the high bits
+    return segments[(hash >>> 16) & segmentMask];
+  }
+
+  private static int spread(int h) {
+    h ^= (h >>> 17);
+    h *= 0xed5ad4bb;
+    h ^= (h >>> 11);
+    h *= 0xac4c1b51;
+    h ^= (h >>> 15);
+    return h;
+  }
+
+  private static enum Region {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  /**
+   * A cached block, linked into the access order list of the region that currently holds it. The
+   * links, region and size are only read or written while holding the lock of the owning segment,
+   * except that the size is set before the node is added to a segment.
+   */
+  private static final class Node implements CacheEntry, HeapSize {
+
+    static final long PER_NODE_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+        + (7 * ClassSize.REFERENCE) + (2 * SizeConstants.SIZEOF_LONG) + SizeConstants.SIZEOF_INT
+        + (2 * SizeConstants.SIZEOF_BOOLEAN) + ClassSize.STRING + ClassSize.ARRAY);
+
+    final String name;
+    final byte[] buf;
+    final int hash;
+    final boolean inMemory;
+    final Segment segment;
+    private volatile Object index;
+
+    long size;
+    // the heap of the index counted in size
+    long indexSize = 0;
+    boolean evicted = false;
+    Region region;
+    Node prev;
+    Node next;
+
+    Node(String name, int hash, byte[] buf, boolean inMemory, Segment segment) {
+      this.name = name;
+      this.hash = hash;
+      this.buf = buf;
+      this.inMemory = inMemory;
+      this.segment = segment;
+      this.size = ClassSize.align(name.length()) + ClassSize.align(buf.length) + PER_NODE_OVERHEAD;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buf;
+    }
+
+    @Override
+    public Object getIndex() {
+      return index;
+    }
+
+    @Override
+    public void setIndex(Object idx) {
+      this.index = idx;
+    }
+
+    @Override
+    public void setIndex(Object idx, long heapSize) {
+      this.index = idx;
+      segment.setIndexSize(this, ClassSize.align(heapSize));
+    }
+
+    @Override
+    public long heapSize() {
+      segment.lock.lock();
+      try {
+        return size;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * An intrusive doubly linked list of nodes in access order, least recently used first.
+   */
+  private static final class AccessOrderList {
+    Node head;
+    Node tail;
+    long weight;
+
+    void add(Node node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      weight += node.size;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+      weight -= node.size;
+    }
+
+    void moveToTail(Node node) {
+      if (node != tail) {
+        remove(node);
+        add(node);
+      }
+    }
+
+    Node poll() {
+      Node node = head;
+      if (node != null) {
+        remove(node);
+      }
+      return node;
+    }
+  }
+
+  private final class Segment {
+
+    private final ConcurrentHashMap<String,Node> map;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(
+        READ_BUFFER_SIZE);
+    private final AtomicLong readCounter = new AtomicLong();
+
+    // guarded by lock
+    private final FrequencySketch sketch;
+    private final AccessOrderList window = new AccessOrderList();
+    private final AccessOrderList probation = new AccessOrderList();
+    private final AccessOrderList protectedList = new AccessOrderList();
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long weightedSize;
+
+    Segment(long maximum, long expectedEntries) {
+      this.maximum = maximum;
+      this.windowMaximum = (long) (maximum * DEFAULT_WINDOW_FACTOR);
+      this.protectedMaximum = (long) ((maximum - windowMaximum) * DEFAULT_PROTECTED_FACTOR);
+      this.sketch = new FrequencySketch(expectedEntries);
+      this.map = new ConcurrentHashMap<>((int) Math.min(Integer.MAX_VALUE, expectedEntries));
+    }
+
+    Node get(String blockName) {
+      Node node = map.get(blockName);
+      if (node == null) {
+        stats.miss();
+        return null;
+      }
+      stats.hit();
+      recordRead(node);
+      return node;
+    }
+
+    Node put(String blockName, int hash, byte[] buf, boolean inMemory) {
+      Node node = map.get(blockName);
+      if (node != null) {
+        stats.duplicateReads();
+        recordRead(node);
+        return node;
+      }
+
+      node = new Node(blockName, hash, buf, inMemory, this);
+      if (node.size > maximum) {
+        // would evict the entire segment and still not fit
+        return null;
+      }
+
+      Node prior = map.putIfAbsent(blockName, node);
+      if (prior != null) {
+        stats.duplicateReads();
+        recordRead(prior);
+        return prior;
+      }
+
+      elements.incrementAndGet();
+
+      lock.lock();
+      try {
+        // the size of the node may have grown by its index since it was put in the map
+        size.addAndGet(node.size);
+        drainReadBuffer();
+        onAdd(node);
+      } finally {
+        lock.unlock();
+      }
+      return node;
+    }
+
+    /**
+     * Buffers a read, the buffer is lossy so under heavy contention some accesses may not be
+     * reflected in the policy. That is acceptable, the policy only needs a statistical view of the
+     * access pattern.
+     */
+    private void recordRead(Node node) {
+      int index = (int) (readCounter.getAndIncrement() & READ_BUFFER_MASK);
+      readBuffer.lazySet(index, node);
+      if (index == READ_BUFFER_MASK && lock.tryLock()) {
+        try {
+          drainReadBuffer();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void drainReadBuffer() {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        Node node = readBuffer.getAndSet(i, null);
+        // a null region means the node was evicted, or its insert has not yet been applied
+        if (node != null && node.region != null) {
+          onAccess(node);
+        }
+      }
+    }
+
+    /**
+     * Counts the heap used by the index of a block toward its size, evicting blocks if the segment
+     * is then over its maximum.
+     */
+    void setIndexSize(Node node, long indexSize) {
+      lock.lock();
+      try {
+        if (node.evicted) {
+          return;
+        }
+        long delta = indexSize - node.indexSize;
+        node.indexSize = indexSize;
+        node.size += delta;
+        if (node.region == null) {
+          // the insert of the node has not been applied yet, it is added with its new size
+          return;
+        }
+        switch (node.region) {
+          case WINDOW:
+            window.weight += delta;
+            break;
+          case PROBATION:
+            probation.weight += delta;
+            break;
+          case PROTECTED:
+            protectedList.weight += delta;
+            demoteFromProtected();
+            break;
+        }
+        weightedSize += delta;
+        size.addAndGet(delta);
+        evict();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void onAccess(Node node) {
+      sketch.increment(node.hash);
+      switch (node.region) {
+        case WINDOW:
+          window.moveToTail(node);
+          break;
+        case PROBATION:
+          probation.remove(node);
+          node.region = Region.PROTECTED;
+          protectedList.add(node);
+          demoteFromProtected();
+          break;
+        case PROTECTED:
+          protectedList.moveToTail(node);
+          break;
+      }
+    }
+
+    private void onAdd(Node node) {
+      sketch.increment(node.hash);
+      weightedSize += node.size;
+      if (node.inMemory) {
+        node.region = Region.PROTECTED;
+        protectedList.add(node);
+        demoteFromProtected();
+      } else {
+        node.region = Region.WINDOW;
+        window.add(node);
+      }
+      evict();
+    }
+
+    private void demoteFromProtected() {
+      while (protectedList.weight > protectedMaximum && protectedList.head != null) {
+        Node demoted = protectedList.poll();
+        demoted.region = Region.PROBATION;
+        probation.add(demoted);
+      }
+    }
+
+    /**
+     * Moves blocks that overflow the admission window to the tail of probation, then, while the
+     * segment is over its maximum, lets the newest of those candidates compete with the least
+     * recently used block on probation. Only the loser of each comparison is evicted.
+     */
+    private void evict() {
+      int candidates = 0;
+      while (window.weight > windowMaximum && window.head != null) {
+        Node node = window.poll();
+        node.region = Region.PROBATION;
+        probation.add(node);
+        candidates++;
+      }
+
+      boolean evicted = false;
+      while (weightedSize > maximum) {
+        Node victim = probation.head;
+        if (victim == null) {
+          victim = protectedList.head;
+        }
+        if (victim == null) {
+          victim = window.head;
+        }
+        if (victim == null) {
+          break;
+        }
+
+        Node candidate = candidates > 0 ? probation.tail : null;
+        if (candidate == null || candidate == victim || candidate.region != Region.PROBATION) {
+          if (candidate == victim) {
+            candidates--;
+          }
+          evictNode(victim);
+        } else if (admit(candidate, victim)) {
+          evictNode(victim);
+        } else {
+          candidates--;
+          evictNode(candidate);
+        }
+        evicted = true;
+      }
+
+      if (evicted) {
+        stats.evict();
+      }
+    }
+
+    private boolean admit(Node candidate, Node victim) {
+      int candidateFreq = sketch.frequency(candidate.hash);
+      int victimFreq = sketch.frequency(victim.hash);
+      if (candidateFreq > victimFreq) {
+        return true;
+      } else if (candidateFreq <= 5) {
+        // the victim is frequently accessed or the candidate is cold
+        return false;
+      }
+      // occasionally admit a warm candidate so that an attacker, or an unlucky collision, can not
+      // keep a popular victim in the cache forever
+      return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evictNode(Node node) {
+      switch (node.region) {
+        case WINDOW:
+          window.remove(node);
+          break;
+        case PROBATION:
+          probation.remove(node);
+          break;
+        case PROTECTED:
+          protectedList.remove(node);
+          break;
+      }
+      node.region = null;
+      node.evicted = true;
+      weightedSize -= node.size;
+      map.remove(node.name, node);
+      size.addAndGet(-1 * node.size);
+      elements.decrementAndGet();
+      stats.evicted();
+    }
+  }
+}
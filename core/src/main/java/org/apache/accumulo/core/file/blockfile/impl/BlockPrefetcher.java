@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches and decompresses data blocks in the background, ahead of the scans that will read them.
+ * The blocks that have been fetched, or are being fetched, and have not been read yet may use at
+ * most a fixed amount of memory. Blocks are not fetched ahead while it is used up.
+ */
+public class BlockPrefetcher {
+
+  private static final Logger log = LoggerFactory.getLogger(BlockPrefetcher.class);
+
+  private final ExecutorService threadPool;
+  private final long maxMemory;
+  private final AtomicLong memoryUsed = new AtomicLong(0);
+
+  /**
+   * @param threadPool
+   *          runs the fetches
+   * @param maxMemory
+   *          the most memory blocks that were fetched ahead and not read yet may use
+   */
+  public BlockPrefetcher(ExecutorService threadPool, long maxMemory) {
+    this.threadPool = threadPool;
+    this.maxMemory = maxMemory;
+  }
+
+  /**
+   * Starts fetching a block.
+   *
+   * @param loader
+   *          opens the block, it is called on a prefetch thread
+   * @param rawSize
+   *          the uncompressed size of the block
+   * @return the block being fetched, or null if there is not enough memory left to fetch it
+   */
+  public Block prefetch(Callable<ABlockReader> loader, long rawSize) {
+    if (rawSize > Integer.MAX_VALUE || !reserve(rawSize)) {
+      return null;
+    }
+    Block block = new Block(loader, (int) rawSize);
+    try {
+      threadPool.execute(block);
+    } catch (RejectedExecutionException e) {
+      memoryUsed.addAndGet(-rawSize);
+      return null;
+    }
+    return block;
+  }
+
+  private boolean reserve(long size) {
+    while (true) {
+      long used = memoryUsed.get();
+      if (used + size > maxMemory) {
+        return false;
+      }
+      if (memoryUsed.compareAndSet(used, used + size)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * @return the memory used by blocks that were fetched, or are being fetched, and not read yet
+   */
+  public long getMemoryUsed() {
+    return memoryUsed.get();
+  }
+
+  /**
+   * A block fetched ahead of time. It must be either read with {@link #get()} or discarded.
+   */
+  public class Block implements Runnable {
+
+    private final Callable<ABlockReader> loader;
+    private final int rawSize;
+    private ABlockReader reader;
+    private IOException error;
+    private boolean fetched = false;
+    private boolean released = false;
+
+    private Block(Callable<ABlockReader> loader, int rawSize) {
+      this.loader = loader;
+      this.rawSize = rawSize;
+    }
+
+    private ABlockReader fetch() throws Exception {
+      ABlockReader block = loader.call();
+      if (block.isIndexable()) {
+        // the block is already in memory, in the block cache
+        return block;
+      }
+      try {
+        byte[] buffer = new byte[rawSize];
+        block.readFully(buffer);
+        return new CachableBlockFile.BlockRead(
+            new DataInputStream(new ByteArrayInputStream(buffer)), buffer.length);
+      } finally {
+        block.close();
+      }
+    }
+
+    @Override
+    public void run() {
+      ABlockReader block = null;
+      IOException e = null;
+      try {
+        block = fetch();
+      } catch (IOException ioe) {
+        e = ioe;
+      } catch (Exception ex) {
+        e = new IOException(ex);
+      }
+      synchronized (this) {
+        if (!released) {
+          reader = block;
+          error = e;
+          fetched = true;
+          notifyAll();
+          return;
+        }
+      }
+      // discarded while it was being fetched
+      close(block);
+    }
+
+    private void release() {
+      released = true;
+      memoryUsed.addAndGet(-rawSize);
+    }
+
+    /**
+     * Waits for the block to be fetched and returns it. The caller must close it.
+     */
+    public synchronized ABlockReader get() throws IOException {
+      if (released) {
+        throw new IllegalStateException("Block was already read or discarded");
+      }
+      try {
+        while (!fetched) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        discard();
+        throw new InterruptedIOException("Interrupted waiting for block");
+      }
+      release();
+      if (error != null) {
+        throw error;
+      }
+      return reader;
+    }
+
+    /**
+     * Discards a block that will not be read.
+     */
+    public void discard() {
+      ABlockReader block;
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        release();
+        block = reader;
+        reader = null;
+      }
+      close(block);
+    }
+
+    private void close(ABlockReader block) {
+      if (block != null) {
+        try {
+          block.close();
+        } catch (IOException e) {
+          log.debug("Failed to close discarded block", e);
+        }
+      }
+    }
+  }
+}
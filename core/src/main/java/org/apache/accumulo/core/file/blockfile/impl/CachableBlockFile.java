@@ -33,6 +33,8 @@ import org.apache.accumulo.core.file.blockfile.BlockFileReader;
 import org.apache.accumulo.core.file.blockfile.BlockFileWriter;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
 import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
+import org.apache.accumulo.core.file.blockfile.cache.HeapSize;
+import org.apache.accumulo.core.file.blockfile.cache.OffHeapCacheEntry;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Reader.BlockReader;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Writer.BlockAppender;
@@ -98,6 +100,17 @@ public class CachableBlockFile {
       return _bw;
     }
 
+    @Override
+    public ABlockWriter prepareDataBlock(String compressionName) throws IOException {
+      _bw = new BlockWrite(_bc.prepareDataBlock(compressionName));
+      return _bw;
+    }
+
+    @Override
+    public void setDataDictionary(byte[] dictionary) {
+      _bc.setDataDictionary(dictionary);
+    }
+
     @Override
     public void close() throws IOException {
 
@@ -165,6 +178,8 @@ public class CachableBlockFile {
     private Configuration conf;
     private boolean closed = false;
     private AccumuloConfiguration accumuloConfiguration = null;
+    // kept to set on the BCFile reader when the file is opened lazily
+    private byte[] dataDictionary = null;
 
     // ACCUMULO-4716 - Define MAX_ARRAY_SIZE smaller than Integer.MAX_VALUE to prevent possible
     // OutOfMemory
@@ -203,16 +218,19 @@ public class CachableBlockFile {
       private long offset;
       private long compressedSize;
       private long rawSize;
+      private String compressionName;
 
-      RawBlockLoader(long offset, long compressedSize, long rawSize) {
+      RawBlockLoader(long offset, long compressedSize, long rawSize, String compressionName) {
         this.offset = offset;
         this.compressedSize = compressedSize;
         this.rawSize = rawSize;
+        this.compressionName = compressionName;
       }
 
       @Override
       public BlockReader get() throws IOException {
-        return getBCFile(accumuloConfiguration).getDataBlock(offset, compressedSize, rawSize);
+        return getBCFile(accumuloConfiguration).getDataBlock(offset, compressedSize, rawSize,
+            compressionName);
       }
 
       @Override
@@ -286,6 +304,15 @@ public class CachableBlockFile {
     private <InputStreamT extends InputStream & Seekable> void init(InputStreamT fsin, long len,
         Configuration conf, AccumuloConfiguration accumuloConfiguration) throws IOException {
       this._bc = new BCFile.Reader(this, fsin, len, conf, accumuloConfiguration);
+      _bc.setDataDictionary(dataDictionary);
+    }
+
+    @Override
+    public synchronized void setDataDictionary(byte[] dictionary) {
+      this.dataDictionary = dictionary;
+      if (_bc != null) {
+        _bc.setDataDictionary(dictionary);
+      }
     }
 
     private long getFileLen(final Path path) throws IOException {
@@ -340,7 +367,7 @@ public class CachableBlockFile {
         CacheEntry cacheEntry = _iCache.getBlock(_lookup);
 
         if (cacheEntry != null) {
-          return new CachedBlockRead(cacheEntry, cacheEntry.getBuffer());
+          return newCachedBlockRead(cacheEntry);
         }
 
       }
@@ -376,7 +403,10 @@ public class CachableBlockFile {
         cb = cache.getBlock(_lookup);
 
         if (cb != null) {
-          return new CachedBlockRead(cb, cb.getBuffer());
+          BlockRead cachedBlock = newCachedBlockRead(cb);
+          if (cachedBlock != null) {
+            return cachedBlock;
+          }
         }
 
       }
@@ -423,10 +453,14 @@ public class CachableBlockFile {
           log.warn("Already cached block: " + _lookup, e);
         }
 
-        if (ce == null)
+        BlockRead cachedBlock = null;
+        if (ce != null)
+          cachedBlock = newCachedBlockRead(ce);
+
+        if (cachedBlock == null)
           return new BlockRead(new DataInputStream(new ByteArrayInputStream(b)), b.length);
         else
-          return new CachedBlockRead(ce, ce.getBuffer());
+          return cachedBlock;
 
       }
     }
@@ -448,7 +482,7 @@ public class CachableBlockFile {
     public ABlockReader getMetaBlock(long offset, long compressedSize, long rawSize)
         throws IOException {
       String _lookup = this.fileName + "R" + offset;
-      return getBlock(_lookup, _iCache, new RawBlockLoader(offset, compressedSize, rawSize));
+      return getBlock(_lookup, _iCache, new RawBlockLoader(offset, compressedSize, rawSize, null));
     }
 
     /**
@@ -469,8 +503,15 @@ public class CachableBlockFile {
     @Override
     public ABlockReader getDataBlock(long offset, long compressedSize, long rawSize)
         throws IOException {
+      return getDataBlock(offset, compressedSize, rawSize, null);
+    }
+
+    @Override
+    public ABlockReader getDataBlock(long offset, long compressedSize, long rawSize,
+        String compressionName) throws IOException {
       String _lookup = this.fileName + "R" + offset;
-      return getBlock(_lookup, _dCache, new RawBlockLoader(offset, compressedSize, rawSize));
+      return getBlock(_lookup, _dCache,
+          new RawBlockLoader(offset, compressedSize, rawSize, compressionName));
     }
 
     @Override
@@ -484,8 +525,8 @@ public class CachableBlockFile {
         _bc.close();
 
       if (fin != null) {
-        // synchronize on the FSDataInputStream to ensure thread safety with the
-        // BoundedRangeFileInputStream
+        // synchronize on the FSDataInputStream to ensure thread safety with any
+        // BoundedRangeFileInputStream reading it by seeking, positional reads do not lock it
         synchronized (fin) {
           fin.close();
         }
@@ -494,6 +535,56 @@ public class CachableBlockFile {
 
   }
 
+  /**
+   * Creates a reader over a cached block, reading off heap blocks in place.
+   *
+   * @return null if the entry is an off heap block that was released since it was looked up
+   */
+  static BlockRead newCachedBlockRead(CacheEntry ce) {
+    if (ce instanceof OffHeapCacheEntry) {
+      OffHeapCacheEntry offHeapEntry = (OffHeapCacheEntry) ce;
+      if (!offHeapEntry.retain())
+        return null;
+      return new OffHeapCachedBlockRead(offHeapEntry);
+    }
+    return new CachedBlockRead(ce, ce.getBuffer());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T getIndex(CacheEntry cb, Class<T> clazz) {
+    T bi = null;
+    synchronized (cb) {
+      Object index = cb.getIndex();
+      if (index instanceof SoftReference)
+        bi = ((SoftReference<T>) index).get();
+
+      if (bi == null) {
+        try {
+          bi = clazz.newInstance();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+        cb.setIndex(new SoftReference<>(bi));
+      }
+    }
+
+    return bi;
+  }
+
+  private static <T extends HeapSize> T getIndex(CacheEntry cb, Class<T> clazz,
+      ABlockReader.IndexBuilder<T> builder, ABlockReader block) throws IOException {
+    synchronized (cb) {
+      Object index = cb.getIndex();
+      if (clazz.isInstance(index))
+        return clazz.cast(index);
+
+      // the heap of the index is counted toward the cache, so it is held as long as the block
+      T bi = builder.build(block);
+      cb.setIndex(bi, bi.heapSize());
+      return bi;
+    }
+  }
+
   public static class CachedBlockRead extends BlockRead {
     private SeekableByteArrayInputStream seekableInput;
     private final CacheEntry cb;
@@ -529,25 +620,82 @@ public class CachableBlockFile {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> T getIndex(Class<T> clazz) {
-      T bi = null;
-      synchronized (cb) {
-        SoftReference<T> softRef = (SoftReference<T>) cb.getIndex();
-        if (softRef != null)
-          bi = softRef.get();
+      return CachableBlockFile.getIndex(cb, clazz);
+    }
 
-        if (bi == null) {
-          try {
-            bi = clazz.newInstance();
-          } catch (Exception e) {
-            throw new RuntimeException(e);
+    @Override
+    public <T extends HeapSize> T getIndex(Class<T> clazz, IndexBuilder<T> builder)
+        throws IOException {
+      return CachableBlockFile.getIndex(cb, clazz, builder, this);
+    }
+  }
+
+  /**
+   * Reads a block that is cached off heap in place. Holds a reference to the block until closed.
+   */
+  public static class OffHeapCachedBlockRead extends BlockRead {
+    private final SeekableByteBufferInputStream seekableInput;
+    private final OffHeapCacheEntry cb;
+    private boolean released = false;
+
+    private OffHeapCachedBlockRead(OffHeapCacheEntry cb) {
+      this(new SeekableByteBufferInputStream(cb.getByteBuffer()), cb);
+    }
+
+    private OffHeapCachedBlockRead(SeekableByteBufferInputStream seekableInput,
+        OffHeapCacheEntry cb) {
+      super(seekableInput, seekableInput.available());
+      this.seekableInput = seekableInput;
+      this.cb = cb;
+    }
+
+    @Override
+    public void seek(int position) {
+      seekableInput.seek(position);
+    }
+
+    @Override
+    public int getPosition() {
+      return seekableInput.getPosition();
+    }
+
+    @Override
+    public boolean isIndexable() {
+      return true;
+    }
+
+    /**
+     * @return null, the block is not stored in a heap array
+     */
+    @Override
+    public byte[] getBuffer() {
+      return null;
+    }
+
+    @Override
+    public <T> T getIndex(Class<T> clazz) {
+      return CachableBlockFile.getIndex(cb, clazz);
+    }
+
+    @Override
+    public <T extends HeapSize> T getIndex(Class<T> clazz, IndexBuilder<T> builder)
+        throws IOException {
+      return CachableBlockFile.getIndex(cb, clazz, builder, this);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        synchronized (this) {
+          if (!released) {
+            released = true;
+            cb.release();
           }
-          cb.setIndex(new SoftReference<>(bi));
         }
       }
-
-      return bi;
     }
   }
 
@@ -595,6 +743,11 @@ public class CachableBlockFile {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public <T extends HeapSize> T getIndex(Class<T> clazz, IndexBuilder<T> builder) {
+      throw new UnsupportedOperationException();
+    }
+
     /**
      * The byte array returned by this method is only for read optimizations, it should not be
      * modified.
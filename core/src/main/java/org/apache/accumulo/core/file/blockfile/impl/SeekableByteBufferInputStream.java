@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Like {@link SeekableByteArrayInputStream}, but reads from a {@link ByteBuffer} that may be stored
+ * off heap. Reads copy directly from the buffer into the caller's array, the block is never copied
+ * onto the heap as a whole.
+ */
+public class SeekableByteBufferInputStream extends InputStream {
+
+  private final ByteBuffer buffer;
+
+  /**
+   * @param buf
+   *          the block, from position zero to its limit. This stream changes the position of the
+   *          buffer, so it should not be shared.
+   */
+  public SeekableByteBufferInputStream(ByteBuffer buf) {
+    Preconditions.checkNotNull(buf, "buf argument was null");
+    this.buffer = buf;
+    this.buffer.position(0);
+  }
+
+  @Override
+  public int read() {
+    if (buffer.hasRemaining()) {
+      return buffer.get() & 0xff;
+    } else {
+      return -1;
+    }
+  }
+
+  @Override
+  public int read(byte b[], int offset, int length) {
+    if (b == null) {
+      throw new NullPointerException();
+    }
+
+    if (length < 0 || offset < 0 || length > b.length - offset) {
+      throw new IndexOutOfBoundsException();
+    }
+
+    if (length == 0) {
+      return 0;
+    }
+
+    int avail = buffer.remaining();
+
+    if (avail <= 0) {
+      return -1;
+    }
+
+    if (length > avail) {
+      length = avail;
+    }
+
+    buffer.get(b, offset, length);
+    return length;
+  }
+
+  @Override
+  public long skip(long requestedSkip) {
+    long actualSkip = buffer.remaining();
+    if (requestedSkip < actualSkip)
+      if (requestedSkip < 0)
+        actualSkip = 0;
+      else
+        actualSkip = requestedSkip;
+
+    buffer.position(buffer.position() + (int) actualSkip);
+    return actualSkip;
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void reset() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void close() throws IOException {}
+
+  public void seek(int position) {
+    if (position < 0 || position >= buffer.limit())
+      throw new IllegalArgumentException(
+          "position = " + position + " maxOffset = " + buffer.limit());
+    buffer.position(position);
+  }
+
+  public int getPosition() {
+    return buffer.position();
+  }
+}
@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.ABlockReader;
+import org.apache.accumulo.core.file.blockfile.cache.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.HeapSize;
+import org.apache.accumulo.core.file.blockfile.cache.SizeConstants;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A data block that stores each field of its entries in a column of its own, instead of writing
+ * each key relative to the one before it followed by its value like {@link RelativeKey} does. Rows
+ * and column qualifiers are written as the length of the prefix they share with the previous entry
+ * followed by the rest, column families and visibilities as ids into a dictionary of the distinct
+ * values in the block, and timestamps as the difference to the previous timestamp. Values come
+ * last, so a block's keys are decoded without decoding its values, and a value is only copied out
+ * of the block when it is read.
+ *
+ * <p>
+ * A decoded block is immutable. When the block is cached, the decoded block is kept with it, like
+ * the blocks of a {@link MultiLevelIndex}, so that it is only decoded once. Its heap is counted
+ * toward the cache holding the block.
+ */
+public class ColumnarBlock implements HeapSize {
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private static final ABlockReader.IndexBuilder<ColumnarBlock> BUILDER =
+      new ABlockReader.IndexBuilder<ColumnarBlock>() {
+        @Override
+        public ColumnarBlock build(ABlockReader block) throws IOException {
+          ColumnarBlock cb = new ColumnarBlock();
+          cb.decode(block);
+          return cb;
+        }
+      };
+
+  private long heapSize;
+
+  private int size;
+  private byte[][] rows;
+  private byte[][] families;
+  private int[] familyIds;
+  private byte[][] qualifiers;
+  private byte[][] visibilities;
+  private int[] visibilityIds;
+  private long[] timestamps;
+  private boolean[] deleted;
+  private int[] valueOffsets;
+  private byte[] values;
+
+  private ColumnarBlock() {}
+
+  /**
+   * Reads a block written by {@link Writer}, or gets the decoded block kept with a cached block.
+   */
+  static ColumnarBlock read(ABlockReader block) throws IOException {
+    if (block.isIndexable()) {
+      return block.getIndex(ColumnarBlock.class, BUILDER);
+    }
+    return BUILDER.build(block);
+  }
+
+  private static byte[][] readPrefixed(DataInput in, int size) throws IOException {
+    byte[][] fields = new byte[size][];
+    byte[] prev = EMPTY;
+    for (int i = 0; i < size; i++) {
+      int prefix = WritableUtils.readVInt(in);
+      int suffix = WritableUtils.readVInt(in);
+      if (suffix == 0 && prefix == prev.length) {
+        // share the array with the previous entry, like RelativeKey does for unchanged fields
+        fields[i] = prev;
+      } else {
+        byte[] field = new byte[prefix + suffix];
+        System.arraycopy(prev, 0, field, 0, prefix);
+        in.readFully(field, prefix, suffix);
+        fields[i] = field;
+      }
+      prev = fields[i];
+    }
+    return fields;
+  }
+
+  private static byte[][] readDictionary(DataInput in) throws IOException {
+    byte[][] dictionary = new byte[WritableUtils.readVInt(in)][];
+    for (int i = 0; i < dictionary.length; i++) {
+      dictionary[i] = new byte[WritableUtils.readVInt(in)];
+      in.readFully(dictionary[i]);
+    }
+    return dictionary;
+  }
+
+  private static long heapSize(byte[][] fields) {
+    long size = ClassSize.align(ClassSize.ARRAY + fields.length * ClassSize.REFERENCE);
+    for (int i = 0; i < fields.length; i++) {
+      // arrays shared with the previous entry are only counted once
+      if (i == 0 || fields[i] != fields[i - 1]) {
+        size += ClassSize.align(ClassSize.ARRAY + fields[i].length);
+      }
+    }
+    return size;
+  }
+
+  private static int[] readIds(DataInput in, int size, int dictionarySize) throws IOException {
+    int[] ids = new int[size];
+    for (int i = 0; i < size; i++) {
+      ids[i] = dictionarySize == 1 ? 0 : WritableUtils.readVInt(in);
+    }
+    return ids;
+  }
+
+  private void decode(DataInput in) throws IOException {
+    size = WritableUtils.readVInt(in);
+
+    rows = readPrefixed(in, size);
+    families = readDictionary(in);
+    familyIds = readIds(in, size, families.length);
+    qualifiers = readPrefixed(in, size);
+    visibilities = readDictionary(in);
+    visibilityIds = readIds(in, size, visibilities.length);
+
+    timestamps = new long[size];
+    long ts = 0;
+    for (int i = 0; i < size; i++) {
+      ts += WritableUtils.readVLong(in);
+      timestamps[i] = ts;
+    }
+
+    deleted = new boolean[size];
+    byte[] deletedBits = new byte[(size + 7) / 8];
+    in.readFully(deletedBits);
+    for (int i = 0; i < size; i++) {
+      deleted[i] = (deletedBits[i >>> 3] & (1 << (i & 7))) != 0;
+    }
+
+    valueOffsets = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      valueOffsets[i + 1] = valueOffsets[i] + WritableUtils.readVInt(in);
+    }
+    values = new byte[valueOffsets[size]];
+    in.readFully(values);
+
+    heapSize = ClassSize.align(ClassSize.OBJECT + 10 * ClassSize.REFERENCE
+        + SizeConstants.SIZEOF_INT + SizeConstants.SIZEOF_LONG);
+    heapSize += heapSize(rows) + heapSize(families) + heapSize(qualifiers)
+        + heapSize(visibilities);
+    heapSize += 2 * ClassSize.align(ClassSize.ARRAY + size * SizeConstants.SIZEOF_INT);
+    heapSize += ClassSize.align(ClassSize.ARRAY + (size + 1) * SizeConstants.SIZEOF_INT);
+    heapSize += ClassSize.align(ClassSize.ARRAY + size * SizeConstants.SIZEOF_LONG);
+    heapSize += ClassSize.align(ClassSize.ARRAY + size * SizeConstants.SIZEOF_BOOLEAN);
+    heapSize += ClassSize.align(ClassSize.ARRAY + values.length);
+  }
+
+  @Override
+  public long heapSize() {
+    return heapSize;
+  }
+
+  /**
+   * @return the number of entries in the block
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Creates the key of an entry. The key shares its fields with the block and with the keys of
+   * other entries.
+   */
+  Key getKey(int i) {
+    return new Key(rows[i], families[familyIds[i]], qualifiers[i], visibilities[visibilityIds[i]],
+        timestamps[i], deleted[i], false);
+  }
+
+  /**
+   * Copies the value of an entry out of the block.
+   */
+  Value getValue(int i) {
+    return new Value(values, valueOffsets[i], valueOffsets[i + 1] - valueOffsets[i]);
+  }
+
+  /**
+   * @return the position of the first entry at or after from whose key is greater than or equal to
+   *         the given key, or {@link #size()} if there is none
+   */
+  int seek(Key key, int from) {
+    int low = from;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (getKey(mid).compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Collects the entries of a block and writes them as columns when the block is closed.
+   */
+  static class Writer {
+
+    private final List<Key> keys = new ArrayList<>();
+    private final List<Value> values = new ArrayList<>();
+    private long size = 0;
+
+    /**
+     * Adds an entry to the block. The key and value must not be changed after.
+     */
+    void add(Key key, Value value) {
+      keys.add(key);
+      values.add(value);
+      size += key.getSize() + value.getSize();
+    }
+
+    /**
+     * @return the size of the keys and values of the block before they are encoded
+     */
+    long getSize() {
+      return size;
+    }
+
+    boolean isEmpty() {
+      return keys.isEmpty();
+    }
+
+    private static int commonPrefix(ByteSequence bs1, ByteSequence bs2) {
+      int len = Math.min(bs1.length(), bs2.length());
+      int i = 0;
+      while (i < len && bs1.byteAt(i) == bs2.byteAt(i)) {
+        i++;
+      }
+      return i;
+    }
+
+    private static void writePrefixed(DataOutput out, List<ByteSequence> fields)
+        throws IOException {
+      ByteSequence prev = new ArrayByteSequence(EMPTY);
+      for (ByteSequence field : fields) {
+        int prefix = commonPrefix(prev, field);
+        WritableUtils.writeVInt(out, prefix);
+        WritableUtils.writeVInt(out, field.length() - prefix);
+        out.write(field.getBackingArray(), field.offset() + prefix, field.length() - prefix);
+        prev = field;
+      }
+    }
+
+    private static void writeDictionary(DataOutput out, List<ByteSequence> fields)
+        throws IOException {
+      Map<ByteSequence,Integer> ids = new HashMap<>();
+      List<ByteSequence> dictionary = new ArrayList<>();
+      int[] fieldIds = new int[fields.size()];
+      for (int i = 0; i < fieldIds.length; i++) {
+        Integer id = ids.get(fields.get(i));
+        if (id == null) {
+          id = dictionary.size();
+          ids.put(fields.get(i), id);
+          dictionary.add(fields.get(i));
+        }
+        fieldIds[i] = id;
+      }
+
+      WritableUtils.writeVInt(out, dictionary.size());
+      for (ByteSequence field : dictionary) {
+        WritableUtils.writeVInt(out, field.length());
+        out.write(field.getBackingArray(), field.offset(), field.length());
+      }
+      // a block often has one column family or visibility, then the ids are left out
+      if (dictionary.size() > 1) {
+        for (int id : fieldIds) {
+          WritableUtils.writeVInt(out, id);
+        }
+      }
+    }
+
+    /**
+     * Writes the entries added since the last write as a block, and clears them.
+     */
+    void write(DataOutput out) throws IOException {
+      int count = keys.size();
+      WritableUtils.writeVInt(out, count);
+
+      List<ByteSequence> fields = new ArrayList<>(count);
+      for (Key key : keys) {
+        fields.add(key.getRowData());
+      }
+      writePrefixed(out, fields);
+
+      fields.clear();
+      for (Key key : keys) {
+        fields.add(key.getColumnFamilyData());
+      }
+      writeDictionary(out, fields);
+
+      fields.clear();
+      for (Key key : keys) {
+        fields.add(key.getColumnQualifierData());
+      }
+      writePrefixed(out, fields);
+
+      fields.clear();
+      for (Key key : keys) {
+        fields.add(key.getColumnVisibilityData());
+      }
+      writeDictionary(out, fields);
+
+      long prevTimestamp = 0;
+      for (Key key : keys) {
+        WritableUtils.writeVLong(out, key.getTimestamp() - prevTimestamp);
+        prevTimestamp = key.getTimestamp();
+      }
+
+      byte[] deletedBits = new byte[(count + 7) / 8];
+      for (int i = 0; i < count; i++) {
+        if (keys.get(i).isDeleted()) {
+          deletedBits[i >>> 3] |= 1 << (i & 7);
+        }
+      }
+      out.write(deletedBits);
+
+      for (Value value : values) {
+        WritableUtils.writeVInt(out, value.getSize());
+      }
+      for (Value value : values) {
+        out.write(value.get(), 0, value.getSize());
+      }
+
+      keys.clear();
+      values.clear();
+      size = 0;
+    }
+  }
+}
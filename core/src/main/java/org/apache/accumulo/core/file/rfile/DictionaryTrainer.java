@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.commons.lang.mutable.MutableInt;
+
+/**
+ * Trains a preset dictionary for the data blocks of a file from a sample of its keys. Each data
+ * block is compressed on its own, and starts with a key whose fields are all written, so the row
+ * prefixes and columns at the start of a block can not refer back to the same bytes in earlier
+ * blocks. The dictionary holds the fields that occur most, so that every block can refer back to
+ * them.
+ */
+class DictionaryTrainer {
+
+  private static final Comparator<Entry<ByteSequence,MutableInt>> MOST_SAVED =
+      new Comparator<Entry<ByteSequence,MutableInt>>() {
+        @Override
+        public int compare(Entry<ByteSequence,MutableInt> o1, Entry<ByteSequence,MutableInt> o2) {
+          int cmp = Long.compare(saved(o2), saved(o1));
+          if (cmp == 0) {
+            cmp = o1.getKey().compareTo(o2.getKey());
+          }
+          return cmp;
+        }
+      };
+
+  // deflate does not match fewer bytes than this
+  private static final int MIN_FIELD_LENGTH = 3;
+
+  private final int maxSize;
+  private final Map<ByteSequence,MutableInt> counts = new HashMap<>();
+  private Key prevKey = null;
+
+  /**
+   * @param maxSize
+   *          the largest dictionary to train
+   */
+  DictionaryTrainer(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  // the bytes a field saves when its occurrences after the first refer back to the dictionary
+  private static long saved(Entry<ByteSequence,MutableInt> entry) {
+    return (long) entry.getKey().length() * (entry.getValue().intValue() - 1);
+  }
+
+  /**
+   * Adds a key of the sample. Keys must be added in sorted order and must not be changed after.
+   */
+  void add(Key key) {
+    ByteSequence row = key.getRowData();
+    if (prevKey != null) {
+      // few rows occur in more than one block, but the prefixes rows share with their neighbors do
+      int prefix = commonPrefix(row, prevKey.getRowData());
+      if (prefix < row.length()) {
+        count(row.subSequence(0, prefix));
+      }
+    }
+    count(row);
+    count(key.getColumnFamilyData());
+    count(key.getColumnQualifierData());
+    count(key.getColumnVisibilityData());
+    prevKey = key;
+  }
+
+  private static int commonPrefix(ByteSequence bs1, ByteSequence bs2) {
+    int len = Math.min(bs1.length(), bs2.length());
+    int i = 0;
+    while (i < len && bs1.byteAt(i) == bs2.byteAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  private void count(ByteSequence field) {
+    if (field.length() < MIN_FIELD_LENGTH) {
+      return;
+    }
+    MutableInt count = counts.get(field);
+    if (count == null) {
+      counts.put(field, new MutableInt(1));
+    } else {
+      count.increment();
+    }
+  }
+
+  /**
+   * @return the dictionary, or null if no field of the sample was written more than once
+   */
+  byte[] train() {
+    List<Entry<ByteSequence,MutableInt>> candidates = new ArrayList<>();
+    for (Entry<ByteSequence,MutableInt> entry : counts.entrySet()) {
+      if (entry.getValue().intValue() > 1) {
+        candidates.add(entry);
+      }
+    }
+    Collections.sort(candidates, MOST_SAVED);
+
+    List<ByteSequence> fields = new ArrayList<>();
+    int size = 0;
+    for (Entry<ByteSequence,MutableInt> entry : candidates) {
+      ByteSequence field = entry.getKey();
+      if (size + field.length() <= maxSize) {
+        fields.add(field);
+        size += field.length();
+      }
+    }
+
+    if (fields.isEmpty()) {
+      return null;
+    }
+
+    // deflate codes close matches in fewer bits than distant ones, so the fields that save the
+    // most go at the end of the dictionary
+    byte[] dictionary = new byte[size];
+    int pos = size;
+    for (ByteSequence field : fields) {
+      pos -= field.length();
+      System.arraycopy(field.getBackingArray(), field.offset(), dictionary, pos, field.length());
+    }
+    return dictionary;
+  }
+}
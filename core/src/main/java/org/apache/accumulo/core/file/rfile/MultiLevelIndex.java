@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -38,6 +39,9 @@ import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.accumulo.core.file.blockfile.ABlockWriter;
 import org.apache.accumulo.core.file.blockfile.BlockFileReader;
 import org.apache.accumulo.core.file.blockfile.BlockFileWriter;
+import org.apache.accumulo.core.file.blockfile.cache.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.HeapSize;
+import org.apache.accumulo.core.file.blockfile.cache.SizeConstants;
 import org.apache.accumulo.core.file.blockfile.impl.SeekableByteArrayInputStream;
 import org.apache.accumulo.core.file.rfile.bcfile.Utils;
 import org.apache.hadoop.io.WritableComparable;
@@ -255,7 +259,15 @@ public class MultiLevelIndex {
     }
   }
 
-  static class IndexBlock {
+  static class IndexBlock implements HeapSize {
+
+    // an IndexEntry, its Key without the arrays of the key, and the references to both
+    private static final long ENTRY_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+        + ClassSize.REFERENCE + SizeConstants.SIZEOF_INT + 3 * SizeConstants.SIZEOF_LONG
+        + SizeConstants.SIZEOF_BOOLEAN)
+        + ClassSize.align(ClassSize.OBJECT + 4 * ClassSize.REFERENCE
+            + SizeConstants.SIZEOF_LONG + SizeConstants.SIZEOF_BOOLEAN)
+        + 2 * ClassSize.REFERENCE;
 
     private ByteArrayOutputStream indexBytes;
     private DataOutputStream indexOut;
@@ -273,6 +285,11 @@ public class MultiLevelIndex {
     private int indexOffset;
     private boolean newFormat;
 
+    // the deserialized entries and their keys, once the block is parsed
+    private volatile List<IndexEntry> parsedIndex;
+    private List<Key> parsedKeyIndex;
+    private long heapSize;
+
     public IndexBlock(int level, int totalAdded) {
       // System.out.println("IndexBlock("+level+","+levelCount+","+totalAdded+")");
 
@@ -316,15 +333,17 @@ public class MultiLevelIndex {
     public void readFields(DataInput in, int version) throws IOException {
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         level = in.readInt();
         offset = in.readInt();
         hasNext = in.readBoolean();
 
         ABlockReader abr = (ABlockReader) in;
-        if (abr.isIndexable()) {
+        byte[] buffer = abr.isIndexable() ? abr.getBuffer() : null;
+        if (buffer != null) {
           // this block is cahced, so avoid copy
-          data = abr.getBuffer();
+          data = buffer;
           // use offset data in serialized form and avoid copy
           numOffsets = abr.readInt();
           offsetsOffset = abr.getPosition();
@@ -402,7 +421,54 @@ public class MultiLevelIndex {
 
     }
 
+    /**
+     * Deserializes all of the entries of the block, so that they are not deserialized again each
+     * time they are accessed.
+     */
+    synchronized void parse() {
+      if (parsedIndex != null)
+        return;
+
+      List<IndexEntry> index = getSerializedIndex();
+      IndexEntry[] entries = index.toArray(new IndexEntry[index.size()]);
+      Key[] keys = new Key[entries.length];
+      // the block, and the lists over the parsed entries and keys
+      long size = ClassSize.align(ClassSize.OBJECT + 14 * ClassSize.REFERENCE
+          + 7 * SizeConstants.SIZEOF_INT + 2 * SizeConstants.SIZEOF_BOOLEAN
+          + SizeConstants.SIZEOF_LONG);
+      size += 2 * ClassSize.align(ClassSize.ARRAY + entries.length * ClassSize.REFERENCE);
+      for (int i = 0; i < entries.length; i++) {
+        Key key = entries[i].getKey();
+        keys[i] = key;
+        size += ENTRY_OVERHEAD + ClassSize.align(ClassSize.ARRAY + key.getRowData().length())
+            + ClassSize.align(ClassSize.ARRAY + key.getColumnFamilyData().length())
+            + ClassSize.align(ClassSize.ARRAY + key.getColumnQualifierData().length())
+            + ClassSize.align(ClassSize.ARRAY + key.getColumnVisibilityData().length());
+      }
+
+      heapSize = size;
+      parsedKeyIndex = Collections.unmodifiableList(Arrays.asList(keys));
+      parsedIndex = Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    /**
+     * @return the heap used by the block once it is parsed
+     */
+    @Override
+    public long heapSize() {
+      return heapSize;
+    }
+
     List<IndexEntry> getIndex() {
+      List<IndexEntry> parsed = parsedIndex;
+      if (parsed != null) {
+        // the parsed entries have no state and can be shared
+        return parsed;
+      }
+      return getSerializedIndex();
+    }
+
+    private SerializedIndex getSerializedIndex() {
       // create SerializedIndex on demand as each has an internal input stream over byte array...
       // keeping a SerializedIndex ref for the object could lead to
       // problems with deep copies.
@@ -414,6 +480,10 @@ public class MultiLevelIndex {
     }
 
     public List<Key> getKeyIndex() {
+      if (parsedIndex != null) {
+        return parsedKeyIndex;
+      }
+
       // create KeyIndex on demand as each has an internal input stream over byte array... keeping a
       // KeyIndex ref for the object could lead to problems with
       // deep copies.
@@ -809,16 +879,33 @@ public class MultiLevelIndex {
     }
 
     private IndexBlock getIndexBlock(IndexEntry ie) throws IOException {
-      IndexBlock iblock = new IndexBlock();
       ABlockReader in = blockStore.getMetaBlock(ie.getOffset(), ie.getCompressedSize(),
           ie.getRawSize());
-      iblock.readFields(in, version);
-      in.close();
+      try {
+        if (in.isIndexable()) {
+          // parse a cached block once, and share the parsed block with all readers of the file
+          return in.getIndex(IndexBlock.class, new ABlockReader.IndexBuilder<IndexBlock>() {
+            @Override
+            public IndexBlock build(ABlockReader block) throws IOException {
+              IndexBlock iblock = new IndexBlock();
+              iblock.readFields(block, version);
+              iblock.parse();
+              return iblock;
+            }
+          });
+        }
 
-      return iblock;
+        IndexBlock iblock = new IndexBlock();
+        iblock.readFields(in, version);
+        return iblock;
+      } finally {
+        in.close();
+      }
     }
 
     public IndexIterator lookup(Key key) throws IOException {
+      // every lookup searches the root, so it is parsed once
+      rootBlock.parse();
       Node node = new Node(rootBlock);
       return new IndexIterator(node.lookup(key));
     }
@@ -828,7 +915,8 @@ public class MultiLevelIndex {
       size = 0;
 
       if (version == RFile.RINDEX_VER_6 || version == RFile.RINDEX_VER_7
-          || version == RFile.RINDEX_VER_8) {
+          || version == RFile.RINDEX_VER_8 || version == RFile.RINDEX_VER_9
+          || version == RFile.RINDEX_VER_10 || version == RFile.RINDEX_VER_11) {
         size = in.readInt();
       }
 
@@ -855,7 +943,7 @@ public class MultiLevelIndex {
         count = 0l;
 
       List<IndexEntry> index = ib.getIndex();
-      size += ((SerializedIndex) index).sizeInBytes();
+      size += ib.getSerializedIndex().sizeInBytes();
       count++;
 
       sizesByLevel.put(ib.getLevel(), size);
@@ -915,7 +1003,8 @@ public class MultiLevelIndex {
     }
 
     public Key getLastKey() {
-      return rootBlock.getIndex().get(rootBlock.getIndex().size() - 1).getKey();
+      // the keys of a parsed block are shared, so callers get a copy
+      return new Key(rootBlock.getIndex().get(rootBlock.getIndex().size() - 1).getKey());
     }
   }
 }
@@ -16,11 +16,19 @@
  */
 package org.apache.accumulo.core.file.rfile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.accumulo.core.cli.Help;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.conf.SiteConfiguration;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
@@ -29,12 +37,16 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.rfile.RFile.Reader;
+import org.apache.accumulo.core.file.rfile.bcfile.Compression.Algorithm;
 import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.accumulo.start.spi.KeywordExecutable;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -64,6 +76,13 @@ public class PrintInfo implements KeywordExecutable {
     @Parameter(names = {"--keyStats"},
         description = "print key length statistics for index and all data")
     boolean keyStats = false;
+    @Parameter(names = {"--compressionStats"},
+        description = "compress the data again with each supported algorithm and print the"
+            + " ratios and speeds")
+    boolean compressionStats = false;
+    @Parameter(names = {"--compressionBlockSize"},
+        description = "size of the blocks to compress for --compressionStats, before compression")
+    String compressionBlockSize = Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE.getDefaultValue();
     @Parameter(description = " <file> { <file> ... }")
     List<String> files = new ArrayList<>();
     @Parameter(names = {"-c", "--config"}, variableArity = true,
@@ -110,6 +129,96 @@ public class PrintInfo implements KeywordExecutable {
     }
   }
 
+  /**
+   * Compresses the data of files again with every supported algorithm, a block at a time and
+   * encoded the way RFile encodes data blocks, to compare the algorithms on real data.
+   */
+  static class CompressionStats {
+    private final int blockSize;
+    private final List<Algorithm> algorithms = new ArrayList<>();
+    private final long[] compressedSize;
+    private final long[] compressNanos;
+    private final long[] decompressNanos;
+    private final DataOutputBuffer block = new DataOutputBuffer();
+    private byte[] decompressed = new byte[0];
+    private Key prevKey = null;
+    private long rawSize = 0;
+
+    CompressionStats(int blockSize) {
+      this.blockSize = blockSize;
+      for (Algorithm algorithm : Algorithm.values()) {
+        if (algorithm.isSupported()) {
+          algorithms.add(algorithm);
+        }
+      }
+      compressedSize = new long[algorithms.size()];
+      compressNanos = new long[algorithms.size()];
+      decompressNanos = new long[algorithms.size()];
+    }
+
+    public void add(Key key, Value value) throws IOException {
+      new RelativeKey(prevKey, key).write(block);
+      value.write(block);
+      prevKey = new Key(key);
+      if (block.getLength() >= blockSize) {
+        flush();
+      }
+    }
+
+    public void flush() throws IOException {
+      int length = block.getLength();
+      if (length == 0) {
+        return;
+      }
+      if (decompressed.length < length) {
+        decompressed = new byte[length];
+      }
+      for (int i = 0; i < algorithms.size(); i++) {
+        Algorithm algorithm = algorithms.get(i);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length);
+
+        long t1 = System.nanoTime();
+        Compressor compressor = algorithm.getCompressor();
+        try {
+          OutputStream out = algorithm.createCompressionStream(compressed, compressor, 0);
+          out.write(block.getData(), 0, length);
+          out.flush();
+        } finally {
+          algorithm.returnCompressor(compressor);
+        }
+        long t2 = System.nanoTime();
+        Decompressor decompressor = algorithm.getDecompressor();
+        try {
+          InputStream in = algorithm.createDecompressionStream(
+              new ByteArrayInputStream(compressed.toByteArray()), decompressor, 0);
+          new DataInputStream(in).readFully(decompressed, 0, length);
+        } finally {
+          algorithm.returnDecompressor(decompressor);
+        }
+        long t3 = System.nanoTime();
+
+        compressedSize[i] += compressed.size();
+        compressNanos[i] += t2 - t1;
+        decompressNanos[i] += t3 - t2;
+      }
+      rawSize += length;
+      block.reset();
+      prevKey = null;
+    }
+
+    public void print(String indent) {
+      double rawMB = rawSize / (1024.0 * 1024.0);
+      System.out.printf("%s%-8s %8s %16s %18s%n", indent, "codec", "ratio", "compress MB/s",
+          "decompress MB/s");
+      for (int i = 0; i < algorithms.size(); i++) {
+        System.out.printf("%s%-8s %8.2f %,16.2f %,18.2f%n", indent, algorithms.get(i).getName(),
+            rawSize / (double) Math.max(1, compressedSize[i]),
+            rawMB / Math.max(1, compressNanos[i]) * 1000000000.0,
+            rawMB / Math.max(1, decompressNanos[i]) * 1000000000.0);
+      }
+    }
+  }
+
   public static void main(String[] args) throws Exception {
     new PrintInfo().execute(args);
   }
@@ -142,6 +251,9 @@ public class PrintInfo implements KeywordExecutable {
     KeyStats dataKeyStats = new KeyStats();
     KeyStats indexKeyStats = new KeyStats();
 
+    CompressionStats compressionStats = new CompressionStats(
+        (int) AccumuloConfiguration.getMemoryInBytes(opts.compressionBlockSize));
+
     for (String arg : opts.files) {
       Path path = new Path(arg);
       FileSystem fs;
@@ -169,7 +281,8 @@ public class PrintInfo implements KeywordExecutable {
 
       Map<String,ArrayList<ByteSequence>> localityGroupCF = null;
 
-      if (opts.histogram || opts.dump || opts.vis || opts.hash || opts.keyStats) {
+      if (opts.histogram || opts.dump || opts.vis || opts.hash || opts.keyStats
+          || opts.compressionStats) {
         localityGroupCF = iter.getLocalityGroupCF();
 
         FileSKVIterator dataIter;
@@ -208,8 +321,13 @@ public class PrintInfo implements KeywordExecutable {
             if (opts.keyStats) {
               dataKeyStats.add(key);
             }
+            if (opts.compressionStats) {
+              compressionStats.add(key, value);
+            }
             dataIter.next();
           }
+          // like RFile, never put the entries of two locality groups in one block
+          compressionStats.flush();
         }
       }
 
@@ -233,6 +351,12 @@ public class PrintInfo implements KeywordExecutable {
         System.out.println("Statistics for keys in index :");
         indexKeyStats.print("\t");
       }
+
+      if (opts.compressionStats) {
+        System.out.println();
+        System.out.println("Compression of data in blocks of " + opts.compressionBlockSize + " :");
+        compressionStats.print("\t");
+      }
       // If the output stream has closed, there is no reason to keep going.
       if (System.out.checkError())
         return;
@@ -24,6 +24,7 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +37,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
@@ -55,10 +57,12 @@ import org.apache.accumulo.core.file.blockfile.ABlockReader;
 import org.apache.accumulo.core.file.blockfile.ABlockWriter;
 import org.apache.accumulo.core.file.blockfile.BlockFileReader;
 import org.apache.accumulo.core.file.blockfile.BlockFileWriter;
+import org.apache.accumulo.core.file.blockfile.impl.BlockPrefetcher;
 import org.apache.accumulo.core.file.rfile.BlockIndex.BlockIndexEntry;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.IndexEntry;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.Reader.IndexIterator;
 import org.apache.accumulo.core.file.rfile.RelativeKey.SkippR;
+import org.apache.accumulo.core.file.rfile.bcfile.Compression;
 import org.apache.accumulo.core.file.rfile.bcfile.MetaBlockDoesNotExist;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
@@ -84,12 +88,32 @@ public class RFile {
 
   public static final String EXTENSION = "rf";
 
+  // the values of Property.TABLE_FILE_BLOCK_ENCODING
+  public static final String ENCODING_RELATIVE = "relative";
+  public static final String ENCODING_COLUMNAR = "columnar";
+
   private static final Logger log = LoggerFactory.getLogger(RFile.class);
 
   private RFile() {}
 
   private static final int RINDEX_MAGIC = 0x20637474;
 
+  // the meta block holding the dictionary the data blocks were compressed with, when there is one
+  private static final String DICTIONARY_BLOCK = "RFile.dictionary";
+
+  // the amount of key and value data sampled to train a dictionary, relative to its size
+  private static final int DICTIONARY_SAMPLE_MULTIPLIER = 16;
+
+  static final int RINDEX_VER_11 = 11; // Added a dictionary that the data blocks, and the index
+                                       // blocks that are not in this meta block, are compressed
+                                       // with. It is stored in the RFile.dictionary meta block.
+  static final int RINDEX_VER_10 = 10; // Added the encoding of the data blocks of each locality
+                                       // group. Their entries are either written one after the
+                                       // other using RelativeKey, or as columns using
+                                       // ColumnarBlock.
+  static final int RINDEX_VER_9 = 9; // Added a compression algorithm for each locality group. The
+                                     // data blocks of a locality group that has one are compressed
+                                     // with it instead of with the algorithm of the file.
   static final int RINDEX_VER_8 = 8; // Added sample storage. There is a sample locality group for
                                      // each locality group. Sample are built using a Sampler and
                                      // sampler configuration. The Sampler and its configuration are
@@ -154,6 +178,10 @@ public class RFile {
     private boolean isDefaultLG = false;
     private String name;
     private Set<ByteSequence> previousColumnFamilies;
+    // the compression of the group's data blocks, null when they use the file's
+    private String compression;
+    // true when the group's data blocks are ColumnarBlocks
+    private boolean columnar = false;
 
     private MultiLevelIndex.BufferedWriter indexWriter;
     private MultiLevelIndex.Reader indexReader;
@@ -175,8 +203,9 @@ public class RFile {
     }
 
     public LocalityGroupMetadata(String name, Set<ByteSequence> cfset, int indexBlockSize,
-        BlockFileWriter bfw) {
+        BlockFileWriter bfw, String compression) {
       this.name = name;
+      this.compression = compression;
       isDefaultLG = false;
       columnFamilies = new HashMap<>();
       for (ByteSequence cf : cfset) {
@@ -285,6 +314,15 @@ public class RFile {
         firstKey = null;
       }
 
+      if ((version == RINDEX_VER_9 || version == RINDEX_VER_10 || version == RINDEX_VER_11)
+          && in.readBoolean()) {
+        compression = in.readUTF();
+      } else {
+        compression = null;
+      }
+
+      columnar = (version == RINDEX_VER_10 || version == RINDEX_VER_11) && in.readBoolean();
+
       indexReader.readFields(in);
     }
 
@@ -314,6 +352,16 @@ public class RFile {
       if (firstKey != null)
         firstKey.write(out);
 
+      if (version == RINDEX_VER_9 || version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        out.writeBoolean(compression != null);
+        if (compression != null)
+          out.writeUTF(compression);
+      }
+
+      if (version == RINDEX_VER_10 || version == RINDEX_VER_11) {
+        out.writeBoolean(columnar);
+      }
+
       indexWriter.close(out);
     }
 
@@ -326,6 +374,12 @@ public class RFile {
         out.printf("\t%-22s : %d\n", "Start block", startBlock);
       }
       out.printf("\t%-22s : %,d\n", "Num   blocks", indexReader.size());
+      if (compression != null) {
+        out.printf("\t%-22s : %s\n", "Compression", compression);
+      }
+      if (columnar) {
+        out.printf("\t%-22s : %s\n", "Block encoding", "columnar");
+      }
       TreeMap<Integer,Long> sizesByLevel = new TreeMap<>();
       TreeMap<Integer,Long> countsByLevel = new TreeMap<>();
       indexReader.getIndexInfo(sizesByLevel, countsByLevel);
@@ -425,6 +479,8 @@ public class RFile {
 
     private BlockFileWriter fileWriter;
     private ABlockWriter blockWriter;
+    // holds the entries of the open block until it is closed when the group's blocks are columnar
+    private ColumnarBlock.Writer columnarWriter;
 
     // private BlockAppender blockAppender;
     private final long blockSize;
@@ -450,6 +506,13 @@ public class RFile {
       this.maxBlockSize = maxBlockSize;
       this.currentLocalityGroup = currentLocalityGroup;
       this.sample = sample;
+      if (currentLocalityGroup.columnar) {
+        this.columnarWriter = new ColumnarBlock.Writer();
+      }
+    }
+
+    private long getBlockRawSize() {
+      return columnarWriter == null ? blockWriter.getRawSize() : columnarWriter.getSize();
     }
 
     private boolean isGiantKey(Key k) {
@@ -476,8 +539,8 @@ public class RFile {
       }
 
       if (blockWriter == null) {
-        blockWriter = fileWriter.prepareDataBlock();
-      } else if (blockWriter.getRawSize() > blockSize) {
+        blockWriter = prepareDataBlock();
+      } else if (getBlockRawSize() > blockSize) {
 
         // Look for a key thats short to put in the index, defining short as average or below.
         if (avergageKeySize == 0) {
@@ -489,29 +552,43 @@ public class RFile {
         // shortened, it may not be below average.
         Key closeKey = KeyShortener.shorten(prevKey, key);
 
-        if ((closeKey.getSize() <= avergageKeySize || blockWriter.getRawSize() > maxBlockSize)
+        if ((closeKey.getSize() <= avergageKeySize || getBlockRawSize() > maxBlockSize)
             && !isGiantKey(closeKey)) {
           closeBlock(closeKey, false);
-          blockWriter = fileWriter.prepareDataBlock();
+          blockWriter = prepareDataBlock();
           // set average to zero so its recomputed for the next block
           avergageKeySize = 0;
         }
       }
 
-      RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
+      prevKey = new Key(key);
+
+      if (columnarWriter == null) {
+        RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
 
-      rk.write(blockWriter);
-      value.write(blockWriter);
+        rk.write(blockWriter);
+        value.write(blockWriter);
+      } else {
+        columnarWriter.add(prevKey, new Value(value));
+      }
       entries++;
 
       keyLenStats.addValue(key.getSize());
 
-      prevKey = new Key(key);
       lastKeyInBlock = prevKey;
 
     }
 
+    private ABlockWriter prepareDataBlock() throws IOException {
+      String compression = currentLocalityGroup.compression;
+      return compression == null ? fileWriter.prepareDataBlock()
+          : fileWriter.prepareDataBlock(compression);
+    }
+
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      if (columnarWriter != null) {
+        columnarWriter.write(blockWriter);
+      }
       blockWriter.close();
 
       if (lastBlock)
@@ -568,6 +645,16 @@ public class RFile {
 
     private SamplerConfigurationImpl samplerConfig;
     private Sampler sampler;
+    private Map<String,String> groupCompression;
+    private boolean columnar;
+
+    // while a dictionary is trained the first entries are held back, no data block can be written
+    // before the dictionary they are compressed with is known
+    private DictionaryTrainer trainer = null;
+    private ArrayList<SampleEntry> untrainedEntries;
+    private long untrainedSize;
+    private long dictionarySampleSize;
+    private byte[] dictionary = null;
 
     public Writer(BlockFileWriter bfw, int blockSize) throws IOException {
       this(bfw, blockSize, (int) AccumuloConfiguration.getDefaultConfiguration()
@@ -576,6 +663,33 @@ public class RFile {
 
     public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize,
         SamplerConfigurationImpl samplerConfig, Sampler sampler) throws IOException {
+      this(bfw, blockSize, indexBlockSize, samplerConfig, sampler,
+          Collections.<String,String> emptyMap());
+    }
+
+    /**
+     * @param groupCompression
+     *          the compression to use for the data blocks of named locality groups, by group name.
+     *          Groups that are not in the map, and the default group, use the compression of the
+     *          file.
+     */
+    public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize,
+        SamplerConfigurationImpl samplerConfig, Sampler sampler,
+        Map<String,String> groupCompression) throws IOException {
+      this(bfw, blockSize, indexBlockSize, samplerConfig, sampler, groupCompression, 0, false);
+    }
+
+    /**
+     * @param dictionarySize
+     *          the size of the dictionary to train from the first entries and compress data blocks
+     *          with, 0 to not use a dictionary
+     * @param columnar
+     *          true to write the data blocks as {@link ColumnarBlock}s
+     */
+    public Writer(BlockFileWriter bfw, int blockSize, int indexBlockSize,
+        SamplerConfigurationImpl samplerConfig, Sampler sampler,
+        Map<String,String> groupCompression, int dictionarySize, boolean columnar)
+        throws IOException {
       this.blockSize = blockSize;
       this.maxBlockSize = (long) (blockSize * MAX_BLOCK_MULTIPLIER);
       this.indexBlockSize = indexBlockSize;
@@ -583,6 +697,36 @@ public class RFile {
       previousColumnFamilies = new HashSet<>();
       this.samplerConfig = samplerConfig;
       this.sampler = sampler;
+      this.groupCompression = groupCompression;
+      this.columnar = columnar;
+
+      dictionarySize = Math.min(dictionarySize, Compression.MAX_DICTIONARY_SIZE);
+      if (dictionarySize > 0) {
+        trainer = new DictionaryTrainer(dictionarySize);
+        untrainedEntries = new ArrayList<>();
+        dictionarySampleSize = (long) dictionarySize * DICTIONARY_SAMPLE_MULTIPLIER;
+      }
+    }
+
+    /**
+     * Trains the dictionary from the entries held back so far and writes them. The entries belong
+     * to the current locality group, so this must be called before it is closed.
+     */
+    private void trainDictionary() throws IOException {
+      if (trainer == null || untrainedEntries.isEmpty()) {
+        return;
+      }
+
+      dictionary = trainer.train();
+      trainer = null;
+      if (dictionary != null) {
+        fileWriter.setDataDictionary(dictionary);
+      }
+
+      for (SampleEntry se : untrainedEntries) {
+        lgWriter.append(se.key, se.val);
+      }
+      untrainedEntries = null;
     }
 
     @Override
@@ -594,16 +738,45 @@ public class RFile {
 
       closeData();
 
-      ABlockWriter mba = fileWriter.prepareMetaBlock("RFile.index");
+      if (dictionary != null) {
+        ABlockWriter dba = fileWriter.prepareMetaBlock(DICTIONARY_BLOCK);
+        dba.writeInt(dictionary.length);
+        dba.write(dictionary);
+        dba.close();
+      }
 
-      mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_8);
+      ABlockWriter mba = fileWriter.prepareMetaBlock("RFile.index");
 
       if (currentLocalityGroup != null) {
         localityGroups.add(currentLocalityGroup);
         sampleGroups.add(sampleLocalityGroup);
       }
 
+      // write the oldest version that can hold the file, so older readers can read files that do
+      // not use the newer features
+      int version = RINDEX_VER_8;
+      for (LocalityGroupMetadata lc : localityGroups) {
+        if (lc.compression != null) {
+          version = Math.max(version, RINDEX_VER_9);
+        }
+        if (lc.columnar) {
+          version = Math.max(version, RINDEX_VER_10);
+        }
+      }
+      if (dictionary != null) {
+        // older readers would fail to decompress the blocks instead of rejecting the version
+        version = RINDEX_VER_11;
+      }
+      for (LocalityGroupMetadata lc : localityGroups) {
+        lc.version = version;
+      }
+      for (LocalityGroupMetadata lc : sampleGroups) {
+        lc.version = version;
+      }
+
+      mba.writeInt(RINDEX_MAGIC);
+      mba.writeInt(version);
+
       mba.writeInt(localityGroups.size());
 
       for (LocalityGroupMetadata lc : localityGroups) {
@@ -638,6 +811,7 @@ public class RFile {
       dataClosed = true;
 
       if (lgWriter != null) {
+        trainDictionary();
         lgWriter.close();
       }
     }
@@ -649,6 +823,18 @@ public class RFile {
         throw new IllegalStateException("Cannont append, data closed");
       }
 
+      if (trainer != null) {
+        SampleEntry se = new SampleEntry(key, value);
+        // the trainer keeps the key it is given, so give it the copy that is held back
+        trainer.add(se.key);
+        untrainedEntries.add(se);
+        untrainedSize += key.getSize() + value.getSize();
+        if (untrainedSize >= dictionarySampleSize) {
+          trainDictionary();
+        }
+        return;
+      }
+
       lgWriter.append(key, value);
     }
 
@@ -671,6 +857,7 @@ public class RFile {
       }
 
       if (lgWriter != null) {
+        trainDictionary();
         lgWriter.close();
       }
 
@@ -692,12 +879,15 @@ public class RFile {
           throw new IllegalArgumentException(
               "Column families over lap with previous locality group : " + overlap);
         }
+        String compression = groupCompression.get(name);
         currentLocalityGroup = new LocalityGroupMetadata(name, columnFamilies, indexBlockSize,
-            fileWriter);
+            fileWriter, compression);
         sampleLocalityGroup = new LocalityGroupMetadata(name, columnFamilies, indexBlockSize,
-            fileWriter);
+            fileWriter, compression);
         previousColumnFamilies.addAll(columnFamilies);
       }
+      currentLocalityGroup.columnar = columnar;
+      sampleLocalityGroup.columnar = columnar;
 
       SampleLocalityGroupWriter sampleWriter = null;
       if (sampler != null) {
@@ -746,19 +936,34 @@ public class RFile {
     private int startBlock;
     private boolean closed = false;
     private int version;
+    private String compression;
+    private boolean columnar;
     private boolean checkRange = true;
 
-    private LocalityGroupReader(BlockFileReader reader, LocalityGroupMetadata lgm, int version)
-        throws IOException {
+    // blocks fetched ahead of a sequential scan, for consecutive index entries starting at
+    // prefetchedFrom
+    private final BlockPrefetcher prefetcher;
+    private final int prefetchBlocks;
+    private final ArrayDeque<BlockPrefetcher.Block> prefetched = new ArrayDeque<>();
+    private int prefetchedFrom;
+
+    private LocalityGroupReader(BlockFileReader reader, LocalityGroupMetadata lgm, int version,
+        BlockPrefetcher prefetcher, int prefetchBlocks) throws IOException {
       super(lgm.columnFamilies, lgm.isDefaultLG);
       this.firstKey = lgm.firstKey;
       this.index = lgm.indexReader;
       this.startBlock = lgm.startBlock;
       blockCount = index.size();
       this.version = version;
+      this.compression = lgm.compression;
+      this.columnar = lgm.columnar;
 
       this.reader = reader;
 
+      // older versions do not record the raw size of blocks in the index
+      boolean canPrefetch = version != RINDEX_VER_3 && version != RINDEX_VER_4;
+      this.prefetcher = canPrefetch ? prefetcher : null;
+      this.prefetchBlocks = canPrefetch && prefetcher != null ? prefetchBlocks : 0;
     }
 
     public LocalityGroupReader(LocalityGroupReader lgr) {
@@ -769,6 +974,10 @@ public class RFile {
       this.blockCount = lgr.blockCount;
       this.reader = lgr.reader;
       this.version = lgr.version;
+      this.compression = lgr.compression;
+      this.columnar = lgr.columnar;
+      this.prefetcher = lgr.prefetcher;
+      this.prefetchBlocks = lgr.prefetchBlocks;
     }
 
     Iterator<IndexEntry> getIndex() throws IOException {
@@ -779,6 +988,7 @@ public class RFile {
     public void close() throws IOException {
       closed = true;
       hasTop = false;
+      discardPrefetched();
       if (currBlock != null)
         currBlock.close();
 
@@ -794,13 +1004,22 @@ public class RFile {
     private boolean hasTop = false;
     private AtomicBoolean interruptFlag;
 
+    // the position in the current block when the blocks are columnar, used instead of rk and
+    // currBlock. The value is only copied out of the block when it is asked for.
+    private ColumnarBlock cblock;
+    private int cpos;
+    private Key ckey;
+
     @Override
     public Key getTopKey() {
-      return rk.getKey();
+      return columnar ? ckey : rk.getKey();
     }
 
     @Override
     public Value getTopValue() {
+      if (val == null && ckey != null) {
+        val = cblock.getValue(cpos);
+      }
       return val;
     }
 
@@ -812,7 +1031,10 @@ public class RFile {
     @Override
     public void next() throws IOException {
       try {
-        _next();
+        if (columnar)
+          _nextColumnar();
+        else
+          _next();
       } catch (IOException ioe) {
         reset();
         throw ioe;
@@ -838,6 +1060,10 @@ public class RFile {
           if (!checkRange)
             hasTop = true;
 
+          if (prefetchBlocks > 0 && !checkRange) {
+            prefetch();
+          }
+
         } else {
           rk = null;
           val = null;
@@ -858,18 +1084,129 @@ public class RFile {
         hasTop = !range.afterEndKey(rk.getKey());
     }
 
+    private void _nextColumnar() throws IOException {
+
+      if (!hasTop)
+        throw new IllegalStateException();
+
+      prevKey = ckey;
+      val = null;
+
+      if (cpos == cblock.size() - 1) {
+        if (metricsGatherer != null)
+          metricsGatherer.startBlock();
+
+        if (iiter.hasNext()) {
+          IndexEntry indexEntry = iiter.next();
+          cblock = readColumnarBlock(indexEntry);
+          cpos = 0;
+
+          checkRange = range.afterEndKey(indexEntry.getKey());
+          if (!checkRange)
+            hasTop = true;
+
+          if (prefetchBlocks > 0 && !checkRange) {
+            prefetch();
+          }
+
+        } else {
+          cblock = null;
+          ckey = null;
+          hasTop = false;
+          return;
+        }
+      } else {
+        cpos++;
+      }
+
+      ckey = cblock.getKey(cpos);
+
+      if (metricsGatherer != null)
+        metricsGatherer.addMetric(ckey, getTopValue());
+
+      if (checkRange)
+        hasTop = !range.afterEndKey(ckey);
+    }
+
+    private ColumnarBlock readColumnarBlock(IndexEntry indexEntry) throws IOException {
+      ABlockReader block = getDataBlock(indexEntry);
+      try {
+        return ColumnarBlock.read(block);
+      } finally {
+        block.close();
+      }
+    }
+
     private ABlockReader getDataBlock(IndexEntry indexEntry) throws IOException {
       if (interruptFlag != null && interruptFlag.get())
         throw new IterationInterruptedException();
 
+      if (!prefetched.isEmpty()) {
+        if (iiter.previousIndex() == prefetchedFrom) {
+          prefetchedFrom++;
+          return prefetched.removeFirst().get();
+        }
+        discardPrefetched();
+      }
+
       if (version == RINDEX_VER_3 || version == RINDEX_VER_4)
         return reader.getDataBlock(startBlock + iiter.previousIndex());
       else
         return reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(),
-            indexEntry.getRawSize());
+            indexEntry.getRawSize(), compression);
 
     }
 
+    /**
+     * Starts fetching the blocks after the current one that the scan will read, if it reads to the
+     * end of the current block. Called when a scan moves on to the next block, as only scans that
+     * do that read sequentially.
+     */
+    private void prefetch() {
+      int next = iiter.nextIndex();
+      if (prefetched.isEmpty()) {
+        prefetchedFrom = next;
+      }
+      int steps = 0;
+      try {
+        IndexEntry last = iiter.peekPrevious();
+        // skip over the blocks that are already being fetched
+        while (iiter.hasNext() && iiter.nextIndex() < prefetchedFrom + prefetched.size()) {
+          last = iiter.next();
+          steps++;
+        }
+        // a block is only needed if the range goes past the last key of the previous one
+        while (prefetched.size() < prefetchBlocks && iiter.hasNext()
+            && !range.afterEndKey(last.getKey())) {
+          final IndexEntry indexEntry = iiter.next();
+          steps++;
+          BlockPrefetcher.Block block = prefetcher.prefetch(new Callable<ABlockReader>() {
+            @Override
+            public ABlockReader call() throws IOException {
+              return reader.getDataBlock(indexEntry.getOffset(), indexEntry.getCompressedSize(),
+                  indexEntry.getRawSize(), compression);
+            }
+          }, indexEntry.getRawSize());
+          if (block == null) {
+            break;
+          }
+          prefetched.addLast(block);
+          last = indexEntry;
+        }
+      } finally {
+        for (; steps > 0; steps--) {
+          iiter.previous();
+        }
+      }
+    }
+
+    private void discardPrefetched() {
+      for (BlockPrefetcher.Block block : prefetched) {
+        block.discard();
+      }
+      prefetched.clear();
+    }
+
     @Override
     public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
         throws IOException {
@@ -894,6 +1231,8 @@ public class RFile {
 
     private void reset() {
       rk = null;
+      cblock = null;
+      ckey = null;
       hasTop = false;
       if (currBlock != null) {
         try {
@@ -931,6 +1270,11 @@ public class RFile {
         reseek = false;
       }
 
+      if (columnar) {
+        seekColumnar(startKey, reseek);
+        reseek = false;
+      }
+
       if (rk != null) {
         if (range.beforeStartKey(prevKey) && range.afterEndKey(getTopKey())) {
           // range is between the two keys in the file where the last range seeked to stopped, so
@@ -1054,15 +1398,92 @@ public class RFile {
         }
       }
 
-      hasTop = rk != null && !range.afterEndKey(rk.getKey());
+      hasTop = (columnar ? ckey != null : rk != null) && !range.afterEndKey(getTopKey());
 
       while (hasTop() && range.beforeStartKey(getTopKey())) {
         next();
       }
 
+      if (!prefetched.isEmpty() && (!hasTop || iiter.nextIndex() != prefetchedFrom
+          || range.afterEndKey(iiter.peekPrevious().getKey()))) {
+        // the scan does not go on from the current block to the blocks fetched ahead
+        discardPrefetched();
+      }
+
       if (metricsGatherer != null) {
-        metricsGatherer.startLocalityGroup(rk.getKey().getColumnFamily());
-        metricsGatherer.addMetric(rk.getKey(), val);
+        metricsGatherer.startLocalityGroup(getTopKey().getColumnFamily());
+        metricsGatherer.addMetric(getTopKey(), getTopValue());
+      }
+    }
+
+    /**
+     * Positions a reader of columnar blocks at the first key at or after the start key. A decoded
+     * block is binary searched, so unlike {@link RelativeKey#fastSkip} seeking within the current
+     * block costs the same wherever the start key is.
+     */
+    private void seekColumnar(Key startKey, boolean reseek) throws IOException {
+      if (ckey != null) {
+        if (range.beforeStartKey(prevKey) && range.afterEndKey(ckey)) {
+          // range is between the two keys in the file where the last range seeked to stopped
+          reseek = false;
+        }
+
+        if (startKey.compareTo(ckey) <= 0 && startKey.compareTo(prevKey) > 0) {
+          // current location in file can satisfy this request, no need to seek
+          reseek = false;
+        }
+
+        if (reseek && startKey.compareTo(ckey) > 0
+            && startKey.compareTo(iiter.peekPrevious().getKey()) <= 0) {
+          // start key is within the rest of the current block
+          positionColumnar(cblock.seek(startKey, cpos + 1), prevKey);
+          reseek = false;
+        }
+
+        if (iiter.previousIndex() == 0 && ckey.equals(firstKey)
+            && startKey.compareTo(firstKey) <= 0) {
+          // seeking before the beginning of the file, and already positioned at the first key
+          reseek = false;
+        }
+      }
+
+      if (reseek) {
+        iiter = index.lookup(startKey);
+
+        reset();
+
+        if (iiter.hasNext()) {
+          // if the index contains the same key multiple times, then go to the
+          // earliest index entry containing the key
+          while (iiter.hasPrevious()
+              && iiter.peekPrevious().getKey().equals(iiter.peek().getKey())) {
+            iiter.previous();
+          }
+
+          // the last key of the previous block, or the minimal key for the first block
+          Key blockPrevKey = iiter.hasPrevious() ? new Key(iiter.peekPrevious().getKey())
+              : new Key();
+
+          IndexEntry indexEntry = iiter.next();
+          ColumnarBlock block = readColumnarBlock(indexEntry);
+          checkRange = range.afterEndKey(indexEntry.getKey());
+
+          cblock = block;
+          cpos = 0;
+          positionColumnar(cblock.seek(startKey, 0), blockPrevKey);
+        }
+      }
+    }
+
+    private void positionColumnar(int pos, Key blockPrevKey) {
+      // the index key of a block can be shortened to fall after the last key in the block, then
+      // the start key can be past the last key and the scan moves on from there
+      pos = Math.min(pos, cblock.size() - 1);
+      if (pos != cpos || ckey == null) {
+        prevKey = pos == 0 ? blockPrevKey : cblock.getKey(pos - 1);
+        cpos = pos;
+        ckey = cblock.getKey(pos);
+        val = null;
       }
     }
 
@@ -1143,7 +1564,23 @@ public class RFile {
 
     private int rfileVersion;
 
+    @VisibleForTesting
+    int getRFileVersion() {
+      return rfileVersion;
+    }
+
     public Reader(BlockFileReader rdr) throws IOException {
+      this(rdr, null, 0);
+    }
+
+    /**
+     * @param prefetcher
+     *          fetches blocks ahead of sequential scans, may be null
+     * @param prefetchBlocks
+     *          the number of blocks to fetch ahead, 0 to not fetch blocks ahead
+     */
+    public Reader(BlockFileReader rdr, BlockPrefetcher prefetcher, int prefetchBlocks)
+        throws IOException {
       this.reader = rdr;
 
       ABlockReader mb = reader.getMetaBlock("RFile.index");
@@ -1154,10 +1591,16 @@ public class RFile {
 
         if (magic != RINDEX_MAGIC)
           throw new IOException("Did not see expected magic number, saw " + magic);
-        if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4
-            && ver != RINDEX_VER_3)
+        if (ver != RINDEX_VER_11 && ver != RINDEX_VER_10 && ver != RINDEX_VER_9
+            && ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6
+            && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
           throw new IOException("Did not see expected version, saw " + ver);
 
+        if (ver == RINDEX_VER_11) {
+          // data blocks, and index blocks, can only be read once the dictionary is known
+          readDictionary();
+        }
+
         int size = mb.readInt();
         currentReaders = new LocalityGroupReader[size];
 
@@ -1168,12 +1611,14 @@ public class RFile {
           lgm.readFields(mb);
           localityGroups.add(lgm);
 
-          currentReaders[i] = new LocalityGroupReader(reader, lgm, ver);
+          currentReaders[i] = new LocalityGroupReader(reader, lgm, ver, prefetcher,
+              prefetchBlocks);
         }
 
         readers = currentReaders;
 
-        if (ver == RINDEX_VER_8 && mb.readBoolean()) {
+        if ((ver == RINDEX_VER_8 || ver == RINDEX_VER_9 || ver == RINDEX_VER_10
+            || ver == RINDEX_VER_11) && mb.readBoolean()) {
           sampleReaders = new LocalityGroupReader[size];
 
           for (int i = 0; i < size; i++) {
@@ -1181,7 +1626,8 @@ public class RFile {
             lgm.readFields(mb);
             sampleGroups.add(lgm);
 
-            sampleReaders[i] = new LocalityGroupReader(reader, lgm, ver);
+            sampleReaders[i] = new LocalityGroupReader(reader, lgm, ver, prefetcher,
+                prefetchBlocks);
           }
 
           samplerConfig = new SamplerConfigurationImpl(mb);
@@ -1199,6 +1645,22 @@ public class RFile {
       createHeap(currentReaders.length);
     }
 
+    private void readDictionary() throws IOException {
+      ABlockReader db;
+      try {
+        db = reader.getMetaBlock(DICTIONARY_BLOCK);
+      } catch (MetaBlockDoesNotExist e) {
+        throw new IOException("File version " + RINDEX_VER_11 + " has no dictionary", e);
+      }
+      try {
+        byte[] dictionary = new byte[db.readInt()];
+        db.readFully(dictionary);
+        reader.setDataDictionary(dictionary);
+      } finally {
+        db.close();
+      }
+    }
+
     private Reader(Reader r, LocalityGroupReader sampleReaders[]) {
       super(sampleReaders.length);
       this.reader = r.reader;
@@ -1259,6 +1721,14 @@ public class RFile {
         deepCopy.closeLocalityGroupReaders();
 
       deepCopies.clear();
+
+      // called when a reader is put back in a pool, the next user will seek it somewhere else
+      for (LocalityGroupReader lgr : readers)
+        lgr.discardPrefetched();
+      if (sampleReaders != null) {
+        for (LocalityGroupReader lgr : sampleReaders)
+          lgr.discardPrefetched();
+      }
     }
 
     @Override
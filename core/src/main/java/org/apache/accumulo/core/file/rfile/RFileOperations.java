@@ -33,6 +33,7 @@ import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.streams.RateLimitedOutputStream;
 import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
 import org.apache.accumulo.core.sample.impl.SamplerFactory;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
@@ -47,7 +48,8 @@ public class RFileOperations extends FileOperations {
         new Path(options.getFilename()), options.getConfiguration(), options.getFileLenCache(),
         options.getDataCache(), options.getIndexCache(), options.getRateLimiter(),
         options.getTableConfiguration());
-    return new RFile.Reader(_cbr);
+    return new RFile.Reader(_cbr, options.getPrefetcher(),
+        options.getTableConfiguration().getCount(Property.TABLE_FILE_PREFETCH_BLOCKS));
   }
 
   @Override
@@ -126,8 +128,18 @@ public class RFileOperations extends FileOperations {
         new RateLimitedOutputStream(outputStream, options.getRateLimiter()), compression, conf,
         acuconf);
 
+    int dictionarySize = (int) Math.min(Integer.MAX_VALUE,
+        acuconf.getMemoryInBytes(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE));
+
+    String encoding = acuconf.get(Property.TABLE_FILE_BLOCK_ENCODING);
+    if (!encoding.equals(RFile.ENCODING_RELATIVE) && !encoding.equals(RFile.ENCODING_COLUMNAR)) {
+      throw new IllegalArgumentException("Unknown block encoding " + encoding + " for "
+          + Property.TABLE_FILE_BLOCK_ENCODING.getKey());
+    }
+
     RFile.Writer writer = new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize,
-        samplerConfig, sampler);
+        samplerConfig, sampler, LocalityGroupUtil.getLocalityGroupCompression(acuconf),
+        dictionarySize, encoding.equals(RFile.ENCODING_COLUMNAR));
     return writer;
   }
 }
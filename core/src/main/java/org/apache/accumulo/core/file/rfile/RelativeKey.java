@@ -172,11 +172,14 @@ public class RelativeKey implements Writable {
       fieldsPrefixed = 0;
     }
 
+    // fields that are the same as in the previous key share its arrays, the arrays of a key are
+    // never modified, so this saves copying them and lets comparisons and filters of consecutive
+    // keys recognize an unchanged field by identity
     byte[] row, cf, cq, cv;
     long ts;
 
     if ((fieldsSame & ROW_SAME) == ROW_SAME) {
-      row = prevKey.getRowData().toArray();
+      row = shared(prevKey.getRowData());
     } else if ((fieldsPrefixed & ROW_COMMON_PREFIX) == ROW_COMMON_PREFIX) {
       row = readPrefix(in, prevKey.getRowData());
     } else {
@@ -184,7 +187,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CF_SAME) == CF_SAME) {
-      cf = prevKey.getColumnFamilyData().toArray();
+      cf = shared(prevKey.getColumnFamilyData());
     } else if ((fieldsPrefixed & CF_COMMON_PREFIX) == CF_COMMON_PREFIX) {
       cf = readPrefix(in, prevKey.getColumnFamilyData());
     } else {
@@ -192,7 +195,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CQ_SAME) == CQ_SAME) {
-      cq = prevKey.getColumnQualifierData().toArray();
+      cq = shared(prevKey.getColumnQualifierData());
     } else if ((fieldsPrefixed & CQ_COMMON_PREFIX) == CQ_COMMON_PREFIX) {
       cq = readPrefix(in, prevKey.getColumnQualifierData());
     } else {
@@ -200,7 +203,7 @@ public class RelativeKey implements Writable {
     }
 
     if ((fieldsSame & CV_SAME) == CV_SAME) {
-      cv = prevKey.getColumnVisibilityData().toArray();
+      cv = shared(prevKey.getColumnVisibilityData());
     } else if ((fieldsPrefixed & CV_COMMON_PREFIX) == CV_COMMON_PREFIX) {
       cv = readPrefix(in, prevKey.getColumnVisibilityData());
     } else {
@@ -458,6 +461,14 @@ public class RelativeKey implements Writable {
     mbseqDestination.setLength(len);
   }
 
+  private static byte[] shared(ByteSequence field) {
+    if (field.isBackedByArray() && field.offset() == 0
+        && field.length() == field.getBackingArray().length) {
+      return field.getBackingArray();
+    }
+    return field.toArray();
+  }
+
   private static byte[] readPrefix(DataInput in, ByteSequence prefixSource) throws IOException {
     int prefixLen = WritableUtils.readVInt(in);
     int remainingLen = WritableUtils.readVInt(in);
@@ -94,6 +94,9 @@ public final class BCFile {
   static public class Writer implements Closeable {
     private final PositionedDataOutputStream out;
     private final Configuration conf;
+    private final int compressionLevel;
+    // preset dictionary for the data blocks of algorithms that support one, may be null
+    private byte[] dataDictionary;
     private final CryptoModule cryptoModule;
     private BCFileCryptoModuleParameters cryptoParams;
     private SecretKeyEncryptionStrategy secretKeyEncryptionStrategy;
@@ -142,10 +145,15 @@ public final class BCFile {
       /**
        * @param compressionAlgo
        *          The compression algorithm to be used to for compression.
+       * @param compressionLevel
+       *          The level to compress at, for algorithms that have levels.
+       * @param dictionary
+       *          The preset dictionary to compress with, or null.
        * @param cryptoModule
        *          the module to use to obtain cryptographic streams
        */
-      public WBlockState(Algorithm compressionAlgo, PositionedDataOutputStream fsOut,
+      public WBlockState(Algorithm compressionAlgo, int compressionLevel, byte[] dictionary,
+          PositionedDataOutputStream fsOut,
           BytesWritable fsOutputBuffer, Configuration conf, CryptoModule cryptoModule,
           CryptoModuleParameters cryptoParams) throws IOException {
         this.compressAlgo = compressionAlgo;
@@ -200,13 +208,17 @@ public final class BCFile {
           this.cipherOut = cryptoParams.getEncryptedOutputStream();
         }
 
-        this.compressor = compressAlgo.getCompressor();
+        if (dictionary != null) {
+          this.out = compressionAlgo.createCompressionStream(cipherOut, dictionary);
+        } else {
+          this.compressor = compressAlgo.getCompressor(compressionLevel);
 
-        try {
-          this.out = compressionAlgo.createCompressionStream(cipherOut, compressor, 0);
-        } catch (IOException e) {
-          compressAlgo.returnCompressor(compressor);
-          throw e;
+          try {
+            this.out = compressionAlgo.createCompressionStream(cipherOut, compressor, 0);
+          } catch (IOException e) {
+            compressAlgo.returnCompressor(compressor);
+            throw e;
+          }
         }
       }
 
@@ -365,6 +377,8 @@ public final class BCFile {
 
       this.out = new PositionedDataOutputStream(fout);
       this.conf = conf;
+      this.compressionLevel = accumuloConfiguration
+          .getCount(Property.TABLE_FILE_COMPRESSION_ZSTD_LEVEL);
       dataIndex = new DataIndex(compressionName, trackDataBlocks);
       metaIndex = new MetaIndex();
       fsOutputBuffer = new BytesWritable();
@@ -441,6 +455,18 @@ public final class BCFile {
       return dataIndex.getDefaultCompressionAlgorithm();
     }
 
+    /**
+     * Sets a preset dictionary to compress data blocks with, when their algorithm supports one. The
+     * file does not record the dictionary, readers of the data blocks must be given it with
+     * {@link Reader#setDataDictionary(byte[])}.
+     */
+    public void setDataDictionary(byte[] dictionary) {
+      if (dataIndex.getBlockRegionList().size() > 0 || blkInProgress) {
+        throw new IllegalStateException("Cannot set dictionary after Data Blocks are created.");
+      }
+      this.dataDictionary = dictionary;
+    }
+
     private BlockAppender prepareMetaBlock(String name, Algorithm compressAlgo)
         throws IOException, MetaBlockAlreadyExists {
       if (blkInProgress == true) {
@@ -452,8 +478,8 @@ public final class BCFile {
       }
 
       MetaBlockRegister mbr = new MetaBlockRegister(name, compressAlgo);
-      WBlockState wbs = new WBlockState(compressAlgo, out, fsOutputBuffer, conf, cryptoModule,
-          cryptoParams);
+      WBlockState wbs = new WBlockState(compressAlgo, compressionLevel, null, out, fsOutputBuffer,
+          conf, cryptoModule, cryptoParams);
       BlockAppender ba = new BlockAppender(mbr, wbs);
       blkInProgress = true;
       metaBlkSeen = true;
@@ -503,6 +529,23 @@ public final class BCFile {
      * @return The BlockAppender stream
      */
     public BlockAppender prepareDataBlock() throws IOException {
+      return prepareDataBlock(getDefaultCompressionAlgorithm());
+    }
+
+    /**
+     * Create a Data Block compressed with the given algorithm instead of the one used for all data
+     * blocks. The data index only records the algorithm used for all data blocks, so readers must
+     * be given the algorithm of the block to read it.
+     *
+     * @param compressionName
+     *          The name of the compression algorithm to be used.
+     * @return The BlockAppender stream
+     */
+    public BlockAppender prepareDataBlock(String compressionName) throws IOException {
+      return prepareDataBlock(Compression.getCompressionAlgorithmByName(compressionName));
+    }
+
+    private BlockAppender prepareDataBlock(Algorithm compressAlgo) throws IOException {
       if (blkInProgress == true) {
         throw new IllegalStateException("Cannot create Data Block until previous block is closed.");
       }
@@ -513,8 +556,9 @@ public final class BCFile {
 
       DataBlockRegister dbr = new DataBlockRegister();
 
-      WBlockState wbs = new WBlockState(getDefaultCompressionAlgorithm(), out, fsOutputBuffer, conf,
-          cryptoModule, cryptoParams);
+      byte[] dictionary = compressAlgo.supportsDictionary() ? dataDictionary : null;
+      WBlockState wbs = new WBlockState(compressAlgo, compressionLevel, dictionary, out,
+          fsOutputBuffer, conf, cryptoModule, cryptoParams);
       BlockAppender ba = new BlockAppender(dbr, wbs);
       blkInProgress = true;
       return ba;
@@ -640,6 +684,7 @@ public final class BCFile {
     private BCFileCryptoModuleParameters cryptoParams;
     private CryptoModule cryptoModule;
     private SecretKeyEncryptionStrategy secretKeyEncryptionStrategy;
+    private volatile byte[] dataDictionary;
 
     /**
      * Intermediate class that maintain the state of a Readable Compression Block.
@@ -652,11 +697,12 @@ public final class BCFile {
       private volatile boolean closed;
 
       public <InputStreamType extends InputStream & Seekable> RBlockState(Algorithm compressionAlgo,
-          InputStreamType fsin, BlockRegion region, Configuration conf, CryptoModule cryptoModule,
-          Version bcFileVersion, CryptoModuleParameters cryptoParams) throws IOException {
+          byte[] dictionary, InputStreamType fsin, BlockRegion region, Configuration conf,
+          CryptoModule cryptoModule, Version bcFileVersion, CryptoModuleParameters cryptoParams)
+          throws IOException {
         this.compressAlgo = compressionAlgo;
         this.region = region;
-        this.decompressor = compressionAlgo.getDecompressor();
+        this.decompressor = dictionary == null ? compressionAlgo.getDecompressor() : null;
 
         BoundedRangeFileInputStream boundedRangeFileInputStream = new BoundedRangeFileInputStream(
             fsin, this.region.getOffset(), this.region.getCompressedSize());
@@ -684,8 +730,13 @@ public final class BCFile {
         }
 
         try {
-          this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed, decompressor,
-              getFSInputBufferSize(conf));
+          if (dictionary != null) {
+            this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed, dictionary,
+                getFSInputBufferSize(conf));
+          } else {
+            this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed,
+                decompressor, getFSInputBufferSize(conf));
+          }
         } catch (IOException e) {
           compressAlgo.returnDecompressor(decompressor);
           throw e;
@@ -1123,19 +1174,49 @@ public final class BCFile {
       }
 
       BlockRegion region = dataIndex.getBlockRegionList().get(blockIndex);
-      return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
+      return createDataReader(dataIndex.getDefaultCompressionAlgorithm(), region);
     }
 
     public BlockReader getDataBlock(long offset, long compressedSize, long rawSize)
         throws IOException {
+      return getDataBlock(offset, compressedSize, rawSize, null);
+    }
+
+    /**
+     * Reads a data block that may have been compressed with a different algorithm than the other
+     * data blocks.
+     *
+     * @param compressionName
+     *          the name of the algorithm the block was compressed with, or null for the algorithm
+     *          used for all data blocks
+     */
+    public BlockReader getDataBlock(long offset, long compressedSize, long rawSize,
+        String compressionName) throws IOException {
       BlockRegion region = new BlockRegion(offset, compressedSize, rawSize);
-      return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
+      Algorithm compressAlgo = compressionName == null ? dataIndex.getDefaultCompressionAlgorithm()
+          : Compression.getCompressionAlgorithmByName(compressionName);
+      return createDataReader(compressAlgo, region);
+    }
+
+    /**
+     * Sets the dictionary the file's data blocks were compressed with, see
+     * {@link Writer#setDataDictionary(byte[])}.
+     */
+    public void setDataDictionary(byte[] dictionary) {
+      this.dataDictionary = dictionary;
+    }
+
+    private BlockReader createDataReader(Algorithm compressAlgo, BlockRegion region)
+        throws IOException {
+      byte[] dictionary = compressAlgo.supportsDictionary() ? dataDictionary : null;
+      return new BlockReader(new RBlockState(compressAlgo, dictionary, in, region, conf,
+          cryptoModule, version, cryptoParams));
     }
 
     private BlockReader createReader(Algorithm compressAlgo, BlockRegion region)
         throws IOException {
-      RBlockState rbs = new RBlockState(compressAlgo, in, region, conf, cryptoModule, version,
-          cryptoParams);
+      RBlockState rbs = new RBlockState(compressAlgo, null, in, region, conf, cryptoModule,
+          version, cryptoParams);
       return new BlockReader(rbs);
     }
 
@@ -24,8 +24,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -76,6 +81,51 @@ public final class Compression {
     }
   }
 
+  /**
+   * Deflates a block with a preset dictionary. Like {@link FinishOnFlushCompressionStream}, the
+   * block is finished when the stream is flushed.
+   */
+  static class DictionaryDeflaterStream extends DeflaterOutputStream {
+    private boolean finished = false;
+
+    DictionaryDeflaterStream(OutputStream out, byte[] dictionary) {
+      // raw deflate, a zlib stream would need the dictionary set only once it asks for it
+      super(out, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+      def.setDictionary(dictionary);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (!finished) {
+        finished = true;
+        finish();
+        def.end();
+      }
+      out.flush();
+    }
+  }
+
+  static class DictionaryInflaterStream extends InflaterInputStream {
+    DictionaryInflaterStream(InputStream in, byte[] dictionary, int size) {
+      super(in, new Inflater(true), size);
+      inf.setDictionary(dictionary);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        inf.end();
+      }
+    }
+  }
+
+  /**
+   * The largest dictionary that is useful, deflate can not refer back further than this.
+   */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
   /** snappy codec **/
   public static final String COMPRESSION_SNAPPY = "snappy";
   /** compression: gzip */
@@ -84,6 +134,10 @@ public final class Compression {
   public static final String COMPRESSION_LZO = "lzo";
   /** compression: none */
   public static final String COMPRESSION_NONE = "none";
+  /** compression: zstd */
+  public static final String COMPRESSION_ZSTD = "zstd";
+  /** compression: lz4 */
+  public static final String COMPRESSION_LZ4 = "lz4";
 
   /**
    * Compression algorithms. There is a static initializer, below the values defined in the
@@ -120,6 +174,11 @@ public final class Compression {
    *
    * Snappy will use the default Snappy codec with the default buffer size of 64k for the
    * compression stream, but will use a cached codec if the buffer size differs from the default.
+   *
+   * ZSTD and LZ4 always use their default codec. They prefer Hadoop's codecs, which need the
+   * native Hadoop libraries, and fall back to the pure Java codecs of aircompressor when those
+   * libraries are not loaded and aircompressor is on the class path. ZSTD compressors are set to
+   * the level asked for each time they are taken from the CodecPool.
    */
   public static enum Algorithm {
 
@@ -295,6 +354,26 @@ public final class Compression {
         return bos2;
       }
 
+      @Override
+      public boolean supportsDictionary() {
+        return true;
+      }
+
+      @Override
+      public InputStream createDecompressionStream(InputStream downStream, byte[] dictionary,
+          int downStreamBufferSize) throws IOException {
+        int bufferSize = downStreamBufferSize > 0 ? downStreamBufferSize : DEFAULT_BUFFER_SIZE;
+        return new BufferedInputStream(
+            new DictionaryInflaterStream(downStream, dictionary, bufferSize), DATA_IBUF_SIZE);
+      }
+
+      @Override
+      public OutputStream createCompressionStream(OutputStream downStream, byte[] dictionary)
+          throws IOException {
+        return new BufferedOutputStream(new DictionaryDeflaterStream(downStream, dictionary),
+            DATA_OBUF_SIZE);
+      }
+
       @Override
       public boolean isSupported() {
         return true;
@@ -456,6 +535,186 @@ public final class Compression {
 
         return snappyCodec != null;
       }
+    },
+
+    ZSTD(COMPRESSION_ZSTD) {
+      private transient CompressionCodec codec = null;
+      /**
+       * determines if we've checked the codec status. ensures we don't recreate the default codec
+       */
+      private final AtomicBoolean checked = new AtomicBoolean(false);
+      private static final String defaultClazz = "org.apache.hadoop.io.compress.ZStandardCodec";
+      private static final String javaClazz = "io.airlift.compress.zstd.ZstdCodec";
+
+      /**
+       * Buffer size option
+       */
+      private static final String BUFFER_SIZE_OPT = "io.compression.codec.zstd.buffersize";
+
+      /**
+       * Compression level option
+       */
+      private static final String LEVEL_OPT = "io.compression.codec.zstd.level";
+
+      /**
+       * Configurations that set each level asked for, used to reinitialize pooled compressors.
+       */
+      private final ConcurrentHashMap<Integer,Configuration> levelConfs = new ConcurrentHashMap<>();
+
+      @Override
+      CompressionCodec getCodec() {
+        return codec;
+      }
+
+      @Override
+      public void initializeDefaultCodec() {
+        if (!checked.get()) {
+          checked.set(true);
+          // zero leaves the buffer size to the codec
+          codec = createNewCodec(0);
+        }
+      }
+
+      @Override
+      protected CompressionCodec createNewCodec(final int bufferSize) {
+        return loadCodec(CONF_ZSTD_CLASS, BUFFER_SIZE_OPT, bufferSize, defaultClazz, javaClazz);
+      }
+
+      @Override
+      public Compressor getCompressor() throws IOException {
+        return getCompressor(0);
+      }
+
+      @Override
+      public Compressor getCompressor(int level) throws IOException {
+        if (!usesCodecPool(codec)) {
+          return null;
+        }
+        Compressor compressor = super.getCompressor();
+        if (compressor != null) {
+          // a pooled compressor keeps the level of whoever used it last
+          Configuration levelConf = conf;
+          if (level > 0) {
+            levelConf = levelConfs.get(level);
+            if (levelConf == null) {
+              levelConf = new Configuration(false);
+              levelConf.setInt(LEVEL_OPT, level);
+              levelConfs.putIfAbsent(level, levelConf);
+            }
+          }
+          compressor.reinit(levelConf);
+        }
+        return compressor;
+      }
+
+      @Override
+      public Decompressor getDecompressor() throws IOException {
+        return usesCodecPool(codec) ? super.getDecompressor() : null;
+      }
+
+      @Override
+      public InputStream createDecompressionStream(InputStream downStream,
+          Decompressor decompressor, int downStreamBufferSize) throws IOException {
+        if (!isSupported()) {
+          throw new IOException("ZSTD codec not available. Are the native Hadoop libraries or"
+              + " aircompressor installed, or did you forget to set property " + CONF_ZSTD_CLASS
+              + "?");
+        }
+        return createBlockDecompressionStream(codec, downStream, decompressor,
+            downStreamBufferSize);
+      }
+
+      @Override
+      public OutputStream createCompressionStream(OutputStream downStream, Compressor compressor,
+          int downStreamBufferSize) throws IOException {
+        if (!isSupported()) {
+          throw new IOException("ZSTD codec not available. Are the native Hadoop libraries or"
+              + " aircompressor installed, or did you forget to set property " + CONF_ZSTD_CLASS
+              + "?");
+        }
+        return createBlockCompressionStream(codec, downStream, compressor, downStreamBufferSize);
+      }
+
+      @Override
+      public boolean isSupported() {
+        return codec != null;
+      }
+    },
+
+    LZ4(COMPRESSION_LZ4) {
+      private transient CompressionCodec codec = null;
+      /**
+       * determines if we've checked the codec status. ensures we don't recreate the default codec
+       */
+      private final AtomicBoolean checked = new AtomicBoolean(false);
+      private static final String defaultClazz = "org.apache.hadoop.io.compress.Lz4Codec";
+      private static final String javaClazz = "io.airlift.compress.lz4.Lz4Codec";
+
+      /**
+       * Buffer size option
+       */
+      private static final String BUFFER_SIZE_OPT = "io.compression.codec.lz4.buffersize";
+
+      /**
+       * Default buffer size value
+       */
+      private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+      @Override
+      CompressionCodec getCodec() {
+        return codec;
+      }
+
+      @Override
+      public void initializeDefaultCodec() {
+        if (!checked.get()) {
+          checked.set(true);
+          codec = createNewCodec(DEFAULT_BUFFER_SIZE);
+        }
+      }
+
+      @Override
+      protected CompressionCodec createNewCodec(final int bufferSize) {
+        return loadCodec(CONF_LZ4_CLASS, BUFFER_SIZE_OPT, bufferSize, defaultClazz, javaClazz);
+      }
+
+      @Override
+      public Compressor getCompressor() throws IOException {
+        return usesCodecPool(codec) ? super.getCompressor() : null;
+      }
+
+      @Override
+      public Decompressor getDecompressor() throws IOException {
+        return usesCodecPool(codec) ? super.getDecompressor() : null;
+      }
+
+      @Override
+      public InputStream createDecompressionStream(InputStream downStream,
+          Decompressor decompressor, int downStreamBufferSize) throws IOException {
+        if (!isSupported()) {
+          throw new IOException("LZ4 codec not available. Are the native Hadoop libraries or"
+              + " aircompressor installed, or did you forget to set property " + CONF_LZ4_CLASS
+              + "?");
+        }
+        return createBlockDecompressionStream(codec, downStream, decompressor,
+            downStreamBufferSize);
+      }
+
+      @Override
+      public OutputStream createCompressionStream(OutputStream downStream, Compressor compressor,
+          int downStreamBufferSize) throws IOException {
+        if (!isSupported()) {
+          throw new IOException("LZ4 codec not available. Are the native Hadoop libraries or"
+              + " aircompressor installed, or did you forget to set property " + CONF_LZ4_CLASS
+              + "?");
+        }
+        return createBlockCompressionStream(codec, downStream, compressor, downStreamBufferSize);
+      }
+
+      @Override
+      public boolean isSupported() {
+        return codec != null;
+      }
     };
 
     /**
@@ -502,6 +761,8 @@ public final class Compression {
     private static final int DATA_OBUF_SIZE = 4 * 1024;
     public static final String CONF_LZO_CLASS = "io.compression.codec.lzo.class";
     public static final String CONF_SNAPPY_CLASS = "io.compression.codec.snappy.class";
+    public static final String CONF_ZSTD_CLASS = "io.compression.codec.zstd.class";
+    public static final String CONF_LZ4_CLASS = "io.compression.codec.lz4.class";
 
     Algorithm(String name) {
       this.compressName = name;
@@ -532,6 +793,102 @@ public final class Compression {
 
     public abstract boolean isSupported();
 
+    /**
+     * @return true if blocks can be compressed with a preset dictionary, that gives the data of
+     *         every block the same history to refer back to
+     */
+    public boolean supportsDictionary() {
+      return false;
+    }
+
+    /**
+     * Creates a stream that reads a block compressed with
+     * {@link #createCompressionStream(OutputStream, byte[])}.
+     */
+    public InputStream createDecompressionStream(InputStream downStream, byte[] dictionary,
+        int downStreamBufferSize) throws IOException {
+      throw new IOException(getName() + " does not support dictionaries");
+    }
+
+    /**
+     * Creates a stream that compresses a block with a preset dictionary, see
+     * {@link #supportsDictionary()}.
+     */
+    public OutputStream createCompressionStream(OutputStream downStream, byte[] dictionary)
+        throws IOException {
+      throw new IOException(getName() + " does not support dictionaries");
+    }
+
+    /**
+     * Loads the first of the given codec classes that can be used, or the class set in the
+     * configuration or system properties under classOpt instead when there is one. Classes that
+     * are not on the class path are skipped, as are codecs whose native libraries are not loaded.
+     *
+     * @return the codec, or null if none of the classes can be used
+     */
+    static CompressionCodec loadCodec(String classOpt, String bufferSizeOpt, int bufferSize,
+        String... classes) {
+      String extClazz = conf.get(classOpt, System.getProperty(classOpt));
+      for (String clazz : extClazz != null ? new String[] {extClazz} : classes) {
+        try {
+          LOG.info("Trying to load codec class: " + clazz);
+          Configuration myConf = new Configuration(conf);
+          // only use the buffersize if > 0, otherwise we'll use
+          // the default defined within the codec
+          if (bufferSize > 0)
+            myConf.setInt(bufferSizeOpt, bufferSize);
+          CompressionCodec codec = (CompressionCodec) ReflectionUtils
+              .newInstance(Class.forName(clazz), myConf);
+          // Hadoop's codecs throw here when their native library is not loaded
+          codec.getCompressorType();
+          codec.getDecompressorType();
+          return codec;
+        } catch (ClassNotFoundException e) {
+          // that is okay
+        } catch (RuntimeException | LinkageError e) {
+          LOG.info("Unable to use codec class " + clazz + ": " + e);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Hadoop's codecs compress with the compressors of the CodecPool. Other codecs, like the pure
+     * Java ones of aircompressor, do not support Hadoop's compressor interface and create their
+     * own for each stream.
+     */
+    static boolean usesCodecPool(CompressionCodec codec) {
+      return codec != null && codec.getClass().getName().startsWith("org.apache.hadoop.");
+    }
+
+    static InputStream createBlockDecompressionStream(CompressionCodec codec,
+        InputStream downStream, Decompressor decompressor, int downStreamBufferSize)
+        throws IOException {
+      InputStream bis1 = null;
+      if (downStreamBufferSize > 0) {
+        bis1 = new BufferedInputStream(downStream, downStreamBufferSize);
+      } else {
+        bis1 = downStream;
+      }
+      CompressionInputStream cis = decompressor == null ? codec.createInputStream(bis1)
+          : codec.createInputStream(bis1, decompressor);
+      return new BufferedInputStream(cis, DATA_IBUF_SIZE);
+    }
+
+    static OutputStream createBlockCompressionStream(CompressionCodec codec,
+        OutputStream downStream, Compressor compressor, int downStreamBufferSize)
+        throws IOException {
+      OutputStream bos1 = null;
+      if (downStreamBufferSize > 0) {
+        bos1 = new BufferedOutputStream(downStream, downStreamBufferSize);
+      } else {
+        bos1 = downStream;
+      }
+      CompressionOutputStream cos = compressor == null ? codec.createOutputStream(bos1)
+          : codec.createOutputStream(bos1, compressor);
+      return new BufferedOutputStream(new FinishOnFlushCompressionStream(cos), DATA_OBUF_SIZE);
+    }
+
     public Compressor getCompressor() throws IOException {
       CompressionCodec codec = getCodec();
       if (codec != null) {
@@ -555,6 +912,17 @@ public final class Compression {
       return null;
     }
 
+    /**
+     * Gets a compressor that compresses at the given level. Only ZSTD has levels, other algorithms
+     * ignore the level.
+     *
+     * @param level
+     *          the compression level, or 0 for the level configured for the codec
+     */
+    public Compressor getCompressor(int level) throws IOException {
+      return getCompressor();
+    }
+
     public void returnCompressor(Compressor compressor) {
       if (compressor != null) {
         LOG.debug("Return a compressor: " + compressor.hashCode());
@@ -19,17 +19,25 @@ package org.apache.accumulo.core.file.streams;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.hadoop.fs.PositionedReadable;
 import org.apache.hadoop.fs.Seekable;
 
 /**
  * BoundedRangeFIleInputStream abstracts a contiguous region of a Hadoop FSDataInputStream as a
  * regular input stream. One can create multiple BoundedRangeFileInputStream on top of the same
  * FSDataInputStream and they would not interfere with each other.
+ *
+ * <p>
+ * When the stream supports {@link PositionedReadable positional reads}, they are used so that
+ * streams over different regions of the same file read concurrently. Otherwise reads seek the
+ * shared stream and so are serialized.
  */
 public class BoundedRangeFileInputStream extends InputStream {
 
   private volatile boolean closed = false;
   private final InputStream in;
+  // reads and close hold this lock, it is the shared stream unless reads are positional
+  private final Object lock;
   private long pos;
   private long end;
   private long mark;
@@ -55,6 +63,7 @@ public class BoundedRangeFileInputStream extends InputStream {
     }
 
     this.in = in;
+    this.lock = in instanceof PositionedReadable ? this : in;
     this.pos = offset;
     this.end = offset + length;
     this.mark = -1;
@@ -88,13 +97,17 @@ public class BoundedRangeFileInputStream extends InputStream {
     if (n == 0)
       return -1;
     Integer ret = 0;
-    synchronized (in) {
+    synchronized (lock) {
       // ensuring we are not closed which would be followed by someone else reusing the decompressor
       if (closed) {
         throw new IOException("Stream closed");
       }
-      ((Seekable) in).seek(pos);
-      ret = in.read(b, off, n);
+      if (lock == in) {
+        ((Seekable) in).seek(pos);
+        ret = in.read(b, off, n);
+      } else {
+        ret = ((PositionedReadable) in).read(pos, b, off, n);
+      }
     }
     if (ret < 0) {
       end = pos;
@@ -133,11 +146,11 @@ public class BoundedRangeFileInputStream extends InputStream {
 
   @Override
   public void close() {
-    // Synchronize on the FSDataInputStream to ensure we are blocked if in the read method:
+    // Synchronize on the read lock to ensure we are blocked if in the read method:
     // Once this close completes, the underlying decompression stream may be returned to
     // the pool and subsequently used. Turns out this is a problem if currently using it to read.
     if (!closed) {
-      synchronized (in) {
+      synchronized (lock) {
         // Invalidate the state of the stream.
         closed = true;
       }
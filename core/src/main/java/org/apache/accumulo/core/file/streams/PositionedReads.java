@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.streams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+
+/**
+ * Positional reads for the stream wrappers in this package. Reads go straight to the wrapped stream
+ * when it supports them, otherwise they seek, read and seek back while holding the lock of the
+ * wrapped stream.
+ */
+class PositionedReads {
+
+  private PositionedReads() {}
+
+  static int read(InputStream in, long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    if (in instanceof PositionedReadable) {
+      return ((PositionedReadable) in).read(position, buffer, offset, length);
+    }
+    synchronized (in) {
+      Seekable seekable = (Seekable) in;
+      long oldPos = seekable.getPos();
+      try {
+        seekable.seek(position);
+        return in.read(buffer, offset, length);
+      } finally {
+        seekable.seek(oldPos);
+      }
+    }
+  }
+
+  static void readFully(PositionedReadable in, long position, byte[] buffer, int offset,
+      int length) throws IOException {
+    int read = 0;
+    while (read < length) {
+      int n = in.read(position + read, buffer, offset + read, length - read);
+      if (n < 0) {
+        throw new EOFException("End of file reached before reading fully.");
+      }
+      read += n;
+    }
+  }
+}
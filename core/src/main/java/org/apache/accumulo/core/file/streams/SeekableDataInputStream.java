@@ -20,13 +20,15 @@ import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.apache.hadoop.fs.PositionedReadable;
 import org.apache.hadoop.fs.Seekable;
 
 /**
  * A wrapper converting a {@link Seekable} {@code InputStream} into a {@code Seekable}
- * {@link DataInputStream}
+ * {@link DataInputStream}. Positional reads go to the wrapped stream when it supports them.
  */
-public class SeekableDataInputStream extends DataInputStream implements Seekable {
+public class SeekableDataInputStream extends DataInputStream
+    implements Seekable, PositionedReadable {
   public <StreamType extends InputStream & Seekable> SeekableDataInputStream(StreamType stream) {
     super(stream);
   }
@@ -45,4 +47,20 @@ public class SeekableDataInputStream extends DataInputStream implements Seekable
   public boolean seekToNewSource(long targetPos) throws IOException {
     return ((Seekable) in).seekToNewSource(targetPos);
   }
+
+  @Override
+  public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+    return PositionedReads.read(in, position, buffer, offset, length);
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer, int offset, int length)
+      throws IOException {
+    PositionedReads.readFully(this, position, buffer, offset, length);
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer) throws IOException {
+    readFully(position, buffer, 0, buffer.length);
+  }
 }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * An iterator that can return many key and value pairs per call. Reading entries one at a time
+ * makes several calls through every iterator in a stack for each entry, and with many iterator
+ * types in a process those calls can not be inlined. Reading a block of entries per call lets each
+ * iterator work through the block in one tight loop.
+ *
+ * <p>
+ * This is optional, use {@link KeyValueBlock#fill(SortedKeyValueIterator)} to read a block from any
+ * iterator, it reads iterators that do not implement this interface one entry at a time.
+ */
+public interface BatchedKeyValueIterator extends SortedKeyValueIterator<Key,Value> {
+
+  /**
+   * Adds entries to the block, starting with the top entry, until the block is full or this
+   * iterator has no more entries. Afterwards this iterator is positioned at the entry after the last
+   * one added, exactly as if {@link #next()} had been called once for each entry added.
+   *
+   * <p>
+   * The keys and values added belong to the block, this iterator must not modify or reuse them.
+   * Implementations that wrap another iterator should read from it with
+   * {@link KeyValueBlock#fill(SortedKeyValueIterator)}.
+   */
+  void nextBatch(KeyValueBlock block) throws IOException;
+}
@@ -37,7 +37,8 @@ import org.apache.accumulo.core.data.Value;
  * "negate" boolean parameter that defaults to false. If negate is set to true, this class instead
  * omits entries that match its filter, thus iterating over entries that do not match its filter.
  */
-public abstract class Filter extends WrappingIterator implements OptionDescriber {
+public abstract class Filter extends WrappingIterator
+    implements OptionDescriber, BatchedKeyValueIterator {
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     Filter newInstance;
@@ -67,6 +68,28 @@ public abstract class Filter extends WrappingIterator implements OptionDescriber
     findTop();
   }
 
+  /**
+   * Reads a block from the source and removes the entries this filter does not accept. The block
+   * never gets more entries from the source than it has room for, so filtering never has to give
+   * entries back.
+   */
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    int start = block.size();
+    block.fill(getSource());
+    // the first entry is the top of this filter, which was already accepted
+    int kept = Math.min(start + 1, block.size());
+    for (int i = kept; i < block.size(); i++) {
+      Key k = block.getKey(i);
+      Value v = block.getValue(i);
+      if (k.isDeleted() || negate != accept(k, v)) {
+        block.set(kept++, k, v);
+      }
+    }
+    block.truncate(kept);
+    findTop();
+  }
+
   /**
    * Iterates over the source until an acceptable key/value pair is found.
    */
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * A reusable block of key and value pairs, filled by a {@link BatchedKeyValueIterator}.
+ */
+public class KeyValueBlock {
+
+  private final Key[] keys;
+  private final Value[] values;
+  private int size = 0;
+  private int limit;
+
+  // entries added since the last clear, and their size in bytes
+  private int added = 0;
+  private long addedBytes = 0;
+  private long maxBytes = Long.MAX_VALUE;
+  private boolean timed = false;
+  private long stopTime;
+
+  public KeyValueBlock(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive " + capacity);
+    }
+    keys = new Key[capacity];
+    values = new Value[capacity];
+    limit = capacity;
+  }
+
+  public int capacity() {
+    return keys.length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return true if no more entries can be added
+   */
+  public boolean isFull() {
+    if (size >= limit) {
+      return true;
+    }
+    // at least one entry is always added, so that reading blocks always makes progress
+    return added > 0 && (addedBytes >= maxBytes || (timed && System.nanoTime() - stopTime >= 0));
+  }
+
+  public Key getKey(int i) {
+    checkIndex(i);
+    return keys[i];
+  }
+
+  public Value getValue(int i) {
+    checkIndex(i);
+    return values[i];
+  }
+
+  private void checkIndex(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException(i + " not in [0," + size + ")");
+    }
+  }
+
+  public void add(Key key, Value value) {
+    if (isFull()) {
+      throw new IllegalStateException("block is full");
+    }
+    keys[size] = key;
+    values[size] = value;
+    size++;
+    added++;
+    addedBytes += key.getSize() + value.getSize();
+  }
+
+  /**
+   * Replaces an entry. Along with {@link #truncate(int)}, this lets an iterator remove entries from
+   * the end of a block in place.
+   */
+  public void set(int i, Key key, Value value) {
+    checkIndex(i);
+    keys[i] = key;
+    values[i] = value;
+  }
+
+  /**
+   * Removes all entries past the given number of entries.
+   */
+  public void truncate(int newSize) {
+    if (newSize < 0 || newSize > size) {
+      throw new IllegalArgumentException("size " + newSize + " not in [0," + size + "]");
+    }
+    Arrays.fill(keys, newSize, size, null);
+    Arrays.fill(values, newSize, size, null);
+    size = newSize;
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void clear() {
+    clear(keys.length);
+  }
+
+  /**
+   * Removes all entries, and limits the number of entries that can be added until the next clear.
+   *
+   * @param limit
+   *          the most entries to add, more than the capacity of the block is the same as its
+   *          capacity
+   */
+  public void clear(int limit) {
+    clear(limit, Long.MAX_VALUE, 0);
+  }
+
+  /**
+   * Removes all entries, and limits what can be added until the next clear. Once an entry was
+   * added, the block is also full when the keys and values added reach the given size, or when the
+   * time is up. Entries removed with {@link #truncate(int)} still count towards the size.
+   *
+   * @param limit
+   *          the most entries to add, more than the capacity of the block is the same as its
+   *          capacity
+   * @param maxBytes
+   *          the size of the keys and values to add
+   * @param timeoutNanos
+   *          how long to add entries for, zero or less for no time limit
+   */
+  public void clear(int limit, long maxBytes, long timeoutNanos) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive " + limit);
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes must be positive " + maxBytes);
+    }
+    truncate(0);
+    this.limit = Math.min(limit, keys.length);
+    this.added = 0;
+    this.addedBytes = 0;
+    this.maxBytes = maxBytes;
+    this.timed = timeoutNanos > 0;
+    if (timed) {
+      this.stopTime = System.nanoTime() + timeoutNanos;
+    }
+  }
+
+  /**
+   * Adds entries from an iterator until this block is full or the iterator has no more entries,
+   * reading them a block at a time if the iterator is a {@link BatchedKeyValueIterator}.
+   */
+  public void fill(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    if (iter instanceof BatchedKeyValueIterator) {
+      ((BatchedKeyValueIterator) iter).nextBatch(this);
+    } else {
+      fillByEntry(iter);
+    }
+  }
+
+  /**
+   * Adds entries from an iterator one at a time, until this block is full or the iterator has no
+   * more entries. Iterators may reuse the key and value objects they return, so each entry is
+   * copied. The arrays of a key are never modified, so its copy shares them.
+   */
+  public void fillByEntry(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    while (!isFull() && iter.hasTop()) {
+      add(new Key(iter.getTopKey()), new Value(iter.getTopValue()));
+      iter.next();
+    }
+  }
+}
@@ -28,12 +28,14 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchedKeyValueIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SkippingIterator;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
 public class ColumnFamilySkippingIterator extends SkippingIterator
-    implements InterruptibleIterator {
+    implements InterruptibleIterator, BatchedKeyValueIterator {
 
   protected Set<ByteSequence> colFamSet = null;
   protected TreeSet<ByteSequence> sortedColFams = null;
@@ -41,6 +43,11 @@ public class ColumnFamilySkippingIterator extends SkippingIterator
   protected boolean inclusive = false;
   protected Range range;
 
+  // the column family of the last key looked up in colFamSet, keys read from a file share the
+  // array of an unchanged column family with the previous key, so a run of them is looked up once
+  private byte[] lastColFam;
+  private boolean lastColFamInSet;
+
   public ColumnFamilySkippingIterator(SortedKeyValueIterator<Key,Value> source) {
     this.setSource(source);
   }
@@ -58,7 +65,7 @@ public class ColumnFamilySkippingIterator extends SkippingIterator
     int count = 0;
 
     if (inclusive)
-      while (source.hasTop() && !colFamSet.contains(source.getTopKey().getColumnFamilyData())) {
+      while (source.hasTop() && !inColFamSet(source.getTopKey())) {
         if (count < 10) {
           // it is quicker to call next if we are close, but we never know if we are close
           // so give next a try a few times
@@ -79,7 +86,7 @@ public class ColumnFamilySkippingIterator extends SkippingIterator
         }
       }
     else if (colFamSet != null && colFamSet.size() > 0)
-      while (source.hasTop() && colFamSet.contains(source.getTopKey().getColumnFamilyData())) {
+      while (source.hasTop() && inColFamSet(source.getTopKey())) {
         if (count < 10) {
           source.next();
           count++;
@@ -91,6 +98,25 @@ public class ColumnFamilySkippingIterator extends SkippingIterator
       }
   }
 
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    if (inclusive || (colFamSet != null && colFamSet.size() > 0)) {
+      // skipping column families may seek the source, so read it one entry at a time
+      block.fillByEntry(this);
+    } else {
+      block.fill(getSource());
+    }
+  }
+
+  private boolean inColFamSet(Key key) {
+    ByteSequence cf = key.getColumnFamilyData();
+    if (cf.getBackingArray() != lastColFam) {
+      lastColFamInSet = colFamSet.contains(cf);
+      lastColFam = cf.getBackingArray();
+    }
+    return lastColFamInSet;
+  }
+
   private void reseek(Key key) throws IOException {
     if (range.afterEndKey(key)) {
       range = new Range(range.getEndKey(), true, range.getEndKey(), range.isEndKeyInclusive());
@@ -125,6 +151,7 @@ public class ColumnFamilySkippingIterator extends SkippingIterator
 
     this.range = range;
     this.inclusive = inclusive;
+    lastColFam = null;
     super.seek(range, colFamSet, inclusive);
   }
 
@@ -25,12 +25,14 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchedKeyValueIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
-public class DeletingIterator extends WrappingIterator {
+public class DeletingIterator extends WrappingIterator implements BatchedKeyValueIterator {
   private boolean propogateDeletes;
   private Key workKey = new Key();
 
@@ -62,6 +64,36 @@ public class DeletingIterator extends WrappingIterator {
     findTop(source);
   }
 
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    SortedKeyValueIterator<Key,Value> source = getSource();
+    int start = block.size();
+    block.fill(source);
+
+    // remove the entries hidden by a delete, the top of this iterator is never hidden
+    Key deleted = null;
+    int kept = start;
+    for (int i = start; i < block.size(); i++) {
+      Key k = block.getKey(i);
+      if (deleted != null && k.equals(deleted, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+        continue;
+      }
+      deleted = k.isDeleted() ? k : null;
+      if (deleted == null || propogateDeletes) {
+        block.set(kept++, k, block.getValue(i));
+      }
+    }
+    block.truncate(kept);
+
+    if (deleted != null) {
+      while (source.hasTop()
+          && source.getTopKey().equals(deleted, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+        source.next();
+      }
+    }
+    findTop(source);
+  }
+
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
       throws IOException {
@@ -17,43 +17,52 @@
 package org.apache.accumulo.core.iterators.system;
 
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 
 /**
- * Constructs a {@link PriorityQueue} of multiple SortedKeyValueIterators. Provides a simple way to
- * interact with multiple SortedKeyValueIterators in sorted order.
+ * Merges multiple SortedKeyValueIterators. Provides a simple way to interact with multiple
+ * SortedKeyValueIterators in sorted order.
+ *
+ * <p>
+ * The sources are merged with a loser tree. Each internal node of the tree holds the source that
+ * lost the comparison at that node, and the overall winner is the top source. When the top source
+ * advances, only the nodes on its path to the root are compared again, about log2(n) comparisons
+ * for n sources. While one source keeps supplying the smallest keys, the runner up is remembered
+ * and each advance costs a single comparison. Sources with equal keys are merged in the order they
+ * were added.
  */
 public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value> {
-  private PriorityQueue<SortedKeyValueIterator<Key,Value>> heap;
+  private SortedKeyValueIterator<Key,Value>[] sources;
+  private int size;
+  // tree[0] is the index of the winning source, tree[1..size-1] the losers at the internal nodes,
+  // the source at index i is the leaf at node size + i
+  private int[] tree;
+  private boolean built;
   private SortedKeyValueIterator<Key,Value> topIdx = null;
-  private Key nextKey;
-
-  private static class SKVIComparator implements Comparator<SortedKeyValueIterator<Key,Value>> {
-
-    @Override
-    public int compare(SortedKeyValueIterator<Key,Value> o1, SortedKeyValueIterator<Key,Value> o2) {
-      return o1.getTopKey().compareTo(o2.getTopKey());
-    }
-  }
+  // the source that would be on top if the top source were removed, -1 if there is none, only
+  // valid when runnerUpKnown is set
+  private int runnerUp;
+  private boolean runnerUpKnown;
 
   protected HeapIterator() {
-    heap = null;
+    sources = null;
   }
 
   protected HeapIterator(int maxSize) {
     createHeap(maxSize);
   }
 
+  @SuppressWarnings("unchecked")
   protected void createHeap(int maxSize) {
-    if (heap != null)
+    if (sources != null)
       throw new IllegalStateException("heap already exist");
 
-    heap = new PriorityQueue<>(maxSize == 0 ? 1 : maxSize, new SKVIComparator());
+    sources = new SortedKeyValueIterator[maxSize == 0 ? 1 : maxSize];
+    tree = new int[sources.length];
   }
 
   @Override
@@ -71,63 +80,129 @@ public abstract class HeapIterator implements SortedKeyValueIterator<Key,Value>
     return topIdx != null;
   }
 
+  /**
+   * @return true if source a should come before source b, sources without a top come last
+   */
+  private boolean before(int a, int b) {
+    SortedKeyValueIterator<Key,Value> sa = sources[a];
+    SortedKeyValueIterator<Key,Value> sb = sources[b];
+    if (!sa.hasTop()) {
+      return false;
+    }
+    if (!sb.hasTop()) {
+      return true;
+    }
+    int cmp = sa.getTopKey().compareTo(sb.getTopKey());
+    return cmp < 0 || (cmp == 0 && a < b);
+  }
+
+  /**
+   * Plays the matches below a node.
+   *
+   * @return the index of the winner
+   */
+  private int build(int node) {
+    if (node >= size) {
+      return node - size;
+    }
+    int left = build(2 * node);
+    int right = build(2 * node + 1);
+    if (before(left, right)) {
+      tree[node] = right;
+      return left;
+    }
+    tree[node] = left;
+    return right;
+  }
+
+  /**
+   * Plays the matches on the path from a source to the root again.
+   *
+   * @return the index of the new winner
+   */
+  private int replay(int winner) {
+    for (int node = (winner + size) >>> 1; node > 0; node >>>= 1) {
+      if (before(tree[node], winner)) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    return winner;
+  }
+
+  /**
+   * @return the best source other than the winner, which is one of the sources that lost to it
+   */
+  private int findRunnerUp(int winner) {
+    int best = -1;
+    for (int node = (winner + size) >>> 1; node > 0; node >>>= 1) {
+      int loser = tree[node];
+      if (sources[loser].hasTop() && (best == -1 || before(loser, best))) {
+        best = loser;
+      }
+    }
+    return best;
+  }
+
   @Override
   final public void next() throws IOException {
     if (topIdx == null) {
       throw new IllegalStateException("Called next() when there is no top");
     }
 
-    topIdx.next();
-    if (!topIdx.hasTop()) {
-      if (nextKey == null) {
-        // No iterators left
-        topIdx = null;
-        return;
-      }
+    if (!built) {
+      // sources added since the last next() are merged now, so seeking does not pay for it
+      tree[0] = build(1);
+      built = true;
+      runnerUpKnown = false;
+    }
 
-      pullReferencesFromHeap();
-    } else {
-      if (nextKey == null) {
-        // topIdx is the only iterator
-        return;
-      }
+    int winner = tree[0];
+    topIdx.next();
 
-      if (nextKey.compareTo(topIdx.getTopKey()) < 0) {
-        // Grab the next top iterator and put the current top iterator back on the heap
-        // This updating of references is special-cased to save on percolation on edge cases
-        // since the current top is guaranteed to not be the minimum
-        SortedKeyValueIterator<Key,Value> nextTopIdx = heap.remove();
-        heap.add(topIdx);
+    if (runnerUpKnown && topIdx.hasTop() && (runnerUp == -1 || before(winner, runnerUp))) {
+      // the top source is still the smallest, so none of the matches it won change
+      return;
+    }
 
-        topIdx = nextTopIdx;
-        nextKey = heap.peek().getTopKey();
-      }
+    int newWinner = replay(winner);
+    tree[0] = newWinner;
+    if (!sources[newWinner].hasTop()) {
+      // No iterators left
+      topIdx = null;
+      return;
     }
-  }
 
-  private void pullReferencesFromHeap() {
-    topIdx = heap.remove();
-    if (!heap.isEmpty()) {
-      nextKey = heap.peek().getTopKey();
+    topIdx = sources[newWinner];
+    if (newWinner == winner) {
+      // the same source may stay on top for a while, so find out how long
+      runnerUp = findRunnerUp(winner);
+      runnerUpKnown = true;
     } else {
-      nextKey = null;
+      runnerUpKnown = false;
     }
   }
 
   final protected void clear() {
-    heap.clear();
+    Arrays.fill(sources, 0, size, null);
+    size = 0;
+    built = false;
     topIdx = null;
-    nextKey = null;
   }
 
   final protected void addSource(SortedKeyValueIterator<Key,Value> source) {
     if (source.hasTop()) {
-      heap.add(source);
-      if (topIdx != null) {
-        heap.add(topIdx);
+      if (size == sources.length) {
+        sources = Arrays.copyOf(sources, size * 2);
+        tree = new int[sources.length];
+      }
+      sources[size++] = source;
+      built = false;
+      // sources with equal keys stay in the order they were added
+      if (topIdx == null || source.getTopKey().compareTo(topIdx.getTopKey()) < 0) {
+        topIdx = source;
       }
-
-      pullReferencesFromHeap();
     }
   }
 }
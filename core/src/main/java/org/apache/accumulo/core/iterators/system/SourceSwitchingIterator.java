@@ -28,7 +28,9 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchedKeyValueIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.YieldCallback;
 import org.apache.accumulo.core.iterators.YieldingKeyValueIterator;
@@ -42,8 +44,8 @@ import com.google.common.base.Optional;
  * their scan when that data is minor compacted. This iterator is designed to manage this behind the
  * scene.
  */
-public class SourceSwitchingIterator
-    implements InterruptibleIterator, YieldingKeyValueIterator<Key,Value> {
+public class SourceSwitchingIterator implements InterruptibleIterator,
+    YieldingKeyValueIterator<Key,Value>, BatchedKeyValueIterator {
 
   public interface DataSource {
     boolean isCurrent();
@@ -149,6 +151,22 @@ public class SourceSwitchingIterator
     }
   }
 
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    synchronized (copies) {
+      boolean yielded = (yield.isPresent() && yield.get().hasYielded());
+      if (key == null || onlySwitchAfterRow || yielded || !source.isCurrent()) {
+        // switching sources and resuming after a yield happen between entries
+        block.fillByEntry(this);
+        return;
+      }
+
+      // the current source is positioned at the top of this iterator
+      block.fill(iter);
+      setTop();
+    }
+  }
+
   private void readNext(boolean initialSeek) throws IOException {
 
     // we need to check here if we were yielded in case the source was switched out and re-seeked by
@@ -183,6 +201,10 @@ public class SourceSwitchingIterator
       }
     }
 
+    setTop();
+  }
+
+  private void setTop() throws IOException {
     if (iter.hasTop()) {
       if (yield.isPresent() && yield.get().hasYielded()) {
         throw new IOException("Coding error: hasTop returned true but has yielded at "
@@ -24,14 +24,16 @@ import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchedKeyValueIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
 /**
  *
  */
-public class StatsIterator extends WrappingIterator {
+public class StatsIterator extends WrappingIterator implements BatchedKeyValueIterator {
 
   private int numRead = 0;
   private AtomicLong seekCounter;
@@ -55,6 +57,18 @@ public class StatsIterator extends WrappingIterator {
     }
   }
 
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    int start = block.size();
+    block.fill(getSource());
+    numRead += block.size() - start;
+
+    if (numRead >= 23) {
+      readCounter.addAndGet(numRead);
+      numRead = 0;
+    }
+  }
+
   @Override
   public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
     return new StatsIterator(getSource().deepCopy(env), seekCounter, readCounter);
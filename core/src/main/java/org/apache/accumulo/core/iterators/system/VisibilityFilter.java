@@ -24,29 +24,31 @@ import org.apache.accumulo.core.iterators.Filter;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.security.Authorizations;
-import org.apache.accumulo.core.security.ColumnVisibility;
-import org.apache.accumulo.core.security.VisibilityEvaluator;
 import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.security.impl.VisibilityCache;
 import org.apache.accumulo.core.util.BadArgumentException;
-import org.apache.commons.collections.map.LRUMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class VisibilityFilter extends Filter {
-  protected VisibilityEvaluator ve;
+  protected VisibilityCache.Evaluator ve;
   protected ByteSequence defaultVisibility;
-  protected LRUMap cache;
   protected Authorizations authorizations;
 
+  // the visibility of the last key accepted or rejected, keys read from a file share the array of
+  // an unchanged visibility with the previous key, so a run of them is evaluated once
+  private byte[] lastVisibility;
+  private boolean lastAccepted;
+
   private static final Logger log = LoggerFactory.getLogger(VisibilityFilter.class);
 
   private VisibilityFilter(SortedKeyValueIterator<Key,Value> iterator,
       Authorizations authorizations, byte[] defaultVisibility) {
     setSource(iterator);
-    this.ve = new VisibilityEvaluator(authorizations);
+    // shares parsed expressions and evaluations with every other scan using these authorizations
+    this.ve = VisibilityCache.getInstance().getEvaluator(authorizations);
     this.authorizations = authorizations;
     this.defaultVisibility = new ArrayByteSequence(defaultVisibility);
-    this.cache = new LRUMap(1000);
   }
 
   @Override
@@ -59,19 +61,22 @@ public class VisibilityFilter extends Filter {
   public boolean accept(Key k, Value v) {
     ByteSequence testVis = k.getColumnVisibilityData();
 
+    if (testVis.getBackingArray() == lastVisibility)
+      return lastAccepted;
+
+    lastAccepted = evaluate(testVis);
+    lastVisibility = testVis.getBackingArray();
+    return lastAccepted;
+  }
+
+  private boolean evaluate(ByteSequence testVis) {
     if (testVis.length() == 0 && defaultVisibility.length() == 0)
       return true;
     else if (testVis.length() == 0)
       testVis = defaultVisibility;
 
-    Boolean b = (Boolean) cache.get(testVis);
-    if (b != null)
-      return b;
-
     try {
-      Boolean bb = ve.evaluate(new ColumnVisibility(testVis.toArray()));
-      cache.put(testVis, bb);
-      return bb;
+      return ve.evaluate(testVis);
     } catch (VisibilityParseException e) {
       log.error("Parse Error", e);
       return false;
@@ -27,13 +27,16 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.BatchedKeyValueIterator;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.IteratorUtil;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.OptionDescriber;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
 
-public class VersioningIterator extends WrappingIterator implements OptionDescriber {
+public class VersioningIterator extends WrappingIterator
+    implements OptionDescriber, BatchedKeyValueIterator {
   private final int maxCount = 10;
 
   private Key currentKey = new Key();
@@ -70,6 +73,48 @@ public class VersioningIterator extends WrappingIterator implements OptionDescri
     }
   }
 
+  @Override
+  public void nextBatch(KeyValueBlock block) throws IOException {
+    int start = block.size();
+    block.fill(getSource());
+
+    // keep the first maxVersions entries of each column, counting on from the top of this iterator
+    Key column = currentKey;
+    int versions = numVersions;
+    int kept = start;
+    for (int i = start; i < block.size(); i++) {
+      Key k = block.getKey(i);
+      if (i > start) {
+        if (k.equals(column, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+          versions++;
+        } else {
+          column = k;
+          versions = 1;
+        }
+      }
+      if (versions <= maxVersions) {
+        block.set(kept++, k, block.getValue(i));
+      }
+    }
+    block.truncate(kept);
+
+    if (kept > start) {
+      currentKey.set(column);
+      numVersions = versions;
+      // the source is already past the last entry read, continue as next() would from there
+      if (numVersions >= maxVersions) {
+        skipColumn(currentKey);
+        resetVersionCount();
+      } else if (getSource().hasTop()) {
+        if (getSource().getTopKey().equals(currentKey, PartialKey.ROW_COLFAM_COLQUAL_COLVIS)) {
+          numVersions++;
+        } else {
+          resetVersionCount();
+        }
+      }
+    }
+  }
+
   @Override
   public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
       throws IOException {
@@ -96,7 +141,10 @@ public class VersioningIterator extends WrappingIterator implements OptionDescri
   private void skipRowColumn() throws IOException {
     Key keyToSkip = currentKey;
     super.next();
+    skipColumn(keyToSkip);
+  }
 
+  private void skipColumn(Key keyToSkip) throws IOException {
     int count = 0;
     SortedKeyValueIterator<Key,Value> source = getSource();
     while (source.hasTop()
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.rpc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.util.Daemon;
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.thrift.TByteArrayOutputStream;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A connection to a server started with the multiplexed thrift server type, which many RPCs can
+ * use at the same time. Each thrift message is sent in a {@link Frame} tagged with a request id,
+ * and the server tags its reply with the same id, so replies may arrive in any order.
+ *
+ * <p>
+ * RPCs are made over the {@link TTransport channels} of a connection. A channel makes one RPC at a
+ * time, like a connection of its own would, and is cheap to create. Frames are also tagged with the
+ * id of their channel, and the server processes the requests of a channel in the order they were
+ * sent, so one way RPCs are not overtaken by the RPCs made after them. The connection is closed
+ * when its last channel is closed, or when reading from or writing to it fails.
+ */
+public class MultiplexedConnection {
+
+  private static final Logger log = LoggerFactory.getLogger(MultiplexedConnection.class);
+
+  /**
+   * A thrift message on a multiplexed connection: the request id, the channel id, the length of the
+   * message and the message itself.
+   */
+  public static class Frame {
+
+    public final int requestId;
+    public final int channelId;
+    public final byte[] message;
+
+    private Frame(int requestId, int channelId, byte[] message) {
+      this.requestId = requestId;
+      this.channelId = channelId;
+      this.message = message;
+    }
+
+    public static Frame read(DataInputStream in, long maxMessageSize) throws IOException {
+      int requestId = in.readInt();
+      int channelId = in.readInt();
+      int length = in.readInt();
+      if (length < 0 || length > maxMessageSize) {
+        throw new IOException("Read an invalid message length " + length);
+      }
+      byte[] message = new byte[length];
+      in.readFully(message);
+      return new Frame(requestId, channelId, message);
+    }
+
+    /**
+     * Writes a frame, callers must flush the stream.
+     */
+    public static void write(DataOutputStream out, int requestId, int channelId, byte[] message,
+        int length) throws IOException {
+      out.writeInt(requestId);
+      out.writeInt(channelId);
+      out.writeInt(length);
+      out.write(message, 0, length);
+    }
+  }
+
+  private final HostAndPort address;
+  private final long timeout;
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  private final AtomicInteger nextRequestId = new AtomicInteger(0);
+  private final AtomicInteger nextChannelId = new AtomicInteger(0);
+  private final ConcurrentMap<Integer,SettableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+
+  private int channels = 0;
+  private boolean closed = false;
+  private volatile IOException failure = null;
+
+  private MultiplexedConnection(HostAndPort address, long timeout, Socket socket)
+      throws IOException {
+    this.address = address;
+    this.timeout = timeout;
+    this.socket = socket;
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1024 * 10));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1024 * 10));
+  }
+
+  /**
+   * Connects to a server. The connection has no channels, and is closed when the first channel
+   * created is closed, unless other channels were created in the meantime.
+   *
+   * @param timeout
+   *          time to wait for the connection and for each reply, 0 to wait forever
+   */
+  public static MultiplexedConnection open(HostAndPort address, long timeout)
+      throws TTransportException {
+    Socket socket = new Socket();
+    final MultiplexedConnection connection;
+    try {
+      socket.setSoLinger(false, 0);
+      socket.setTcpNoDelay(true);
+      socket.connect(new InetSocketAddress(address.getHost(), address.getPort()), (int) timeout);
+      connection = new MultiplexedConnection(address, timeout, socket);
+    } catch (IOException e) {
+      try {
+        socket.close();
+      } catch (IOException ioe) {}
+      throw new TTransportException(TTransportException.NOT_OPEN, e);
+    }
+
+    log.trace("Opened multiplexed connection to {}", address);
+    Daemon reader = new Daemon(new Runnable() {
+      @Override
+      public void run() {
+        connection.readReplies();
+      }
+    }, "Multiplexed connection reader for " + address);
+    reader.start();
+    return connection;
+  }
+
+  private void readReplies() {
+    try {
+      while (true) {
+        Frame reply = Frame.read(in, Integer.MAX_VALUE);
+        SettableFuture<byte[]> call = pending.remove(reply.requestId);
+        // there is no call for replies to RPCs that timed out
+        if (call != null) {
+          call.set(reply.message);
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void fail(IOException e) {
+    synchronized (this) {
+      if (failure != null || closed) {
+        return;
+      }
+      failure = e;
+    }
+    log.debug("Multiplexed connection to {} failed", address, e);
+    closeSocket();
+    for (SettableFuture<byte[]> call : pending.values()) {
+      call.setException(e);
+    }
+    pending.clear();
+  }
+
+  private void closeSocket() {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      log.debug("Failed to close multiplexed connection to {}", address, e);
+    }
+  }
+
+  public boolean isOpen() {
+    return failure == null && !closed;
+  }
+
+  /**
+   * @return a new channel, or null if the connection is closed
+   */
+  public synchronized TTransport newChannel() {
+    if (!isOpen()) {
+      return null;
+    }
+    channels++;
+    return new Channel();
+  }
+
+  private void channelClosed() {
+    synchronized (this) {
+      if (--channels > 0 || closed) {
+        return;
+      }
+      closed = true;
+    }
+    log.trace("Closing multiplexed connection to {}", address);
+    closeSocket();
+    for (SettableFuture<byte[]> call : pending.values()) {
+      call.setException(new EOFException("Connection closed"));
+    }
+    pending.clear();
+  }
+
+  private int send(SettableFuture<byte[]> call, int channelId, TByteArrayOutputStream message)
+      throws TTransportException {
+    int requestId = nextRequestId.getAndIncrement();
+    pending.put(requestId, call);
+    try {
+      synchronized (out) {
+        Frame.write(out, requestId, channelId, message.get(), message.len());
+        out.flush();
+      }
+    } catch (IOException e) {
+      pending.remove(requestId);
+      fail(e);
+      throw new TTransportException(e);
+    }
+    // the connection may have failed before the call was added
+    if (failure != null) {
+      pending.remove(requestId);
+      throw new TTransportException(failure);
+    }
+    return requestId;
+  }
+
+  /**
+   * An RPC transport over the connection. A request is sent when the transport is flushed, and
+   * reads wait for its reply. One way RPCs are never read, so a request that was not read when the
+   * next one is written gets no reply.
+   */
+  private class Channel extends TTransport {
+
+    private final int channelId = nextChannelId.getAndIncrement();
+    private final TByteArrayOutputStream request = new TByteArrayOutputStream(1024);
+    private final TMemoryInputTransport reply = new TMemoryInputTransport();
+    private SettableFuture<byte[]> call = null;
+    private int requestId;
+    private boolean open = true;
+
+    private void abandonCall() {
+      if (call != null) {
+        pending.remove(requestId);
+        call = null;
+      }
+    }
+
+    private void awaitReply() throws TTransportException {
+      try {
+        byte[] message = timeout > 0 ? call.get(timeout, TimeUnit.MILLISECONDS) : call.get();
+        call = null;
+        reply.reset(message);
+      } catch (TimeoutException e) {
+        abandonCall();
+        throw new TTransportException(TTransportException.TIMED_OUT,
+            "Timed out waiting for a reply from " + address);
+      } catch (ExecutionException e) {
+        call = null;
+        throw new TTransportException(TTransportException.END_OF_FILE, e.getCause());
+      } catch (InterruptedException e) {
+        abandonCall();
+        Thread.currentThread().interrupt();
+        throw new TTransportException(e);
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return open && MultiplexedConnection.this.isOpen();
+    }
+
+    @Override
+    public void open() throws TTransportException {
+      if (!isOpen()) {
+        throw new TTransportException(TTransportException.NOT_OPEN, "Channel is closed");
+      }
+    }
+
+    @Override
+    public void close() {
+      if (open) {
+        open = false;
+        abandonCall();
+        channelClosed();
+      }
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws TTransportException {
+      if (call != null) {
+        awaitReply();
+      }
+      int read = reply.read(buf, off, len);
+      if (read == 0 && len > 0) {
+        throw new TTransportException(TTransportException.END_OF_FILE,
+            "Read past the end of the reply");
+      }
+      return read;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws TTransportException {
+      if (!open) {
+        throw new TTransportException(TTransportException.NOT_OPEN, "Channel is closed");
+      }
+      // the previous request was a one way RPC
+      abandonCall();
+      request.write(buf, off, len);
+    }
+
+    @Override
+    public void flush() throws TTransportException {
+      if (request.len() == 0) {
+        return;
+      }
+      SettableFuture<byte[]> newCall = SettableFuture.create();
+      try {
+        requestId = send(newCall, channelId, request);
+        call = newCall;
+      } finally {
+        request.reset();
+      }
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return call == null ? reply.getBuffer() : null;
+    }
+
+    @Override
+    public int getBufferPosition() {
+      return call == null ? reply.getBufferPosition() : 0;
+    }
+
+    @Override
+    public int getBytesRemainingInBuffer() {
+      // -1 makes the protocol read instead of looking at the buffer, reading waits for the reply
+      return call == null ? reply.getBytesRemainingInBuffer() : -1;
+    }
+
+    @Override
+    public void consumeBuffer(int len) {
+      reply.consumeBuffer(len);
+    }
+  }
+}
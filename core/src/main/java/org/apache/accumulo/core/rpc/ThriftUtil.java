@@ -64,6 +64,12 @@ public class ThriftUtil {
 
   public static final String GSSAPI = "GSSAPI", DIGEST_MD5 = "DIGEST-MD5";
 
+  /**
+   * The value of {@link org.apache.accumulo.core.conf.Property#GENERAL_RPC_SERVER_TYPE} that makes
+   * servers start multiplexed thrift servers, and clients use {@link MultiplexedConnection}s.
+   */
+  public static final String MULTIPLEXED_SERVER_TYPE = "multiplexed";
+
   private static final Random SASL_BACKOFF_RAND = new Random();
   private static final int RELOGIN_MAX_BACKOFF = 5000;
 
@@ -198,6 +204,10 @@ public class ThriftUtil {
    */
   public static TTransport createTransport(HostAndPort address, ClientContext context)
       throws TException {
+    if (context.isRpcMultiplexed()) {
+      // a connection of its own, closed with its only channel
+      return MultiplexedConnection.open(address, context.getClientTimeoutInMillis()).newChannel();
+    }
     return createClientTransport(address, (int) context.getClientTimeoutInMillis(),
         context.getClientSslParams(), context.getSaslParams());
   }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import java.util.List;
+
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.ColumnVisibility.Node;
+import org.apache.accumulo.core.security.VisibilityParseException;
+
+/**
+ * A visibility expression compiled for repeated evaluation. The parse tree is flattened into arrays
+ * in prefix order, and each term is replaced by its id, so that evaluating the expression against
+ * a bitset of authorization ids only reads arrays and allocates nothing.
+ */
+public class CompiledVisibility {
+
+  private static final byte TERM = 0;
+  private static final byte AND = 1;
+  private static final byte OR = 2;
+
+  // an expression with no nodes, which every set of authorizations satisfies
+  private static final CompiledVisibility EMPTY = new CompiledVisibility(0);
+
+  private final byte[] types;
+  // the term id of each TERM node
+  private final int[] terms;
+  // the index just past the subtree of each node, the next sibling of a child starts there
+  private final int[] ends;
+
+  private CompiledVisibility(int nodes) {
+    types = new byte[nodes];
+    terms = new int[nodes];
+    ends = new int[nodes];
+  }
+
+  /**
+   * Compiles a parsed visibility expression.
+   *
+   * @return the compiled expression, or null if one of its terms could not be given an id
+   * @throws VisibilityParseException
+   *           if an AND or OR subexpression has less than two children
+   */
+  static CompiledVisibility compile(ColumnVisibility visibility, TermIds termIds)
+      throws VisibilityParseException {
+    byte[] expression = visibility.getExpression();
+    if (expression.length == 0) {
+      return EMPTY;
+    }
+    Node root = visibility.getParseTree();
+    CompiledVisibility compiled = new CompiledVisibility(count(root));
+    if (compiled.add(expression, root, 0, termIds) < 0) {
+      return null;
+    }
+    return compiled;
+  }
+
+  private static int count(Node node) {
+    int count = 1;
+    for (Node child : node.getChildren()) {
+      count += count(child);
+    }
+    return count;
+  }
+
+  /**
+   * Adds the subtree of the node at the given index.
+   *
+   * @return the index after the subtree, or -1 if a term has no id
+   */
+  private int add(byte[] expression, Node node, int index, TermIds termIds)
+      throws VisibilityParseException {
+    List<Node> children = node.getChildren();
+    switch (node.getType()) {
+      case TERM:
+        int id = termIds.getId(node.getTerm(expression));
+        if (id == TermIds.NONE) {
+          return -1;
+        }
+        types[index] = TERM;
+        terms[index] = id;
+        ends[index] = index + 1;
+        return index + 1;
+      case AND:
+      case OR:
+        if (children.size() < 2) {
+          throw new VisibilityParseException(node.getType() + " has less than 2 children",
+              expression, node.getTermStart());
+        }
+        types[index] = node.getType() == ColumnVisibility.NodeType.AND ? AND : OR;
+        int next = index + 1;
+        for (Node child : children) {
+          next = add(expression, child, next, termIds);
+          if (next < 0) {
+            return -1;
+          }
+        }
+        ends[index] = next;
+        return next;
+      default:
+        throw new VisibilityParseException("No such node type", expression, node.getTermStart());
+    }
+  }
+
+  /**
+   * @param authorizations
+   *          a bitset of the term ids of the authorizations
+   * @return true if the authorizations satisfy the expression
+   */
+  public boolean evaluate(long[] authorizations) {
+    return types.length == 0 || evaluate(0, authorizations);
+  }
+
+  private boolean evaluate(int node, long[] authorizations) {
+    switch (types[node]) {
+      case TERM:
+        int id = terms[node];
+        int word = id >>> 6;
+        return word < authorizations.length && (authorizations[word] & (1L << id)) != 0;
+      case AND:
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+          if (!evaluate(child, authorizations)) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        for (int child = node + 1; child < ends[node]; child = ends[child]) {
+          if (evaluate(child, authorizations)) {
+            return true;
+          }
+        }
+        return false;
+    }
+  }
+
+  /**
+   * @return a bitset with the bit of each of the given ids set
+   */
+  static long[] toBits(int[] ids) {
+    int max = -1;
+    for (int id : ids) {
+      max = Math.max(max, id);
+    }
+    long[] bits = new long[max < 0 ? 0 : (max >>> 6) + 1];
+    for (int id : ids) {
+      bits[id >>> 6] |= 1L << id;
+    }
+    return bits;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+
+/**
+ * Assigns small dense ids to the escaped terms of visibility expressions, so that a set of
+ * authorizations can be represented as a bitset. Ids are never reused. Once the maximum number of
+ * ids has been handed out, new terms get no id and callers fall back to comparing bytes.
+ */
+class TermIds {
+
+  static final int NONE = -1;
+
+  private final ConcurrentHashMap<ByteSequence,Integer> ids = new ConcurrentHashMap<>();
+  private final AtomicInteger next = new AtomicInteger();
+  private final int maxIds;
+
+  TermIds(int maxIds) {
+    this.maxIds = maxIds;
+  }
+
+  /**
+   * @return the id of the term, or {@link #NONE} if the term has none and no more ids are left
+   */
+  int getId(ByteSequence term) {
+    Integer id = ids.get(term);
+    if (id != null) {
+      return id;
+    }
+    if (next.get() >= maxIds) {
+      return NONE;
+    }
+    int newId = next.getAndIncrement();
+    if (newId >= maxIds) {
+      return NONE;
+    }
+    id = ids.putIfAbsent(new ArrayByteSequence(term.toArray()), newId);
+    // if another thread got here first its id wins, and newId is never used
+    return id == null ? newId : id;
+  }
+}
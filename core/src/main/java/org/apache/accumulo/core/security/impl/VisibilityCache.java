@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.util.BadArgumentException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * A process wide cache of parsed column visibilities and of their evaluation against sets of
+ * authorizations. Scans and constraints see the same few visibility expressions over and over, so
+ * sharing the parsed expressions and evaluation results between them avoids parsing an expression
+ * again for every scan.
+ *
+ * <p>
+ * Both caches are bounded. Evaluation results are kept per set of authorizations, and only for the
+ * most recently used sets.
+ *
+ * <p>
+ * Expressions are evaluated in their {@link CompiledVisibility compiled} form, against a bitset of
+ * the ids of an evaluator's authorizations. Terms are given ids for the life of the process, up to
+ * a maximum, after which expressions with new terms are evaluated by walking their parse tree.
+ */
+public class VisibilityCache {
+
+  private static final VisibilityCache INSTANCE = new VisibilityCache(100000, 100, 10000);
+
+  private static final int MAX_TERM_IDS = 1 << 20;
+
+  public static VisibilityCache getInstance() {
+    return INSTANCE;
+  }
+
+  private final Cache<ByteSequence,Parsed> parsed;
+  private final TermIds termIds;
+  private final LoadingCache<Authorizations,Evaluator> evaluators;
+  // shared by the evaluators so that evaluation statistics are kept for the whole process
+  private final Cache<EvaluationKey,Boolean> evaluations;
+
+  /**
+   * @param maxExpressions
+   *          maximum number of parsed expressions to keep
+   * @param maxAuthorizations
+   *          maximum number of authorization sets to keep evaluators for
+   * @param maxEvaluations
+   *          number of evaluation results to keep for each authorization set, the results of all
+   *          sets share a cache of maxAuthorizations times this size
+   */
+  public VisibilityCache(int maxExpressions, int maxAuthorizations, int maxEvaluations) {
+    this(maxExpressions, maxAuthorizations, maxEvaluations, MAX_TERM_IDS);
+  }
+
+  VisibilityCache(int maxExpressions, int maxAuthorizations, int maxEvaluations, int maxTermIds) {
+    termIds = new TermIds(maxTermIds);
+    parsed = CacheBuilder.newBuilder().maximumSize(maxExpressions).recordStats().build();
+    evaluations = CacheBuilder.newBuilder().maximumSize((long) maxAuthorizations * maxEvaluations)
+        .recordStats().build();
+    evaluators = CacheBuilder.newBuilder().maximumSize(maxAuthorizations)
+        .build(new CacheLoader<Authorizations,Evaluator>() {
+          @Override
+          public Evaluator load(Authorizations authorizations) {
+            return new Evaluator(authorizations);
+          }
+        });
+  }
+
+  private static ByteSequence copy(ByteSequence expression) {
+    // the caller may reuse the bytes, so never keep them
+    return new ArrayByteSequence(expression.toArray());
+  }
+
+  /**
+   * Returns the parsed form of a visibility expression.
+   *
+   * @throws BadArgumentException
+   *           if the expression can not be parsed
+   */
+  public ColumnVisibility parse(ByteSequence expression) {
+    return getParsed(expression).visibility;
+  }
+
+  private Parsed getParsed(ByteSequence expression) {
+    Parsed p = parsed.getIfPresent(expression);
+    if (p == null) {
+      p = new Parsed(new ColumnVisibility(expression.toArray()));
+      parsed.put(copy(expression), p);
+    }
+    return p;
+  }
+
+  public ColumnVisibility parse(byte[] expression) {
+    return parse(new ArrayByteSequence(expression));
+  }
+
+  /**
+   * Returns the compiled form of a visibility expression.
+   *
+   * @return the compiled expression, or null if there are no ids left for its terms
+   * @throws VisibilityParseException
+   *           if the parsed expression is not valid
+   * @throws BadArgumentException
+   *           if the expression can not be parsed
+   */
+  public CompiledVisibility compile(ByteSequence expression) throws VisibilityParseException {
+    return getParsed(expression).compile();
+  }
+
+  /**
+   * Returns an evaluator for the given authorizations that shares evaluation results with every
+   * other evaluator for the same authorizations.
+   */
+  public Evaluator getEvaluator(Authorizations authorizations) {
+    try {
+      return evaluators.get(authorizations);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  public CacheStats getParseStats() {
+    return parsed.stats();
+  }
+
+  public CacheStats getEvaluationStats() {
+    return evaluations.stats();
+  }
+
+  private class Parsed {
+    final ColumnVisibility visibility;
+    volatile CompiledVisibility compiled;
+
+    Parsed(ColumnVisibility visibility) {
+      this.visibility = visibility;
+    }
+
+    CompiledVisibility compile() throws VisibilityParseException {
+      CompiledVisibility c = compiled;
+      if (c == null) {
+        // compiling twice in a race is harmless, both results are equal
+        c = CompiledVisibility.compile(visibility, termIds);
+        compiled = c;
+      }
+      return c;
+    }
+  }
+
+  private static class EvaluationKey {
+    final Evaluator evaluator;
+    final ByteSequence expression;
+    final int hash;
+
+    EvaluationKey(Evaluator evaluator, ByteSequence expression) {
+      this.evaluator = evaluator;
+      this.expression = expression;
+      this.hash = 31 * System.identityHashCode(evaluator) + expression.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o instanceof EvaluationKey) {
+        EvaluationKey ek = (EvaluationKey) o;
+        return evaluator == ek.evaluator && expression.equals(ek.expression);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Evaluates visibility expressions against one set of authorizations.
+   */
+  public class Evaluator {
+
+    private final VisibilityEvaluator ve;
+    // the ids of the authorizations, in the escaped form terms have in expressions
+    private final long[] bits;
+
+    private Evaluator(Authorizations authorizations) {
+      this.ve = new VisibilityEvaluator(authorizations);
+      List<byte[]> auths = authorizations.getAuthorizations();
+      int[] ids = new int[auths.size()];
+      int count = 0;
+      for (byte[] auth : auths) {
+        int id = termIds.getId(new ArrayByteSequence(VisibilityEvaluator.escape(auth, false)));
+        // an authorization without an id can only be in expressions that are not compiled
+        if (id != TermIds.NONE) {
+          ids[count++] = id;
+        }
+      }
+      this.bits = CompiledVisibility.toBits(Arrays.copyOf(ids, count));
+    }
+
+    /**
+     * @return true if the authorizations satisfy the expression
+     * @throws VisibilityParseException
+     *           if the parsed expression is not valid
+     * @throws BadArgumentException
+     *           if the expression can not be parsed
+     */
+    public boolean evaluate(ByteSequence expression) throws VisibilityParseException {
+      Boolean result = evaluations.getIfPresent(new EvaluationKey(this, expression));
+      if (result == null) {
+        Parsed p = getParsed(expression);
+        CompiledVisibility compiled = p.compile();
+        result = compiled != null ? compiled.evaluate(bits) : ve.evaluate(p.visibility);
+        evaluations.put(new EvaluationKey(this, copy(expression)), result);
+      }
+      return result;
+    }
+
+    /**
+     * Evaluates an expression compiled by the cache that created this evaluator, without looking
+     * up or recording the result.
+     *
+     * @return true if the authorizations satisfy the expression
+     */
+    public boolean evaluate(CompiledVisibility compiled) {
+      return compiled.evaluate(bits);
+    }
+  }
+}
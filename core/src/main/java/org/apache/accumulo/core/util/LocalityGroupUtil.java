@@ -118,6 +118,30 @@ public class LocalityGroupUtil {
     return result;
   }
 
+  /**
+   * The option, set with table.group.&lt;name&gt;.opt.compress.type, that chooses the compression
+   * for the data of a locality group instead of table.file.compress.type.
+   */
+  public static final String COMPRESSION_OPT = "compress.type";
+
+  /**
+   * @return the compression set for locality groups with {@link #COMPRESSION_OPT}, by group name
+   */
+  public static Map<String,String> getLocalityGroupCompression(AccumuloConfiguration acuconf) {
+    Map<String,String> result = new HashMap<>();
+    String suffix = ".opt." + COMPRESSION_OPT;
+    for (Entry<String,String> entry : acuconf
+        .getAllPropertiesWithPrefix(Property.TABLE_LOCALITY_GROUP_PREFIX).entrySet()) {
+      String property = entry.getKey();
+      if (property.endsWith(suffix) && !entry.getValue().isEmpty()) {
+        String group = property.substring(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey().length(),
+            property.length() - suffix.length());
+        result.put(group, entry.getValue());
+      }
+    }
+    return result;
+  }
+
   public static Set<ByteSequence> decodeColumnFamilies(String colFams)
       throws LocalityGroupConfigurationError {
     HashSet<ByteSequence> colFamsSet = new HashSet<>();
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.client.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizerTest {
+
+  private static final long MS = 1000000;
+
+  @Test
+  public void testWaitingConsumer() {
+    ScannerMetrics metrics = new ScannerMetrics();
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, metrics);
+    assertEquals(1000, sizer.getBatchSize());
+    assertEquals(1, sizer.getReadAhead());
+
+    // the consumer waits half of the time for batches
+    for (int i = 0; i < 3; i++) {
+      sizer.batchFetched(10 * MS);
+      sizer.batchTaken(5 * MS, 5 * MS);
+    }
+    assertEquals(AdaptiveBatchSizer.MAX_READ_AHEAD, sizer.getReadAhead());
+    assertEquals(1000, sizer.getBatchSize());
+
+    sizer.batchTaken(5 * MS, 5 * MS);
+    assertEquals(2000, sizer.getBatchSize());
+    for (int i = 0; i < 100; i++) {
+      sizer.batchTaken(5 * MS, 5 * MS);
+    }
+    assertEquals(1000 * AdaptiveBatchSizer.MAX_BATCH_SIZE_MULTIPLIER, sizer.getBatchSize());
+
+    assertEquals(1, metrics.getAdaptiveScans());
+    assertEquals(4, metrics.getBatchSizeIncreases());
+    assertEquals(0, metrics.getBatchSizeDecreases());
+    assertEquals(16000, metrics.getBatchSize());
+    assertEquals(AdaptiveBatchSizer.MAX_READ_AHEAD, metrics.getReadAheadBatches());
+  }
+
+  @Test
+  public void testSlowConsumer() {
+    ScannerMetrics metrics = new ScannerMetrics();
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, metrics);
+    for (int i = 0; i < 3; i++) {
+      sizer.batchFetched(10 * MS);
+      sizer.batchTaken(10 * MS, 0);
+    }
+    assertEquals(AdaptiveBatchSizer.MAX_READ_AHEAD, sizer.getReadAhead());
+
+    // batches are ready long before the consumer gets to them
+    for (int i = 0; i < 3; i++) {
+      sizer.batchTaken(0, 100 * MS);
+    }
+    assertEquals(1, sizer.getReadAhead());
+    assertEquals(1000, sizer.getBatchSize());
+
+    for (int i = 0; i < 100; i++) {
+      sizer.batchTaken(0, 100 * MS);
+    }
+    assertEquals(1000 / AdaptiveBatchSizer.MIN_BATCH_SIZE_DIVISOR, sizer.getBatchSize());
+    assertEquals(3, metrics.getBatchSizeDecreases());
+  }
+
+  @Test
+  public void testBalancedConsumer() {
+    ScannerMetrics metrics = new ScannerMetrics();
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1000, metrics);
+    // batches arrive just as they are needed, nothing to change
+    for (int i = 0; i < 100; i++) {
+      sizer.batchFetched(10 * MS);
+      sizer.batchTaken(MS / 2, 20 * MS);
+    }
+    assertEquals(1000, sizer.getBatchSize());
+    assertEquals(1, sizer.getReadAhead());
+    assertEquals(1000.0, metrics.getAverageBatchSize(), 0.0);
+  }
+}
@@ -17,6 +17,8 @@
 package org.apache.accumulo.core.client.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.security.Authorizations;
@@ -63,6 +65,21 @@ public class ScannerImplTest {
     s.close();
   }
 
+  @Test
+  public void testAdaptiveBatchingDefault() {
+    ClientContext context = EasyMock.createMock(ClientContext.class);
+    EasyMock.expect(context.isScannerAdaptiveBatching()).andReturn(true);
+    EasyMock.replay(context);
+
+    ScannerImpl s = new ScannerImpl(context, "foo", Authorizations.EMPTY);
+    assertTrue(s.isAdaptiveBatching());
+    s.disableAdaptiveBatching();
+    assertFalse(s.isAdaptiveBatching());
+    s.close();
+
+    EasyMock.verify(context);
+  }
+
   @SuppressWarnings("resource")
   @Test(expected = IllegalArgumentException.class)
   public void testNullAuthorizationsFails() {
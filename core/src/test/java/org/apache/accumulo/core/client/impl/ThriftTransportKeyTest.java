@@ -159,6 +159,7 @@ public class ThriftTransportKeyTest {
 
     expect(clientCtx.getClientSslParams()).andReturn(null).anyTimes();
     expect(clientCtx.getSaslParams()).andReturn(null).anyTimes();
+    expect(clientCtx.isRpcMultiplexed()).andReturn(false).anyTimes();
 
     replay(clientCtx);
 
@@ -168,4 +169,28 @@ public class ThriftTransportKeyTest {
     assertTrue("Normal ThriftTransportKey doesn't equal itself", ttk.equals(ttk));
   }
 
+  @Test
+  public void testMultiplexedDiffers() {
+    ClientContext clientCtx = createMock(ClientContext.class);
+    ClientContext multiplexedCtx = createMock(ClientContext.class);
+
+    expect(clientCtx.getClientSslParams()).andReturn(null).anyTimes();
+    expect(clientCtx.getSaslParams()).andReturn(null).anyTimes();
+    expect(clientCtx.isRpcMultiplexed()).andReturn(false).anyTimes();
+    expect(multiplexedCtx.getClientSslParams()).andReturn(null).anyTimes();
+    expect(multiplexedCtx.getSaslParams()).andReturn(null).anyTimes();
+    expect(multiplexedCtx.isRpcMultiplexed()).andReturn(true).anyTimes();
+
+    replay(clientCtx, multiplexedCtx);
+
+    ThriftTransportKey ttk1 = new ThriftTransportKey(HostAndPort.fromParts("localhost", 9999),
+        120 * 1000, clientCtx);
+    ThriftTransportKey ttk2 = new ThriftTransportKey(HostAndPort.fromParts("localhost", 9999),
+        120 * 1000, multiplexedCtx);
+
+    assertTrue(ttk2.isMultiplexed());
+    assertNotEquals(ttk1, ttk2);
+    assertNotEquals(ttk1.hashCode(), ttk2.hashCode());
+  }
+
 }
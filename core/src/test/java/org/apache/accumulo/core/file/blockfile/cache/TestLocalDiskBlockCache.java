@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestLocalDiskBlockCache {
+
+  private static final int BLOCK_SIZE = 1000;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder(
+      new File(System.getProperty("user.dir") + "/target"));
+
+  private static byte[] block(int seed) {
+    byte[] b = new byte[BLOCK_SIZE];
+    new Random(seed).nextBytes(b);
+    return b;
+  }
+
+  private static File blockFile(File dir, String blockName) {
+    String digest = LocalDiskBlockCache.digest(blockName);
+    return new File(new File(dir, digest.substring(0, 2)), digest);
+  }
+
+  @Test
+  public void testCacheSimple() throws Exception {
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(tempFolder.getRoot(), 1000000);
+    try {
+      for (int i = 0; i < 100; i++) {
+        cache.cacheBlock("block" + i, block(i));
+      }
+      cache.flush();
+
+      assertEquals(100, cache.size());
+      for (int i = 0; i < 100; i++) {
+        assertArrayEquals(block(i), cache.getBlock("block" + i));
+      }
+      assertNull(cache.getBlock("block100"));
+      assertEquals(100, cache.getStats().getHitCount());
+      assertEquals(101, cache.getStats().getRequestCount());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testSurvivesRestart() throws Exception {
+    File dir = tempFolder.getRoot();
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(dir, 1000000);
+    for (int i = 0; i < 10; i++) {
+      cache.cacheBlock("block" + i, block(i));
+    }
+    cache.flush();
+    cache.shutdown();
+
+    // left behind by a process that died while writing
+    File tmp = new File(blockFile(dir, "block0").getParentFile(), "partial.tmp");
+    assertTrue(tmp.createNewFile());
+
+    cache = new LocalDiskBlockCache(dir, 1000000);
+    try {
+      cache.flush();
+      assertEquals(10, cache.size());
+      for (int i = 0; i < 10; i++) {
+        assertArrayEquals(block(i), cache.getBlock("block" + i));
+      }
+      assertTrue(!tmp.exists());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testOwnerOnly() throws Exception {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    File dir = tempFolder.getRoot();
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(dir, 1000000);
+    try {
+      cache.cacheBlock("block", block(1));
+      cache.flush();
+
+      File file = blockFile(dir, "block");
+      assertEquals(PosixFilePermissions.fromString("rwx------"),
+          Files.getPosixFilePermissions(dir.toPath()));
+      assertEquals(PosixFilePermissions.fromString("rwx------"),
+          Files.getPosixFilePermissions(file.getParentFile().toPath()));
+      assertEquals(PosixFilePermissions.fromString("rw-------"),
+          Files.getPosixFilePermissions(file.toPath()));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testCorruptBlock() throws Exception {
+    File dir = tempFolder.getRoot();
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(dir, 1000000);
+    try {
+      cache.cacheBlock("block", block(1));
+      cache.flush();
+
+      File file = blockFile(dir, "block");
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        raf.seek(raf.length() - 1);
+        int b = raf.read();
+        raf.seek(raf.length() - 1);
+        raf.write(b ^ 0xff);
+      }
+
+      assertNull(cache.getBlock("block"));
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getCurrentSize());
+      assertTrue(!file.exists());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    long maxSize = 100 * (BLOCK_SIZE + 100);
+    LocalDiskBlockCache cache = new LocalDiskBlockCache(tempFolder.getRoot(), maxSize);
+    try {
+      cache.cacheBlock("hot", block(0));
+      for (int i = 0; i < 1000; i++) {
+        cache.cacheBlock("block" + i, block(i));
+        if (i % 10 == 0) {
+          cache.flush();
+          // far enough apart in time to make the hot block the most recently read
+          Thread.sleep(2);
+          assertNotNull(cache.getBlock("hot"));
+        }
+      }
+      cache.flush();
+
+      assertTrue(cache.getCurrentSize() <= maxSize);
+      assertTrue(cache.getStats().getEvictedCount() > 0);
+      assertNotNull(cache.getBlock("hot"));
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  public void testTieredCache() throws Exception {
+    LocalDiskBlockCache diskCache = new LocalDiskBlockCache(tempFolder.getRoot(), 1000000);
+    try {
+      LruBlockCache memoryCache = new LruBlockCache(1000000, BLOCK_SIZE);
+      TieredBlockCache cache = new TieredBlockCache(memoryCache, diskCache);
+      cache.cacheBlock("block", block(1));
+      diskCache.flush();
+      memoryCache.shutdown();
+
+      // a new memory cache, as after a restart
+      memoryCache = new LruBlockCache(1000000, BLOCK_SIZE);
+      cache = new TieredBlockCache(memoryCache, diskCache);
+      assertNull(memoryCache.getBlock("block"));
+
+      CacheEntry ce = cache.getBlock("block");
+      assertNotNull(ce);
+      assertArrayEquals(block(1), ce.getBuffer());
+      // promoted back to memory
+      assertNotNull(memoryCache.getBlock("block"));
+      assertNull(cache.getBlock("missing"));
+      memoryCache.shutdown();
+    } finally {
+      diskCache.shutdown();
+    }
+  }
+}
@@ -141,6 +141,34 @@ public class TestLruBlockCache extends TestCase {
     }
   }
 
+  public void testIndexHeapSize() throws Exception {
+    long maxSize = 100000;
+    long blockSize = calculateBlockSizeDefault(maxSize, 10);
+
+    LruBlockCache cache = new LruBlockCache(maxSize, blockSize, false);
+
+    Block[] blocks = generateFixedBlocks(3, blockSize / 2, "block");
+    long expectedCacheSize = cache.heapSize();
+    for (Block block : blocks) {
+      cache.cacheBlock(block.blockName, block.buf);
+      expectedCacheSize += block.heapSize();
+    }
+
+    // the heap of a complete index is counted toward the cache, replacing it counts the new one
+    CacheEntry ce = cache.getBlock(blocks[0].blockName);
+    ce.setIndex(new Object(), 1000);
+    assertEquals(expectedCacheSize + ClassSize.align(1000), cache.heapSize());
+    ce.setIndex(new Object(), 2000);
+    assertEquals(expectedCacheSize + ClassSize.align(2000), cache.heapSize());
+    ce.setIndex(new Object());
+    assertEquals(expectedCacheSize, cache.heapSize());
+
+    // a block with a large index is evicted like a large block
+    cache.getBlock(blocks[1].blockName).setIndex(new Object(), maxSize);
+    assertEquals(1, cache.getEvictionCount());
+    assertTrue(cache.heapSize() < maxSize);
+  }
+
   public void testCacheEvictionTwoPriorities() throws Exception {
 
     long maxSize = 100000;
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestOffHeapBlockCache {
+
+  private static final int BLOCK_SIZE = 1000;
+
+  private static byte[] block(int size, int seed) {
+    byte[] b = new byte[size];
+    new Random(seed).nextBytes(b);
+    return b;
+  }
+
+  @Test
+  public void testCacheSimple() {
+    OffHeapBlockCache cache = new OffHeapBlockCache(1000000, BLOCK_SIZE);
+
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getBlock("block" + i));
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+    }
+
+    assertEquals(100, cache.size());
+    assertEquals(100 * BLOCK_SIZE, cache.getCurrentSize());
+    assertEquals(0, cache.getPendingReleaseSize());
+
+    for (int i = 0; i < 100; i++) {
+      OffHeapCacheEntry ce = cache.getBlock("block" + i);
+      assertNotNull(ce);
+      assertTrue(ce.retain());
+      ByteBuffer bb = ce.getByteBuffer();
+      assertTrue(bb.isDirect());
+      assertTrue(bb.isReadOnly());
+      byte[] copy = new byte[bb.remaining()];
+      bb.get(copy);
+      assertArrayEquals(block(BLOCK_SIZE, i), copy);
+      assertArrayEquals(block(BLOCK_SIZE, i), ce.getBuffer());
+      ce.release();
+    }
+
+    assertEquals(100, cache.getStats().getHitCount());
+    assertEquals(200, cache.getStats().getRequestCount());
+    assertEquals(0, cache.getEvictedCount());
+  }
+
+  @Test
+  public void testEviction() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+
+    for (int i = 0; i < 1000; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+      assertTrue(cache.getCurrentSize() <= maxSize);
+    }
+
+    assertTrue(cache.getEvictedCount() > 0);
+    assertEquals(0, cache.getPendingReleaseSize());
+  }
+
+  @Test
+  public void testReferencedBlocksGetSecondChance() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+
+    cache.cacheBlock("hot", block(BLOCK_SIZE, 0));
+    for (int i = 0; i < 1000; i++) {
+      assertNotNull(cache.getBlock("hot"));
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+    }
+
+    assertNotNull(cache.getBlock("hot"));
+  }
+
+  @Test
+  public void testEvictedBlockReleasedByLastReader() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+
+    OffHeapCacheEntry pinned = cache.cacheBlock("pinned", block(BLOCK_SIZE, 42));
+    assertTrue(pinned.retain());
+
+    // push the pinned block out of the cache
+    for (int i = 0; i < 1000; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+    }
+    assertNull(cache.getBlock("pinned"));
+
+    // still readable, and accounted for as pending release
+    assertEquals(BLOCK_SIZE, cache.getPendingReleaseSize());
+    byte[] copy = new byte[BLOCK_SIZE];
+    pinned.getByteBuffer().get(copy);
+    assertArrayEquals(block(BLOCK_SIZE, 42), copy);
+
+    pinned.release();
+    assertEquals(0, cache.getPendingReleaseSize());
+    assertFalse(pinned.retain());
+  }
+
+  @Test
+  public void testDuplicateInsert() {
+    OffHeapBlockCache cache = new OffHeapBlockCache(1000000, BLOCK_SIZE);
+    CacheEntry first = cache.cacheBlock("block", block(BLOCK_SIZE, 1));
+    CacheEntry second = cache.cacheBlock("block", block(BLOCK_SIZE, 1));
+    assertTrue(first == second);
+    assertEquals(1, cache.size());
+    assertEquals(BLOCK_SIZE, cache.getCurrentSize());
+    assertEquals(0, cache.getPendingReleaseSize());
+  }
+
+  @Test
+  public void testHeapSizeExcludesBlocks() {
+    OffHeapBlockCache cache = new OffHeapBlockCache(10000000, BLOCK_SIZE);
+    long emptyHeapSize = cache.heapSize();
+    for (int i = 0; i < 100; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE * 10, i));
+    }
+    assertTrue(cache.heapSize() > emptyHeapSize);
+    assertTrue(cache.heapSize() - emptyHeapSize < 100 * BLOCK_SIZE);
+  }
+
+  @Test
+  public void testSlabs() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+
+    // blocks of very different sizes compete for the same slabs
+    Random rand = new Random(7);
+    for (int i = 0; i < 1000; i++) {
+      int size = i % 2 == 0 ? BLOCK_SIZE : 5000 + rand.nextInt(10000);
+      cache.cacheBlock("block" + i, block(size, i));
+      assertTrue(cache.getAllocatedSize() <= maxSize);
+    }
+    byte[] last = block(BLOCK_SIZE * 10, 1000);
+    assertNotNull(cache.cacheBlock("last", last));
+    assertArrayEquals(last, cache.getBlock("last").getBuffer());
+
+    // larger than a slab
+    assertNull(cache.cacheBlock("huge", block((int) maxSize / 2, 0)));
+  }
+
+  @Test
+  public void testSlabEviction() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+    // all slabs are carved into 1K slices
+    for (int i = 0; i < 200; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+    }
+    long evicted = cache.getEvictedCount();
+
+    // a larger block empties one slab of small blocks, it does not sweep the whole cache
+    byte[] large = block(BLOCK_SIZE * 5, 200);
+    assertNotNull(cache.cacheBlock("large", large));
+    assertArrayEquals(large, cache.getBlock("large").getBuffer());
+    // the slabs of a cache this small are 16K, so hold 16 slices of 1K
+    assertTrue(cache.getEvictedCount() - evicted <= 16);
+    assertEquals(0, cache.getPendingReleaseSize());
+  }
+
+  @Test
+  public void testSlabEvictionWithRetainedBlocks() {
+    long maxSize = 100000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+    for (int i = 0; i < 200; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i));
+    }
+    List<OffHeapCacheEntry> retained = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      OffHeapCacheEntry ce = cache.getBlock("block" + i);
+      if (ce != null) {
+        assertTrue(ce.retain());
+        retained.add(ce);
+      }
+    }
+    long evicted = cache.getEvictedCount();
+
+    // evicting retained blocks releases no slab, so the block is not cached and few are evicted
+    assertNull(cache.cacheBlock("large", block(BLOCK_SIZE * 5, 200)));
+    assertTrue(cache.getEvictedCount() - evicted <= OffHeapBlockCache.MAX_SLAB_EVICTIONS * 16);
+
+    for (OffHeapCacheEntry ce : retained) {
+      ce.release();
+    }
+    assertEquals(0, cache.getPendingReleaseSize());
+    assertNotNull(cache.cacheBlock("large", block(BLOCK_SIZE * 5, 200)));
+  }
+
+  @Test
+  public void testEvictionCount() {
+    OffHeapBlockCache cache = new OffHeapBlockCache(1000000, BLOCK_SIZE);
+    cache.cacheBlock("block", block(BLOCK_SIZE, 1));
+    // nothing to evict
+    cache.evict();
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testIndexHeapSize() {
+    long maxSize = 1000000;
+    OffHeapBlockCache cache = new OffHeapBlockCache(maxSize, BLOCK_SIZE);
+    long emptyHeapSize = cache.heapSize();
+    CacheEntry ce = cache.cacheBlock("block", block(BLOCK_SIZE, 1));
+    long blockHeapSize = cache.heapSize();
+    ce.setIndex(new Object(), 5000);
+    // the index is on the heap, not in direct memory
+    assertEquals(BLOCK_SIZE, cache.getCurrentSize());
+    assertEquals(ClassSize.align(5000), cache.getIndexHeapSize());
+    assertEquals(blockHeapSize + ClassSize.align(5000), cache.heapSize());
+    // setting it again replaces the size
+    ce.setIndex(new Object(), 8000);
+    assertEquals(ClassSize.align(8000), cache.getIndexHeapSize());
+
+    // large indexes are dropped, the blocks stay cached
+    long maxIndexHeapSize = OffHeapBlockCache.getMaxIndexHeapSize(maxSize);
+    for (int i = 0; i < 50; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE, i)).setIndex(new Object(), 10000);
+      assertTrue(cache.getIndexHeapSize() <= maxIndexHeapSize);
+    }
+    assertEquals(0, cache.getEvictedCount());
+    assertEquals(51, cache.size());
+    assertNull(ce.getIndex());
+    assertEquals(0, cache.getPendingReleaseSize());
+    assertTrue(cache.heapSize() > emptyHeapSize + cache.getIndexHeapSize());
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TestTinyLfuBlockCache {
+
+  private static final int BLOCK_SIZE = 1000;
+
+  private static byte[] block(int size) {
+    return new byte[size];
+  }
+
+  @Test
+  public void testCacheSimple() {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(1000000, BLOCK_SIZE, 4);
+
+    long expectedSize = cache.heapSize();
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getBlock("block" + i));
+    }
+
+    for (int i = 0; i < 100; i++) {
+      CacheEntry ce = cache.cacheBlock("block" + i, block(BLOCK_SIZE));
+      assertNotNull(ce);
+    }
+
+    assertEquals(100, cache.size());
+    assertTrue(cache.heapSize() > expectedSize + 100 * BLOCK_SIZE);
+
+    for (int i = 0; i < 100; i++) {
+      CacheEntry ce = cache.getBlock("block" + i);
+      assertNotNull(ce);
+      assertEquals(BLOCK_SIZE, ce.getBuffer().length);
+    }
+
+    assertEquals(0, cache.getEvictedCount());
+    assertEquals(200, cache.getStats().getRequestCount());
+    assertEquals(100, cache.getStats().getHitCount());
+  }
+
+  @Test
+  public void testDuplicateInsert() {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(1000000, BLOCK_SIZE, 1);
+
+    CacheEntry first = cache.cacheBlock("block", block(BLOCK_SIZE));
+    long size = cache.heapSize();
+    CacheEntry second = cache.cacheBlock("block", block(BLOCK_SIZE));
+
+    assertTrue(first == second);
+    assertEquals(size, cache.heapSize());
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getStats().getDuplicateReads());
+  }
+
+  @Test
+  public void testEvictionBoundsSize() {
+    long maxSize = 100000;
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(maxSize, BLOCK_SIZE, 1);
+
+    for (int i = 0; i < 1000; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE));
+      assertTrue(cache.heapSize() <= maxSize);
+    }
+
+    assertTrue(cache.getEvictedCount() > 0);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertTrue(cache.size() < 1000);
+  }
+
+  @Test
+  public void testIndexHeapSize() {
+    long maxSize = 100000;
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(maxSize, BLOCK_SIZE, 1);
+    CacheEntry ce = cache.cacheBlock("block", block(BLOCK_SIZE));
+    long size = cache.heapSize();
+    ce.setIndex(new Object(), 5000);
+    assertEquals(size + ClassSize.align(5000), cache.heapSize());
+    // setting it again replaces the size
+    ce.setIndex(new Object(), 8000);
+    assertEquals(size + ClassSize.align(8000), cache.heapSize());
+
+    // large indexes push blocks out of the cache
+    for (int i = 0; i < 50; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE)).setIndex(new Object(), 10000);
+      assertTrue(cache.heapSize() <= maxSize);
+    }
+    assertTrue(cache.getEvictedCount() > 0);
+  }
+
+  @Test
+  public void testBlockLargerThanCache() {
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(100000, BLOCK_SIZE, 1);
+    assertNull(cache.cacheBlock("huge", block(200000)));
+    assertNull(cache.getBlock("huge"));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testScanResistance() {
+    long maxSize = 200000;
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(maxSize, BLOCK_SIZE, 1);
+
+    // a working set that fits in about a third of the cache, accessed many times
+    int hotBlocks = 50;
+    for (int i = 0; i < hotBlocks; i++) {
+      cache.cacheBlock("hot" + i, block(BLOCK_SIZE));
+    }
+    for (int j = 0; j < 10; j++) {
+      for (int i = 0; i < hotBlocks; i++) {
+        assertNotNull(cache.getBlock("hot" + i));
+      }
+    }
+
+    // a long scan of blocks that are each read once
+    for (int i = 0; i < 5000; i++) {
+      if (cache.getBlock("scan" + i) == null) {
+        cache.cacheBlock("scan" + i, block(BLOCK_SIZE));
+      }
+    }
+
+    int retained = 0;
+    for (int i = 0; i < hotBlocks; i++) {
+      if (cache.getBlock("hot" + i) != null) {
+        retained++;
+      }
+    }
+
+    // an LRU cache would have lost all of the hot blocks
+    assertTrue("only retained " + retained + " hot blocks", retained > hotBlocks * 0.9);
+  }
+
+  @Test
+  public void testInMemory() {
+    long maxSize = 100000;
+    TinyLfuBlockCache cache = new TinyLfuBlockCache(maxSize, BLOCK_SIZE, 1);
+
+    cache.cacheBlock("memory", block(BLOCK_SIZE), true);
+    for (int i = 0; i < 1000; i++) {
+      cache.cacheBlock("block" + i, block(BLOCK_SIZE));
+    }
+
+    assertNotNull(cache.getBlock("memory"));
+  }
+
+  @Test
+  public void testSegments() {
+    assertEquals(8, new TinyLfuBlockCache(100000000, BLOCK_SIZE, 5).getSegmentCount());
+    assertEquals(TinyLfuBlockCache.MAX_SEGMENTS,
+        new TinyLfuBlockCache(100000000, BLOCK_SIZE, 1000).getSegmentCount());
+    // too small to give every segment room for several blocks
+    assertEquals(1, new TinyLfuBlockCache(20000, BLOCK_SIZE, 16).getSegmentCount());
+  }
+
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    final long maxSize = 1000000;
+    final TinyLfuBlockCache cache = new TinyLfuBlockCache(maxSize, BLOCK_SIZE, 8);
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final int seed = t;
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            Random rand = new Random(seed);
+            for (int i = 0; i < 20000; i++) {
+              String name = "block" + rand.nextInt(5000);
+              CacheEntry ce = cache.getBlock(name);
+              if (ce == null) {
+                ce = cache.cacheBlock(name, block(BLOCK_SIZE));
+              }
+              if (ce != null && ce.getBuffer().length != BLOCK_SIZE) {
+                throw new AssertionError("unexpected block size");
+              }
+            }
+          } catch (Throwable e) {
+            error.set(e);
+          }
+        }
+      };
+      threads.add(thread);
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(error.get());
+    assertTrue(cache.heapSize() <= maxSize);
+    assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  public void testFrequencySketch() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    int hot = 12345;
+    int cold = 67890;
+    for (int i = 0; i < 20; i++) {
+      sketch.increment(hot);
+    }
+    sketch.increment(cold);
+
+    assertEquals(15, sketch.frequency(hot));
+    assertTrue(sketch.frequency(cold) >= 1);
+    assertTrue(sketch.frequency(cold) < sketch.frequency(hot));
+
+    // enough distinct items to trigger a reset, which halves every counter
+    for (int i = 0; i < 10 * 512; i++) {
+      sketch.increment(i * 31 + 7);
+    }
+    assertTrue(sketch.frequency(hot) < 15);
+  }
+}
@@ -48,6 +48,11 @@ public class BlockIndexTest {
       this.idx = idx;
     }
 
+    @Override
+    public void setIndex(Object idx, long heapSize) {
+      this.idx = idx;
+    }
+
     @Override
     public Object getIndex() {
       return idx;
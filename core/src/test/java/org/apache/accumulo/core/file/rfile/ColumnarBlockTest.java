@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.cache.CacheEntry;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
+import org.junit.Test;
+
+public class ColumnarBlockTest {
+
+  private static class MyCacheEntry implements CacheEntry {
+    Object idx;
+    long indexSize;
+    byte[] data;
+
+    MyCacheEntry(byte[] d) {
+      this.data = d;
+    }
+
+    @Override
+    public void setIndex(Object idx) {
+      this.idx = idx;
+    }
+
+    @Override
+    public void setIndex(Object idx, long heapSize) {
+      this.idx = idx;
+      this.indexSize = heapSize;
+    }
+
+    @Override
+    public Object getIndex() {
+      return idx;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return data;
+    }
+  }
+
+  private static Key key(int i) {
+    Key k = new Key(RFileTest.formatString("r", i / 4), "cf" + (i % 4 / 2), "cq" + (i % 2),
+        i % 3 == 0 ? "A" : "", 100 - i % 5);
+    k.setDeleted(i % 7 == 0);
+    return k;
+  }
+
+  private static Value value(int i) {
+    return new Value(i % 5 == 0 ? new byte[0] : ("v" + i).getBytes());
+  }
+
+  private static byte[] write(int num) throws IOException {
+    ColumnarBlock.Writer writer = new ColumnarBlock.Writer();
+    for (int i = 0; i < num; i++) {
+      writer.add(key(i), value(i));
+    }
+    assertEquals(num == 0, writer.isEmpty());
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    writer.write(out);
+    out.close();
+    assertTrue(writer.isEmpty());
+    return baos.toByteArray();
+  }
+
+  private static ColumnarBlock read(byte[] data) throws IOException {
+    return ColumnarBlock
+        .read(new CachableBlockFile.BlockRead(new ByteArrayInputStream(data), data.length));
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    int num = 1000;
+    byte[] data = write(num);
+
+    ColumnarBlock block = read(data);
+    assertEquals(num, block.size());
+    for (int i = 0; i < num; i++) {
+      assertEquals(key(i), block.getKey(i));
+      assertEquals(key(i).isDeleted(), block.getKey(i).isDeleted());
+      assertEquals(value(i), block.getValue(i));
+    }
+
+    // unchanged rows share an array
+    assertSame(block.getKey(0).getRowData().getBackingArray(),
+        block.getKey(3).getRowData().getBackingArray());
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    int num = 100;
+    byte[] data = write(num);
+    ColumnarBlock block = read(data);
+
+    for (int i = 0; i < num; i++) {
+      assertEquals(i, block.seek(key(i), 0));
+      assertEquals(Math.max(i, 50), block.seek(key(i), 50));
+    }
+    assertEquals(0, block.seek(new Key(), 0));
+    assertEquals(num, block.seek(new Key("s"), 0));
+  }
+
+  @Test
+  public void testCached() throws IOException {
+    byte[] data = write(10);
+    MyCacheEntry ce = new MyCacheEntry(data);
+
+    ColumnarBlock block = ColumnarBlock.read(new CachableBlockFile.CachedBlockRead(ce, data));
+    // the block is only decoded once
+    assertSame(block, ColumnarBlock.read(new CachableBlockFile.CachedBlockRead(ce, data)));
+    // the heap of the decoded block is counted toward the cache
+    assertEquals(block.heapSize(), ce.indexSize);
+    assertTrue(ce.indexSize > data.length);
+    assertEquals(10, block.size());
+    assertEquals(key(9), block.getKey(9));
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    byte[] data = write(0);
+    ColumnarBlock block = read(data);
+    assertEquals(0, block.size());
+    assertEquals(0, block.seek(new Key(), 0));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.accumulo.core.data.Key;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DictionaryTrainerTest {
+
+  private static String train(int maxSize, Key... keys) {
+    DictionaryTrainer trainer = new DictionaryTrainer(maxSize);
+    for (Key key : keys) {
+      trainer.add(key);
+    }
+    byte[] dictionary = trainer.train();
+    return dictionary == null ? null : new String(dictionary, UTF_8);
+  }
+
+  @Test
+  public void testNothingRepeated() {
+    Assert.assertNull(train(100));
+    Assert.assertNull(train(100, new Key("row1", "cf1", "cq1"), new Key("row2", "cf2", "cq2")));
+    // too short for deflate to refer back to
+    Assert.assertNull(train(100, new Key("a", "b"), new Key("b", "b")));
+  }
+
+  @Test
+  public void testRepeatedFields() {
+    Key[] keys = new Key[10];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = new Key("user_000" + i, "profile", "name", "public");
+    }
+
+    String dictionary = train(100, keys);
+    Assert.assertEquals(
+        "user_000".length() + "profile".length() + "name".length() + "public".length(),
+        dictionary.length());
+    for (String field : new String[] {"user_000", "profile", "name", "public"}) {
+      Assert.assertTrue(dictionary, dictionary.contains(field));
+    }
+    // the fields that save the most are last
+    Assert.assertTrue(dictionary, dictionary.endsWith("user_000"));
+
+    // only the fields that save the most fit
+    Assert.assertEquals("publicprofileuser_000", train(21, keys));
+  }
+}
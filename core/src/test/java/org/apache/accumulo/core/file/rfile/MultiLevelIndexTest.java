@@ -23,6 +23,8 @@ import java.util.Random;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.file.blockfile.ABlockWriter;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.BlockRead;
 import org.apache.accumulo.core.file.rfile.MultiLevelIndex.BufferedWriter;
@@ -52,7 +54,7 @@ public class MultiLevelIndexTest extends TestCase {
     runTest(1, 100);
   }
 
-  private void runTest(int maxBlockSize, int num) throws IOException {
+  private static byte[] writeIndex(int maxBlockSize, int num) throws IOException {
     AccumuloConfiguration aconf = AccumuloConfiguration.getDefaultConfiguration();
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     FSDataOutputStream dos = new FSDataOutputStream(baos, new FileSystem.Statistics("a"));
@@ -74,16 +76,30 @@ public class MultiLevelIndexTest extends TestCase {
     dos.close();
     baos.close();
 
-    byte[] data = baos.toByteArray();
+    return baos.toByteArray();
+  }
+
+  private static Reader openIndex(byte[] data, BlockCache indexCache) throws IOException {
+    AccumuloConfiguration aconf = AccumuloConfiguration.getDefaultConfiguration();
     SeekableByteArrayInputStream bais = new SeekableByteArrayInputStream(data);
     FSDataInputStream in = new FSDataInputStream(bais);
     CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader("source1", in, data.length,
-        CachedConfiguration.getInstance(), aconf);
+        CachedConfiguration.getInstance(), null, indexCache, aconf);
 
     Reader reader = new Reader(_cbr, RFile.RINDEX_VER_8);
     BlockRead rootIn = _cbr.getMetaBlock("root");
     reader.readFields(rootIn);
     rootIn.close();
+    return reader;
+  }
+
+  private void runTest(int maxBlockSize, int num) throws IOException {
+    runTest(maxBlockSize, num, null);
+    runTest(maxBlockSize, num, new LruBlockCache(100000000, 100000));
+  }
+
+  private void runTest(int maxBlockSize, int num, BlockCache indexCache) throws IOException {
+    Reader reader = openIndex(writeIndex(maxBlockSize, num), indexCache);
     IndexIterator liter = reader.lookup(new Key("000000"));
     int count = 0;
     while (liter.hasNext()) {
@@ -123,4 +139,24 @@ public class MultiLevelIndexTest extends TestCase {
 
   }
 
+  public void testCachedBlocksAreParsed() throws Exception {
+    byte[] data = writeIndex(500, 10000);
+    Key key = new Key(String.format("%05d000", 5000));
+
+    // blocks that are not cached are deserialized on each lookup
+    Reader reader = openIndex(data, null);
+    assertNotSame(reader.lookup(key).next(), reader.lookup(key).next());
+
+    LruBlockCache indexCache = new LruBlockCache(100000000, 100000);
+    reader = openIndex(data, indexCache);
+    IndexEntry ie = reader.lookup(key).next();
+    long cacheSize = indexCache.getCurrentSize();
+    assertSame(ie, reader.lookup(key).next());
+    assertEquals(cacheSize, indexCache.getCurrentSize());
+
+    // a reader of the same file shares the parsed blocks
+    assertSame(ie, openIndex(data, indexCache).lookup(key).next());
+    assertEquals(5000, ie.getNumEntries());
+  }
+
 }
@@ -40,6 +40,8 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.impl.BaseIteratorEnvironment;
@@ -58,6 +60,7 @@ import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.BlockPrefetcher;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile;
 import org.apache.accumulo.core.file.rfile.RFile.Reader;
 import org.apache.accumulo.core.file.streams.PositionedOutputs;
@@ -70,6 +73,7 @@ import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
 import org.apache.accumulo.core.sample.impl.SamplerFactory;
 import org.apache.accumulo.core.security.crypto.CryptoTest;
 import org.apache.accumulo.core.util.CachedConfiguration;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -234,7 +238,12 @@ public class RFileTest {
         sampler = SamplerFactory.newSampler(samplerConfig, accumuloConfiguration);
       }
 
-      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler);
+      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler,
+          LocalityGroupUtil.getLocalityGroupCompression(accumuloConfiguration),
+          (int) accumuloConfiguration
+              .getMemoryInBytes(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE),
+          accumuloConfiguration.get(Property.TABLE_FILE_BLOCK_ENCODING)
+              .equals(RFile.ENCODING_COLUMNAR));
 
       if (startDLG)
         writer.startDefaultLocalityGroup();
@@ -262,6 +271,11 @@ public class RFileTest {
     }
 
     public void openReader(boolean cfsi) throws IOException {
+      openReader(cfsi, true, null, 0);
+    }
+
+    public void openReader(boolean cfsi, boolean cache, BlockPrefetcher prefetcher,
+        int prefetchBlocks) throws IOException {
       int fileLength = 0;
       byte[] data = null;
       data = baos.toByteArray();
@@ -270,12 +284,12 @@ public class RFileTest {
       in = new FSDataInputStream(bais);
       fileLength = data.length;
 
-      LruBlockCache indexCache = new LruBlockCache(100000000, 100000);
-      LruBlockCache dataCache = new LruBlockCache(100000000, 100000);
+      LruBlockCache indexCache = cache ? new LruBlockCache(100000000, 100000) : null;
+      LruBlockCache dataCache = cache ? new LruBlockCache(100000000, 100000) : null;
 
       CachableBlockFile.Reader _cbr = new CachableBlockFile.Reader("source-1", in, fileLength, conf,
           dataCache, indexCache, AccumuloConfiguration.getDefaultConfiguration());
-      reader = new RFile.Reader(_cbr);
+      reader = new RFile.Reader(_cbr, prefetcher, prefetchBlocks);
       if (cfsi)
         iter = new ColumnFamilySkippingIterator(reader);
 
@@ -1604,6 +1618,234 @@ public class RFileTest {
     trf.closeReader();
   }
 
+  private int writeLocalityGroupCompressionFile(TestRFile trf) throws IOException {
+    trf.openWriter(false);
+    trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+    for (int i = 0; i < 1000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf1", "cq", "", 1), newValue("aaaaaaaaaa"));
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int i = 0; i < 1000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf2", "cq", "", 1), newValue("bbbbbbbbbb"));
+    }
+    trf.closeWriter();
+    return trf.baos.size();
+  }
+
+  @Test
+  public void testLocalityGroupCompression() throws IOException {
+    TestRFile defaultTrf = new TestRFile(conf);
+    int defaultSize = writeLocalityGroupCompressionFile(defaultTrf);
+
+    // the file only needs the version that added compression per group when a group has its own
+    defaultTrf.openReader();
+    assertEquals(RFile.RINDEX_VER_8, defaultTrf.reader.getRFileVersion());
+    defaultTrf.closeReader();
+
+    ConfigurationCopy lgConf =
+        new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+    lgConf.set(Property.TABLE_LOCALITY_GROUP_PREFIX.getKey() + "lg1.opt."
+        + LocalityGroupUtil.COMPRESSION_OPT, "none");
+    TestRFile trf = new TestRFile(lgConf);
+    int size = writeLocalityGroupCompressionFile(trf);
+
+    // only the data of lg1 is not compressed
+    assertTrue(size > defaultSize + 10000);
+
+    trf.openReader();
+    assertEquals(RFile.RINDEX_VER_9, trf.reader.getRFileVersion());
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < 1000; i++) {
+      for (String cf : new String[] {"cf1", "cf2"}) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(newKey(formatString("r_", i), cf, "cq", "", 1), trf.iter.getTopKey());
+        trf.iter.next();
+      }
+    }
+    assertFalse(trf.iter.hasTop());
+
+    trf.iter.seek(new Range(), newColFamByteSequence("cf1"), true);
+    assertEquals(newValue("aaaaaaaaaa"), trf.iter.getTopValue());
+    trf.closeReader();
+  }
+
+  private static Key dictionaryTestKey(int i) {
+    return newKey(formatString("application_", i / 100) + formatString("_user_", i % 100),
+        "family" + (i % 3), "qualifier", "public", 1);
+  }
+
+  private int writeDictionaryFile(TestRFile trf, int entries) throws IOException {
+    trf.openWriter(false, 300);
+    trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("family0"));
+    for (int i = 0; i < entries; i += 3) {
+      trf.writer.append(dictionaryTestKey(i), newValue("v" + i));
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int i = 0; i < entries; i++) {
+      if (i % 3 != 0) {
+        trf.writer.append(dictionaryTestKey(i), newValue("v" + i));
+      }
+    }
+    trf.closeWriter();
+    return trf.baos.size();
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    int entries = 10000;
+    int plainSize = writeDictionaryFile(new TestRFile(conf), entries);
+
+    ConfigurationCopy dictConf =
+        new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+    dictConf.set(Property.TABLE_FILE_COMPRESSION_DICTIONARY_SIZE, "4K");
+    TestRFile trf = new TestRFile(dictConf);
+    int size = writeDictionaryFile(trf, entries);
+
+    // blocks of 300 bytes hardly compress on their own
+    assertTrue("dictionary " + size + " plain " + plainSize, size < plainSize * 0.9);
+
+    trf.openReader();
+    assertEquals(RFile.RINDEX_VER_11, trf.reader.getRFileVersion());
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < entries; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(dictionaryTestKey(i), trf.iter.getTopKey());
+      assertEquals(newValue("v" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+
+    Random rand = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      int e = rand.nextInt(entries);
+      trf.iter.seek(new Range(dictionaryTestKey(e), null), EMPTY_COL_FAMS, false);
+      assertEquals(dictionaryTestKey(e), trf.iter.getTopKey());
+      assertEquals(newValue("v" + e), trf.iter.getTopValue());
+    }
+    trf.closeReader();
+
+    // a file with fewer entries than the sample is trained when it is closed
+    trf = new TestRFile(dictConf);
+    writeDictionaryFile(trf, 30);
+    trf.openReader();
+    assertEquals(RFile.RINDEX_VER_11, trf.reader.getRFileVersion());
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < 30; i++) {
+      assertEquals(dictionaryTestKey(i), trf.iter.getTopKey());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+    trf.closeReader();
+  }
+
+  private static Key columnarTestKey(int i) {
+    Key k = newKey(formatString("r_", i / 10), "cf" + (i % 10 < 5 ? 1 : 2),
+        formatString("cq_", i % 5), i % 4 == 0 ? "A&B" : "C", 1000000 + 7 * (i % 13));
+    k.setDeleted(i % 11 == 0);
+    return k;
+  }
+
+  private void writeColumnarTestFile(TestRFile trf, int entries) throws IOException {
+    trf.openWriter(false, 500);
+    trf.writer.startNewLocalityGroup("lg1", newColFamByteSequence("cf1"));
+    for (int i = 0; i < entries; i++) {
+      if (i % 10 < 5) {
+        trf.writer.append(columnarTestKey(i), newValue(i % 7 == 0 ? "" : "v" + i));
+      }
+    }
+    trf.writer.startDefaultLocalityGroup();
+    for (int i = 0; i < entries; i++) {
+      if (i % 10 >= 5) {
+        trf.writer.append(columnarTestKey(i), newValue(i % 7 == 0 ? "" : "v" + i));
+      }
+    }
+    trf.closeWriter();
+  }
+
+  private void checkColumnarTestFile(TestRFile trf, int entries) throws IOException {
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < entries; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(columnarTestKey(i), trf.iter.getTopKey());
+      assertEquals(columnarTestKey(i).isDeleted(), trf.iter.getTopKey().isDeleted());
+      assertEquals(newValue(i % 7 == 0 ? "" : "v" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    assertFalse(trf.iter.hasTop());
+
+    Random rand = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      int start = rand.nextInt(entries);
+      int end = Math.min(entries - 1, start + rand.nextInt(30));
+      trf.iter.seek(new Range(columnarTestKey(start), true, columnarTestKey(end), true),
+          EMPTY_COL_FAMS, false);
+      for (int j = start; j <= end; j++) {
+        assertTrue(trf.iter.hasTop());
+        assertEquals(columnarTestKey(j), trf.iter.getTopKey());
+        trf.iter.next();
+      }
+      assertFalse(trf.iter.hasTop());
+    }
+
+    // seeks forward within the current block
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    for (int i = 0; i < entries; i += 1 + rand.nextInt(5)) {
+      trf.iter.seek(new Range(columnarTestKey(i), null), EMPTY_COL_FAMS, false);
+      assertEquals(columnarTestKey(i), trf.iter.getTopKey());
+      assertEquals(newValue(i % 7 == 0 ? "" : "v" + i), trf.iter.getTopValue());
+    }
+
+    trf.iter.seek(new Range(), newColFamByteSequence("cf2"), true);
+    for (int i = 0; i < entries; i++) {
+      if (i % 10 >= 5) {
+        assertEquals(columnarTestKey(i), trf.iter.getTopKey());
+        trf.iter.next();
+      }
+    }
+    assertFalse(trf.iter.hasTop());
+  }
+
+  @Test
+  public void testDefaultIndexVersion() throws IOException {
+    // files that do not use the features of newer versions can be read by older readers
+    TestRFile trf = new TestRFile(AccumuloConfiguration.getDefaultConfiguration());
+    writeColumnarTestFile(trf, 100);
+    trf.openReader();
+    assertEquals(RFile.RINDEX_VER_8, trf.reader.getRFileVersion());
+    checkColumnarTestFile(trf, 100);
+    trf.closeReader();
+  }
+
+  @Test
+  public void testColumnarEncoding() throws IOException {
+    int entries = 3000;
+
+    ConfigurationCopy columnarConf =
+        new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+    columnarConf.set(Property.TABLE_FILE_BLOCK_ENCODING, RFile.ENCODING_COLUMNAR);
+    TestRFile trf = new TestRFile(columnarConf);
+    writeColumnarTestFile(trf, entries);
+
+    // the cached blocks keep the decoded blocks, so read them twice
+    trf.openReader();
+    assertEquals(RFile.RINDEX_VER_10, trf.reader.getRFileVersion());
+    checkColumnarTestFile(trf, entries);
+    checkColumnarTestFile(trf, entries);
+    trf.closeReader();
+
+    trf.openReader(true, false, null, 0);
+    checkColumnarTestFile(trf, entries);
+    trf.closeReader();
+
+    trf = new TestRFile(columnarConf);
+    trf.openWriter();
+    trf.closeWriter();
+    trf.openReader();
+    trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+    assertFalse(trf.iter.hasTop());
+    trf.closeReader();
+  }
+
   @Test
   public void testReseekUnconsumed() throws Exception {
     TestRFile trf = new TestRFile(conf);
@@ -2345,4 +2587,97 @@ public class RFileTest {
 
     conf = null;
   }
+
+  private static void checkPrefetchScan(TestRFile trf, int start, int end) throws IOException {
+    checkPrefetchScan(trf, start, end, true);
+  }
+
+  private static void checkPrefetchScan(TestRFile trf, int start, int end, boolean atEnd)
+      throws IOException {
+    for (int i = start; i <= end; i++) {
+      assertTrue(trf.iter.hasTop());
+      assertEquals(newKey(formatString("r_", i), "cf", "cq", "", 1), trf.iter.getTopKey());
+      assertEquals(newValue("v" + i), trf.iter.getTopValue());
+      trf.iter.next();
+    }
+    if (atEnd) {
+      assertFalse(trf.iter.hasTop());
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(100);
+    for (int i = 0; i < 10000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf", "cq", "", 1), newValue("v" + i));
+    }
+    trf.closeWriter();
+
+    ExecutorService threadPool = Executors.newFixedThreadPool(2);
+    try {
+      for (boolean cache : new boolean[] {true, false}) {
+        // a budget too small to fetch any block ahead, and one large enough to fetch many
+        for (long maxMemory : new long[] {1, 1 << 20}) {
+          BlockPrefetcher prefetcher = new BlockPrefetcher(threadPool, maxMemory);
+          trf.openReader(true, cache, prefetcher, 4);
+
+          trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+          checkPrefetchScan(trf, 0, 9999);
+
+          // seeks discard the blocks fetched for the previous range
+          for (int start = 0; start < 10000; start += 997) {
+            int end = Math.min(start + 1500, 9999);
+            trf.iter.seek(new Range(new Text(formatString("r_", start)),
+                new Text(formatString("r_", end))), EMPTY_COL_FAMS, false);
+            checkPrefetchScan(trf, start, end);
+          }
+
+          trf.closeReader();
+          assertEquals(0, prefetcher.getMemoryUsed());
+        }
+      }
+    } finally {
+      threadPool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPrefetchDiscardedBySeek() throws IOException {
+    TestRFile trf = new TestRFile(conf);
+    trf.openWriter(100);
+    for (int i = 0; i < 10000; i++) {
+      trf.writer.append(newKey(formatString("r_", i), "cf", "cq", "", 1), newValue("v" + i));
+    }
+    trf.closeWriter();
+
+    ExecutorService threadPool = Executors.newFixedThreadPool(2);
+    try {
+      BlockPrefetcher prefetcher = new BlockPrefetcher(threadPool, 1 << 20);
+      trf.openReader(true, false, prefetcher, 4);
+
+      // ranges before the first key and past the last key read no blocks
+      for (Range range : new Range[] {new Range(null, new Text("a")),
+          new Range(new Text("s"), null)}) {
+        trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+        checkPrefetchScan(trf, 0, 499, false);
+        assertTrue(prefetcher.getMemoryUsed() > 0);
+
+        trf.iter.seek(range, EMPTY_COL_FAMS, false);
+        assertFalse(trf.iter.hasTop());
+        assertEquals(0, prefetcher.getMemoryUsed());
+      }
+
+      // a reader put back in a pool keeps no blocks
+      trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+      checkPrefetchScan(trf, 0, 499, false);
+      assertTrue(prefetcher.getMemoryUsed() > 0);
+      trf.reader.closeDeepCopies();
+      assertEquals(0, prefetcher.getMemoryUsed());
+
+      trf.closeReader();
+    } finally {
+      threadPool.shutdownNow();
+    }
+  }
 }
@@ -17,6 +17,8 @@
 package org.apache.accumulo.core.file.rfile;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -112,6 +114,29 @@ public class RelativeKeyTest {
     assertEquals(expected.getKey(), actual.getKey());
   }
 
+  @Test
+  public void testReadSharesUnchangedFields() throws IOException {
+    Key prevKey = new Key("row1", "cf1", "cq1", "A", 1000);
+    Key newKey = new Key("row1", "cf1", "cq2", "A", 1000);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new RelativeKey(prevKey, newKey).write(new DataOutputStream(baos));
+
+    RelativeKey actual = new RelativeKey();
+    actual.setPrevKey(prevKey);
+    actual.readFields(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+
+    Key key = actual.getKey();
+    assertEquals(newKey, key);
+    assertSame(prevKey.getRowData().getBackingArray(), key.getRowData().getBackingArray());
+    assertSame(prevKey.getColumnFamilyData().getBackingArray(),
+        key.getColumnFamilyData().getBackingArray());
+    assertNotSame(prevKey.getColumnQualifierData().getBackingArray(),
+        key.getColumnQualifierData().getBackingArray());
+    assertSame(prevKey.getColumnVisibilityData().getBackingArray(),
+        key.getColumnVisibilityData().getBackingArray());
+  }
+
   private static ArrayList<Key> expectedKeys;
   private static ArrayList<Value> expectedValues;
   private static ArrayList<Integer> expectedPositions;
@@ -16,7 +16,12 @@
  */
 package org.apache.accumulo.core.file.rfile.bcfile;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,6 +35,8 @@ import java.util.concurrent.TimeUnit;
 import org.apache.accumulo.core.file.rfile.bcfile.Compression.Algorithm;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.junit.Assert;
 import org.junit.Before;
@@ -250,4 +257,41 @@ public class CompressionTest {
     }
   }
 
+  @Test
+  public void testRoundTrip() throws IOException {
+    byte[] data = new byte[100000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) ("row_" + (1000 + i / 20)).charAt(i % 8);
+    }
+
+    for (final Algorithm al : Algorithm.values()) {
+      if (!al.isSupported()) {
+        continue;
+      }
+      // compress more than once, so that pooled compressors and decompressors are reused
+      for (int level : new int[] {0, 1, 9, 1}) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Compressor compressor = al.getCompressor(level);
+        try {
+          OutputStream out = al.createCompressionStream(compressed, compressor, 0);
+          out.write(data);
+          out.flush();
+        } finally {
+          al.returnCompressor(compressor);
+        }
+
+        byte[] read = new byte[data.length];
+        Decompressor decompressor = al.getDecompressor();
+        try {
+          InputStream in = al.createDecompressionStream(
+              new ByteArrayInputStream(compressed.toByteArray()), decompressor, 32 * 1024);
+          new DataInputStream(in).readFully(read);
+          Assert.assertEquals(al + " read past the data", -1, in.read());
+        } finally {
+          al.returnDecompressor(decompressor);
+        }
+        Assert.assertArrayEquals(al + " did not read back the data at level " + level, data, read);
+      }
+    }
+  }
 }
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.file.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+import org.junit.Test;
+
+public class BoundedRangeFileInputStreamTest {
+
+  private static final byte[] DATA = new byte[1 << 16];
+
+  static {
+    for (int i = 0; i < DATA.length; i++) {
+      DATA[i] = (byte) (i * 31);
+    }
+  }
+
+  private static class SeekableByteArrayInputStream extends ByteArrayInputStream
+      implements Seekable {
+
+    SeekableByteArrayInputStream(byte[] data) {
+      super(data);
+    }
+
+    @Override
+    public void seek(long pos) {
+      this.pos = (int) pos;
+    }
+
+    @Override
+    public long getPos() {
+      return pos;
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPos) {
+      return false;
+    }
+  }
+
+  /**
+   * A stream that only supports positional reads, seeking it fails.
+   */
+  private static class PositionalOnlyInputStream extends InputStream
+      implements Seekable, PositionedReadable {
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void seek(long pos) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getPos() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean seekToNewSource(long targetPos) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) {
+      if (position >= DATA.length) {
+        return -1;
+      }
+      // return short reads to exercise the callers
+      int n = (int) Math.min(Math.min(length, 1000), DATA.length - position);
+      System.arraycopy(DATA, (int) position, buffer, offset, n);
+      return n;
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length)
+        throws IOException {
+      PositionedReads.readFully(this, position, buffer, offset, length);
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer) throws IOException {
+      readFully(position, buffer, 0, buffer.length);
+    }
+  }
+
+  private static <T extends InputStream & Seekable> void readRegionsConcurrently(final T in)
+      throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        final int offset = i * 1000;
+        final int length = Math.min(3000, DATA.length - offset);
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            byte[] read = new byte[length];
+            try (DataInputStream region = new DataInputStream(
+                new BoundedRangeFileInputStream(in, offset, length))) {
+              region.readFully(read);
+              assertEquals(-1, region.read());
+            }
+            assertArrayEquals(Arrays.copyOfRange(DATA, offset, offset + length), read);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPositionalReads() throws Exception {
+    readRegionsConcurrently(new PositionalOnlyInputStream());
+    readRegionsConcurrently(new SeekableDataInputStream(new PositionalOnlyInputStream()));
+    readRegionsConcurrently(
+        new RateLimitedInputStream(new PositionalOnlyInputStream(), new MockRateLimiter()));
+  }
+
+  @Test
+  public void testSeekingReads() throws Exception {
+    readRegionsConcurrently(new SeekableByteArrayInputStream(DATA));
+    // wrappers seek the shared stream when it does not support positional reads
+    readRegionsConcurrently(
+        new SeekableDataInputStream(new SeekableByteArrayInputStream(DATA)));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Test;
+
+public class KeyValueBlockTest {
+
+  private static TreeMap<Key,Value> createData(int rows) {
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    for (int i = 0; i < rows; i++) {
+      tm.put(new Key(String.format("%03d", i), "cf", "cq"), new Value(("v" + i).getBytes()));
+    }
+    return tm;
+  }
+
+  @Test
+  public void testAddSetTruncate() {
+    KeyValueBlock block = new KeyValueBlock(3);
+    assertTrue(block.isEmpty());
+    Key k1 = new Key("r1");
+    Key k2 = new Key("r2");
+    Key k3 = new Key("r3");
+    Value v = new Value("v".getBytes());
+    block.add(k1, v);
+    block.add(k2, v);
+    block.add(k3, v);
+    assertTrue(block.isFull());
+    try {
+      block.add(k1, v);
+      fail();
+    } catch (IllegalStateException e) {}
+
+    block.set(1, k3, v);
+    block.truncate(2);
+    assertEquals(2, block.size());
+    assertSame(k1, block.getKey(0));
+    assertSame(k3, block.getKey(1));
+    try {
+      block.getKey(2);
+      fail();
+    } catch (IndexOutOfBoundsException e) {}
+
+    block.clear();
+    assertTrue(block.isEmpty());
+    assertEquals(3, block.capacity());
+  }
+
+  @Test
+  public void testLimit() throws IOException {
+    SortedMapIterator iter = new SortedMapIterator(createData(10));
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+
+    KeyValueBlock block = new KeyValueBlock(8);
+    block.clear(3);
+    block.fill(iter);
+    assertEquals(3, block.size());
+    assertTrue(block.isFull());
+    assertEquals(new Key("003", "cf", "cq"), iter.getTopKey());
+
+    // a limit past the capacity is the capacity
+    block.clear(100);
+    block.fill(iter);
+    assertEquals(7, block.size());
+    assertFalse(iter.hasTop());
+  }
+
+  @Test
+  public void testSizeLimit() throws IOException {
+    // large values, as a scan with a small table.scan.max.memory would read
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    for (int i = 0; i < 20; i++) {
+      tm.put(new Key(String.format("%03d", i), "cf", "cq"), new Value(new byte[10000]));
+    }
+    SortedMapIterator iter = new SortedMapIterator(tm);
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+
+    KeyValueBlock block = new KeyValueBlock(256);
+    block.clear(256, 25000, 0);
+    block.fill(iter);
+    assertEquals(3, block.size());
+    assertTrue(block.isFull());
+    assertEquals(new Key("003", "cf", "cq"), iter.getTopKey());
+
+    // a budget smaller than one entry still reads one entry
+    block.clear(256, 1, 0);
+    block.fill(iter);
+    assertEquals(1, block.size());
+    assertEquals(new Key("004", "cf", "cq"), iter.getTopKey());
+  }
+
+  @Test
+  public void testTimeLimit() throws Exception {
+    SortedMapIterator iter = new SortedMapIterator(createData(10));
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+
+    KeyValueBlock block = new KeyValueBlock(8);
+    block.clear(8, Long.MAX_VALUE, 1);
+    // past the time limit one entry is still read
+    Thread.sleep(1);
+    block.fill(iter);
+    assertEquals(1, block.size());
+    assertTrue(block.isFull());
+
+    block.clear(8, Long.MAX_VALUE, TimeUnit.MINUTES.toNanos(1));
+    block.fill(iter);
+    assertEquals(8, block.size());
+  }
+
+  @Test
+  public void testFillCopiesEntries() throws IOException {
+    TreeMap<Key,Value> tm = createData(5);
+    SortedMapIterator iter = new SortedMapIterator(tm);
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+
+    KeyValueBlock block = new KeyValueBlock(10);
+    block.fill(iter);
+    assertEquals(5, block.size());
+    assertEquals(new ArrayList<>(tm.keySet()), keys(block));
+    for (int i = 0; i < block.size(); i++) {
+      assertNotSame(tm.get(block.getKey(i)), block.getValue(i));
+      assertEquals(tm.get(block.getKey(i)), block.getValue(i));
+    }
+  }
+
+  private static ArrayList<Key> keys(KeyValueBlock block) {
+    ArrayList<Key> keys = new ArrayList<>();
+    for (int i = 0; i < block.size(); i++) {
+      keys.add(block.getKey(i));
+    }
+    return keys;
+  }
+
+  @Test
+  public void testReadInBlocks() throws IOException {
+    TreeMap<Key,Value> tm = createData(100);
+    SortedMapIterator iter = new SortedMapIterator(tm);
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    List<KeyValue> expected = KeyValueBlockTestUtil.readByEntry(iter);
+    assertEquals(100, expected.size());
+    for (int blockSize : new int[] {1, 2, 5, 64, 200}) {
+      iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+      assertEquals(expected, KeyValueBlockTestUtil.readInBlocks(iter, blockSize));
+    }
+  }
+}
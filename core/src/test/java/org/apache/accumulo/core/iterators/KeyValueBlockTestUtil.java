@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.iterators;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
+import org.apache.accumulo.core.data.Value;
+
+public class KeyValueBlockTestUtil {
+
+  /**
+   * Reads the rest of an iterator one entry at a time.
+   */
+  public static List<KeyValue> readByEntry(SortedKeyValueIterator<Key,Value> iter)
+      throws IOException {
+    List<KeyValue> entries = new ArrayList<>();
+    while (iter.hasTop()) {
+      entries.add(new KeyValue(new Key(iter.getTopKey()), new Value(iter.getTopValue())));
+      iter.next();
+    }
+    return entries;
+  }
+
+  /**
+   * Reads the rest of an iterator in blocks, with a single entry read between blocks, so that
+   * reading a block has to leave the iterator where next() would.
+   */
+  public static List<KeyValue> readInBlocks(SortedKeyValueIterator<Key,Value> iter, int blockSize)
+      throws IOException {
+    List<KeyValue> entries = new ArrayList<>();
+    KeyValueBlock block = new KeyValueBlock(blockSize);
+    while (iter.hasTop()) {
+      block.clear();
+      block.fill(iter);
+      for (int i = 0; i < block.size(); i++) {
+        entries.add(new KeyValue(block.getKey(i), block.getValue(i)));
+      }
+      if (iter.hasTop()) {
+        entries.add(new KeyValue(new Key(iter.getTopKey()), new Value(iter.getTopValue())));
+        iter.next();
+      }
+    }
+    return entries;
+  }
+}
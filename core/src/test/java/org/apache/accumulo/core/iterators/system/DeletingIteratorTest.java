@@ -19,13 +19,17 @@ package org.apache.accumulo.core.iterators.system;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.KeyValueBlockTestUtil;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.hadoop.io.Text;
 
@@ -214,6 +218,27 @@ public class DeletingIteratorTest extends TestCase {
     assertFalse(it.hasTop());
   }
 
+  public void testBatches() throws IOException {
+    Random rand = new Random(7);
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      Key k = new Key(String.format("r%03d", rand.nextInt(50)), "cf", "cq" + rand.nextInt(3),
+          rand.nextInt(10));
+      k.setDeleted(rand.nextInt(5) == 0);
+      tm.put(k, new Value(("v" + i).getBytes()));
+    }
+
+    for (boolean propogateDeletes : new boolean[] {false, true}) {
+      DeletingIterator it = new DeletingIterator(new SortedMapIterator(tm), propogateDeletes);
+      it.seek(new Range(), EMPTY_COL_FAMS, false);
+      List<KeyValue> expected = KeyValueBlockTestUtil.readByEntry(it);
+      for (int blockSize : new int[] {1, 2, 3, 10, 2000}) {
+        it.seek(new Range(), EMPTY_COL_FAMS, false);
+        assertEquals(expected, KeyValueBlockTestUtil.readInBlocks(it, blockSize));
+      }
+    }
+  }
+
   private Range newRange(String row, long ts, boolean inclusive) {
     return new Range(newKey(row, ts), inclusive, null, true);
   }
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.data.ByteSequence;
@@ -406,4 +408,68 @@ public class MultiIteratorTest extends TestCase {
     mi.seek(r7, EMPTY_COL_FAMS, false);
     assertFalse(mi.hasTop());
   }
+
+  private static void verifyMerge(List<TreeMap<Key,Value>> maps, Range range) throws IOException {
+    // equal keys come out in the order of their sources
+    List<String> expected = new ArrayList<>();
+    TreeMap<Key,List<String>> all = new TreeMap<>();
+    for (TreeMap<Key,Value> map : maps) {
+      for (Entry<Key,Value> entry : map.entrySet()) {
+        if (range.contains(entry.getKey())) {
+          if (!all.containsKey(entry.getKey())) {
+            all.put(entry.getKey(), new ArrayList<String>());
+          }
+          all.get(entry.getKey()).add(entry.getKey() + " " + entry.getValue());
+        }
+      }
+    }
+    for (List<String> entries : all.values()) {
+      expected.addAll(entries);
+    }
+
+    List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(maps.size());
+    for (TreeMap<Key,Value> map : maps) {
+      iters.add(new SortedMapIterator(map));
+    }
+    MultiIterator mi = new MultiIterator(iters, true);
+    mi.seek(range, EMPTY_COL_FAMS, false);
+
+    List<String> actual = new ArrayList<>();
+    while (mi.hasTop()) {
+      actual.add(mi.getTopKey() + " " + mi.getTopValue());
+      mi.next();
+    }
+    assertEquals(expected, actual);
+  }
+
+  public void testManySources() throws IOException {
+    Random random = new Random(42);
+    for (int sources : new int[] {1, 2, 3, 5, 16, 33, 64}) {
+      List<TreeMap<Key,Value>> maps = new ArrayList<>();
+      for (int i = 0; i < sources; i++) {
+        maps.add(new TreeMap<Key,Value>());
+      }
+      int row = 0;
+      for (int i = 0; i < 2000; i++) {
+        // runs of keys from one source, keys that several sources have, and sources that run out
+        int source = random.nextInt(sources);
+        int run = random.nextInt(20);
+        for (int j = 0; j < run; j++) {
+          newKeyValue(maps.get(source), row++, 0, false, "v" + source);
+        }
+        if (random.nextInt(10) == 0) {
+          for (int j = 0; j < sources; j += 2) {
+            newKeyValue(maps.get(j), row, 0, false, "v" + j);
+          }
+          row++;
+        }
+      }
+
+      verifyMerge(maps, new Range());
+      for (int i = 0; i < 10; i++) {
+        int start = random.nextInt(row);
+        verifyMerge(maps, new Range(newRow(start), newRow(start + random.nextInt(500))));
+      }
+    }
+  }
 }
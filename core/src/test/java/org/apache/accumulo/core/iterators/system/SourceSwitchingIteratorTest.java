@@ -30,6 +30,7 @@ import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.iterators.WrappingIterator;
@@ -200,6 +201,43 @@ public class SourceSwitchingIteratorTest extends TestCase {
 
   }
 
+  public void testBatch() throws Exception {
+    TreeMap<Key,Value> tm1 = new TreeMap<>();
+    put(tm1, "r1", "cf1", "cq1", 5, "v1");
+    put(tm1, "r1", "cf1", "cq2", 5, "v2");
+    put(tm1, "r2", "cf1", "cq1", 5, "v3");
+    put(tm1, "r3", "cf1", "cq1", 5, "v4");
+
+    SortedMapIterator smi = new SortedMapIterator(tm1);
+    TestDataSource tds = new TestDataSource(smi);
+    SourceSwitchingIterator ssi = new SourceSwitchingIterator(tds);
+
+    ssi.seek(new Range(), new ArrayList<ByteSequence>(), false);
+    KeyValueBlock block = new KeyValueBlock(2);
+    ssi.nextBatch(block);
+    assertEquals(2, block.size());
+    assertEquals(newKey("r1", "cf1", "cq1", 5), block.getKey(0));
+    assertEquals("v2", block.getValue(1).toString());
+    testAndCallNext(ssi, "r2", "cf1", "cq1", 5, "v3", false);
+
+    TreeMap<Key,Value> tm2 = new TreeMap<>(tm1);
+    put(tm2, "r2", "cf1", "cq2", 5, "v5");
+    tds.next = new TestDataSource(new SortedMapIterator(tm2));
+
+    // switches to the new source after the top entry
+    block.clear();
+    ssi.nextBatch(block);
+    assertEquals(2, block.size());
+    assertEquals("v3", block.getValue(0).toString());
+    assertEquals("v5", block.getValue(1).toString());
+    testAndCallNext(ssi, "r3", "cf1", "cq1", 5, "v4", false);
+
+    block.clear();
+    ssi.nextBatch(block);
+    assertEquals(1, block.size());
+    assertFalse(ssi.hasTop());
+  }
+
   public void test4() throws Exception {
     // ensure switch is done on initial seek
     TreeMap<Key,Value> tm1 = new TreeMap<>();
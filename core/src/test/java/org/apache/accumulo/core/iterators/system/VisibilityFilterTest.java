@@ -51,6 +51,33 @@ public class VisibilityFilterTest extends TestCase {
     Logger.getLogger(VisibilityFilter.class).setLevel(prevLevel);
   }
 
+  public void testSharedVisibilities() throws IOException {
+    byte[] a = "A".getBytes();
+    byte[] b = "B".getBytes();
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    // keys that share visibility arrays, as consecutive keys read from a file do
+    for (int i = 0; i < 3; i++) {
+      tm.put(new Key(("r" + i).getBytes(), "cf".getBytes(), "cq".getBytes(), a, 0, false, false),
+          new Value(new byte[0]));
+      tm.put(new Key(("r" + i).getBytes(), "cf".getBytes(), "cq".getBytes(), b, 1, false, false),
+          new Value(new byte[0]));
+      tm.put(new Key(("s" + i).getBytes(), "cf".getBytes(), "cq".getBytes(), b, 0, false, false),
+          new Value(new byte[0]));
+    }
+    tm.put(new Key("t", "cf", "cq", "A"), new Value(new byte[0]));
+    SortedKeyValueIterator<Key,Value> filter = VisibilityFilter.wrap(new SortedMapIterator(tm),
+        new Authorizations("A"), "".getBytes());
+
+    filter.seek(new Range(), new HashSet<ByteSequence>(), false);
+    int count = 0;
+    while (filter.hasTop()) {
+      assertEquals("A", filter.getTopKey().getColumnVisibility().toString());
+      count++;
+      filter.next();
+    }
+    assertEquals(4, count);
+  }
+
   public void testEmptyAuths() throws IOException {
     TreeMap<Key,Value> tm = new TreeMap<>();
 
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -33,10 +34,12 @@ import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.iterators.DefaultIteratorEnvironment;
 import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.KeyValueBlockTestUtil;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.iterators.system.ColumnQualifierFilter;
@@ -115,6 +118,33 @@ public class FilterTest {
     assertTrue("size = " + size, size == 0);
   }
 
+  @Test
+  public void testBatches() throws IOException {
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      Key k = new Key(new Text(String.format("%03d", i)), new Text(i % 3 == 0 ? "a" : "b"),
+          new Text("q"));
+      // deleted keys pass through filters
+      k.setDeleted(i % 7 == 0);
+      tm.put(k, new Value());
+    }
+
+    for (boolean negate : new boolean[] {false, true}) {
+      Map<String,String> opts = new HashMap<>();
+      opts.put("negate", Boolean.toString(negate));
+      Filter filter1 = new SimpleFilter();
+      filter1.init(new SortedMapIterator(tm), opts, null);
+      Filter filter2 = new SimpleFilter2();
+      filter2.init(filter1, EMPTY_OPTS, null);
+      filter2.seek(new Range(), EMPTY_COL_FAMS, false);
+      List<KeyValue> expected = KeyValueBlockTestUtil.readByEntry(filter2);
+      for (int blockSize : new int[] {1, 2, 3, 10, 2000}) {
+        filter2.seek(new Range(), EMPTY_COL_FAMS, false);
+        assertEquals(expected, KeyValueBlockTestUtil.readInBlocks(filter2, blockSize));
+      }
+    }
+  }
+
   @Test
   public void test1neg() throws IOException {
     Text colf = new Text("a");
@@ -16,21 +16,26 @@
  */
 package org.apache.accumulo.core.iterators.user;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.KeyValue;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.KeyValueBlockTestUtil;
 import org.apache.accumulo.core.iterators.LongCombiner;
 import org.apache.accumulo.core.iterators.SortedMapIterator;
 import org.apache.accumulo.core.iterators.TypedValueCombiner.Encoder;
@@ -308,4 +313,27 @@ public class VersioningIteratorTest {
     it.next();
     assertFalse(it.hasTop());
   }
+
+  @Test
+  public void testBatches() throws IOException {
+    Random rand = new Random(11);
+    TreeMap<Key,Value> tm = new TreeMap<>();
+    for (int i = 0; i < 1000; i++) {
+      tm.put(new Key(String.format("r%03d", rand.nextInt(30)), "cf", "cq" + rand.nextInt(3),
+          rand.nextInt(40)), new Value(encoder.encode((long) i)));
+    }
+
+    for (int maxVersions : new int[] {1, 2, 5, 100}) {
+      VersioningIterator it = new VersioningIterator();
+      IteratorSetting is = new IteratorSetting(1, VersioningIterator.class);
+      VersioningIterator.setMaxVersions(is, maxVersions);
+      it.init(new SortedMapIterator(tm), is.getOptions(), null);
+      it.seek(new Range(), EMPTY_COL_FAMS, false);
+      List<KeyValue> expected = KeyValueBlockTestUtil.readByEntry(it);
+      for (int blockSize : new int[] {1, 2, 3, 7, 2000}) {
+        it.seek(new Range(), EMPTY_COL_FAMS, false);
+        assertEquals(expected, KeyValueBlockTestUtil.readInBlocks(it, blockSize));
+      }
+    }
+  }
 }
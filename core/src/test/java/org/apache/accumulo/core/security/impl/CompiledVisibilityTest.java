@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.junit.Test;
+
+public class CompiledVisibilityTest {
+
+  private static final String[] EXPRESSIONS = {"", "A", "B", "Z", "A&B", "A|Z", "A&Z", "Z|Y",
+      "A&(B|Z)", "(A|Z)&(Y|B)", "A&B&C", "A|(Y&Z)|(C&(Z|B))", "\"A\"", "\"A\"&B", "\"a\\\\b\"",
+      "\"a\\\"b\"|Z", "\"a\\\"b\"&\"a\\\\b\"", "\"\u00e9\"|Z", "((A|Z)&(B|(Y&Z)))|(C&Z)"};
+
+  private static final Authorizations[] AUTHORIZATIONS = {new Authorizations(),
+      new Authorizations("A"), new Authorizations("A", "B"), new Authorizations("A", "B", "C"),
+      new Authorizations("a\\b", "C"), new Authorizations("a\"b", "a\\b"),
+      new Authorizations("\u00e9".getBytes(UTF_8)), new Authorizations("Z", "Y")};
+
+  @Test
+  public void testMatchesTreeEvaluation() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(100, 100, 100);
+    for (Authorizations auths : AUTHORIZATIONS) {
+      VisibilityEvaluator ve = new VisibilityEvaluator(auths);
+      VisibilityCache.Evaluator evaluator = cache.getEvaluator(auths);
+      for (String expression : EXPRESSIONS) {
+        ColumnVisibility cv = new ColumnVisibility(expression.getBytes(UTF_8));
+        CompiledVisibility compiled = cache.compile(new ArrayByteSequence(cv.getExpression()));
+        assertNotNull(compiled);
+        assertEquals(auths + " " + expression, ve.evaluate(cv), evaluator.evaluate(compiled));
+      }
+    }
+  }
+
+  @Test
+  public void testNoTermIdsLeft() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(100, 100, 100, 2);
+    VisibilityCache.Evaluator ab = cache.getEvaluator(new Authorizations("A", "B"));
+    VisibilityCache.Evaluator c = cache.getEvaluator(new Authorizations("C"));
+
+    assertNotNull(cache.compile(new ArrayByteSequence("A&B")));
+    assertNull(cache.compile(new ArrayByteSequence("A&C")));
+
+    // expressions that could not be compiled are still evaluated correctly
+    assertTrue(ab.evaluate(new ArrayByteSequence("A|C")));
+    assertFalse(ab.evaluate(new ArrayByteSequence("A&C")));
+    assertTrue(c.evaluate(new ArrayByteSequence("A|C")));
+    assertFalse(c.evaluate(new ArrayByteSequence("A|B")));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.core.security.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityParseException;
+import org.apache.accumulo.core.util.BadArgumentException;
+import org.junit.Test;
+
+public class VisibilityCacheTest {
+
+  private static ArrayByteSequence bytes(String s) {
+    return new ArrayByteSequence(s);
+  }
+
+  @Test
+  public void testParse() {
+    VisibilityCache cache = new VisibilityCache(10, 10, 10);
+    ColumnVisibility cv = cache.parse(bytes("A&(B|C)"));
+    assertEquals(new ColumnVisibility("A&(B|C)"), cv);
+    assertSame(cv, cache.parse("A&(B|C)".getBytes()));
+    assertEquals(1, cache.getParseStats().hitCount());
+    assertEquals(1, cache.getParseStats().missCount());
+
+    try {
+      cache.parse(bytes("A&"));
+      fail();
+    } catch (BadArgumentException e) {}
+  }
+
+  @Test
+  public void testKeysAreCopied() {
+    VisibilityCache cache = new VisibilityCache(10, 10, 10);
+    byte[] expression = "A|B".getBytes();
+    cache.parse(new ArrayByteSequence(expression));
+    // a caller reusing its buffer must not change what is cached
+    expression[0] = 'C';
+    assertEquals(new ColumnVisibility("A|B"), cache.parse(bytes("A|B")));
+    assertEquals(new ColumnVisibility("C|B"), cache.parse(bytes("C|B")));
+  }
+
+  @Test
+  public void testEvaluate() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(10, 10, 10);
+    VisibilityCache.Evaluator ab = cache.getEvaluator(new Authorizations("A", "B"));
+    VisibilityCache.Evaluator c = cache.getEvaluator(new Authorizations("C"));
+
+    assertTrue(ab.evaluate(bytes("A&B")));
+    assertFalse(c.evaluate(bytes("A&B")));
+    assertTrue(c.evaluate(bytes("A|C")));
+    assertTrue(ab.evaluate(bytes("A&B")));
+    assertEquals(1, cache.getEvaluationStats().hitCount());
+    assertEquals(3, cache.getEvaluationStats().missCount());
+
+    // equal authorizations share results
+    assertSame(ab, cache.getEvaluator(new Authorizations("B", "A")));
+    assertFalse(ab.evaluate(bytes("C")));
+  }
+
+  @Test
+  public void testBounded() throws VisibilityParseException {
+    VisibilityCache cache = new VisibilityCache(10, 2, 10);
+    VisibilityCache.Evaluator evaluator = cache.getEvaluator(new Authorizations("A"));
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(evaluator.evaluate(bytes("A|B" + i)));
+    }
+    // every result is correct, though most had to be computed again
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(evaluator.evaluate(bytes("A|B" + i)));
+    }
+    assertTrue(cache.getParseStats().missCount() > 1900);
+  }
+}
@@ -59,6 +59,23 @@ public class LocalityGroupUtilTest {
     }
   }
 
+  @Test
+  public void testCompression() throws Exception {
+    ConfigurationCopy conf = new ConfigurationCopy();
+    conf.set("table.group.lg1", "cf1,cf2");
+    conf.set("table.group.lg1.opt.compress.type", "none");
+    conf.set("table.group.lg2", "cf3");
+    conf.set("table.group.lg2.opt.compress.type", "");
+    conf.set("table.group.lg3.opt.other", "gz");
+    conf.set("table.groups.enabled", "lg1,lg2");
+
+    Map<String,String> compression = LocalityGroupUtil.getLocalityGroupCompression(conf);
+    assertEquals(1, compression.size());
+    assertEquals("none", compression.get("lg1"));
+    // options do not change the column families of a group
+    assertEquals(2, LocalityGroupUtil.getLocalityGroups(conf).get("lg1").size());
+  }
+
   @Test
   public void testEncoding() throws Exception {
     byte test1[] = new byte[256];
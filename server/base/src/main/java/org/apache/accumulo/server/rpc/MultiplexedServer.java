@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.rpc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.accumulo.core.rpc.MultiplexedConnection;
+import org.apache.accumulo.core.rpc.MultiplexedConnection.Frame;
+import org.apache.accumulo.core.util.Daemon;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TMemoryBuffer;
+import org.apache.thrift.transport.TMemoryInputTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thrift server for clients that multiplex their RPCs over one {@link MultiplexedConnection}.
+ * Each connection has a thread that reads requests and hands them to the executor, so the requests
+ * of a connection are processed concurrently, and their replies are written as they complete. The
+ * requests of one channel of a connection are processed one at a time in the order they were read,
+ * like the requests of a connection to the other servers.
+ * <p>
+ * A connection stops reading while too many of its requests are queued or being processed, so that
+ * clients are held back by TCP flow control when the server can not keep up, like they are by the
+ * other servers. A request that fails gets an exception reply, and a one way request that fails
+ * drops the requests queued after it on its channel. The connection is only closed when reading or
+ * writing it fails.
+ */
+public class MultiplexedServer extends TServer {
+
+  private static final Logger log = LoggerFactory.getLogger(MultiplexedServer.class);
+
+  // a connection stops reading while this much is queued or being processed, so it holds at most
+  // one more message
+  static final long MAX_QUEUED_BYTES = 32 * 1024 * 1024;
+  static final int MAX_QUEUED_REQUESTS = 1024;
+
+  // named like the field of TThreadPoolServer, so that TServerUtils.stopTServer shuts it down
+  private final ExecutorService executorService_;
+  private final long maxMessageSize;
+  private final Set<Connection> connections = Collections
+      .newSetFromMap(new ConcurrentHashMap<Connection,Boolean>());
+  private volatile boolean stopped = false;
+
+  public MultiplexedServer(Args args, ExecutorService executorService, long maxMessageSize) {
+    super(args);
+    this.executorService_ = executorService;
+    this.maxMessageSize = maxMessageSize;
+  }
+
+  @Override
+  public void serve() {
+    try {
+      serverTransport_.listen();
+    } catch (TTransportException e) {
+      log.error("Error occurred during listening.", e);
+      return;
+    }
+
+    stopped = false;
+    setServing(true);
+    while (!stopped) {
+      try {
+        TTransport client = serverTransport_.accept();
+        Connection connection = new Connection(((TSocket) client).getSocket());
+        connections.add(connection);
+        new Daemon(connection, "Multiplexed connection from " + connection.clientAddress).start();
+      } catch (TTransportException | IOException e) {
+        if (!stopped) {
+          log.warn("Failed to accept a connection", e);
+        }
+      }
+    }
+    setServing(false);
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+    serverTransport_.interrupt();
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  private class Connection implements Runnable {
+
+    final Socket socket;
+    final String clientAddress;
+    final DataInputStream in;
+    final DataOutputStream out;
+    // the channels that have requests queued or being processed, guarded by itself along with
+    // the counts of those requests and the closed flag
+    final Map<Integer,ChannelRequests> channels = new HashMap<>();
+    long queuedBytes = 0;
+    int queuedRequests = 0;
+    boolean closed = false;
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      this.clientAddress = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1024 * 10));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+          1024 * 10));
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (awaitQueueSpace()) {
+          Frame request = Frame.read(in, maxMessageSize);
+          ChannelRequests channel;
+          boolean start;
+          synchronized (channels) {
+            channel = channels.get(request.channelId);
+            start = channel == null;
+            if (start) {
+              channel = new ChannelRequests(request.channelId);
+              channels.put(request.channelId, channel);
+            }
+            channel.requests.add(request);
+            queuedBytes += request.message.length;
+            queuedRequests++;
+          }
+          if (start) {
+            executorService_.execute(channel);
+          }
+        }
+      } catch (EOFException e) {
+        log.trace("Client {} closed its multiplexed connection", clientAddress);
+      } catch (IOException | RejectedExecutionException e) {
+        if (!stopped) {
+          log.debug("Failed to read a request from {}", clientAddress, e);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        close();
+      }
+    }
+
+    /**
+     * Waits until there is room to queue another request, leaving unread requests in the socket.
+     *
+     * @return false if the connection was closed
+     */
+    private boolean awaitQueueSpace() throws InterruptedException {
+      synchronized (channels) {
+        while (!closed
+            && (queuedBytes >= MAX_QUEUED_BYTES || queuedRequests >= MAX_QUEUED_REQUESTS)) {
+          channels.wait();
+        }
+        return !closed;
+      }
+    }
+
+    private void dequeued(Frame request) {
+      synchronized (channels) {
+        queuedBytes -= request.message.length;
+        queuedRequests--;
+        channels.notifyAll();
+      }
+    }
+
+    /**
+     * @return false if a one way request failed
+     */
+    boolean process(Frame request) {
+      TServerUtils.clientAddress.set(clientAddress);
+      TMemoryInputTransport input = new TMemoryInputTransport(request.message);
+      TMemoryBuffer output = new TMemoryBuffer(1024);
+      try {
+        processorFactory_.getProcessor(input).process(inputProtocolFactory_.getProtocol(input),
+            outputProtocolFactory_.getProtocol(output));
+      } catch (TException | RuntimeException e) {
+        log.warn("Failed to process a request from {}", clientAddress, e);
+        return reject(request, "Internal error processing request: " + e);
+      }
+
+      // one way RPCs have no reply
+      if (output.length() > 0) {
+        reply(request, output);
+      }
+      return true;
+    }
+
+    /**
+     * Replies to a request that was not processed with an exception, unless it is a one way
+     * request.
+     *
+     * @return false if the request is a one way request
+     */
+    private boolean reject(Frame request, String reason) {
+      TMessage message;
+      try {
+        message = inputProtocolFactory_.getProtocol(new TMemoryInputTransport(request.message))
+            .readMessageBegin();
+      } catch (TException | RuntimeException e) {
+        // the client may be waiting for a reply, the request id is enough to give it one
+        log.debug("Failed to read the message of a request from {}", clientAddress, e);
+        message = new TMessage("", TMessageType.CALL, 0);
+      }
+      if (message.type == TMessageType.ONEWAY) {
+        return false;
+      }
+
+      TMemoryBuffer output = new TMemoryBuffer(128);
+      try {
+        TProtocol protocol = outputProtocolFactory_.getProtocol(output);
+        protocol.writeMessageBegin(new TMessage(message.name, TMessageType.EXCEPTION,
+            message.seqid));
+        new TApplicationException(TApplicationException.INTERNAL_ERROR, reason).write(protocol);
+        protocol.writeMessageEnd();
+        protocol.getTransport().flush();
+      } catch (TException e) {
+        log.warn("Failed to write an exception reply to {}", clientAddress, e);
+        return true;
+      }
+      reply(request, output);
+      return true;
+    }
+
+    private void reply(Frame request, TMemoryBuffer output) {
+      try {
+        synchronized (out) {
+          Frame.write(out, request.requestId, request.channelId, output.getArray(),
+              output.length());
+          out.flush();
+        }
+      } catch (IOException e) {
+        log.debug("Failed to write a reply to {}", clientAddress, e);
+        close();
+      }
+    }
+
+    void close() {
+      synchronized (channels) {
+        closed = true;
+        channels.notifyAll();
+      }
+      if (connections.remove(this)) {
+        try {
+          socket.close();
+        } catch (IOException e) {
+          log.debug("Failed to close the connection from {}", clientAddress, e);
+        }
+      }
+    }
+
+    /**
+     * Processes the queued requests of a channel until there are none left, then removes the
+     * channel so that its next request runs again. When a one way request fails, the requests
+     * queued after it are rejected, as they may depend on it.
+     */
+    private class ChannelRequests implements Runnable {
+
+      final int channelId;
+      final ArrayDeque<Frame> requests = new ArrayDeque<>();
+
+      ChannelRequests(int channelId) {
+        this.channelId = channelId;
+      }
+
+      @Override
+      public void run() {
+        while (true) {
+          Frame request;
+          synchronized (channels) {
+            request = requests.poll();
+            if (request == null) {
+              channels.remove(channelId);
+              return;
+            }
+          }
+          boolean processed = process(request);
+          dequeued(request);
+          if (!processed) {
+            List<Frame> dropped;
+            synchronized (channels) {
+              dropped = new ArrayList<>(requests);
+              requests.clear();
+            }
+            if (!dropped.isEmpty()) {
+              log.warn("Dropping {} requests queued on a channel from {} after a one way request"
+                  + " failed", dropped.size(), clientAddress);
+            }
+            for (Frame droppedRequest : dropped) {
+              reject(droppedRequest, "An earlier one way request of the channel failed");
+              dequeued(droppedRequest);
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -293,6 +293,40 @@ public class TServerUtils {
 
   }
 
+  /**
+   * Creates a {@link MultiplexedServer}, which processes the requests clients multiplex over one
+   * connection concurrently.
+   *
+   * @param address
+   *          Address to bind to
+   * @param processor
+   *          TProcessor for the server
+   * @param maxMessageSize
+   *          Maximum size of a Thrift message allowed
+   * @return A configured MultiplexedServer and its bound address information
+   */
+  public static ServerAddress createMultiplexedServer(HostAndPort address, TProcessor processor,
+      TProtocolFactory protocolFactory, long maxMessageSize, String serverName, int numThreads,
+      int numSimpleTimerThreads, long timeBetweenThreadChecks) throws TTransportException {
+
+    TServerSocket transport = new TServerSocket(address.getPort());
+    ThreadPoolExecutor pool = createSelfResizingThreadPool(serverName, numThreads,
+        numSimpleTimerThreads, timeBetweenThreadChecks);
+
+    TServer.Args options = new TServer.Args(transport);
+    options.protocolFactory(protocolFactory);
+    options.processorFactory(new TProcessorFactory(processor));
+    MultiplexedServer server = new MultiplexedServer(options, pool, maxMessageSize);
+
+    if (address.getPort() == 0) {
+      address = HostAndPort.fromParts(address.getHost(),
+          transport.getServerSocket().getLocalPort());
+      log.info("Multiplexed Server bound on {}", address);
+    }
+
+    return new ServerAddress(server, address);
+  }
+
   /**
    * Create a {@link TThreadPoolServer} with the provided transport, processor and transport
    * factory.
@@ -584,6 +618,11 @@ public class TServerUtils {
             serverAddress = createBlockingServer(address, processor, protocolFactory,
                 maxMessageSize, serverName, numThreads, numSTThreads, timeBetweenThreadChecks);
             break;
+          case MULTIPLEXED:
+            log.debug("Instantiating unsecure multiplexed Thrift server");
+            serverAddress = createMultiplexedServer(address, processor, protocolFactory,
+                maxMessageSize, serverName, numThreads, numSTThreads, timeBetweenThreadChecks);
+            break;
           case CUSTOM_HS_HA: // Intentional passthrough -- Our custom wrapper around HsHa is the
                              // default
           default:
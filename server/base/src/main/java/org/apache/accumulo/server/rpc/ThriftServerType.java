@@ -16,6 +16,7 @@
  */
 package org.apache.accumulo.server.rpc;
 
+import org.apache.accumulo.core.rpc.ThriftUtil;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -26,9 +27,13 @@ import org.apache.commons.lang.StringUtils;
  * Both SSL and SASL don't presently work with TFramedTransport which means that the Thrift servers
  * with asynchronous support will fail with these transports. As such, we want to ensure that any
  * benchmarks against "unsecure" Accumulo use the same type of Thrift server.
+ *
+ * The multiplexed server is the exception, clients configured with the same type multiplex all of
+ * their RPCs to a server over one connection, which the server must support.
  */
 public enum ThriftServerType {
-  CUSTOM_HS_HA("custom_hs_ha"), THREADPOOL("threadpool"), SSL("ssl"), SASL("sasl");
+  CUSTOM_HS_HA("custom_hs_ha"), THREADPOOL("threadpool"), SSL("ssl"), SASL("sasl"),
+  MULTIPLEXED(ThriftUtil.MULTIPLEXED_SERVER_TYPE);
 
   private final String name;
 
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.server.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.accumulo.core.rpc.MultiplexedConnection;
+import org.apache.accumulo.core.util.Daemon;
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiplexedServerTest {
+
+  /**
+   * Replies to each call with its argument, after sleeping for the number of milliseconds it names.
+   * One way calls are recorded after sleeping. Calls whose argument is not a number fail.
+   */
+  private static class EchoProcessor implements TProcessor {
+
+    final List<String> oneWayCalls = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public boolean process(TProtocol in, TProtocol out) throws TException {
+      TMessage message = in.readMessageBegin();
+      String arg = in.readString();
+      in.readMessageEnd();
+      try {
+        Thread.sleep(Long.parseLong(arg));
+      } catch (InterruptedException e) {
+        throw new TException(e);
+      }
+      if (message.type == TMessageType.ONEWAY) {
+        oneWayCalls.add(arg);
+        return true;
+      }
+      out.writeMessageBegin(new TMessage(message.name, TMessageType.REPLY, message.seqid));
+      out.writeString(arg);
+      out.writeMessageEnd();
+      out.getTransport().flush();
+      return true;
+    }
+  }
+
+  private EchoProcessor processor;
+  private TServer server;
+  private HostAndPort address;
+
+  @Before
+  public void startServer() throws Exception {
+    processor = new EchoProcessor();
+    ServerAddress serverAddress = TServerUtils.createMultiplexedServer(
+        HostAndPort.fromParts("localhost", 0), processor, new TBinaryProtocol.Factory(),
+        1024 * 1024, "MultiplexedServerTest", 4, 1, 1000);
+    server = serverAddress.server;
+    address = HostAndPort.fromParts("localhost", serverAddress.address.getPort());
+    new Daemon(new Runnable() {
+      @Override
+      public void run() {
+        server.serve();
+      }
+    }).start();
+    while (!server.isServing()) {
+      Thread.sleep(10);
+    }
+  }
+
+  @After
+  public void stopServer() {
+    TServerUtils.stopTServer(server);
+  }
+
+  private static String call(TTransport channel, String arg, byte type) throws TException {
+    TProtocol protocol = new TBinaryProtocol(channel);
+    protocol.writeMessageBegin(new TMessage("echo", type, 1));
+    protocol.writeString(arg);
+    protocol.writeMessageEnd();
+    channel.flush();
+    if (type == TMessageType.ONEWAY) {
+      return null;
+    }
+    TMessage message = protocol.readMessageBegin();
+    if (message.type == TMessageType.EXCEPTION) {
+      TApplicationException e = TApplicationException.read(protocol);
+      protocol.readMessageEnd();
+      throw e;
+    }
+    String reply = protocol.readString();
+    protocol.readMessageEnd();
+    return reply;
+  }
+
+  private static String call(TTransport channel, String arg) throws TException {
+    return call(channel, arg, TMessageType.CALL);
+  }
+
+  @Test
+  public void testConcurrentCalls() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    final TTransport slow = connection.newChannel();
+    TTransport fast = connection.newChannel();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> slowReply = executor.submit(new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return MultiplexedServerTest.call(slow, "2000");
+        }
+      });
+      Thread.sleep(100);
+      // the reply to the second call is not held up by the first
+      assertEquals("0", call(fast, "0"));
+      assertFalse(slowReply.isDone());
+      assertEquals("2000", slowReply.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testOneWay() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    TTransport channel = connection.newChannel();
+    call(channel, "0", TMessageType.ONEWAY);
+    assertEquals("0", call(channel, "0"));
+    assertEquals("1", call(channel, "1"));
+  }
+
+  @Test
+  public void testOneWayOrder() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    TTransport channel = connection.newChannel();
+    // the later calls would finish first if the calls of a channel ran concurrently
+    call(channel, "300", TMessageType.ONEWAY);
+    call(channel, "200", TMessageType.ONEWAY);
+    call(channel, "100", TMessageType.ONEWAY);
+    call(channel, "0", TMessageType.ONEWAY);
+    // the reply comes after the one way calls sent before the call are processed
+    assertEquals("0", call(channel, "0"));
+    assertEquals(Arrays.asList("300", "200", "100", "0"), processor.oneWayCalls);
+  }
+
+  @Test
+  public void testFailedCall() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    TTransport channel = connection.newChannel();
+    try {
+      call(channel, "fail");
+      fail();
+    } catch (TApplicationException e) {
+      assertEquals(TApplicationException.INTERNAL_ERROR, e.getType());
+    }
+    // the connection and the channel are still usable
+    assertTrue(connection.isOpen());
+    assertEquals("0", call(channel, "0"));
+  }
+
+  @Test
+  public void testFailedOneWay() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    TTransport channel = connection.newChannel();
+    TTransport other = connection.newChannel();
+    // the calls after the failed one are queued while the first one runs, and are dropped
+    call(channel, "300", TMessageType.ONEWAY);
+    call(channel, "fail", TMessageType.ONEWAY);
+    call(channel, "0", TMessageType.ONEWAY);
+    call(other, "0", TMessageType.ONEWAY);
+    Thread.sleep(600);
+    assertEquals("0", call(channel, "0"));
+    assertTrue(connection.isOpen());
+    List<String> oneWayCalls = new ArrayList<>(processor.oneWayCalls);
+    Collections.sort(oneWayCalls);
+    // only the call on the other channel ran along with the first one
+    assertEquals(Arrays.asList("0", "300"), oneWayCalls);
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 200);
+    TTransport channel = connection.newChannel();
+    try {
+      call(channel, "2000");
+      fail();
+    } catch (TTransportException e) {
+      assertEquals(TTransportException.TIMED_OUT, e.getType());
+    }
+    // other channels are not affected
+    assertEquals("0", call(connection.newChannel(), "0"));
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    MultiplexedConnection connection = MultiplexedConnection.open(address, 0);
+    TTransport first = connection.newChannel();
+    TTransport second = connection.newChannel();
+    assertEquals("0", call(first, "0"));
+    first.close();
+    assertFalse(first.isOpen());
+    assertTrue(connection.isOpen());
+    assertEquals("0", call(second, "0"));
+
+    // the connection is closed with its last channel
+    second.close();
+    assertFalse(connection.isOpen());
+    assertEquals(null, connection.newChannel());
+    assertNotNull(MultiplexedConnection.open(address, 0).newChannel());
+  }
+}
@@ -32,6 +32,7 @@ public class ThriftServerTypeTest {
   @Test
   public void testSpecialServer() {
     assertEquals(ThriftServerType.THREADPOOL, ThriftServerType.get("threadpool"));
+    assertEquals(ThriftServerType.MULTIPLEXED, ThriftServerType.get("multiplexed"));
   }
 
 }
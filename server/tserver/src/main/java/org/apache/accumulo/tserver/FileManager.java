@@ -37,6 +37,7 @@ import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.BlockPrefetcher;
 import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
@@ -116,6 +117,7 @@ public class FileManager {
   private BlockCache dataCache = null;
   private BlockCache indexCache = null;
   private Cache<String,Long> fileLenCache;
+  private BlockPrefetcher prefetcher;
 
   private long maxIdleTime;
 
@@ -166,9 +168,12 @@ public class FileManager {
    *          : underlying file can and should be able to handle a null cache
    * @param indexCache
    *          : underlying file can and should be able to handle a null cache
+   * @param prefetcher
+   *          : fetches blocks ahead of sequential scans of tables that enable it, may be null
    */
   public FileManager(AccumuloServerContext context, VolumeManager fs, int maxOpen,
-      Cache<String,Long> fileLenCache, BlockCache dataCache, BlockCache indexCache) {
+      Cache<String,Long> fileLenCache, BlockCache dataCache, BlockCache indexCache,
+      BlockPrefetcher prefetcher) {
 
     if (maxOpen <= 0)
       throw new IllegalArgumentException("maxOpen <= 0");
@@ -176,6 +181,7 @@ public class FileManager {
     this.dataCache = dataCache;
     this.indexCache = indexCache;
     this.fileLenCache = fileLenCache;
+    this.prefetcher = prefetcher;
 
     this.filePermits = new Semaphore(maxOpen, false);
     this.maxOpen = maxOpen;
@@ -326,7 +332,8 @@ public class FileManager {
             .forFile(path.toString(), ns, ns.getConf())
             .withTableConfiguration(
                 context.getServerConfigurationFactory().getTableConfiguration(tablet))
-            .withBlockCache(dataCache, indexCache).withFileLenCache(fileLenCache).build();
+            .withBlockCache(dataCache, indexCache).withFileLenCache(fileLenCache)
+            .withPrefetcher(prefetcher).build();
         readersReserved.put(reader, file);
       } catch (Exception e) {
 
@@ -109,6 +109,8 @@ public class InMemoryMap {
   public static final String TYPE_DEFAULT_MAP = "DefaultMap";
   public static final String TYPE_LOCALITY_GROUP_MAP = "LocalityGroupMap";
   public static final String TYPE_LOCALITY_GROUP_MAP_NATIVE = "LocalityGroupMap with native";
+  public static final String TYPE_OFFHEAP_MAP = "OffHeapMap";
+  public static final String TYPE_LOCALITY_GROUP_MAP_OFFHEAP = "LocalityGroupMap with off heap";
 
   // @formatter:off
   private AtomicReference<Pair<SamplerConfigurationImpl,Sampler>> samplerRef =
@@ -135,6 +137,7 @@ public class InMemoryMap {
   public InMemoryMap(AccumuloConfiguration config) throws LocalityGroupConfigurationError {
 
     boolean useNativeMap = config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    boolean useOffHeapMap = config.getBoolean(Property.TSERV_OFFHEAP_MAP_ENABLED);
 
     this.memDumpDir = config.get(Property.TSERV_MEMDUMP_DIR);
     this.lggroups = LocalityGroupUtil.getLocalityGroups(config);
@@ -145,19 +148,25 @@ public class InMemoryMap {
     SimpleMap sampleMap;
 
     if (lggroups.size() == 0) {
-      allMap = newMap(useNativeMap);
-      sampleMap = newMap(useNativeMap);
-      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      allMap = newMap(useNativeMap, useOffHeapMap);
+      sampleMap = newMap(useNativeMap, useOffHeapMap);
+      if (useNativeMap)
+        mapType = TYPE_NATIVE_MAP_WRAPPER;
+      else
+        mapType = useOffHeapMap ? TYPE_OFFHEAP_MAP : TYPE_DEFAULT_MAP;
     } else {
-      allMap = new LocalityGroupMap(lggroups, useNativeMap);
-      sampleMap = new LocalityGroupMap(lggroups, useNativeMap);
-      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      allMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap);
+      sampleMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap);
+      if (useNativeMap)
+        mapType = TYPE_LOCALITY_GROUP_MAP_NATIVE;
+      else
+        mapType = useOffHeapMap ? TYPE_LOCALITY_GROUP_MAP_OFFHEAP : TYPE_LOCALITY_GROUP_MAP;
     }
 
     map = new SampleMap(allMap, sampleMap);
   }
 
-  private static SimpleMap newMap(boolean useNativeMap) {
+  private static SimpleMap newMap(boolean useNativeMap, boolean useOffHeapMap) {
     if (useNativeMap && NativeMap.isLoaded()) {
       try {
         return new NativeMapWrapper();
@@ -166,16 +175,21 @@ public class InMemoryMap {
       }
     }
 
+    if (useOffHeapMap) {
+      return new OffHeapMapWrapper();
+    }
+
     return new DefaultMap();
   }
 
   /**
    * Description of the type of SimpleMap that is created.
    * <p>
-   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP or
-   * TYPE_NATIVE_MAP_WRAPPER. If there is one more locality groups, then the InMemoryMap has an
-   * array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains
-   * DefaultMaps or TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers.
+   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP,
+   * TYPE_NATIVE_MAP_WRAPPER or TYPE_OFFHEAP_MAP. If there is one more locality groups, then the
+   * InMemoryMap has an array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP
+   * which contains DefaultMaps, TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers or
+   * TYPE_LOCALITY_GROUP_MAP_OFFHEAP which contains OffHeapMapWrappers.
    *
    * @return String that describes the Map type
    */
@@ -266,7 +280,7 @@ public class InMemoryMap {
           for (ColumnUpdate cvp : colUpdates) {
             Key k = new Key(m.getRow(), cvp.getColumnFamily(), cvp.getColumnQualifier(),
                 cvp.getColumnVisibility(), cvp.getTimestamp(), cvp.isDeleted(), false);
-            if (sampler.accept(k)) {
+            if (accept(sampler, k)) {
               if (sampleColUpdates == null) {
                 sampleColUpdates = new ArrayList<>();
               }
@@ -289,6 +303,13 @@ public class InMemoryMap {
         }
       }
     }
+
+    private boolean accept(Sampler sampler, Key k) {
+      // writes to a tablet run in parallel, but samplers are not required to be thread safe
+      synchronized (sampler) {
+        return sampler.accept(k);
+      }
+    }
   }
 
   private static class LocalityGroupMap implements SimpleMap {
@@ -298,15 +319,14 @@ public class InMemoryMap {
     // the last map in the array is the default locality group
     private SimpleMap maps[];
     private Partitioner partitioner;
-    private PreAllocatedArray<List<Mutation>> partitioned;
 
-    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap) {
+    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap,
+        boolean useOffHeapMap) {
       this.groupFams = new PreAllocatedArray<>(groups.size());
       this.maps = new SimpleMap[groups.size() + 1];
-      this.partitioned = new PreAllocatedArray<>(groups.size() + 1);
 
       for (int i = 0; i < maps.length; i++) {
-        maps[i] = newMap(useNativeMap);
+        maps[i] = newMap(useNativeMap, useOffHeapMap);
       }
 
       int count = 0;
@@ -318,10 +338,6 @@ public class InMemoryMap {
       }
 
       partitioner = new LocalityGroupUtil.Partitioner(this.groupFams);
-
-      for (int i = 0; i < partitioned.length; i++) {
-        partitioned.set(i, new ArrayList<Mutation>());
-      }
     }
 
     @Override
@@ -373,25 +389,20 @@ public class InMemoryMap {
     }
 
     @Override
-    public synchronized void mutate(List<Mutation> mutations, int kvCount) {
-      // this method is synchronized because it reuses objects to avoid allocation,
-      // currently, the method that calls this is synchronized so there is no
-      // loss in parallelism.... synchronization was added here for future proofing
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      // called by many writers at once, so the partitions are not reused between calls
+      PreAllocatedArray<List<Mutation>> partitioned = new PreAllocatedArray<>(maps.length);
+      for (int i = 0; i < partitioned.length; i++) {
+        partitioned.set(i, new ArrayList<Mutation>());
+      }
 
-      try {
-        partitioner.partition(mutations, partitioned);
+      partitioner.partition(mutations, partitioned);
 
-        for (int i = 0; i < partitioned.length; i++) {
-          if (partitioned.get(i).size() > 0) {
-            maps[i].mutate(partitioned.get(i), kvCount);
-            for (Mutation m : partitioned.get(i))
-              kvCount += m.getUpdates().size();
-          }
-        }
-      } finally {
-        // clear immediately so mutations can be garbage collected
-        for (List<Mutation> list : partitioned) {
-          list.clear();
+      for (int i = 0; i < partitioned.length; i++) {
+        if (partitioned.get(i).size() > 0) {
+          maps[i].mutate(partitioned.get(i), kvCount);
+          for (Mutation m : partitioned.get(i))
+            kvCount += m.getUpdates().size();
         }
       }
     }
@@ -517,6 +528,51 @@ public class InMemoryMap {
     }
   }
 
+  private static class OffHeapMapWrapper implements SimpleMap {
+    private OffHeapMap offHeapMap;
+
+    OffHeapMapWrapper() {
+      offHeapMap = new OffHeapMap();
+    }
+
+    @Override
+    public Value get(Key key) {
+      return offHeapMap.get(key);
+    }
+
+    @Override
+    public Iterator<Entry<Key,Value>> iterator(Key startKey) {
+      return offHeapMap.iterator(startKey);
+    }
+
+    @Override
+    public int size() {
+      return offHeapMap.size();
+    }
+
+    @Override
+    public InterruptibleIterator skvIterator(SamplerConfigurationImpl samplerConfig) {
+      if (samplerConfig != null)
+        throw new SampleNotPresentException();
+      return (InterruptibleIterator) offHeapMap.skvIterator();
+    }
+
+    @Override
+    public void delete() {
+      offHeapMap.delete();
+    }
+
+    @Override
+    public long getMemoryUsed() {
+      return offHeapMap.getMemoryUsed();
+    }
+
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      offHeapMap.mutate(mutations, kvCount);
+    }
+  }
+
   private AtomicInteger nextKVCount = new AtomicInteger(1);
   private AtomicInteger kvCount = new AtomicInteger(0);
 
@@ -531,20 +587,41 @@ public class InMemoryMap {
     for (int i = 0; i < mutations.size(); i++)
       numKVs += mutations.get(i).size();
 
-    // Can not update mutationCount while writes that started before
-    // are in progress, this would cause partial mutations to be seen.
-    // Also, can not continue until mutation count is updated, because
-    // a read may not see a successful write. Therefore writes must
-    // wait for writes that started before to finish.
-    //
+    // Each write reserves its own range of mutation counts and writes to the
+    // map in parallel with other writes. Readers do not see key values past
+    // kvCount, so a write in progress is not seen.
+    int kv = nextKVCount.getAndAdd(numKVs);
+    try {
+      map.mutate(mutations, kv);
+    } finally {
+      publish(kv, numKVs);
+    }
+  }
+
+  /**
+   * Makes a write visible to readers. Can not update kvCount while writes that started before are
+   * in progress, this would cause partial mutations to be seen. Also, can not continue until
+   * kvCount is updated, because a read may not see a successful write. Therefore writes wait for
+   * writes that started before to be published.
+   */
+  private void publish(int kv, int numKVs) {
+    boolean interrupted = false;
     // using separate lock from this map, to allow read/write in parallel
     synchronized (writeSerializer) {
-      int kv = nextKVCount.getAndAdd(numKVs);
-      try {
-        map.mutate(mutations, kv);
-      } finally {
-        kvCount.set(kv + numKVs - 1);
+      while (kvCount.get() != kv - 1) {
+        try {
+          writeSerializer.wait();
+        } catch (InterruptedException e) {
+          // writes that started after this one are waiting on it, so it must be published
+          interrupted = true;
+        }
       }
+      kvCount.set(kv + numKVs - 1);
+      writeSerializer.notifyAll();
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
     }
   }
 
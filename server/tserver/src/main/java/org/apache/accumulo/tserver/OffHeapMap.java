@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IterationInterruptedException;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.system.InterruptibleIterator;
+import org.apache.accumulo.core.util.DirectBufferFreer;
+import org.apache.accumulo.core.util.PreAllocatedArray;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A sorted map that keeps its keys and values in direct memory, like {@link NativeMap}, but is
+ * written in Java and so needs no native library. Only a handful of objects per map live on the
+ * Java heap, so a large map does not add to the work of the garbage collector.
+ *
+ * <p>
+ * The map is a skip list. Each entry is a node holding its forward pointers, key and value, packed
+ * into a chunk of direct memory. Chunks are allocated as the map grows, starting small so that the
+ * many maps of a tablet server with many idle tablets stay small. Nodes are never moved or removed,
+ * so a node address stays valid until the whole map is deleted.
+ *
+ * <p>
+ * Like {@link NativeMap}, writers take a write lock, and readers take a read lock while they copy a
+ * batch of entries onto the heap.
+ */
+public class OffHeapMap implements Iterable<Map.Entry<Key,Value>> {
+
+  private static final long NIL = -1;
+
+  @VisibleForTesting
+  static final int MAX_LEVEL = 16;
+
+  private static final int MIN_CHUNK_SIZE = 64 * 1024;
+  private static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  // node layout: a level byte, level forward pointers, then the fields below and the field data
+  private static final int ROW_LEN = 0;
+  private static final int CF_LEN = 4;
+  private static final int CQ_LEN = 8;
+  private static final int CV_LEN = 12;
+  private static final int VAL_LEN = 16;
+  private static final int TIMESTAMP = 20;
+  private static final int DELETED = 28;
+  private static final int KV_COUNT = 29;
+  private static final int DATA = 33;
+
+  private final Lock rlock;
+  private final Lock wlock;
+
+  // chunk addresses are the chunk index in the high 32 bits and the offset in the low 32 bits
+  private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+  private int chunkPosition = 0;
+  private int nextChunkSize = MIN_CHUNK_SIZE;
+  private long allocated = 0;
+
+  private final long[] head = new long[MAX_LEVEL];
+  private final long[] update = new long[MAX_LEVEL];
+  private int level = 1;
+  private int size = 0;
+  private int randomSeed;
+  private boolean deleted = false;
+
+  public OffHeapMap() {
+    ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    rlock = rwLock.readLock();
+    wlock = rwLock.writeLock();
+    Arrays.fill(head, NIL);
+    randomSeed = ThreadLocalRandom.current().nextInt() | 1;
+  }
+
+  // it is assumed the read or write lock is held when the methods below are called
+
+  private void checkNotDeleted() {
+    if (deleted) {
+      throw new IllegalStateException("Off heap map deleted");
+    }
+  }
+
+  private ByteBuffer chunk(long node) {
+    return chunks.get((int) (node >>> 32));
+  }
+
+  private static int offset(long node) {
+    return (int) node;
+  }
+
+  private long getNext(long node, int lvl) {
+    if (node == NIL) {
+      return head[lvl];
+    }
+    return chunk(node).getLong(offset(node) + 1 + 8 * lvl);
+  }
+
+  private void setNext(long node, int lvl, long next) {
+    if (node == NIL) {
+      head[lvl] = next;
+    } else {
+      chunk(node).putLong(offset(node) + 1 + 8 * lvl, next);
+    }
+  }
+
+  private long allocate(int nodeSize) {
+    ByteBuffer current = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+    if (current == null || current.capacity() - chunkPosition < nodeSize) {
+      int chunkSize = Math.max(nextChunkSize, nodeSize);
+      chunks.add(ByteBuffer.allocateDirect(chunkSize));
+      allocated += chunkSize;
+      chunkPosition = 0;
+      nextChunkSize = Math.min(nextChunkSize * 2, MAX_CHUNK_SIZE);
+    }
+    long node = ((long) (chunks.size() - 1) << 32) | chunkPosition;
+    chunkPosition += nodeSize;
+    return node;
+  }
+
+  private int randomLevel() {
+    // xorshift, never returns zero for a non zero seed
+    int x = randomSeed;
+    x ^= x << 13;
+    x ^= x >>> 17;
+    x ^= x << 5;
+    randomSeed = x;
+    // each level is a quarter as likely as the one below it
+    return Math.min(1 + Integer.numberOfTrailingZeros(x) / 2, MAX_LEVEL);
+  }
+
+  private static int compareBytes(ByteBuffer buf, int pos, int len, byte[] b) {
+    int end = Math.min(len, b.length);
+    for (int i = 0; i < end; i++) {
+      int cmp = (buf.get(pos + i) & 0xff) - (b[i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return len - b.length;
+  }
+
+  /**
+   * Compares a node to a key in the same way {@link MemKeyComparator} compares a {@link MemKey}
+   * to a key.
+   *
+   * @param memKey
+   *          true if the key is a {@link MemKey} with the given kvCount, false if it is a plain key
+   */
+  private int compare(long node, byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del,
+      boolean memKey, int kvCount) {
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    int fields = off + 1 + 8 * buf.get(off);
+    int data = fields + DATA;
+
+    int len = buf.getInt(fields + ROW_LEN);
+    int cmp = compareBytes(buf, data, len, row);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += len;
+
+    len = buf.getInt(fields + CF_LEN);
+    cmp = compareBytes(buf, data, len, cf);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += len;
+
+    len = buf.getInt(fields + CQ_LEN);
+    cmp = compareBytes(buf, data, len, cq);
+    if (cmp != 0) {
+      return cmp;
+    }
+    data += len;
+
+    len = buf.getInt(fields + CV_LEN);
+    cmp = compareBytes(buf, data, len, cv);
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    // newer timestamps sort first
+    long nodeTs = buf.getLong(fields + TIMESTAMP);
+    if (nodeTs != ts) {
+      return nodeTs < ts ? 1 : -1;
+    }
+
+    // deletes sort first
+    boolean nodeDel = buf.get(fields + DELETED) != 0;
+    if (nodeDel != del) {
+      return nodeDel ? -1 : 1;
+    }
+
+    if (!memKey) {
+      // a plain key sorts before every mem key with the same fields
+      return 1;
+    }
+
+    // newer writes sort first
+    return kvCount - buf.getInt(fields + KV_COUNT);
+  }
+
+  private long findGreaterOrEqual(Key key) {
+    byte[] row = key.getRowData().toArray();
+    byte[] cf = key.getColumnFamilyData().toArray();
+    byte[] cq = key.getColumnQualifierData().toArray();
+    byte[] cv = key.getColumnVisibilityData().toArray();
+    boolean memKey = key instanceof MemKey;
+    int kvCount = memKey ? ((MemKey) key).getKVCount() : 0;
+
+    long x = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      long next = getNext(x, i);
+      while (next != NIL && compare(next, row, cf, cq, cv, key.getTimestamp(), key.isDeleted(),
+          memKey, kvCount) < 0) {
+        x = next;
+        next = getNext(x, i);
+      }
+    }
+    return getNext(x, 0);
+  }
+
+  // it is assumed the write lock is held when this method is called
+  private void insert(byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del,
+      byte[] value, int kvCount) {
+    long x = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      long next = getNext(x, i);
+      while (next != NIL && compare(next, row, cf, cq, cv, ts, del, true, kvCount) < 0) {
+        x = next;
+        next = getNext(x, i);
+      }
+      update[i] = x;
+    }
+
+    int lvl = randomLevel();
+    for (int i = level; i < lvl; i++) {
+      update[i] = NIL;
+    }
+    level = Math.max(level, lvl);
+
+    int fields = 1 + 8 * lvl;
+    int nodeSize = fields + DATA + row.length + cf.length + cq.length + cv.length + value.length;
+    long node = allocate(nodeSize);
+
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    buf.put(off, (byte) lvl);
+    fields += off;
+    buf.putInt(fields + ROW_LEN, row.length);
+    buf.putInt(fields + CF_LEN, cf.length);
+    buf.putInt(fields + CQ_LEN, cq.length);
+    buf.putInt(fields + CV_LEN, cv.length);
+    buf.putInt(fields + VAL_LEN, value.length);
+    buf.putLong(fields + TIMESTAMP, ts);
+    buf.put(fields + DELETED, (byte) (del ? 1 : 0));
+    buf.putInt(fields + KV_COUNT, kvCount);
+
+    ByteBuffer dup = buf.duplicate();
+    dup.position(fields + DATA);
+    dup.put(row);
+    dup.put(cf);
+    dup.put(cq);
+    dup.put(cv);
+    dup.put(value);
+
+    for (int i = 0; i < lvl; i++) {
+      setNext(node, i, getNext(update[i], i));
+      setNext(update[i], i, node);
+    }
+
+    size++;
+  }
+
+  private Entry<Key,Value> readEntry(long node) {
+    ByteBuffer dup = chunk(node).duplicate();
+    int off = offset(node);
+    int fields = off + 1 + 8 * dup.get(off);
+
+    byte[] row = new byte[dup.getInt(fields + ROW_LEN)];
+    byte[] cf = new byte[dup.getInt(fields + CF_LEN)];
+    byte[] cq = new byte[dup.getInt(fields + CQ_LEN)];
+    byte[] cv = new byte[dup.getInt(fields + CV_LEN)];
+    byte[] val = new byte[dup.getInt(fields + VAL_LEN)];
+    long ts = dup.getLong(fields + TIMESTAMP);
+    boolean del = dup.get(fields + DELETED) != 0;
+    int kvCount = dup.getInt(fields + KV_COUNT);
+
+    dup.position(fields + DATA);
+    dup.get(row);
+    dup.get(cf);
+    dup.get(cq);
+    dup.get(cv);
+    dup.get(val);
+
+    Key k = new MemKey(row, cf, cq, cv, ts, del, false, kvCount);
+    Value v = new Value(val, false);
+    return new SimpleImmutableEntry<>(k, v);
+  }
+
+  private class ConcurrentIterator implements Iterator<Map.Entry<Key,Value>> {
+
+    // read several entries while the read lock is held, for the same reasons as the iterator of
+    // the native map
+    private static final int MAX_READ_AHEAD_ENTRIES = 16;
+    private static final int READ_AHEAD_BYTES = 4096;
+
+    // the last node read, nodes are never removed so the following node can always be found
+    private long lastNode = NIL;
+    private boolean atEnd = false;
+
+    private PreAllocatedArray<Entry<Key,Value>> nextEntries;
+    private int index;
+    private int end;
+
+    ConcurrentIterator(Key key) {
+      // start off with a small read ahead
+      nextEntries = new PreAllocatedArray<>(1);
+
+      rlock.lock();
+      try {
+        checkNotDeleted();
+        fill(findGreaterOrEqual(key));
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    // it is assumed the read lock is held when this method is called
+    private void fill(long node) {
+      end = 0;
+      index = 0;
+
+      int amountRead = 0;
+
+      // as we keep filling, increase the read ahead buffer
+      if (nextEntries.length < MAX_READ_AHEAD_ENTRIES)
+        nextEntries = new PreAllocatedArray<>(
+            Math.min(nextEntries.length * 2, MAX_READ_AHEAD_ENTRIES));
+
+      while (node != NIL && end < nextEntries.length) {
+        Entry<Key,Value> ne = readEntry(node);
+        nextEntries.set(end++, ne);
+        lastNode = node;
+        amountRead += ne.getKey().getSize() + ne.getValue().getSize();
+
+        if (amountRead > READ_AHEAD_BYTES)
+          break;
+
+        node = getNext(node, 0);
+      }
+
+      if (end == 0) {
+        atEnd = true;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return end != 0;
+    }
+
+    @Override
+    public Entry<Key,Value> next() {
+      if (end == 0) {
+        throw new NoSuchElementException();
+      }
+
+      Entry<Key,Value> ret = nextEntries.get(index++);
+
+      if (index == end) {
+        if (atEnd) {
+          end = 0;
+        } else {
+          rlock.lock();
+          try {
+            checkNotDeleted();
+            fill(getNext(lastNode, 0));
+          } finally {
+            rlock.unlock();
+          }
+        }
+      }
+
+      return ret;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @VisibleForTesting
+  public void mutate(Mutation mutation, int mutationCount) {
+    mutate(Collections.singletonList(mutation), mutationCount);
+  }
+
+  void mutate(List<Mutation> mutations, int mutationCount) {
+    Iterator<Mutation> iter = mutations.iterator();
+
+    // release the lock now and then, so that readers are not held up by large batches
+    while (iter.hasNext()) {
+
+      wlock.lock();
+      try {
+        checkNotDeleted();
+
+        int count = 0;
+        while (iter.hasNext() && count < 10) {
+          Mutation mutation = iter.next();
+          for (ColumnUpdate update : mutation.getUpdates()) {
+            insert(mutation.getRow(), update.getColumnFamily(), update.getColumnQualifier(),
+                update.getColumnVisibility(), update.getTimestamp(), update.isDeleted(),
+                update.getValue(), mutationCount++);
+          }
+          count += mutation.size();
+        }
+      } finally {
+        wlock.unlock();
+      }
+    }
+  }
+
+  public Value get(Key key) {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      long node = findGreaterOrEqual(key);
+      if (node != NIL) {
+        Entry<Key,Value> entry = readEntry(node);
+        if (entry.getKey().equals(key)) {
+          return entry.getValue();
+        }
+      }
+      return null;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  public int size() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return size;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  /**
+   * @return the bytes of direct memory allocated by the map
+   */
+  public long getMemoryUsed() {
+    rlock.lock();
+    try {
+      checkNotDeleted();
+      return allocated;
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  @Override
+  public Iterator<Map.Entry<Key,Value>> iterator() {
+    return new ConcurrentIterator(new MemKey());
+  }
+
+  public Iterator<Map.Entry<Key,Value>> iterator(Key startKey) {
+    return new ConcurrentIterator(startKey);
+  }
+
+  /**
+   * Frees the direct memory of the map. The map and its iterators can not be used afterwards.
+   */
+  public void delete() {
+    wlock.lock();
+    try {
+      checkNotDeleted();
+      deleted = true;
+      for (ByteBuffer chunk : chunks) {
+        DirectBufferFreer.free(chunk);
+      }
+      chunks.clear();
+    } finally {
+      wlock.unlock();
+    }
+  }
+
+  private static class OHMSKVIter implements InterruptibleIterator {
+
+    private ConcurrentIterator iter;
+    private Entry<Key,Value> entry;
+
+    private OffHeapMap map;
+    private Range range;
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+
+    private OHMSKVIter(OffHeapMap map, AtomicBoolean interruptFlag) {
+      this.map = map;
+      this.range = new Range();
+      iter = map.new ConcurrentIterator(new MemKey());
+      if (iter.hasNext())
+        entry = iter.next();
+      else
+        entry = null;
+
+      this.interruptFlag = interruptFlag;
+    }
+
+    public OHMSKVIter(OffHeapMap map) {
+      this(map, null);
+    }
+
+    @Override
+    public Key getTopKey() {
+      return entry.getKey();
+    }
+
+    @Override
+    public Value getTopValue() {
+      return entry.getValue();
+    }
+
+    @Override
+    public boolean hasTop() {
+      return entry != null;
+    }
+
+    @Override
+    public void next() throws IOException {
+
+      if (entry == null)
+        throw new IllegalStateException();
+
+      // checking the interrupt flag for every call to next had bad a bad performance impact
+      // so check it every 100th time
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+        throws IOException {
+
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      this.range = range;
+
+      Key key = range.getStartKey();
+      if (key == null) {
+        key = new MemKey();
+      }
+
+      iter = map.new ConcurrentIterator(key);
+      if (iter.hasNext()) {
+        entry = iter.next();
+        if (range.afterEndKey(entry.getKey())) {
+          entry = null;
+        }
+      } else
+        entry = null;
+
+      while (hasTop() && range.beforeStartKey(getTopKey())) {
+        next();
+      }
+    }
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      if (env != null && env.isSamplingEnabled()) {
+        throw new SampleNotPresentException();
+      }
+      return new OHMSKVIter(map, interruptFlag);
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+
+  public SortedKeyValueIterator<Key,Value> skvIterator() {
+    return new OHMSKVIter(this);
+  }
+}
@@ -105,6 +105,7 @@ import org.apache.accumulo.core.data.thrift.TKeyValue;
 import org.apache.accumulo.core.data.thrift.TMutation;
 import org.apache.accumulo.core.data.thrift.TRange;
 import org.apache.accumulo.core.data.thrift.UpdateErrors;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.master.thrift.BulkImportState;
 import org.apache.accumulo.core.master.thrift.Compacting;
@@ -288,6 +289,10 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
   private final Metrics scanMetrics;
   private final Metrics mincMetrics;
 
+  public Metrics getUpdateMetrics() {
+    return updateMetrics;
+  }
+
   public Metrics getScanMetrics() {
     return scanMetrics;
   }
@@ -405,7 +410,8 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
         .createFactory();
 
     logger = new TabletServerLogger(this, walogMaxSize, syncCounter, flushCounter,
-        walCreationRetryFactory, walWritingRetryFactory, walogMaxAge);
+        walCreationRetryFactory, walWritingRetryFactory, walogMaxAge,
+        TabletServerLogger.getLogCount(aconf));
     this.resourceManager = new TabletServerResourceManager(this, fs);
     this.security = AuditedSecurityOperation.getInstance(this);
 
@@ -1955,12 +1961,7 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
 
     @Override
     public List<String> getActiveLogs(TInfo tinfo, TCredentials credentials) throws TException {
-      String log = logger.getLogFile();
-      // Might be null if there no active logger
-      if (null == log) {
-        return Collections.emptyList();
-      }
-      return Collections.singletonList(log);
+      return logger.getLogFiles();
     }
 
     @Override
@@ -3289,7 +3290,11 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
             "Unable to find recovery files for extent " + extent + " logEntry: " + entry);
       recoveryLogs.add(recovery);
     }
+    long t1 = System.currentTimeMillis();
     logger.recover(fs, extent, tconf, recoveryLogs, tabletFiles, mutationReceiver);
+    if (updateMetrics.isEnabled())
+      updateMetrics.add(TabletServerUpdateMetrics.TABLET_RECOVERY_TIME,
+          System.currentTimeMillis() - t1);
   }
 
   public int createLogId() {
@@ -3345,6 +3350,14 @@ public class TabletServer extends AccumuloServerContext implements Runnable {
     return resourceManager.holdTime();
   }
 
+  public BlockCache getDataCache() {
+    return resourceManager.getDataCache();
+  }
+
+  public BlockCache getIndexCache() {
+    return resourceManager.getIndexCache();
+  }
+
   public SecurityOperation getSecurityOperation() {
     return security;
   }
@@ -19,6 +19,7 @@ package org.apache.accumulo.tserver;
 import static java.util.Objects.requireNonNull;
 import static org.apache.accumulo.fate.util.UtilWaitThread.sleepUninterruptibly;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -39,7 +40,12 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.impl.KeyExtent;
-import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCacheFactory;
+import org.apache.accumulo.core.file.blockfile.cache.LocalDiskBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.TieredBlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.BlockPrefetcher;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
 import org.apache.accumulo.core.util.Daemon;
 import org.apache.accumulo.core.util.NamingThreadFactory;
@@ -98,8 +104,9 @@ public class TabletServerResourceManager {
 
   private final MemoryManagementFramework memMgmt;
 
-  private final LruBlockCache _dCache;
-  private final LruBlockCache _iCache;
+  private final BlockCache _dCache;
+  private final BlockCache _iCache;
+  private final LocalDiskBlockCache _localCache;
   private final TabletServer tserver;
   private final ServerConfigurationFactory conf;
 
@@ -164,36 +171,65 @@ public class TabletServerResourceManager {
     long maxMemory = acuConf.getMemoryInBytes(Property.TSERV_MAXMEM);
     boolean usingNativeMap = acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED)
         && NativeMap.isLoaded();
+    boolean usingOffHeapMap = usingNativeMap
+        || acuConf.getBoolean(Property.TSERV_OFFHEAP_MAP_ENABLED);
 
     long blockSize = acuConf.getMemoryInBytes(Property.TSERV_DEFAULT_BLOCKSIZE);
     long dCacheSize = acuConf.getMemoryInBytes(Property.TSERV_DATACACHE_SIZE);
     long iCacheSize = acuConf.getMemoryInBytes(Property.TSERV_INDEXCACHE_SIZE);
     long totalQueueSize = acuConf.getMemoryInBytes(Property.TSERV_TOTAL_MUTATION_QUEUE_MAX);
 
-    _iCache = new LruBlockCache(iCacheSize, blockSize);
-    _dCache = new LruBlockCache(dCacheSize, blockSize);
+    BlockCache iCache = BlockCacheFactory.createCache(acuConf, iCacheSize, blockSize);
+    BlockCache dCache = BlockCacheFactory.createCache(acuConf, dCacheSize, blockSize);
+
+    String localCacheDir = acuConf.get(Property.TSERV_CACHE_LOCAL_DIR).trim();
+    // the local cache stores blocks decrypted, which would defeat encryption at rest
+    boolean encrypted = !acuConf.get(Property.CRYPTO_MODULE_CLASS).trim()
+        .equals("NullCryptoModule");
+    if (!localCacheDir.isEmpty() && encrypted) {
+      log.warn("Not using the local block cache in {}, {} is set", localCacheDir,
+          Property.CRYPTO_MODULE_CLASS.getKey());
+    }
+    if (localCacheDir.isEmpty() || encrypted) {
+      _localCache = null;
+      _iCache = iCache;
+      _dCache = dCache;
+    } else {
+      // the data and index caches share one local directory, their block names do not overlap
+      _localCache = new LocalDiskBlockCache(new File(localCacheDir),
+          acuConf.getMemoryInBytes(Property.TSERV_CACHE_LOCAL_SIZE));
+      _iCache = new TieredBlockCache(iCache, _localCache);
+      _dCache = new TieredBlockCache(dCache, _localCache);
+    }
+
+    // off heap caches only need room in the JVM heap for the indexes parsed from their blocks
+    long heapCacheSize = dCacheSize + iCacheSize;
+    if (BlockCacheFactory.getPolicy(acuConf) == BlockCacheFactory.Policy.OFFHEAP) {
+      heapCacheSize = OffHeapBlockCache.getMaxIndexHeapSize(dCacheSize)
+          + OffHeapBlockCache.getMaxIndexHeapSize(iCacheSize);
+    }
 
     Runtime runtime = Runtime.getRuntime();
-    if (usingNativeMap) {
-      // Still check block cache sizes when using native maps.
-      if (dCacheSize + iCacheSize + totalQueueSize > runtime.maxMemory()) {
+    if (usingOffHeapMap) {
+      // Still check block cache sizes when using native or off heap maps.
+      if (heapCacheSize + totalQueueSize > runtime.maxMemory()) {
         throw new IllegalArgumentException(String.format(
             "Block cache sizes %,d"
                 + " and mutation queue size %,d is too large for this JVM configuration %,d",
-            dCacheSize + iCacheSize, totalQueueSize, runtime.maxMemory()));
+            heapCacheSize, totalQueueSize, runtime.maxMemory()));
       }
-    } else if (maxMemory + dCacheSize + iCacheSize + totalQueueSize > runtime.maxMemory()) {
+    } else if (maxMemory + heapCacheSize + totalQueueSize > runtime.maxMemory()) {
       throw new IllegalArgumentException(String.format(
           "Maximum tablet server"
               + " map memory %,d block cache sizes %,d and mutation queue size %,d is"
               + " too large for this JVM configuration %,d",
-          maxMemory, dCacheSize + iCacheSize, totalQueueSize, runtime.maxMemory()));
+          maxMemory, heapCacheSize, totalQueueSize, runtime.maxMemory()));
     }
     runtime.gc();
 
     // totalMemory - freeMemory = memory in use
     // maxMemory - memory in use = max available memory
-    if (!usingNativeMap
+    if (!usingOffHeapMap
         && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
       log.warn("In-memory map may not fit into local memory space.");
     }
@@ -233,7 +269,12 @@ public class TabletServerResourceManager {
     Cache<String,Long> fileLenCache = CacheBuilder.newBuilder()
         .maximumSize(Math.min(maxOpenFiles * 1000L, 100_000)).build();
 
-    fileManager = new FileManager(tserver, fs, maxOpenFiles, fileLenCache, _dCache, _iCache);
+    BlockPrefetcher prefetcher = new BlockPrefetcher(
+        createEs(Property.TSERV_FILE_PREFETCH_THREADS, "block prefetch"),
+        acuConf.getMemoryInBytes(Property.TSERV_FILE_PREFETCH_MEMORY));
+
+    fileManager = new FileManager(tserver, fs, maxOpenFiles, fileLenCache, _dCache, _iCache,
+        prefetcher);
 
     memoryManager = Property.createInstanceFromPropertyName(acuConf, Property.TSERV_MEM_MGMT,
         MemoryManager.class, new LargestFirstMemoryManager());
@@ -551,6 +592,10 @@ public class TabletServerResourceManager {
       executorService.shutdown();
     }
 
+    if (_localCache != null) {
+      _localCache.shutdown();
+    }
+
     for (Entry<String,ExecutorService> entry : threadPools.entrySet()) {
       while (true) {
         try {
@@ -785,11 +830,11 @@ public class TabletServerResourceManager {
     }
   }
 
-  public LruBlockCache getIndexCache() {
+  public BlockCache getIndexCache() {
     return _iCache;
   }
 
-  public LruBlockCache getDataCache() {
+  public BlockCache getDataCache() {
     return _dCache;
   }
 
@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 public class WriteParameters {
   private String compressType = null;
+  private int compressLevel = 0;
   private long hdfsBlockSize = 0;
   private long blockSize = 0;
   private long indexBlockSize = 0;
@@ -33,6 +34,19 @@ public class WriteParameters {
     this.compressType = compressType;
   }
 
+  public int getCompressLevel() {
+    return compressLevel;
+  }
+
+  /**
+   * Sets the level to compress at, for compression types that have levels, like zstd. 0 uses the
+   * level configured for the table.
+   */
+  public void setCompressLevel(int compressLevel) {
+    checkArgument(compressLevel >= 0);
+    this.compressLevel = compressLevel;
+  }
+
   public long getHdfsBlockSize() {
     return hdfsBlockSize;
   }
@@ -182,6 +182,9 @@ public class ConfigurableCompactionStrategy extends CompactionStrategy {
         case OUTPUT_COMPRESSION_OPT:
           writeParams.setCompressType(entry.getValue());
           break;
+        case OUTPUT_COMPRESSION_LEVEL_OPT:
+          writeParams.setCompressLevel(Integer.parseInt(entry.getValue()));
+          break;
         case OUTPUT_BLOCK_SIZE_OPT:
           writeParams.setBlockSize(Long.parseLong(entry.getValue()));
           break;
@@ -23,6 +23,7 @@ import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
 import static org.apache.accumulo.tserver.logger.LogEvents.MANY_MUTATIONS;
 import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -56,9 +57,11 @@ import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.fate.util.LoggingRunnable;
 import org.apache.accumulo.server.ServerConstants;
 import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.metrics.Metrics;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.accumulo.tserver.metrics.TabletServerUpdateMetricsKeys;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
@@ -197,6 +200,14 @@ public class DfsLogger implements Comparable<DfsLogger> {
           fail(work, ex, "synching");
         }
         long duration = System.currentTimeMillis() - start;
+        if (durabilityMethod != null && updateMetrics != null && updateMetrics.isEnabled()) {
+          // every write waiting on this sync was committed by it
+          int batchSize = work.size();
+          if (work.get(work.size() - 1) == CLOSED_MARKER)
+            batchSize--;
+          updateMetrics.add(TabletServerUpdateMetricsKeys.WALOG_SYNC_TIME, duration);
+          updateMetrics.add(TabletServerUpdateMetricsKeys.WALOG_SYNC_BATCH_SIZE, batchSize);
+        }
         if (duration > slowFlushMillis) {
           String msg = new StringBuilder(128).append("Slow sync cost: ").append(duration)
               .append(" ms, current pipeline: ").append(Arrays.toString(getPipeLine())).toString();
@@ -319,6 +330,7 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private String metaReference;
   private AtomicLong syncCounter;
   private AtomicLong flushCounter;
+  private Metrics updateMetrics;
   private final long slowFlushMillis;
 
   private DfsLogger(ServerResources conf) {
@@ -329,9 +341,20 @@ public class DfsLogger implements Comparable<DfsLogger> {
 
   public DfsLogger(ServerResources conf, AtomicLong syncCounter, AtomicLong flushCounter)
       throws IOException {
+    this(conf, syncCounter, flushCounter, null);
+  }
+
+  /**
+   * @param updateMetrics
+   *          receives the size of and time taken by each group of writes synced together, may be
+   *          null
+   */
+  public DfsLogger(ServerResources conf, AtomicLong syncCounter, AtomicLong flushCounter,
+      Metrics updateMetrics) throws IOException {
     this(conf);
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
+    this.updateMetrics = updateMetrics;
   }
 
   /**
@@ -627,11 +650,21 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private LoggerOperation logFileData(List<Pair<LogFileKey,LogFileValue>> keys,
       Durability durability) throws IOException {
     DfsLogger.LogWork work = new DfsLogger.LogWork(new CountDownLatch(1), durability);
+
+    // serialize before taking the lock, so that writers only wait on each other for the copy into
+    // the log and not for the encoding of each other's mutations
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    for (Pair<LogFileKey,LogFileValue> pair : keys) {
+      pair.getFirst().write(out);
+      pair.getSecond().write(out);
+    }
+    out.close();
+
     synchronized (DfsLogger.this) {
       try {
-        for (Pair<LogFileKey,LogFileValue> pair : keys) {
-          write(pair.getFirst(), pair.getSecond());
-        }
+        buffer.writeTo(encryptingLogFile);
+        encryptingLogFile.flush();
       } catch (ClosedChannelException ex) {
         throw new LogClosedException();
       } catch (Exception e) {
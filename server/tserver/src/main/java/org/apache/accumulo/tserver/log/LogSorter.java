@@ -21,11 +21,15 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -42,12 +46,11 @@ import org.apache.accumulo.server.zookeeper.DistributedWorkQueue;
 import org.apache.accumulo.server.zookeeper.DistributedWorkQueue.Processor;
 import org.apache.accumulo.tserver.log.DfsLogger.DFSLoggerInputStreams;
 import org.apache.accumulo.tserver.log.DfsLogger.LogHeaderIncompleteException;
+import org.apache.accumulo.tserver.logger.LogEvents;
 import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
 import org.apache.hadoop.fs.FSDataInputStream;
-import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.MapFile;
 import org.apache.zookeeper.KeeperException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +74,7 @@ public class LogSorter {
     private long bytesCopied = -1;
     private long sortStart = 0;
     private long sortStop = -1;
+    private ExecutorService sortPool;
 
     @Override
     public Processor newProcessor() {
@@ -101,7 +105,7 @@ public class LogSorter {
 
     }
 
-    public void sort(String name, Path srcPath, String destPath) {
+    public void sort(String name, Path srcPath, final String destPath) {
 
       synchronized (this) {
         sortStart = System.currentTimeMillis();
@@ -124,6 +128,7 @@ public class LogSorter {
             // empty file will be correctly ignored downstream.
             fs.mkdirs(new Path(destPath));
             writeBuffer(destPath, Collections.<Pair<LogFileKey,LogFileValue>> emptyList(), part++);
+            new SortedLogTabletIndex().write(fs, new Path(destPath));
             fs.create(SortedLogState.getFinishedMarkerPath(destPath)).close();
             return;
           }
@@ -131,10 +136,19 @@ public class LogSorter {
           this.input = inputStreams.getOriginalInput();
           this.decryptingInput = inputStreams.getDecryptingInputStream();
 
-          final long bufferSize = conf.getMemoryInBytes(Property.TSERV_SORT_BUFFER_SIZE);
+          // the log is read by this thread while up to sortThreads earlier buffers are sorted and
+          // written out, so the sort buffer memory is divided between all of them
+          final int sortThreads = conf.getCount(Property.TSERV_SORT_MAX_CONCURRENT);
+          final long bufferSize = conf.getMemoryInBytes(Property.TSERV_SORT_BUFFER_SIZE)
+              / (sortThreads + 1);
           Thread.currentThread().setName("Sorting " + name + " for recovery");
+          final Semaphore writePermits = new Semaphore(sortThreads);
+          final List<Future<?>> writes = new ArrayList<>();
+          final SortedLogTabletIndex tablets = new SortedLogTabletIndex();
+          sortPool = new SimpleThreadPool(sortThreads, "sorting " + name);
           while (true) {
             final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+            boolean eof = false;
             try {
               long start = input.getPos();
               while (input.getPos() - start < bufferSize) {
@@ -143,14 +157,38 @@ public class LogSorter {
                 key.readFields(decryptingInput);
                 value.readFields(decryptingInput);
                 buffer.add(new Pair<>(key, value));
+                if (key.event == LogEvents.DEFINE_TABLET) {
+                  tablets.add(key.tablet, key.tabletId);
+                }
               }
-              writeBuffer(destPath, buffer, part++);
-              buffer.clear();
             } catch (EOFException ex) {
-              writeBuffer(destPath, buffer, part++);
+              eof = true;
+            }
+            writePermits.acquire();
+            final int bufferPart = part++;
+            writes.add(sortPool.submit(new Callable<Void>() {
+              @Override
+              public Void call() throws IOException {
+                try {
+                  writeBuffer(destPath, buffer, bufferPart);
+                } finally {
+                  writePermits.release();
+                }
+                return null;
+              }
+            }));
+            if (eof) {
               break;
             }
           }
+          for (Future<?> write : writes) {
+            try {
+              write.get();
+            } catch (ExecutionException e) {
+              throw e.getCause();
+            }
+          }
+          tablets.write(fs, new Path(destPath));
           fs.create(new Path(destPath, "finished")).close();
           log.info("Finished log sort " + name + " " + getBytesCopied() + " bytes " + part
               + " parts in " + getSortTime() + "ms");
@@ -166,6 +204,10 @@ public class LogSorter {
         log.error("Caught throwable", t);
       } finally {
         Thread.currentThread().setName(formerThreadName);
+        if (sortPool != null) {
+          sortPool.shutdownNow();
+          sortPool = null;
+        }
         try {
           close();
         } catch (Exception e) {
@@ -179,24 +221,8 @@ public class LogSorter {
 
     private void writeBuffer(String destPath, List<Pair<LogFileKey,LogFileValue>> buffer, int part)
         throws IOException {
-      Path path = new Path(destPath, String.format("part-r-%05d", part));
-      FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
-
-      MapFile.Writer output = new MapFile.Writer(ns.getConf(), ns.makeQualified(path),
-          MapFile.Writer.keyClass(LogFileKey.class), MapFile.Writer.valueClass(LogFileValue.class));
-      try {
-        Collections.sort(buffer, new Comparator<Pair<LogFileKey,LogFileValue>>() {
-          @Override
-          public int compare(Pair<LogFileKey,LogFileValue> o1, Pair<LogFileKey,LogFileValue> o2) {
-            return o1.getFirst().compareTo(o2.getFirst());
-          }
-        });
-        for (Pair<LogFileKey,LogFileValue> entry : buffer) {
-          output.append(entry.getFirst(), entry.getSecond());
-        }
-      } finally {
-        output.close();
-      }
+      Path path = new Path(destPath, String.format("part-r-%05d", part) + SortedLogPart.EXTENSION);
+      SortedLogPart.write(fs, conf, path, buffer);
     }
 
     synchronized void close() throws IOException {
@@ -46,37 +46,36 @@ import com.google.common.collect.PeekingIterator;
 /**
  * A class which reads sorted recovery logs produced from a single WAL.
  *
- * Presently only supports next() and seek() and works on all the Map directories within a
- * directory. The primary purpose of this class is to merge the results of multiple Reduce jobs that
- * result in Map output files.
+ * Presently only supports next() and seek() and works on all the sorted parts within a directory,
+ * which are RFiles or, for logs sorted by older versions, Map directories. The primary purpose of
+ * this class is to merge the parts a log sort wrote out.
  */
 public class RecoveryLogReader implements CloseableIterator<Entry<LogFileKey,LogFileValue>> {
 
   /**
-   * Group together the next key/value from a Reader with the Reader
+   * Group together the next key/value from a sorted part with the reader of that part
    */
-  private static class Index implements Comparable<Index> {
-    Reader reader;
+  private abstract static class Index implements Comparable<Index> {
     WritableComparable<?> key;
     Writable value;
     boolean cached = false;
 
-    private static Object create(java.lang.Class<?> klass) {
-      try {
-        return klass.getConstructor().newInstance();
-      } catch (Throwable t) {
-        throw new RuntimeException("Unable to construct objects to use for comparison");
-      }
-    }
+    /**
+     * Reads the next entry of the part into key and value.
+     */
+    abstract boolean readNext() throws IOException;
 
-    public Index(Reader reader) {
-      this.reader = reader;
-      key = (WritableComparable<?>) create(reader.getKeyClass());
-      value = (Writable) create(reader.getValueClass());
-    }
+    /**
+     * Positions the part for reading the entries after the given key.
+     *
+     * @return true if the part contains the key
+     */
+    abstract boolean seek(WritableComparable<?> target) throws IOException;
+
+    abstract void close() throws IOException;
 
-    private void cache() throws IOException {
-      if (!cached && reader.next(key, value)) {
+    void cache() throws IOException {
+      if (!cached && readNext()) {
         cached = true;
       }
     }
@@ -110,6 +109,78 @@ public class RecoveryLogReader implements CloseableIterator<Entry<LogFileKey,Log
     }
   }
 
+  /**
+   * A part written as a MapFile, the format sorted logs used before they were written as RFiles.
+   */
+  private static class MapFileIndex extends Index {
+    Reader reader;
+
+    private static Object create(java.lang.Class<?> klass) {
+      try {
+        return klass.getConstructor().newInstance();
+      } catch (Throwable t) {
+        throw new RuntimeException("Unable to construct objects to use for comparison");
+      }
+    }
+
+    MapFileIndex(Reader reader) {
+      this.reader = reader;
+      key = (WritableComparable<?>) create(reader.getKeyClass());
+      value = (Writable) create(reader.getValueClass());
+    }
+
+    @Override
+    boolean readNext() throws IOException {
+      return reader.next(key, value);
+    }
+
+    @Override
+    boolean seek(WritableComparable<?> target) throws IOException {
+      cached = false;
+      try {
+        WritableComparable<?> found = reader.getClosest(target, value, true);
+        return found != null && found.equals(target);
+      } catch (EOFException ex) {
+        // thrown if key is beyond all data in the map
+        return false;
+      }
+    }
+
+    @Override
+    void close() throws IOException {
+      reader.close();
+    }
+  }
+
+  private static class SortedLogPartIndex extends Index {
+    SortedLogPart.Reader reader;
+
+    SortedLogPartIndex(SortedLogPart.Reader reader) {
+      this.reader = reader;
+      key = new LogFileKey();
+      value = new LogFileValue();
+    }
+
+    @Override
+    boolean readNext() throws IOException {
+      return reader.next((LogFileKey) key, (LogFileValue) value);
+    }
+
+    @Override
+    boolean seek(WritableComparable<?> target) throws IOException {
+      // uses the RFile index, and leaves the first entry >= target to be read next
+      reader.seek((LogFileKey) target);
+      cached = false;
+      cache();
+      return cached && ((LogFileKey) key).compareTo((LogFileKey) target) == 0;
+    }
+
+    @Override
+    void close() throws IOException {
+      reader.close();
+    }
+  }
+
   private PriorityBuffer heap = new PriorityBuffer();
   private Iterator<Entry<LogFileKey,LogFileValue>> iter;
 
@@ -127,8 +198,12 @@ public class RecoveryLogReader implements CloseableIterator<Entry<LogFileKey,Log
         foundFinish = true;
         continue;
       }
-      FileSystem ns = fs.getVolumeByPath(child.getPath()).getFileSystem();
-      heap.add(new Index(new Reader(ns.makeQualified(child.getPath()), ns.getConf())));
+      if (SortedLogPart.isSortedLogPart(child.getPath())) {
+        heap.add(new SortedLogPartIndex(new SortedLogPart.Reader(fs, child.getPath())));
+      } else {
+        FileSystem ns = fs.getVolumeByPath(child.getPath()).getFileSystem();
+        heap.add(new MapFileIndex(new Reader(ns.makeQualified(child.getPath()), ns.getConf())));
+      }
     }
     if (!foundFinish)
       throw new IOException(
@@ -170,15 +245,9 @@ public class RecoveryLogReader implements CloseableIterator<Entry<LogFileKey,Log
     boolean result = false;
     for (Object obj : heap) {
       Index index = (Index) obj;
-      try {
-        WritableComparable<?> found = index.reader.getClosest(key, index.value, true);
-        if (found != null && found.equals(key)) {
-          result = true;
-        }
-      } catch (EOFException ex) {
-        // thrown if key is beyond all data in the map
+      if (index.seek(key)) {
+        result = true;
       }
-      index.cached = false;
       reheap.add(index);
     }
     heap = reheap;
@@ -191,7 +260,7 @@ public class RecoveryLogReader implements CloseableIterator<Entry<LogFileKey,Log
     for (Object obj : heap) {
       Index index = (Index) obj;
       try {
-        index.reader.close();
+        index.close();
       } catch (IOException ex) {
         problem = ex;
       }
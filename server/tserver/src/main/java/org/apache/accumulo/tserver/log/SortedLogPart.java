@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.RFileOperations;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.tserver.logger.LogEvents;
+import org.apache.accumulo.tserver.logger.LogFileKey;
+import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+
+/**
+ * A sorted part of a write-ahead log, stored as an RFile so that recovery can use the file index
+ * to seek directly to the entries of a tablet.
+ *
+ * <p>
+ * The row of each entry encodes the fields {@link LogFileKey#compareTo(LogFileKey)} orders on, so
+ * rows sort the same way log keys do. The value holds the serialized log key and value. Entries
+ * with equal log keys keep the order they had in the log.
+ */
+class SortedLogPart {
+
+  static final String EXTENSION = "." + RFile.EXTENSION;
+
+  private static final Comparator<Pair<LogFileKey,LogFileValue>> KEY_ORDER =
+      new Comparator<Pair<LogFileKey,LogFileValue>>() {
+        @Override
+        public int compare(Pair<LogFileKey,LogFileValue> o1, Pair<LogFileKey,LogFileValue> o2) {
+          return o1.getFirst().compareTo(o2.getFirst());
+        }
+      };
+
+  static boolean isSortedLogPart(Path path) {
+    return path.getName().endsWith(EXTENSION);
+  }
+
+  static Text toRow(LogFileKey key) {
+    byte[] row;
+    if (key.event == LogEvents.OPEN) {
+      row = new byte[1];
+    } else {
+      row = new byte[13];
+      // flip the sign bits so that the unsigned byte order matches the signed order
+      int tabletId = key.tabletId ^ Integer.MIN_VALUE;
+      long seq = key.seq ^ Long.MIN_VALUE;
+      for (int i = 0; i < 4; i++) {
+        row[1 + i] = (byte) (tabletId >>> (24 - 8 * i));
+      }
+      for (int i = 0; i < 8; i++) {
+        row[5 + i] = (byte) (seq >>> (56 - 8 * i));
+      }
+    }
+    row[0] = (byte) LogFileKey.eventType(key.event);
+    return new Text(row);
+  }
+
+  /**
+   * Sorts the buffer and writes it to the given path, which should end with {@link #EXTENSION}.
+   */
+  static void write(VolumeManager fs, AccumuloConfiguration conf, Path path,
+      List<Pair<LogFileKey,LogFileValue>> buffer) throws IOException {
+    // a stable sort, entries with equal keys must stay in log order
+    Collections.sort(buffer, KEY_ORDER);
+
+    ConfigurationCopy partConf = new ConfigurationCopy(conf);
+    partConf.set(Property.TABLE_FILE_COMPRESSION_TYPE,
+        conf.get(Property.TSERV_SORT_COMPRESSION_TYPE));
+
+    FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
+    FileSKVWriter writer = new RFileOperations().newWriterBuilder()
+        .forFile(ns.makeQualified(path).toString(), ns, ns.getConf())
+        .withTableConfiguration(partConf).build();
+    try {
+      writer.startDefaultLocalityGroup();
+      DataOutputBuffer out = new DataOutputBuffer();
+      for (Pair<LogFileKey,LogFileValue> entry : buffer) {
+        out.reset();
+        entry.getFirst().write(out);
+        entry.getSecond().write(out);
+        writer.append(new Key(toRow(entry.getFirst())),
+            new Value(out.getData(), 0, out.getLength()));
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Reads the entries of a sorted part in order.
+   */
+  static class Reader {
+
+    private final FileSKVIterator reader;
+    private final DataInputBuffer input = new DataInputBuffer();
+
+    Reader(VolumeManager fs, Path path) throws IOException {
+      FileSystem ns = fs.getVolumeByPath(path).getFileSystem();
+      reader = new RFileOperations().newReaderBuilder()
+          .forFile(ns.makeQualified(path).toString(), ns, ns.getConf())
+          .withTableConfiguration(DefaultConfiguration.getInstance()).seekToBeginning().build();
+    }
+
+    /**
+     * Reads the next entry into the given key and value.
+     *
+     * @return false if there are no more entries
+     */
+    boolean next(LogFileKey key, LogFileValue value) throws IOException {
+      if (!reader.hasTop()) {
+        return false;
+      }
+      Value top = reader.getTopValue();
+      input.reset(top.get(), top.getSize());
+      key.readFields(input);
+      value.readFields(input);
+      reader.next();
+      return true;
+    }
+
+    /**
+     * Positions the reader so that the next call to {@link #next(LogFileKey, LogFileValue)} returns
+     * the first entry whose key is greater than or equal to the given key.
+     */
+    void seek(LogFileKey key) throws IOException {
+      reader.seek(new Range(new Key(toRow(key)), true, null, false),
+          Collections.<ByteSequence> emptySet(), false);
+    }
+
+    void close() throws IOException {
+      reader.close();
+    }
+  }
+}
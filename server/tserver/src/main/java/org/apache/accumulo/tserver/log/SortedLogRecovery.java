@@ -24,12 +24,14 @@ import static org.apache.accumulo.tserver.logger.LogEvents.MANY_MUTATIONS;
 import static org.apache.accumulo.tserver.logger.LogEvents.MUTATION;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.impl.KeyExtent;
@@ -43,6 +45,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
@@ -55,6 +59,12 @@ public class SortedLogRecovery {
 
   private static final Logger log = LoggerFactory.getLogger(SortedLogRecovery.class);
 
+  // A server hosting many tablets recovers them all from the same logs, so the tablet index of
+  // each sorted log is kept instead of being read again for every tablet. Sorted logs do not
+  // change once finished.
+  private static final Cache<String,SortedLogTabletIndex> tabletIndexes = CacheBuilder
+      .newBuilder().maximumSize(100).expireAfterAccess(10, TimeUnit.MINUTES).build();
+
   private VolumeManager fs;
 
   public SortedLogRecovery(VolumeManager fs) {
@@ -93,15 +103,53 @@ public class SortedLogRecovery {
   }
 
   private int findMaxTabletId(KeyExtent extent, List<Path> recoveryLogs) throws IOException {
+    KeyExtent alternative = extent;
+    if (extent.isRootTablet()) {
+      alternative = RootTable.OLD_EXTENT;
+    }
+
     int tabletId = -1;
+    List<Path> unindexed = new ArrayList<>();
+    for (Path recoveryLog : recoveryLogs) {
+      SortedLogTabletIndex index = getTabletIndex(recoveryLog);
+      if (index == null) {
+        unindexed.add(recoveryLog);
+        continue;
+      }
+      List<Integer> ids = new ArrayList<>(index.getTabletIds(extent));
+      if (!alternative.equals(extent)) {
+        ids.addAll(index.getTabletIds(alternative));
+      }
+      for (int id : ids) {
+        checkState(id >= 0, "tabletId %s for %s is negative", id, extent);
+        tabletId = Math.max(tabletId, id);
+      }
+    }
 
-    try (RecoveryLogsIterator rli = new RecoveryLogsIterator(fs, recoveryLogs,
-        minKey(DEFINE_TABLET), maxKey(DEFINE_TABLET))) {
+    if (!unindexed.isEmpty()) {
+      tabletId = Math.max(tabletId, scanMaxTabletId(extent, alternative, unindexed));
+    }
+    return tabletId;
+  }
 
-      KeyExtent alternative = extent;
-      if (extent.isRootTablet()) {
-        alternative = RootTable.OLD_EXTENT;
+  private SortedLogTabletIndex getTabletIndex(Path recoveryLog) throws IOException {
+    String key = recoveryLog.toString();
+    SortedLogTabletIndex index = tabletIndexes.getIfPresent(key);
+    if (index == null) {
+      index = SortedLogTabletIndex.read(fs, recoveryLog);
+      if (index != null) {
+        tabletIndexes.put(key, index);
       }
+    }
+    return index;
+  }
+
+  private int scanMaxTabletId(KeyExtent extent, KeyExtent alternative, List<Path> recoveryLogs)
+      throws IOException {
+    int tabletId = -1;
+
+    try (RecoveryLogsIterator rli = new RecoveryLogsIterator(fs, recoveryLogs,
+        minKey(DEFINE_TABLET), maxKey(DEFINE_TABLET))) {
 
       while (rli.hasNext()) {
         LogFileKey key = rli.next().getKey();
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * The tablet ids defined in a sorted write-ahead log. {@link LogSorter} writes it next to the
+ * sorted parts so that recovering a tablet can find its tablet id without reading all of the
+ * DEFINE_TABLET entries in the log.
+ */
+class SortedLogTabletIndex {
+
+  // starts with an underscore so that RecoveryLogReader does not take it for a sorted part
+  static final String NAME = "_tablets";
+
+  private final Map<KeyExtent,List<Integer>> tabletIds = new HashMap<>();
+
+  void add(KeyExtent extent, int tabletId) {
+    List<Integer> ids = tabletIds.get(extent);
+    if (ids == null) {
+      ids = new ArrayList<>(1);
+      tabletIds.put(extent, ids);
+    }
+    ids.add(tabletId);
+  }
+
+  /**
+   * @return the ids the extent was defined with in the log, in log order
+   */
+  List<Integer> getTabletIds(KeyExtent extent) {
+    List<Integer> ids = tabletIds.get(extent);
+    return ids == null ? Collections.<Integer> emptyList() : ids;
+  }
+
+  void write(VolumeManager fs, Path sortedLogDir) throws IOException {
+    try (DataOutputStream out = fs.create(new Path(sortedLogDir, NAME))) {
+      out.writeInt(tabletIds.size());
+      for (Entry<KeyExtent,List<Integer>> entry : tabletIds.entrySet()) {
+        entry.getKey().write(out);
+        out.writeInt(entry.getValue().size());
+        for (int id : entry.getValue()) {
+          out.writeInt(id);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the index of the sorted log, or null if it was sorted without one
+   */
+  static SortedLogTabletIndex read(VolumeManager fs, Path sortedLogDir) throws IOException {
+    Path path = new Path(sortedLogDir, NAME);
+    if (!fs.exists(path)) {
+      return null;
+    }
+    SortedLogTabletIndex index = new SortedLogTabletIndex();
+    try (DataInputStream in = fs.open(path)) {
+      int extents = in.readInt();
+      for (int i = 0; i < extents; i++) {
+        KeyExtent extent = new KeyExtent();
+        extent.readFields(in);
+        int count = in.readInt();
+        for (int j = 0; j < count; j++) {
+          index.add(extent, in.readInt());
+        }
+      }
+    }
+    return index;
+  }
+}
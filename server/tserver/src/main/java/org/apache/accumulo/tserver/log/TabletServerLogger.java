@@ -35,6 +35,8 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.Mutation;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.protobuf.ProtobufUtil;
@@ -59,49 +61,36 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Preconditions;
+
 /**
  * Central logging facility for the TServerInfo.
  *
- * Forwards in-memory updates to remote logs, carefully writing the same data to every log, while
- * maintaining the maximum thread parallelism for greater performance. As new logs are used and
+ * Forwards in-memory updates to remote logs, while maintaining the maximum thread parallelism for
+ * greater performance. As new logs are used and
  * minor compactions are performed, the metadata table is kept up-to-date.
  *
+ * Several logs may be open at once, each tablet always writes to the same one. Recovery reads all
+ * of the logs a tablet used, so it does not matter which log a tablet's updates went to.
+ *
  */
 public class TabletServerLogger {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerLogger.class);
 
-  private final AtomicLong logSizeEstimate = new AtomicLong();
   private final long maxSize;
   private final long maxAge;
 
   private final TabletServer tserver;
 
-  // The current logger
-  private DfsLogger currentLog = null;
-  private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
-  private ThreadPoolExecutor nextLogMaker;
-
-  // The current generation of logs.
-  // Because multiple threads can be using a log at one time, a log
-  // failure is likely to affect multiple threads, who will all attempt to
-  // create a new log. This will cause many unnecessary updates to the
-  // metadata table.
-  // We'll use this generational counter to determine if another thread has
-  // already fetched a new log.
-  private final AtomicInteger logId = new AtomicInteger();
-
-  // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
-  // change them
-  private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
+  // Tablets are spread across these, each writes to its own log. A slow sync of one log only
+  // delays writes to the tablets using it.
+  private final LogStripe[] stripes;
 
   private final AtomicLong syncCounter;
   private final AtomicLong flushCounter;
 
-  private long createTime = 0;
-
   private final RetryFactory createRetryFactory;
-  private Retry createRetry = null;
 
   private final RetryFactory writeRetryFactory;
 
@@ -151,328 +140,497 @@ public class TabletServerLogger {
 
   public TabletServerLogger(TabletServer tserver, long maxSize, AtomicLong syncCounter,
       AtomicLong flushCounter, RetryFactory createRetryFactory, RetryFactory writeRetryFactory,
-      long maxAge) {
+      long maxAge, int numLogs) {
+    Preconditions.checkArgument(numLogs > 0, "number of logs must be positive, was %s", numLogs);
     this.tserver = tserver;
     this.maxSize = maxSize;
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
     this.createRetryFactory = createRetryFactory;
-    this.createRetry = null;
     this.writeRetryFactory = writeRetryFactory;
     this.maxAge = maxAge;
+    this.stripes = new LogStripe[numLogs];
+    for (int i = 0; i < numLogs; i++) {
+      stripes[i] = new LogStripe(numLogs == 1 ? "" : " " + i);
+    }
   }
 
-  private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
-    final AtomicReference<DfsLogger> result = new AtomicReference<>();
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        result.set(currentLog);
-        if (currentLog != null)
-          logIdOut.set(logId.get());
-        return currentLog == null;
-      }
+  /**
+   * @return the number of logs a tablet server writes to at once
+   */
+  public static int getLogCount(AccumuloConfiguration conf) {
+    return (int) conf.getCount(Property.TSERV_WALOG_COUNT);
+  }
 
-      @Override
-      void withWriteLock() throws IOException {
-        try {
-          createLogger();
-          result.set(currentLog);
-          if (currentLog != null)
-            logIdOut.set(logId.get());
-          else
-            logIdOut.set(-1);
-        } catch (IOException e) {
-          log.error("Unable to create loggers", e);
-        }
-      }
-    });
-    return result.get();
+  /**
+   * @return the index of the log a tablet writes to
+   */
+  static int stripeIndex(KeyExtent extent, int numLogs) {
+    return Math.abs(extent.hashCode() % numLogs);
+  }
+
+  private LogStripe stripe(CommitSession commitSession) {
+    return stripes[stripeIndex(commitSession.getExtent(), stripes.length)];
   }
 
   /**
-   * Get the current WAL file
+   * Get the current WAL files
    *
-   * @return The name of the current log, or null if there is no current log.
+   * @return The names of the current logs, empty if there are no current logs.
    */
-  public String getLogFile() {
-    logIdLock.readLock().lock();
-    try {
-      if (null == currentLog) {
-        return null;
+  public List<String> getLogFiles() {
+    List<String> files = new ArrayList<>(stripes.length);
+    for (LogStripe stripe : stripes) {
+      String file = stripe.getLogFile();
+      if (null != file) {
+        files.add(file);
       }
-      return currentLog.getFileName();
-    } finally {
-      logIdLock.readLock().unlock();
     }
+    return files;
   }
 
-  synchronized private void createLogger() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("createLoggers should be called with write lock held!");
+  public void resetLoggers() throws IOException {
+    for (LogStripe stripe : stripes) {
+      stripe.resetLoggers();
     }
+  }
+
+  /**
+   * One write-ahead log in use by the tablet server, and the tablets writing to it.
+   */
+  private class LogStripe {
+
+    private final AtomicLong logSizeEstimate = new AtomicLong();
+
+    private final String name;
+
+    // The current logger
+    private DfsLogger currentLog = null;
+    private final SynchronousQueue<Object> nextLog = new SynchronousQueue<>();
+    private ThreadPoolExecutor nextLogMaker;
+
+    // The current generation of logs.
+    // Because multiple threads can be using a log at one time, a log
+    // failure is likely to affect multiple threads, who will all attempt to
+    // create a new log. This will cause many unnecessary updates to the
+    // metadata table.
+    // We'll use this generational counter to determine if another thread has
+    // already fetched a new log.
+    private final AtomicInteger logId = new AtomicInteger();
+
+    // Use a ReadWriteLock to allow multiple threads to use the log set, but obtain a write lock to
+    // change them
+    private final ReentrantReadWriteLock logIdLock = new ReentrantReadWriteLock();
 
-    if (currentLog != null) {
-      throw new IllegalStateException("createLoggers should not be called when current log is set");
+    private long createTime = 0;
+
+    private Retry createRetry = null;
+
+    LogStripe(String name) {
+      this.name = name;
     }
 
-    try {
-      startLogMaker();
-      Object next = nextLog.take();
-      if (next instanceof Exception) {
-        throw (Exception) next;
-      }
-      if (next instanceof DfsLogger) {
-        currentLog = (DfsLogger) next;
-        logId.incrementAndGet();
-        log.info("Using next log " + currentLog.getFileName());
-
-        // When we successfully create a WAL, make sure to reset the Retry.
-        if (null != createRetry) {
-          createRetry = null;
+    private DfsLogger initializeLoggers(final AtomicInteger logIdOut) throws IOException {
+      final AtomicReference<DfsLogger> result = new AtomicReference<>();
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          result.set(currentLog);
+          if (currentLog != null)
+            logIdOut.set(logId.get());
+          return currentLog == null;
         }
 
-        this.createTime = System.currentTimeMillis();
-        return;
-      } else {
-        throw new RuntimeException("Error: unexpected type seen: " + next);
+        @Override
+        void withWriteLock() throws IOException {
+          try {
+            createLogger();
+            result.set(currentLog);
+            if (currentLog != null)
+              logIdOut.set(logId.get());
+            else
+              logIdOut.set(-1);
+          } catch (IOException e) {
+            log.error("Unable to create loggers", e);
+          }
+        }
+      });
+      return result.get();
+    }
+
+    /**
+     * Get the current WAL file
+     *
+     * @return The name of the current log, or null if there is no current log.
+     */
+    String getLogFile() {
+      logIdLock.readLock().lock();
+      try {
+        if (null == currentLog) {
+          return null;
+        }
+        return currentLog.getFileName();
+      } finally {
+        logIdLock.readLock().unlock();
       }
-    } catch (Exception t) {
-      if (null == createRetry) {
-        createRetry = createRetryFactory.createRetry();
+    }
+
+    synchronized private void createLogger() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("createLoggers should be called with write lock held!");
       }
 
-      // We have more retries or we exceeded the maximum number of accepted failures
-      if (createRetry.canRetry()) {
-        // Use the createRetry and record the time in which we did so
-        createRetry.useRetry();
+      if (currentLog != null) {
+        throw new IllegalStateException(
+            "createLoggers should not be called when current log is set");
+      }
 
-        try {
-          // Backoff
-          createRetry.waitForNextAttempt();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
+      try {
+        startLogMaker();
+        Object next = nextLog.take();
+        if (next instanceof Exception) {
+          throw (Exception) next;
         }
-      } else {
-        log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
-        // We didn't have retries or we failed too many times.
-        Halt.halt("Experienced too many errors creating WALs, giving up", 1);
-      }
+        if (next instanceof DfsLogger) {
+          currentLog = (DfsLogger) next;
+          logId.incrementAndGet();
+          log.info("Using next log " + currentLog.getFileName());
+
+          // When we successfully create a WAL, make sure to reset the Retry.
+          if (null != createRetry) {
+            createRetry = null;
+          }
 
-      // The exception will trigger the log creation to be re-attempted.
-      throw new RuntimeException(t);
-    }
-  }
+          this.createTime = System.currentTimeMillis();
+          return;
+        } else {
+          throw new RuntimeException("Error: unexpected type seen: " + next);
+        }
+      } catch (Exception t) {
+        if (null == createRetry) {
+          createRetry = createRetryFactory.createRetry();
+        }
+
+        // We have more retries or we exceeded the maximum number of accepted failures
+        if (createRetry.canRetry()) {
+          // Use the createRetry and record the time in which we did so
+          createRetry.useRetry();
 
-  private synchronized void startLogMaker() {
-    if (nextLogMaker != null) {
-      return;
-    }
-    nextLogMaker = new SimpleThreadPool(1, "WALog creator");
-    nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
-      @Override
-      public void run() {
-        final ServerResources conf = tserver.getServerConfig();
-        final VolumeManager fs = conf.getFileSystem();
-        while (!nextLogMaker.isShutdown()) {
-          DfsLogger alog = null;
           try {
-            log.debug("Creating next WAL");
-            alog = new DfsLogger(conf, syncCounter, flushCounter);
-            alog.open(tserver.getClientAddressString());
-            String fileName = alog.getFileName();
-            log.debug("Created next WAL " + fileName);
-            tserver.addNewLogMarker(alog);
-            while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
-              log.info("Our WAL was not used for 12 hours: " + fileName);
-            }
-          } catch (Exception t) {
-            log.error("Failed to open WAL", t);
-            if (null != alog) {
-              // It's possible that the sync of the header and OPEN record to the WAL failed
-              // We want to make sure that clean up the resources/thread inside the DfsLogger
-              // object before trying to create a new one.
-              try {
-                alog.close();
-              } catch (Exception e) {
-                log.error("Failed to close WAL after it failed to open", e);
+            // Backoff
+            createRetry.waitForNextAttempt();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } else {
+          log.error("Repeatedly failed to create WAL. Going to exit tabletserver.", t);
+          // We didn't have retries or we failed too many times.
+          Halt.halt("Experienced too many errors creating WALs, giving up", 1);
+        }
+
+        // The exception will trigger the log creation to be re-attempted.
+        throw new RuntimeException(t);
+      }
+    }
+
+    private synchronized void startLogMaker() {
+      if (nextLogMaker != null) {
+        return;
+      }
+      nextLogMaker = new SimpleThreadPool(1, "WALog creator" + name);
+      nextLogMaker.submit(new LoggingRunnable(log, new Runnable() {
+        @Override
+        public void run() {
+          while (!nextLogMaker.isShutdown()) {
+            try {
+              DfsLogger alog = createLog();
+              String fileName = alog.getFileName();
+              while (!nextLog.offer(alog, 12, TimeUnit.HOURS)) {
+                log.info("Our WAL was not used for 12 hours: " + fileName);
               }
-              // Try to avoid leaving a bunch of empty WALs lying around
+            } catch (Exception t) {
               try {
-                Path path = alog.getPath();
-                if (fs.exists(path)) {
-                  fs.delete(path);
-                }
-              } catch (Exception e) {
-                log.warn("Failed to delete a WAL that failed to open", e);
+                nextLog.offer(t, 12, TimeUnit.HOURS);
+              } catch (InterruptedException ex) {
+                // ignore
               }
             }
-            try {
-              nextLog.offer(t, 12, TimeUnit.HOURS);
-            } catch (InterruptedException ex) {
-              // ignore
-            }
           }
         }
-      }
-    }));
-  }
+      }));
+    }
 
-  public void resetLoggers() throws IOException {
-    logIdLock.writeLock().lock();
-    try {
-      close();
-    } finally {
-      logIdLock.writeLock().unlock();
+    void resetLoggers() throws IOException {
+      logIdLock.writeLock().lock();
+      try {
+        close();
+      } finally {
+        logIdLock.writeLock().unlock();
+      }
     }
-  }
 
-  synchronized private void close() throws IOException {
-    if (!logIdLock.isWriteLockedByCurrentThread()) {
-      throw new IllegalStateException("close should be called with write lock held!");
+    synchronized private void close() throws IOException {
+      if (!logIdLock.isWriteLockedByCurrentThread()) {
+        throw new IllegalStateException("close should be called with write lock held!");
+      }
+      try {
+        if (null != currentLog) {
+          try {
+            currentLog.close();
+          } catch (DfsLogger.LogClosedException ex) {
+            // ignore
+          } catch (Throwable ex) {
+            log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
+          } finally {
+            tserver.walogClosed(currentLog);
+          }
+          currentLog = null;
+          logSizeEstimate.set(0);
+        }
+      } catch (Throwable t) {
+        throw new IOException(t);
+      }
     }
-    try {
-      if (null != currentLog) {
-        try {
-          currentLog.close();
-        } catch (DfsLogger.LogClosedException ex) {
-          // ignore
-        } catch (Throwable ex) {
-          log.error("Unable to cleanly close log " + currentLog.getFileName() + ": " + ex, ex);
-        } finally {
-          this.tserver.walogClosed(currentLog);
+
+    /**
+     * Adds the current log to the logs used by the tablets, if needed.
+     */
+    private void updateLogsUsed(Collection<CommitSession> sessions, boolean mincFinish,
+        DfsLogger copy, Retry writeRetry) throws IOException {
+      for (CommitSession commitSession : sessions) {
+        if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
+          try {
+            // Scribble out a tablet definition and then write to the metadata table
+            defineTablet(commitSession, writeRetry);
+          } finally {
+            commitSession.finishUpdatingLogsUsed();
+          }
+
+          // Need to release
+          KeyExtent extent = commitSession.getExtent();
+          if (ReplicationConfigurationUtil.isEnabled(extent,
+              tserver.getTableConfiguration(extent))) {
+            Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
+            log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for "
+                + copy.getFileName());
+            // Got some new WALs, note this in the metadata table
+            ReplicationTableUtil.updateFiles(tserver, commitSession.getExtent(),
+                copy.getFileName(), status);
+          }
         }
-        currentLog = null;
-        logSizeEstimate.set(0);
       }
-    } catch (Throwable t) {
-      throw new IOException(t);
     }
-  }
 
-  interface Writer {
-    LoggerOperation write(DfsLogger logger) throws Exception;
-  }
+    void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer,
+        Retry writeRetry) throws IOException {
+      // Work very hard not to lock this during calls to the outside world
+      int currentLogId = logId.get();
 
-  private void write(CommitSession commitSession, boolean mincFinish, Writer writer)
-      throws IOException {
-    write(commitSession, mincFinish, writer, writeRetryFactory.createRetry());
-  }
+      boolean success = false;
+      while (!success) {
+        try {
+          // get a reference to the loggers that no other thread can touch
+          DfsLogger copy = null;
+          AtomicInteger currentId = new AtomicInteger(-1);
+          copy = initializeLoggers(currentId);
+          currentLogId = currentId.get();
 
-  private void write(CommitSession commitSession, boolean mincFinish, Writer writer,
-      Retry writeRetry) throws IOException {
-    List<CommitSession> sessions = Collections.singletonList(commitSession);
-    write(sessions, mincFinish, writer, writeRetry);
-  }
+          // add the logger to the log set for the memory in the tablet,
+          // update the metadata table if we've never used this tablet
 
-  private void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer)
-      throws IOException {
-    write(sessions, mincFinish, writer, writeRetryFactory.createRetry());
-  }
+          if (currentLogId == logId.get()) {
+            updateLogsUsed(sessions, mincFinish, copy, writeRetry);
+          }
 
-  private void write(final Collection<CommitSession> sessions, boolean mincFinish, Writer writer,
-      Retry writeRetry) throws IOException {
-    // Work very hard not to lock this during calls to the outside world
-    int currentLogId = logId.get();
+          // Make sure that the logs haven't changed out from underneath our copy
+          if (currentLogId == logId.get()) {
+
+            // write the mutation to the logs
+            LoggerOperation lop = writer.write(copy);
+            lop.await();
+
+            // double-check: did the log set change?
+            success = (currentLogId == logId.get());
+          }
+        } catch (DfsLogger.LogClosedException ex) {
+          writeRetry.logRetry(log, "Logs closed while writing", ex);
+        } catch (Exception t) {
+          writeRetry.logRetry(log, "Failed to write to WAL", t);
+
+          try {
+            // Backoff
+            writeRetry.waitForNextAttempt();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+          }
+        } finally {
+          writeRetry.useRetry();
+        }
+        // Some sort of write failure occurred. Grab the write lock and reset the logs.
+        // But since multiple threads will attempt it, only attempt the reset when
+        // the logs haven't changed.
+        if (!success) {
+          resetIfUnchanged(currentLogId, sessions);
+        }
+      }
+      rollIfNeeded(sessions);
+    }
 
-    boolean success = false;
-    while (!success) {
+    /**
+     * Writes to the current log without waiting for the write to be synced, so that writes to
+     * several logs can be synced at the same time. Does not retry.
+     *
+     * @return the write in progress, or null if the write could not be started and should be
+     *         retried with {@link #write(Collection, boolean, Writer, Retry)}
+     */
+    PendingWrite startWrite(Collection<CommitSession> sessions, Writer writer, Retry writeRetry) {
       try {
-        // get a reference to the loggers that no other thread can touch
-        DfsLogger copy = null;
         AtomicInteger currentId = new AtomicInteger(-1);
-        copy = initializeLoggers(currentId);
-        currentLogId = currentId.get();
+        DfsLogger copy = initializeLoggers(currentId);
+        int currentLogId = currentId.get();
 
-        // add the logger to the log set for the memory in the tablet,
-        // update the metadata table if we've never used this tablet
+        if (currentLogId == logId.get()) {
+          updateLogsUsed(sessions, false, copy, writeRetry);
+        }
 
         if (currentLogId == logId.get()) {
-          for (CommitSession commitSession : sessions) {
-            if (commitSession.beginUpdatingLogsUsed(copy, mincFinish)) {
-              try {
-                // Scribble out a tablet definition and then write to the metadata table
-                defineTablet(commitSession, writeRetry);
-              } finally {
-                commitSession.finishUpdatingLogsUsed();
-              }
+          return new PendingWrite(this, sessions, writer, currentLogId, writer.write(copy));
+        }
+      } catch (Exception e) {
+        log.debug("Failed to start write to WAL, will retry", e);
+      }
+      return null;
+    }
 
-              // Need to release
-              KeyExtent extent = commitSession.getExtent();
-              if (ReplicationConfigurationUtil.isEnabled(extent,
-                  tserver.getTableConfiguration(extent))) {
-                Status status = StatusUtil.openWithUnknownLength(System.currentTimeMillis());
-                log.debug("Writing " + ProtobufUtil.toString(status) + " to metadata table for "
-                    + copy.getFileName());
-                // Got some new WALs, note this in the metadata table
-                ReplicationTableUtil.updateFiles(tserver, commitSession.getExtent(),
-                    copy.getFileName(), status);
-              }
-            }
-          }
+    /**
+     * Waits for a write started by {@link #startWrite(Collection, Writer, Retry)}, and retries it
+     * if it failed.
+     */
+    void finishWrite(PendingWrite pending, Retry writeRetry) throws IOException {
+      boolean success = false;
+      try {
+        pending.op.await();
+        success = pending.logId == logId.get();
+      } catch (Exception e) {
+        log.debug("Failed to write to WAL, will retry", e);
+      }
+
+      if (success) {
+        rollIfNeeded(pending.sessions);
+      } else {
+        resetIfUnchanged(pending.logId, pending.sessions);
+        write(pending.sessions, false, pending.writer, writeRetry);
+      }
+    }
+
+    private void resetIfUnchanged(final int failedLogId, final Collection<CommitSession> sessions)
+        throws IOException {
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+
+        @Override
+        boolean test() {
+          return failedLogId == logId.get();
         }
 
-        // Make sure that the logs haven't changed out from underneath our copy
-        if (currentLogId == logId.get()) {
+        @Override
+        void withWriteLock() throws IOException {
+          close();
+          closeForReplication(sessions);
+        }
+      });
+    }
 
-          // write the mutation to the logs
-          LoggerOperation lop = writer.write(copy);
-          lop.await();
+    private void rollIfNeeded(final Collection<CommitSession> sessions) throws IOException {
+      // if the log gets too big or too old, reset it .. grab the write lock first
+      logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
+      testLockAndRun(logIdLock, new TestCallWithWriteLock() {
+        @Override
+        boolean test() {
+          return (logSizeEstimate.get() > maxSize)
+              || ((System.currentTimeMillis() - createTime) > maxAge);
+        }
 
-          // double-check: did the log set change?
-          success = (currentLogId == logId.get());
+        @Override
+        void withWriteLock() throws IOException {
+          close();
+          closeForReplication(sessions);
         }
-      } catch (DfsLogger.LogClosedException ex) {
-        writeRetry.logRetry(log, "Logs closed while writing", ex);
-      } catch (Exception t) {
-        writeRetry.logRetry(log, "Failed to write to WAL", t);
+      });
+    }
+  }
+
+  private static class PendingWrite {
+    final LogStripe stripe;
+    final Collection<CommitSession> sessions;
+    final Writer writer;
+    final int logId;
+    final LoggerOperation op;
+
+    PendingWrite(LogStripe stripe, Collection<CommitSession> sessions, Writer writer, int logId,
+        LoggerOperation op) {
+      this.stripe = stripe;
+      this.sessions = sessions;
+      this.writer = writer;
+      this.logId = logId;
+      this.op = op;
+    }
+  }
 
+  /**
+   * Creates and opens a new log, and marks it as in use by this tablet server.
+   */
+  DfsLogger createLog() throws Exception {
+    final ServerResources conf = tserver.getServerConfig();
+    final VolumeManager fs = conf.getFileSystem();
+    DfsLogger alog = null;
+    try {
+      log.debug("Creating next WAL");
+      alog = new DfsLogger(conf, syncCounter, flushCounter, tserver.getUpdateMetrics());
+      alog.open(tserver.getClientAddressString());
+      String fileName = alog.getFileName();
+      log.debug("Created next WAL " + fileName);
+      tserver.addNewLogMarker(alog);
+      return alog;
+    } catch (Exception t) {
+      log.error("Failed to open WAL", t);
+      if (null != alog) {
+        // It's possible that the sync of the header and OPEN record to the WAL failed
+        // We want to make sure that clean up the resources/thread inside the DfsLogger
+        // object before trying to create a new one.
         try {
-          // Backoff
-          writeRetry.waitForNextAttempt();
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          throw new RuntimeException(e);
+          alog.close();
+        } catch (Exception e) {
+          log.error("Failed to close WAL after it failed to open", e);
         }
-      } finally {
-        writeRetry.useRetry();
-      }
-      // Some sort of write failure occurred. Grab the write lock and reset the logs.
-      // But since multiple threads will attempt it, only attempt the reset when
-      // the logs haven't changed.
-      final int finalCurrent = currentLogId;
-      if (!success) {
-        testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-
-          @Override
-          boolean test() {
-            return finalCurrent == logId.get();
-          }
-
-          @Override
-          void withWriteLock() throws IOException {
-            close();
-            closeForReplication(sessions);
+        // Try to avoid leaving a bunch of empty WALs lying around
+        try {
+          Path path = alog.getPath();
+          if (fs.exists(path)) {
+            fs.delete(path);
           }
-        });
+        } catch (Exception e) {
+          log.warn("Failed to delete a WAL that failed to open", e);
+        }
       }
+      throw t;
     }
-    // if the log gets too big or too old, reset it .. grab the write lock first
-    logSizeEstimate.addAndGet(4 * 3); // event, tid, seq overhead
-    testLockAndRun(logIdLock, new TestCallWithWriteLock() {
-      @Override
-      boolean test() {
-        return (logSizeEstimate.get() > maxSize)
-            || ((System.currentTimeMillis() - createTime) > maxAge);
-      }
+  }
 
-      @Override
-      void withWriteLock() throws IOException {
-        close();
-        closeForReplication(sessions);
-      }
-    });
+  interface Writer {
+    LoggerOperation write(DfsLogger logger) throws Exception;
+  }
+
+  private void write(CommitSession commitSession, boolean mincFinish, Writer writer)
+      throws IOException {
+    write(commitSession, mincFinish, writer, writeRetryFactory.createRetry());
+  }
+
+  private void write(CommitSession commitSession, boolean mincFinish, Writer writer,
+      Retry writeRetry) throws IOException {
+    List<CommitSession> sessions = Collections.singletonList(commitSession);
+    stripe(commitSession).write(sessions, mincFinish, writer, writeRetry);
   }
 
   protected void closeForReplication(Collection<CommitSession> sessions) {
@@ -506,21 +664,11 @@ public class TabletServerLogger {
         return logger.log(tabletSeq, commitSession.getLogId(), m, durability);
       }
     });
-    logSizeEstimate.addAndGet(m.numBytes());
+    stripe(commitSession).logSizeEstimate.addAndGet(m.numBytes());
   }
 
-  public void logManyTablets(Map<CommitSession,Mutations> mutations) throws IOException {
-
-    final Map<CommitSession,Mutations> loggables = new HashMap<>(mutations);
-    for (Entry<CommitSession,Mutations> entry : mutations.entrySet()) {
-      if (entry.getValue().getDurability() == Durability.NONE) {
-        loggables.remove(entry.getKey());
-      }
-    }
-    if (loggables.size() == 0)
-      return;
-
-    write(loggables.keySet(), false, new Writer() {
+  private static Writer manyTabletsWriter(final Map<CommitSession,Mutations> loggables) {
+    return new Writer() {
       @Override
       public LoggerOperation write(DfsLogger logger) throws Exception {
         List<TabletMutations> copy = new ArrayList<>(loggables.size());
@@ -532,13 +680,58 @@ public class TabletServerLogger {
         }
         return logger.logManyTablets(copy);
       }
-    });
-    for (Mutations entry : loggables.values()) {
-      if (entry.getMutations().size() < 1) {
-        throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+    };
+  }
+
+  public void logManyTablets(Map<CommitSession,Mutations> mutations) throws IOException {
+
+    final Map<LogStripe,Map<CommitSession,Mutations>> loggables = new HashMap<>();
+    for (Entry<CommitSession,Mutations> entry : mutations.entrySet()) {
+      if (entry.getValue().getDurability() != Durability.NONE) {
+        LogStripe stripe = stripe(entry.getKey());
+        Map<CommitSession,Mutations> stripeLoggables = loggables.get(stripe);
+        if (stripeLoggables == null) {
+          stripeLoggables = new HashMap<>();
+          loggables.put(stripe, stripeLoggables);
+        }
+        stripeLoggables.put(entry.getKey(), entry.getValue());
       }
-      for (Mutation m : entry.getMutations()) {
-        logSizeEstimate.addAndGet(m.numBytes());
+    }
+    if (loggables.size() == 0)
+      return;
+
+    Retry writeRetry = writeRetryFactory.createRetry();
+    if (loggables.size() == 1) {
+      Entry<LogStripe,Map<CommitSession,Mutations>> entry = loggables.entrySet().iterator().next();
+      entry.getKey().write(entry.getValue().keySet(), false, manyTabletsWriter(entry.getValue()),
+          writeRetry);
+    } else {
+      // write to every log before waiting on any of them, so that the logs are synced in parallel
+      List<PendingWrite> pendingWrites = new ArrayList<>(loggables.size());
+      for (Entry<LogStripe,Map<CommitSession,Mutations>> entry : loggables.entrySet()) {
+        LogStripe stripe = entry.getKey();
+        Set<CommitSession> sessions = entry.getValue().keySet();
+        Writer writer = manyTabletsWriter(entry.getValue());
+        PendingWrite pending = stripe.startWrite(sessions, writer, writeRetry);
+        if (pending == null) {
+          stripe.write(sessions, false, writer, writeRetry);
+        } else {
+          pendingWrites.add(pending);
+        }
+      }
+      for (PendingWrite pending : pendingWrites) {
+        pending.stripe.finishWrite(pending, writeRetry);
+      }
+    }
+
+    for (Entry<LogStripe,Map<CommitSession,Mutations>> entry : loggables.entrySet()) {
+      for (Mutations tabletMutations : entry.getValue().values()) {
+        if (tabletMutations.getMutations().size() < 1) {
+          throw new IllegalArgumentException("logManyTablets: logging empty mutation list");
+        }
+        for (Mutation m : tabletMutations.getMutations()) {
+          entry.getKey().logSizeEstimate.addAndGet(m.numBytes());
+        }
       }
     }
   }
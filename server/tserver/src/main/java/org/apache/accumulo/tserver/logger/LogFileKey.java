@@ -122,7 +122,7 @@ public class LogFileKey implements WritableComparable<LogFileKey> {
     }
   }
 
-  static int eventType(LogEvents event) {
+  public static int eventType(LogEvents event) {
     // Order logs by START, TABLET_DEFINITIONS, COMPACTIONS and then MUTATIONS
     if (event == MUTATION || event == MANY_MUTATIONS) {
       return 3;
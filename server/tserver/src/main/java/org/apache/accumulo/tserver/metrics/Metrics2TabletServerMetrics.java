@@ -41,7 +41,10 @@ public class Metrics2TabletServerMetrics
   private final MetricsRegistry registry;
 
   private final MutableGaugeLong entries, entriesInMemory, activeMajcs, queuedMajcs, activeMincs,
-      queuedMincs, onlineTablets, openingTablets, unopenedTablets, queries, totalMincs;
+      queuedMincs, onlineTablets, openingTablets, unopenedTablets, queries, totalMincs,
+      dataCacheHeapSize, dataCacheOffHeapSize, indexCacheHeapSize, indexCacheOffHeapSize,
+      visibilityParseHits, visibilityParseMisses, visibilityEvaluationHits,
+      visibilityEvaluationMisses;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerMetrics(TabletServer tserver, MetricsSystem system) {
@@ -69,6 +72,23 @@ public class Metrics2TabletServerMetrics
     queries = registry.newGauge(Interns.info(QUERIES, "Number of queries"), 0l);
     totalMincs = registry
         .newGauge(Interns.info(TOTAL_MINCS, "Total number of minor compactions performed"), 0l);
+    dataCacheHeapSize = registry.newGauge(
+        Interns.info(DATA_CACHE_HEAP_SIZE, "Heap bytes used by the data block cache"), 0l);
+    dataCacheOffHeapSize = registry.newGauge(
+        Interns.info(DATA_CACHE_OFF_HEAP_SIZE, "Direct memory bytes used by the data block cache"),
+        0l);
+    indexCacheHeapSize = registry.newGauge(
+        Interns.info(INDEX_CACHE_HEAP_SIZE, "Heap bytes used by the index block cache"), 0l);
+    indexCacheOffHeapSize = registry.newGauge(Interns.info(INDEX_CACHE_OFF_HEAP_SIZE,
+        "Direct memory bytes used by the index block cache"), 0l);
+    visibilityParseHits = registry.newGauge(Interns.info(VISIBILITY_PARSE_HITS,
+        "Visibility expressions found already parsed in the shared cache"), 0l);
+    visibilityParseMisses = registry.newGauge(
+        Interns.info(VISIBILITY_PARSE_MISSES, "Visibility expressions that had to be parsed"), 0l);
+    visibilityEvaluationHits = registry.newGauge(Interns.info(VISIBILITY_EVALUATION_HITS,
+        "Visibility evaluations found in the shared cache"), 0l);
+    visibilityEvaluationMisses = registry.newGauge(Interns.info(VISIBILITY_EVALUATION_MISSES,
+        "Visibility evaluations that had to be computed"), 0l);
   }
 
   @Override
@@ -99,6 +119,14 @@ public class Metrics2TabletServerMetrics
     unopenedTablets.set(util.getUnopenedCount());
     queries.set(util.getQueries());
     totalMincs.set(util.getTotalMinorCompactions());
+    dataCacheHeapSize.set(util.getDataCacheHeapSize());
+    dataCacheOffHeapSize.set(util.getDataCacheOffHeapSize());
+    indexCacheHeapSize.set(util.getIndexCacheHeapSize());
+    indexCacheOffHeapSize.set(util.getIndexCacheOffHeapSize());
+    visibilityParseHits.set(util.getVisibilityParseHits());
+    visibilityParseMisses.set(util.getVisibilityParseMisses());
+    visibilityEvaluationHits.set(util.getVisibilityEvaluationHits());
+    visibilityEvaluationMisses.set(util.getVisibilityEvaluationMisses());
   }
 
   @Override
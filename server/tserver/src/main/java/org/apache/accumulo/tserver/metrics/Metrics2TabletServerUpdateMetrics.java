@@ -26,6 +26,7 @@ import org.apache.hadoop.metrics2.impl.MsInfo;
 import org.apache.hadoop.metrics2.lib.Interns;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableQuantiles;
 import org.apache.hadoop.metrics2.lib.MutableStat;
 
 /**
@@ -42,7 +43,8 @@ public class Metrics2TabletServerUpdateMetrics
   private final MutableCounterLong permissionErrorsCounter, unknownTabletErrorsCounter,
       constraintViolationsCounter;
   private final MutableStat commitPrepStat, walogWriteTimeStat, commitTimeStat,
-      mutationArraySizeStat;
+      mutationArraySizeStat, walogSyncTimeStat, walogSyncBatchSizeStat, tabletRecoveryTimeStat;
+  private final MutableQuantiles walogSyncTimeQuantiles, walogSyncBatchSizeQuantiles;
 
   // Use TabletServerMetricsFactory
   Metrics2TabletServerUpdateMetrics(MetricsSystem system) {
@@ -64,6 +66,16 @@ public class Metrics2TabletServerUpdateMetrics
     commitTimeStat = registry.newStat(COMMIT_TIME, "committing mutations", "Ops", "Time", true);
     mutationArraySizeStat = registry.newStat(MUTATION_ARRAY_SIZE, "mutation array", "ops", "Size",
         true);
+    walogSyncTimeStat = registry.newStat(WALOG_SYNC_TIME, "syncing or flushing a WAL", "Ops",
+        "Time", true);
+    walogSyncBatchSizeStat = registry.newStat(WALOG_SYNC_BATCH_SIZE,
+        "writes committed by one WAL sync or flush", "Ops", "Size", true);
+    walogSyncTimeQuantiles = registry.newQuantiles(WALOG_SYNC_TIME + "10m",
+        "WAL sync or flush time quantiles in milliseconds", "Ops", "Time", 600);
+    walogSyncBatchSizeQuantiles = registry.newQuantiles(WALOG_SYNC_BATCH_SIZE + "10m",
+        "Quantiles of writes committed by one WAL sync or flush", "Ops", "Size", 600);
+    tabletRecoveryTimeStat = registry.newStat(TABLET_RECOVERY_TIME,
+        "recovering a tablet from its WALs", "Ops", "Time", true);
   }
 
   @Override
@@ -82,6 +94,14 @@ public class Metrics2TabletServerUpdateMetrics
       walogWriteTimeStat.add(value);
     } else if (COMMIT_TIME.equals(name)) {
       commitTimeStat.add(value);
+    } else if (WALOG_SYNC_TIME.equals(name)) {
+      walogSyncTimeStat.add(value);
+      walogSyncTimeQuantiles.add(value);
+    } else if (WALOG_SYNC_BATCH_SIZE.equals(name)) {
+      walogSyncBatchSizeStat.add(value);
+      walogSyncBatchSizeQuantiles.add(value);
+    } else if (TABLET_RECOVERY_TIME.equals(name)) {
+      tabletRecoveryTimeStat.add(value);
     } else {
       throw new RuntimeException("Cannot process metric with name " + name);
     }
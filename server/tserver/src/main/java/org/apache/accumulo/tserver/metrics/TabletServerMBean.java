@@ -47,4 +47,20 @@ public interface TabletServerMBean {
   String getName();
 
   double getAverageFilesPerTablet();
+
+  long getDataCacheHeapSize();
+
+  long getDataCacheOffHeapSize();
+
+  long getIndexCacheHeapSize();
+
+  long getIndexCacheOffHeapSize();
+
+  long getVisibilityParseHits();
+
+  long getVisibilityParseMisses();
+
+  long getVisibilityEvaluationHits();
+
+  long getVisibilityEvaluationMisses();
 }
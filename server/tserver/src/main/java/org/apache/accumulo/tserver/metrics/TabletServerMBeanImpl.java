@@ -164,6 +164,70 @@ public class TabletServerMBeanImpl extends AbstractMetricsImpl implements Tablet
     return 0;
   }
 
+  @Override
+  public long getDataCacheHeapSize() {
+    if (isEnabled()) {
+      return util.getDataCacheHeapSize();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getDataCacheOffHeapSize() {
+    if (isEnabled()) {
+      return util.getDataCacheOffHeapSize();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getIndexCacheHeapSize() {
+    if (isEnabled()) {
+      return util.getIndexCacheHeapSize();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getIndexCacheOffHeapSize() {
+    if (isEnabled()) {
+      return util.getIndexCacheOffHeapSize();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getVisibilityParseHits() {
+    if (isEnabled()) {
+      return util.getVisibilityParseHits();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getVisibilityParseMisses() {
+    if (isEnabled()) {
+      return util.getVisibilityParseMisses();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getVisibilityEvaluationHits() {
+    if (isEnabled()) {
+      return util.getVisibilityEvaluationHits();
+    }
+    return 0;
+  }
+
+  @Override
+  public long getVisibilityEvaluationMisses() {
+    if (isEnabled()) {
+      return util.getVisibilityEvaluationMisses();
+    }
+    return 0;
+  }
+
   @Override
   protected ObjectName getObjectName() {
     return OBJECT_NAME;
@@ -39,4 +39,12 @@ public interface TabletServerMetricsKeys {
   String QUERY_RATE = "queryRate";
   String QUERY_BYTE_RATE = "queryByteRate";
   String SCANNED_RATE = "scannedRate";
+  String DATA_CACHE_HEAP_SIZE = "dataCacheHeapSize";
+  String DATA_CACHE_OFF_HEAP_SIZE = "dataCacheOffHeapSize";
+  String INDEX_CACHE_HEAP_SIZE = "indexCacheHeapSize";
+  String INDEX_CACHE_OFF_HEAP_SIZE = "indexCacheOffHeapSize";
+  String VISIBILITY_PARSE_HITS = "visibilityParseHits";
+  String VISIBILITY_PARSE_MISSES = "visibilityParseMisses";
+  String VISIBILITY_EVALUATION_HITS = "visibilityEvaluationHits";
+  String VISIBILITY_EVALUATION_MISSES = "visibilityEvaluationMisses";
 }
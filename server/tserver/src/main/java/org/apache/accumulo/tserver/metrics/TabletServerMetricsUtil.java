@@ -16,6 +16,11 @@
  */
 package org.apache.accumulo.tserver.metrics;
 
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.HeapSize;
+import org.apache.accumulo.core.file.blockfile.cache.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.TieredBlockCache;
+import org.apache.accumulo.core.security.impl.VisibilityCache;
 import org.apache.accumulo.tserver.TabletServer;
 import org.apache.accumulo.tserver.tablet.Tablet;
 
@@ -156,6 +161,54 @@ public class TabletServerMetricsUtil {
     return tserver.getHoldTimeMillis() / 1000.;
   }
 
+  public long getDataCacheHeapSize() {
+    return heapSize(tserver.getDataCache());
+  }
+
+  public long getDataCacheOffHeapSize() {
+    return offHeapSize(tserver.getDataCache());
+  }
+
+  public long getIndexCacheHeapSize() {
+    return heapSize(tserver.getIndexCache());
+  }
+
+  public long getIndexCacheOffHeapSize() {
+    return offHeapSize(tserver.getIndexCache());
+  }
+
+  public long getVisibilityParseHits() {
+    return VisibilityCache.getInstance().getParseStats().hitCount();
+  }
+
+  public long getVisibilityParseMisses() {
+    return VisibilityCache.getInstance().getParseStats().missCount();
+  }
+
+  public long getVisibilityEvaluationHits() {
+    return VisibilityCache.getInstance().getEvaluationStats().hitCount();
+  }
+
+  public long getVisibilityEvaluationMisses() {
+    return VisibilityCache.getInstance().getEvaluationStats().missCount();
+  }
+
+  private static long heapSize(BlockCache cache) {
+    if (cache instanceof HeapSize)
+      return ((HeapSize) cache).heapSize();
+    return 0;
+  }
+
+  private static long offHeapSize(BlockCache cache) {
+    if (cache instanceof TieredBlockCache) {
+      cache = ((TieredBlockCache) cache).getMemoryCache();
+    }
+    if (cache instanceof OffHeapBlockCache) {
+      return ((OffHeapBlockCache) cache).getAllocatedSize();
+    }
+    return 0;
+  }
+
   public double getAverageFilesPerTablet() {
     int count = 0;
     long result = 0;
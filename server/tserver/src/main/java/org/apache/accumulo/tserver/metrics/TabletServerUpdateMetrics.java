@@ -141,6 +141,46 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl
     return this.getMetricAvg(COMMIT_TIME);
   }
 
+  @Override
+  public long getWALogSyncCount() {
+    return this.getMetricCount(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncMaxTime() {
+    return this.getMetricMax(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncAvgTime() {
+    return this.getMetricAvg(WALOG_SYNC_TIME);
+  }
+
+  @Override
+  public long getWALogSyncBatchMaxSize() {
+    return this.getMetricMax(WALOG_SYNC_BATCH_SIZE);
+  }
+
+  @Override
+  public long getWALogSyncBatchAvgSize() {
+    return this.getMetricAvg(WALOG_SYNC_BATCH_SIZE);
+  }
+
+  @Override
+  public long getTabletRecoveryCount() {
+    return this.getMetricCount(TABLET_RECOVERY_TIME);
+  }
+
+  @Override
+  public long getTabletRecoveryMaxTime() {
+    return this.getMetricMax(TABLET_RECOVERY_TIME);
+  }
+
+  @Override
+  public long getTabletRecoveryAvgTime() {
+    return this.getMetricAvg(TABLET_RECOVERY_TIME);
+  }
+
   @Override
   public void reset() {
     createMetric(PERMISSION_ERRORS);
@@ -150,6 +190,9 @@ public class TabletServerUpdateMetrics extends AbstractMetricsImpl
     createMetric(CONSTRAINT_VIOLATIONS);
     createMetric(WALOG_WRITE_TIME);
     createMetric(COMMIT_TIME);
+    createMetric(WALOG_SYNC_TIME);
+    createMetric(WALOG_SYNC_BATCH_SIZE);
+    createMetric(TABLET_RECOVERY_TIME);
   }
 
 }
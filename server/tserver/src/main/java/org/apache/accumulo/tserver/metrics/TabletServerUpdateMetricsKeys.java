@@ -28,5 +28,8 @@ public interface TabletServerUpdateMetricsKeys {
   static String CONSTRAINT_VIOLATIONS = "constraintViolations";
   static String WALOG_WRITE_TIME = "waLogWriteTime";
   static String COMMIT_TIME = "commitTime";
+  static String WALOG_SYNC_TIME = "waLogSyncTime";
+  static String WALOG_SYNC_BATCH_SIZE = "waLogSyncBatchSize";
+  static String TABLET_RECOVERY_TIME = "tabletRecoveryTime";
 
 }
@@ -54,5 +54,21 @@ public interface TabletServerUpdateMetricsMBean extends TabletServerUpdateMetric
 
   long getCommitAvgTime();
 
+  long getWALogSyncCount();
+
+  long getWALogSyncMaxTime();
+
+  long getWALogSyncAvgTime();
+
+  long getWALogSyncBatchMaxSize();
+
+  long getWALogSyncBatchAvgSize();
+
+  long getTabletRecoveryCount();
+
+  long getTabletRecoveryMaxTime();
+
+  long getTabletRecoveryAvgTime();
+
   void reset();
 }
@@ -26,7 +26,19 @@ public class KVEntry extends KeyValue {
   private static final long serialVersionUID = 1L;
 
   public KVEntry(Key k, Value v) {
-    super(new Key(k), Arrays.copyOf(v.get(), v.get().length));
+    this(k, v, true);
+  }
+
+  private KVEntry(Key k, Value v, boolean copy) {
+    super(copy ? new Key(k) : k, copy ? Arrays.copyOf(v.get(), v.get().length) : v.get());
+  }
+
+  /**
+   * Creates an entry that uses the given key and value, for entries read into a
+   * {@link org.apache.accumulo.core.iterators.KeyValueBlock} that no iterator modifies any more.
+   */
+  static KVEntry of(Key k, Value v) {
+    return new KVEntry(k, v, false);
   }
 
   int numBytes() {
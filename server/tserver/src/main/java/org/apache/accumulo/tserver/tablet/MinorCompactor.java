@@ -26,6 +26,9 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.client.impl.Tables;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
 import org.apache.accumulo.core.master.state.tables.TableState;
 import org.apache.accumulo.core.metadata.schema.DataFileValue;
@@ -55,6 +58,15 @@ public class MinorCompactor extends Compactor {
     return Collections.singletonMap(mergeFile, dfv);
   }
 
+  static AccumuloConfiguration withMinorCompactionCompression(AccumuloConfiguration tableConfig) {
+    String compression = tableConfig.get(Property.TABLE_MINC_COMPRESSION_TYPE);
+    if (compression.isEmpty())
+      return tableConfig;
+    ConfigurationCopy result = new ConfigurationCopy(tableConfig);
+    result.set(Property.TABLE_FILE_COMPRESSION_TYPE, compression);
+    return result;
+  }
+
   private final TabletServer tabletServer;
 
   public MinorCompactor(TabletServer tabletServer, Tablet tablet, InMemoryMap imm,
@@ -82,7 +94,8 @@ public class MinorCompactor extends Compactor {
           public RateLimiter getWriteLimiter() {
             return null;
           }
-        }, Collections.<IteratorSetting> emptyList(), mincReason.ordinal(), tableConfig);
+        }, Collections.<IteratorSetting> emptyList(), mincReason.ordinal(),
+        withMinorCompactionCompression(tableConfig));
     this.tabletServer = tabletServer;
   }
 
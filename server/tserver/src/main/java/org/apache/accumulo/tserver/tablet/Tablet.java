@@ -73,6 +73,7 @@ import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.iterators.IterationInterruptedException;
 import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
 import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
 import org.apache.accumulo.core.iterators.YieldCallback;
 import org.apache.accumulo.core.iterators.YieldingKeyValueIterator;
@@ -168,6 +169,9 @@ import com.google.common.collect.ImmutableSet.Builder;
 public class Tablet implements TabletCommitter {
   static private final Logger log = Logger.getLogger(Tablet.class);
 
+  // most entries scan iterators read in one call
+  static private final int SCAN_BLOCK_SIZE = 256;
+
   private final TabletServer tabletServer;
   private final KeyExtent extent;
   private final TabletResourceManager tabletResources;
@@ -805,31 +809,46 @@ public class Tablet implements TabletCommitter {
       iter.seek(range, LocalityGroupUtil.families(columns), true);
     }
 
-    while (iter.hasTop()) {
+    // reads the iterators a block of entries at a time, the block owns its entries so they are not
+    // copied again, and entries read past a limit are read again after the continue key
+    KeyValueBlock block = new KeyValueBlock(Math.max(1, Math.min(num, SCAN_BLOCK_SIZE)));
+
+    scan: while (iter.hasTop()) {
       if (yield.hasYielded()) {
         throw new IOException(
             "Coding error: hasTop returned true but has yielded at " + yield.getPositionAndReset());
       }
-      value = iter.getTopValue();
-      key = iter.getTopKey();
+      // stop reading the block at the size and time limits of the batch, so that large values or
+      // slow iterators do not read far past them
+      long timeout = batchTimeOut > 0 ? Math.max(1, stopTime - System.nanoTime()) : 0;
+      block.clear(Math.max(1, num - results.size()), Math.max(1, maxResultsSize - resultSize),
+          timeout);
+      block.fill(iter);
 
-      KVEntry kvEntry = new KVEntry(key, value); // copies key and value
-      results.add(kvEntry);
-      resultSize += kvEntry.estimateMemoryUsed();
-      resultBytes += kvEntry.numBytes();
+      for (int i = 0; i < block.size(); i++) {
+        value = block.getValue(i);
+        key = block.getKey(i);
 
-      boolean timesUp = batchTimeOut > 0 && System.nanoTime() >= stopTime;
+        KVEntry kvEntry = KVEntry.of(key, value);
+        results.add(kvEntry);
+        resultSize += kvEntry.estimateMemoryUsed();
+        resultBytes += kvEntry.numBytes();
 
-      if (resultSize >= maxResultsSize || results.size() >= num || timesUp) {
-        continueKey = new Key(key);
-        skipContinueKey = true;
-        break;
-      }
+        boolean timesUp = batchTimeOut > 0 && System.nanoTime() >= stopTime;
 
-      iter.next();
+        if (resultSize >= maxResultsSize || results.size() >= num || timesUp) {
+          continueKey = new Key(key);
+          skipContinueKey = true;
+          break scan;
+        }
+      }
     }
 
-    if (yield.hasYielded()) {
+    if (continueKey != null) {
+      // the scan continues after the last entry returned, even if the iterators yielded while
+      // reading entries past it
+      yield.getPositionAndReset();
+    } else if (yield.hasYielded()) {
       continueKey = new Key(yield.getPositionAndReset());
       skipContinueKey = true;
       if (!range.contains(continueKey)) {
@@ -2062,6 +2081,8 @@ public class Tablet implements TabletCommitter {
       result.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX, "" + p.getIndexBlockSize());
     if (p.getCompressType() != null)
       result.set(Property.TABLE_FILE_COMPRESSION_TYPE, p.getCompressType());
+    if (p.getCompressLevel() != 0)
+      result.set(Property.TABLE_FILE_COMPRESSION_ZSTD_LEVEL, "" + p.getCompressLevel());
     if (p.getReplication() != 0)
       result.set(Property.TABLE_FILE_REPLICATION, "" + p.getReplication());
     return result;
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class OffHeapMapTest {
+
+  private static final MemKeyComparator COMPARATOR = new MemKeyComparator();
+
+  private static int put(OffHeapMap map, TreeMap<Key,Value> expected, int kvCount, Mutation m) {
+    map.mutate(m, kvCount);
+    for (ColumnUpdate cu : m.getUpdates()) {
+      Key k = new MemKey(m.getRow(), cu.getColumnFamily(), cu.getColumnQualifier(),
+          cu.getColumnVisibility(), cu.getTimestamp(), cu.isDeleted(), false, kvCount++);
+      expected.put(k, new Value(cu.getValue()));
+    }
+    return kvCount;
+  }
+
+  private static void assertEntryEquals(Entry<Key,Value> expected, Entry<Key,Value> actual) {
+    assertEquals(0, COMPARATOR.compare(expected.getKey(), actual.getKey()));
+    assertEquals(((MemKey) expected.getKey()).getKVCount(),
+        ((MemKey) actual.getKey()).getKVCount());
+    assertEquals(expected.getValue(), actual.getValue());
+  }
+
+  private static TreeMap<Key,Value> fill(OffHeapMap map, int numMutations) {
+    TreeMap<Key,Value> expected = new TreeMap<>(COMPARATOR);
+    Random rand = new Random(42);
+    int kvCount = 0;
+    for (int i = 0; i < numMutations; i++) {
+      Mutation m = new Mutation(new Text(String.format("r%04d", rand.nextInt(1000))));
+      for (int j = 0; j < 3; j++) {
+        String cf = "cf" + rand.nextInt(3);
+        String cq = "cq" + rand.nextInt(3);
+        String cv = rand.nextBoolean() ? "" : "A";
+        long ts = rand.nextInt(3);
+        if (rand.nextInt(10) == 0) {
+          m.putDelete(new Text(cf), new Text(cq), new ColumnVisibility(cv), ts);
+        } else {
+          m.put(new Text(cf), new Text(cq), new ColumnVisibility(cv), ts,
+              new Value(("v" + i + "_" + j).getBytes()));
+        }
+      }
+      kvCount = put(map, expected, kvCount, m);
+    }
+    return expected;
+  }
+
+  @Test
+  public void testSortedLikeMemKeys() {
+    OffHeapMap map = new OffHeapMap();
+    try {
+      TreeMap<Key,Value> expected = fill(map, 10000);
+      assertEquals(expected.size(), map.size());
+
+      Iterator<Entry<Key,Value>> iter = map.iterator();
+      for (Entry<Key,Value> entry : expected.entrySet()) {
+        assertTrue(iter.hasNext());
+        assertEntryEquals(entry, iter.next());
+      }
+      assertFalse(iter.hasNext());
+      assertTrue(map.getMemoryUsed() > 0);
+    } finally {
+      map.delete();
+    }
+  }
+
+  @Test
+  public void testSameKeyInOneMutation() {
+    OffHeapMap map = new OffHeapMap();
+    try {
+      Mutation m = new Mutation("r");
+      for (int i = 0; i < 5; i++) {
+        m.put(new Text("cf"), new Text("cq"), 3, new Value(("" + i).getBytes()));
+      }
+      map.mutate(m, 10);
+
+      // every key value is kept, the newest first
+      Iterator<Entry<Key,Value>> iter = map.iterator();
+      for (int i = 4; i >= 0; i--) {
+        Entry<Key,Value> entry = iter.next();
+        assertEquals(10 + i, ((MemKey) entry.getKey()).getKVCount());
+        assertEquals(new Value(("" + i).getBytes()), entry.getValue());
+      }
+      assertFalse(iter.hasNext());
+
+      assertEquals(new Value("4".getBytes()), map.get(new Key("r", "cf", "cq", 3)));
+      assertNull(map.get(new Key("r", "cf", "cq", 2)));
+    } finally {
+      map.delete();
+    }
+  }
+
+  @Test
+  public void testIteratorSeek() {
+    OffHeapMap map = new OffHeapMap();
+    try {
+      TreeMap<Key,Value> expected = fill(map, 2000);
+      Random rand = new Random(7);
+      for (int i = 0; i < 200; i++) {
+        Key start = new Key(String.format("r%04d", rand.nextInt(1000)), "cf1", "cq1",
+            rand.nextInt(3));
+        Iterator<Entry<Key,Value>> iter = map.iterator(start);
+        int count = 0;
+        for (Entry<Key,Value> entry : expected.tailMap(start).entrySet()) {
+          if (count++ == 50)
+            break;
+          assertEntryEquals(entry, iter.next());
+        }
+      }
+    } finally {
+      map.delete();
+    }
+  }
+
+  @Test
+  public void testSkvIterator() throws Exception {
+    OffHeapMap map = new OffHeapMap();
+    try {
+      TreeMap<Key,Value> expected = fill(map, 2000);
+      SortedKeyValueIterator<Key,Value> iter = map.skvIterator();
+
+      Range range = new Range("r0100", "r0200");
+      iter.seek(range, Collections.<ByteSequence> emptySet(), false);
+      for (Entry<Key,Value> entry : expected.entrySet()) {
+        if (!range.contains(entry.getKey()))
+          continue;
+        assertTrue(iter.hasTop());
+        assertEquals(0, COMPARATOR.compare(entry.getKey(), iter.getTopKey()));
+        assertEquals(entry.getValue(), iter.getTopValue());
+        iter.next();
+      }
+      assertFalse(iter.hasTop());
+
+      SortedKeyValueIterator<Key,Value> copy = iter.deepCopy(null);
+      copy.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+      assertEquals(0, COMPARATOR.compare(expected.firstKey(), copy.getTopKey()));
+    } finally {
+      map.delete();
+    }
+  }
+
+  @Test
+  public void testWritesWhileIterating() {
+    OffHeapMap map = new OffHeapMap();
+    try {
+      fill(map, 100);
+      Iterator<Entry<Key,Value>> iter = map.iterator();
+      Key last = iter.next().getKey();
+
+      // nodes are never moved, so an iterator continues correctly after writes
+      Mutation m = new Mutation("r9999");
+      m.put("cf", "cq", new Value("v".getBytes()));
+      map.mutate(m, 100000);
+
+      int count = 1;
+      while (iter.hasNext()) {
+        Key key = iter.next().getKey();
+        assertTrue(COMPARATOR.compare(last, key) < 0);
+        last = key;
+        count++;
+      }
+      assertEquals(map.size(), count);
+    } finally {
+      map.delete();
+    }
+  }
+
+  @Test
+  public void testDelete() {
+    OffHeapMap map = new OffHeapMap();
+    fill(map, 10);
+    map.delete();
+    try {
+      map.size();
+      fail();
+    } catch (IllegalStateException e) {}
+    try {
+      map.iterator();
+      fail();
+    } catch (IllegalStateException e) {}
+  }
+}
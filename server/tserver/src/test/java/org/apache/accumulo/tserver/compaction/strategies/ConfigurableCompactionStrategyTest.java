@@ -58,12 +58,14 @@ public class ConfigurableCompactionStrategyTest {
     Assert.assertEquals(0, plan.writeParameters.getIndexBlockSize());
     Assert.assertEquals(0, plan.writeParameters.getReplication());
     Assert.assertEquals(null, plan.writeParameters.getCompressType());
+    Assert.assertEquals(0, plan.writeParameters.getCompressLevel());
 
     // test setting all output options
     ccs = new ConfigurableCompactionStrategy();
 
     CompactionSettings.OUTPUT_BLOCK_SIZE_OPT.put(opts, "64K");
     CompactionSettings.OUTPUT_COMPRESSION_OPT.put(opts, "snappy");
+    CompactionSettings.OUTPUT_COMPRESSION_LEVEL_OPT.put(opts, "3");
     CompactionSettings.OUTPUT_HDFS_BLOCK_SIZE_OPT.put(opts, "256M");
     CompactionSettings.OUTPUT_INDEX_BLOCK_SIZE_OPT.put(opts, "32K");
     CompactionSettings.OUTPUT_REPLICATION_OPT.put(opts, "5");
@@ -80,6 +82,7 @@ public class ConfigurableCompactionStrategyTest {
         plan.writeParameters.getIndexBlockSize());
     Assert.assertEquals(5, plan.writeParameters.getReplication());
     Assert.assertEquals("snappy", plan.writeParameters.getCompressType());
+    Assert.assertEquals(3, plan.writeParameters.getCompressLevel());
 
   }
 }
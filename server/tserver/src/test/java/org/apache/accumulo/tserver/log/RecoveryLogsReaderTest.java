@@ -24,9 +24,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.data.ServerMutation;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.fs.VolumeManagerImpl;
 import org.apache.accumulo.tserver.log.RecoveryLogReader.SortCheckIterator;
@@ -38,6 +43,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.MapFile.Writer;
+import org.apache.hadoop.io.Text;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -152,6 +158,62 @@ public class RecoveryLogsReaderTest {
 
   }
 
+  private static Pair<LogFileKey,LogFileValue> mutation(int tabletId, long seq, String row) {
+    LogFileKey key = new LogFileKey();
+    key.event = LogEvents.MUTATION;
+    key.tabletId = tabletId;
+    key.seq = seq;
+    LogFileValue value = new LogFileValue();
+    Mutation m = new ServerMutation(new Text(row));
+    m.put("cf", "cq", "value");
+    value.mutations = Collections.singletonList(m);
+    return new Pair<>(key, value);
+  }
+
+  @Test
+  public void testSortedLogParts() throws IOException {
+    Path dir = new Path("file://" + root.getRoot().getAbsolutePath() + "/sortedParts");
+    fs.mkdirs(dir);
+
+    // tablets interleaved and spread over parts the way a log sort writes them
+    List<Pair<LogFileKey,LogFileValue>> part0 = new ArrayList<>();
+    List<Pair<LogFileKey,LogFileValue>> part1 = new ArrayList<>();
+    LogFileKey open = new LogFileKey();
+    open.event = LogEvents.OPEN;
+    open.tserverSession = "session";
+    part0.add(new Pair<>(open, new LogFileValue()));
+    for (int seq = 99; seq >= 0; seq--) {
+      for (int tabletId = 3; tabletId >= 1; tabletId--) {
+        List<Pair<LogFileKey,LogFileValue>> part = seq % 2 == 0 ? part0 : part1;
+        part.add(mutation(tabletId, seq, "row" + seq + "a"));
+        part.add(mutation(tabletId, seq, "row" + seq + "b"));
+      }
+    }
+    SortedLogPart.write(fs, DefaultConfiguration.getInstance(),
+        new Path(dir, "part-r-00000" + SortedLogPart.EXTENSION), part0);
+    SortedLogPart.write(fs, DefaultConfiguration.getInstance(),
+        new Path(dir, "part-r-00001" + SortedLogPart.EXTENSION), part1);
+    fs.create(new Path(dir, "finished")).close();
+
+    LogFileKey start = SortedLogRecovery.minKey(LogEvents.MUTATION, 2);
+    start.seq = 50;
+    LogFileKey end = SortedLogRecovery.maxKey(LogEvents.MUTATION, 2);
+    try (RecoveryLogReader reader = new RecoveryLogReader(fs, dir, start, end)) {
+      for (int seq = 50; seq < 100; seq++) {
+        // entries with equal keys stay in log order
+        for (String suffix : new String[] {"a", "b"}) {
+          assertTrue(reader.hasNext());
+          Entry<LogFileKey,LogFileValue> entry = reader.next();
+          assertEquals(2, entry.getKey().tabletId);
+          assertEquals(seq, entry.getKey().seq);
+          assertEquals(new Text("row" + seq + suffix),
+              new Text(entry.getValue().mutations.get(0).getRow()));
+        }
+      }
+      assertFalse(reader.hasNext());
+    }
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testSortCheck() {
 
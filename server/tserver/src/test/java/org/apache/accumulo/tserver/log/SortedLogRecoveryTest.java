@@ -136,6 +136,11 @@ public class SortedLogRecoveryTest {
 
   private static List<Mutation> recover(Map<String,KeyValue[]> logs, Set<String> files,
       KeyExtent extent) throws IOException {
+    return recover(logs, files, extent, false);
+  }
+
+  private static List<Mutation> recover(Map<String,KeyValue[]> logs, Set<String> files,
+      KeyExtent extent, boolean writeTabletIndex) throws IOException {
     TemporaryFolder root = new TemporaryFolder(
         new File(System.getProperty("user.dir") + "/target"));
     root.create();
@@ -155,6 +160,15 @@ public class SortedLogRecoveryTest {
           map.append(lfe.key, lfe.value);
         }
         map.close();
+        if (writeTabletIndex) {
+          SortedLogTabletIndex index = new SortedLogTabletIndex();
+          for (KeyValue lfe : entry.getValue()) {
+            if (lfe.key.event == DEFINE_TABLET) {
+              index.add(lfe.key.tablet, lfe.key.tabletId);
+            }
+          }
+          index.write(fs, new Path(path));
+        }
         ns.create(SortedLogState.getFinishedMarkerPath(path)).close();
         dirs.add(new Path(path));
       }
@@ -710,6 +724,36 @@ public class SortedLogRecoveryTest {
     Assert.assertEquals(m2, mutations.get(0));
   }
 
+  @Test
+  public void testTabletIndex() throws IOException {
+    KeyExtent other = new KeyExtent("table", new Text("m"), null);
+
+    Mutation ignored = new ServerMutation(new Text("ignored"));
+    ignored.put(cf, cq, value);
+    Mutation m = new ServerMutation(new Text("row1"));
+    m.put(cf, cq, value);
+
+    // the tablet was unloaded and loaded again, only the last load counts
+    KeyValue entries1[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"),
+        createKeyValue(DEFINE_TABLET, 1, 1, extent), createKeyValue(DEFINE_TABLET, 1, 2, other),
+        createKeyValue(MUTATION, 2, 1, ignored), createKeyValue(MUTATION, 2, 2, ignored),
+        createKeyValue(DEFINE_TABLET, 3, 3, extent), createKeyValue(MUTATION, 4, 3, m)};
+    KeyValue entries2[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"),
+        createKeyValue(DEFINE_TABLET, 1, 2, other), createKeyValue(MUTATION, 2, 2, ignored)};
+    Arrays.sort(entries1);
+    Arrays.sort(entries2);
+    Map<String,KeyValue[]> logs = new TreeMap<>();
+    logs.put("entries1", entries1);
+    logs.put("entries2", entries2);
+
+    List<Mutation> mutations = recover(logs, new HashSet<String>(), extent, true);
+    Assert.assertEquals(1, mutations.size());
+    Assert.assertEquals(m, mutations.get(0));
+    Assert.assertEquals(mutations, recover(logs, new HashSet<String>(), extent, false));
+
+    Assert.assertEquals(2, recover(logs, new HashSet<String>(), other, true).size());
+  }
+
   @Test
   public void testMultipleTablets() throws IOException {
     KeyExtent e1 = new KeyExtent("1", new Text("m"), null);
@@ -758,6 +802,54 @@ public class SortedLogRecoveryTest {
     Assert.assertEquals(m4, mutations2.get(0));
   }
 
+  @Test
+  public void testTabletsStripedAcrossLogs() throws IOException {
+    // a tablet server writing to two logs at once, e1 uses the first and e2 the second
+    KeyExtent e1 = new KeyExtent("1", new Text("m"), null);
+    KeyExtent e2 = new KeyExtent("1", null, new Text("m"));
+
+    Mutation m1 = new ServerMutation(new Text("b"));
+    m1.put("f1", "q1", "v1");
+    Mutation m2 = new ServerMutation(new Text("b"));
+    m2.put("f1", "q2", "v2");
+    Mutation m3 = new ServerMutation(new Text("s"));
+    m3.put("f1", "q1", "v3");
+    Mutation m4 = new ServerMutation(new Text("s"));
+    m4.put("f1", "q2", "v4");
+    Mutation m5 = new ServerMutation(new Text("b"));
+    m5.put("f1", "q3", "v5");
+
+    KeyValue stripe1[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "1"),
+        createKeyValue(DEFINE_TABLET, 1, 10, e1), createKeyValue(MUTATION, 2, 10, m1),
+        createKeyValue(COMPACTION_START, 3, 10, "/t/f1"), createKeyValue(MUTATION, 4, 10, m2)};
+    KeyValue stripe2[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "2"),
+        createKeyValue(DEFINE_TABLET, 1, 11, e2), createKeyValue(MUTATION, 2, 11, m3),
+        createKeyValue(MUTATION, 3, 11, m4)};
+    // the first log was rolled while the second was still in use
+    KeyValue stripe1Next[] = new KeyValue[] {createKeyValue(OPEN, 0, -1, "3"),
+        createKeyValue(DEFINE_TABLET, 4, 10, e1), createKeyValue(COMPACTION_FINISH, 5, 10, null),
+        createKeyValue(MUTATION, 5, 10, m5)};
+
+    Arrays.sort(stripe1);
+    Arrays.sort(stripe2);
+    Arrays.sort(stripe1Next);
+
+    Map<String,KeyValue[]> logs = new TreeMap<>();
+    logs.put("stripe1", stripe1);
+    logs.put("stripe2", stripe2);
+    logs.put("stripe1Next", stripe1Next);
+
+    List<Mutation> mutations1 = recover(logs, e1);
+    Assert.assertEquals(2, mutations1.size());
+    Assert.assertEquals(m2, mutations1.get(0));
+    Assert.assertEquals(m5, mutations1.get(1));
+
+    List<Mutation> mutations2 = recover(logs, e2);
+    Assert.assertEquals(2, mutations2.size());
+    Assert.assertEquals(m3, mutations2.get(0));
+    Assert.assertEquals(m4, mutations2.get(1));
+  }
+
   private void runPathTest(boolean startMatches, String compactionStartFile, String... tabletFiles)
       throws IOException {
     Mutation m1 = new ServerMutation(new Text("row1"));
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.tserver.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.fate.util.Retry;
+import org.apache.accumulo.fate.util.Retry.RetryFactory;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.tserver.Mutations;
+import org.apache.accumulo.tserver.TabletMutations;
+import org.apache.accumulo.tserver.log.DfsLogger.LoggerOperation;
+import org.apache.accumulo.tserver.log.DfsLogger.ServerResources;
+import org.apache.accumulo.tserver.tablet.CommitSession;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class TabletServerLoggerTest {
+
+  private static final RetryFactory RETRY_FACTORY = Retry.builder().infiniteRetries()
+      .retryAfter(1, TimeUnit.MILLISECONDS).incrementBy(1, TimeUnit.MILLISECONDS)
+      .maxWait(10, TimeUnit.MILLISECONDS).logInterval(1, TimeUnit.MINUTES).createFactory();
+
+  private static final ServerResources RESOURCES = new ServerResources() {
+    @Override
+    public AccumuloConfiguration getConfiguration() {
+      return DefaultConfiguration.getInstance();
+    }
+
+    @Override
+    public VolumeManager getFileSystem() {
+      return null;
+    }
+  };
+
+  /**
+   * Records the events written to it instead of writing them to a file.
+   */
+  private static class TestLog extends DfsLogger {
+    final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    TestLog(String name) throws IOException {
+      super(RESOURCES, name, null);
+    }
+
+    @Override
+    public synchronized void defineTablet(long seq, int tid, KeyExtent tablet) {
+      events.add(tid + " define");
+    }
+
+    @Override
+    public LoggerOperation log(long seq, int tid, Mutation mutation, Durability durability) {
+      events.add(tid + " " + new String(mutation.getRow(), UTF_8));
+      return NO_WAIT_LOGGER_OP;
+    }
+
+    @Override
+    public LoggerOperation logManyTablets(List<TabletMutations> mutations) {
+      for (TabletMutations tm : mutations) {
+        for (Mutation m : tm.getMutations()) {
+          events.add(tm.getTid() + " " + new String(m.getRow(), UTF_8));
+        }
+      }
+      return NO_WAIT_LOGGER_OP;
+    }
+
+    @Override
+    public LoggerOperation minorCompactionStarted(long seq, int tid, String fqfn,
+        Durability durability) {
+      events.add(tid + " minc start");
+      return NO_WAIT_LOGGER_OP;
+    }
+
+    @Override
+    public LoggerOperation minorCompactionFinished(long seq, int tid, String fqfn,
+        Durability durability) {
+      events.add(tid + " minc finish");
+      return NO_WAIT_LOGGER_OP;
+    }
+
+    List<String> eventsFor(int tid) {
+      List<String> result = new ArrayList<>();
+      synchronized (events) {
+        for (String event : events) {
+          if (event.startsWith(tid + " ")) {
+            result.add(event.substring(event.indexOf(' ') + 1));
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  private final List<TestLog> logs = Collections.synchronizedList(new ArrayList<TestLog>());
+  private final AtomicInteger nextLogId = new AtomicInteger();
+
+  private TabletServerLogger newLogger(int numLogs) {
+    return new TabletServerLogger(null, Long.MAX_VALUE, new AtomicLong(), new AtomicLong(),
+        RETRY_FACTORY, RETRY_FACTORY, Long.MAX_VALUE, numLogs) {
+      @Override
+      DfsLogger createLog() throws Exception {
+        TestLog log = new TestLog("log" + nextLogId.getAndIncrement());
+        logs.add(log);
+        return log;
+      }
+    };
+  }
+
+  private static CommitSession newSession(int tid) {
+    CommitSession session = EasyMock.createNiceMock(CommitSession.class);
+    KeyExtent extent = new KeyExtent("1", new Text(String.format("r%03d", tid)),
+        tid == 0 ? null : new Text(String.format("r%03d", tid - 1)));
+    EasyMock.expect(session.getExtent()).andReturn(extent).anyTimes();
+    EasyMock.expect(session.getLogId()).andReturn(tid).anyTimes();
+    EasyMock.replay(session);
+    return session;
+  }
+
+  private static Mutation newMutation(String row) {
+    Mutation m = new Mutation(row);
+    m.put("cf", "cq", "v");
+    return m;
+  }
+
+  private static Mutations newMutations(Mutation m) {
+    Mutations mutations = EasyMock.createNiceMock(Mutations.class);
+    EasyMock.expect(mutations.getDurability()).andReturn(Durability.SYNC).anyTimes();
+    EasyMock.expect(mutations.getMutations()).andReturn(Collections.singletonList(m)).anyTimes();
+    EasyMock.replay(mutations);
+    return mutations;
+  }
+
+  /**
+   * @return the logs the tablet wrote to
+   */
+  private List<TestLog> logsUsedBy(int tid) {
+    List<TestLog> used = new ArrayList<>();
+    synchronized (logs) {
+      for (TestLog log : logs) {
+        if (!log.eventsFor(tid).isEmpty()) {
+          used.add(log);
+        }
+      }
+    }
+    return used;
+  }
+
+  @Test
+  public void testTabletWritesToOneLogInOrder() throws Exception {
+    TabletServerLogger logger = newLogger(3);
+    List<CommitSession> sessions = new ArrayList<>();
+    for (int tid = 0; tid < 20; tid++) {
+      sessions.add(newSession(tid));
+    }
+
+    for (int i = 0; i < 10; i++) {
+      Map<CommitSession,Mutations> many = new HashMap<>();
+      for (CommitSession session : sessions) {
+        logger.log(session, i, newMutation("single" + i), Durability.SYNC);
+        many.put(session, newMutations(newMutation("many" + i)));
+      }
+      logger.logManyTablets(many);
+    }
+
+    for (int tid = 0; tid < sessions.size(); tid++) {
+      List<TestLog> used = logsUsedBy(tid);
+      assertEquals("tablet " + tid + " used " + used.size() + " logs", 1, used.size());
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        expected.add("single" + i);
+        expected.add("many" + i);
+      }
+      assertEquals(expected, used.get(0).eventsFor(tid));
+    }
+  }
+
+  @Test
+  public void testTabletEventsShareLogWithMutations() throws Exception {
+    TabletServerLogger logger = newLogger(3);
+    Retry retry = RETRY_FACTORY.createRetry();
+
+    for (int tid = 0; tid < 20; tid++) {
+      CommitSession session = newSession(tid);
+      logger.defineTablet(session, retry);
+      logger.log(session, 1, newMutation("m1"), Durability.SYNC);
+      logger.minorCompactionStarted(session, 2, "/t/f1.rf", Durability.SYNC);
+      logger.logManyTablets(Collections.singletonMap(session, newMutations(newMutation("m2"))));
+      logger.minorCompactionFinished(session, "/t/f1.rf", 2, Durability.SYNC);
+    }
+
+    for (int tid = 0; tid < 20; tid++) {
+      List<TestLog> used = logsUsedBy(tid);
+      assertEquals("tablet " + tid + " used " + used.size() + " logs", 1, used.size());
+      assertEquals(Arrays.asList("define", "m1", "minc start", "m2", "minc finish"),
+          used.get(0).eventsFor(tid));
+    }
+  }
+
+  @Test
+  public void testLogCountFollowsConfiguration() throws Exception {
+    assertEquals(1, TabletServerLogger.getLogCount(DefaultConfiguration.getInstance()));
+
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_WALOG_COUNT, "4");
+    assertEquals(4, TabletServerLogger.getLogCount(conf));
+
+    TabletServerLogger logger = newLogger(TabletServerLogger.getLogCount(conf));
+    for (int tid = 0; tid < 40; tid++) {
+      logger.log(newSession(tid), 1, newMutation("m"), Durability.SYNC);
+    }
+    assertEquals(4, logger.getLogFiles().size());
+
+    int used = 0;
+    synchronized (logs) {
+      for (TestLog log : logs) {
+        if (!log.events.isEmpty()) {
+          used++;
+        }
+      }
+    }
+    assertEquals(4, used);
+  }
+}
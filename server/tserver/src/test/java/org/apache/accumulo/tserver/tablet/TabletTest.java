@@ -57,7 +57,7 @@ public class TabletTest {
         tabletMemory, tableConf, extent, obs);
 
     long hdfsBlockSize = 10000l, blockSize = 5000l, indexBlockSize = 500l;
-    int replication = 5;
+    int replication = 5, compressLevel = 7;
     String compressType = "snappy";
 
     EasyMock.expect(tableConf.iterator())
@@ -66,6 +66,7 @@ public class TabletTest {
     EasyMock.expect(writeParams.getBlockSize()).andReturn(blockSize).times(2);
     EasyMock.expect(writeParams.getIndexBlockSize()).andReturn(indexBlockSize).times(2);
     EasyMock.expect(writeParams.getCompressType()).andReturn(compressType).times(2);
+    EasyMock.expect(writeParams.getCompressLevel()).andReturn(compressLevel).times(2);
     EasyMock.expect(writeParams.getReplication()).andReturn(replication).times(2);
 
     EasyMock.replay(tableConf, plan, writeParams);
@@ -80,6 +81,8 @@ public class TabletTest {
     Assert.assertEquals(indexBlockSize,
         Long.parseLong(aConf.get(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX)));
     Assert.assertEquals(compressType, aConf.get(Property.TABLE_FILE_COMPRESSION_TYPE));
+    Assert.assertEquals(compressLevel,
+        Integer.parseInt(aConf.get(Property.TABLE_FILE_COMPRESSION_ZSTD_LEVEL)));
     Assert.assertEquals(replication, Integer.parseInt(aConf.get(Property.TABLE_FILE_REPLICATION)));
   }
 
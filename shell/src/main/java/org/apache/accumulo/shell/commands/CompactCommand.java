@@ -38,8 +38,8 @@ public class CompactCommand extends TableOperation {
 
   // file selection and file output options
   private Option enameOption, epathOption, sizeLtOption, sizeGtOption, minFilesOption,
-      outBlockSizeOpt, outHdfsBlockSizeOpt, outIndexBlockSizeOpt, outCompressionOpt, outReplication,
-      enoSampleOption;
+      outBlockSizeOpt, outHdfsBlockSizeOpt, outIndexBlockSizeOpt, outCompressionOpt,
+      outCompressionLevelOpt, outReplication, enoSampleOption;
 
   private CompactionConfig compactionConfig = null;
 
@@ -104,6 +104,7 @@ public class CompactCommand extends TableOperation {
     put(cl, opts, sizeGtOption, CompactionSettings.SF_GT_ESIZE_OPT);
     put(cl, opts, minFilesOption, CompactionSettings.MIN_FILES_OPT);
     put(cl, opts, outCompressionOpt, CompactionSettings.OUTPUT_COMPRESSION_OPT);
+    put(cl, opts, outCompressionLevelOpt, CompactionSettings.OUTPUT_COMPRESSION_LEVEL_OPT);
     put(cl, opts, outBlockSizeOpt, CompactionSettings.OUTPUT_BLOCK_SIZE_OPT);
     put(cl, opts, outHdfsBlockSizeOpt, CompactionSettings.OUTPUT_HDFS_BLOCK_SIZE_OPT);
     put(cl, opts, outIndexBlockSizeOpt, CompactionSettings.OUTPUT_INDEX_BLOCK_SIZE_OPT);
@@ -243,9 +244,13 @@ public class CompactCommand extends TableOperation {
             + " K,M, and G suffixes. Uses table settings if not specified.");
     opts.addOption(outIndexBlockSizeOpt);
     outCompressionOpt = newLAO("out-compress",
-        "Compression to use for compaction output file. Either snappy, gz, lzo,"
+        "Compression to use for compaction output file. Either snappy, gz, lzo, zstd, lz4,"
             + " or none. Uses table settings if not specified.");
     opts.addOption(outCompressionOpt);
+    outCompressionLevelOpt = newLAO("out-compress-level",
+        "Compression level to use for compaction output file, for compression types with levels"
+            + " like zstd. Uses table settings if not specified.");
+    opts.addOption(outCompressionLevelOpt);
     outReplication = newLAO("out-replication",
         "HDFS replication to use for compaction output file. Uses table"
             + " settings if not specified.");
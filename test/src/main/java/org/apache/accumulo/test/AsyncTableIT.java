@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.accumulo.core.client.AsyncTable;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.examples.simple.constraints.AlphaNumKeyConstraint;
+import org.apache.accumulo.harness.AccumuloClusterHarness;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+public class AsyncTableIT extends AccumuloClusterHarness {
+
+  @Override
+  public int defaultTimeoutSeconds() {
+    return 60;
+  }
+
+  private static String row(int i) {
+    return String.format("r%04d", i);
+  }
+
+  private static Mutation mutation(int i) {
+    Mutation m = new Mutation(row(i));
+    m.put("cf", "cq1", new Value(("v" + i).getBytes(UTF_8)));
+    m.put("cf", "cq2", new Value(("w" + i).getBytes(UTF_8)));
+    return m;
+  }
+
+  @Test
+  public void testWriteAndLookup() throws Exception {
+    String table = getUniqueNames(1)[0];
+    Connector c = getConnector();
+    c.tableOperations().create(table);
+
+    AsyncTable at = c.createAsyncTable(table, Authorizations.EMPTY, 4, new BatchWriterConfig());
+    try {
+      final AtomicInteger written = new AtomicInteger(0);
+      AsyncTable.Callback<Void> callback = new AsyncTable.Callback<Void>() {
+        @Override
+        public void onSuccess(Void result) {
+          written.incrementAndGet();
+        }
+
+        @Override
+        public void onFailure(Throwable t) {}
+      };
+      List<Future<Void>> writes = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        writes.add(at.write(mutation(i), callback));
+      }
+      for (Future<Void> write : writes) {
+        assertNull(write.get());
+      }
+      assertEquals(1000, written.get());
+
+      List<Future<SortedMap<Key,Value>>> lookups = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        lookups.add(at.lookup(new Text(row(i)), null));
+      }
+      for (int i = 0; i < 1000; i++) {
+        SortedMap<Key,Value> entries = lookups.get(i).get();
+        assertEquals(2, entries.size());
+        assertEquals(row(i), entries.firstKey().getRow().toString());
+        assertEquals("v" + i, entries.get(entries.firstKey()).toString());
+        assertEquals("w" + i, entries.get(entries.lastKey()).toString());
+      }
+
+      assertTrue(at.lookup(new Text("missing"), null).get().isEmpty());
+    } finally {
+      at.close();
+    }
+  }
+
+  @Test
+  public void testScan() throws Exception {
+    String table = getUniqueNames(1)[0];
+    Connector c = getConnector();
+    c.tableOperations().create(table);
+
+    AsyncTable at = c.createAsyncTable(table, Authorizations.EMPTY, 4, new BatchWriterConfig());
+    try {
+      List<Future<Void>> writes = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        writes.add(at.write(mutation(i), null));
+      }
+      for (Future<Void> write : writes) {
+        write.get();
+      }
+
+      final CountDownLatch done = new CountDownLatch(1);
+      final AtomicInteger count = new AtomicInteger(0);
+      final AtomicInteger outstanding = new AtomicInteger(0);
+      final AtomicReference<String> error = new AtomicReference<>();
+      at.scan(Collections.singleton(new Range()), new AsyncTable.Subscriber() {
+        private AsyncTable.Subscription subscription;
+
+        @Override
+        public void onSubscribe(AsyncTable.Subscription subscription) {
+          this.subscription = subscription;
+          outstanding.set(10);
+          subscription.request(10);
+        }
+
+        @Override
+        public void onNext(Entry<Key,Value> entry) {
+          count.incrementAndGet();
+          if (outstanding.decrementAndGet() < 0) {
+            error.set("received more entries than requested");
+          }
+          if (outstanding.get() == 0) {
+            outstanding.set(10);
+            subscription.request(10);
+          }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          error.set(t.toString());
+          done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+          done.countDown();
+        }
+      });
+
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      assertNull(error.get());
+      assertEquals(2000, count.get());
+    } finally {
+      at.close();
+    }
+  }
+
+  @Test
+  public void testRejectedWrite() throws Exception {
+    String table = getUniqueNames(1)[0];
+    Connector c = getConnector();
+    c.tableOperations().create(table);
+    c.tableOperations().addConstraint(table, AlphaNumKeyConstraint.class.getName());
+
+    AsyncTable at = c.createAsyncTable(table, Authorizations.EMPTY, 4, new BatchWriterConfig());
+    try {
+      Mutation bad = new Mutation("r$");
+      bad.put("cf", "cq", new Value("v".getBytes(UTF_8)));
+      try {
+        at.write(bad, null).get();
+        fail("expected the mutation to be rejected");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof MutationsRejectedException);
+      }
+
+      // the writer starts over after a rejection
+      at.write(mutation(1), null).get();
+      assertEquals(2, at.lookup(new Text(row(1)), null).get().size());
+    } finally {
+      at.close();
+    }
+  }
+}
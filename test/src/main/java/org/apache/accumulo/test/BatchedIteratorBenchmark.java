@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.Filter;
+import org.apache.accumulo.core.iterators.KeyValueBlock;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.apache.accumulo.core.iterators.system.DeletingIterator;
+import org.apache.accumulo.core.iterators.system.VisibilityFilter;
+import org.apache.accumulo.core.iterators.user.AgeOffFilter;
+import org.apache.accumulo.core.iterators.user.ReqVisFilter;
+import org.apache.accumulo.core.iterators.user.TimestampFilter;
+import org.apache.accumulo.core.iterators.user.VersioningIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.hadoop.io.Text;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures reading through a deep stack of system and user iterators an entry at a time, copying
+ * each entry the way a tablet scan used to, and in blocks filled with
+ * {@link KeyValueBlock#fill(SortedKeyValueIterator)}.
+ */
+public class BatchedIteratorBenchmark {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static class Opts {
+    @Parameter(names = "--entries", description = "entries in the scanned data")
+    int entries = 2000000;
+    @Parameter(names = "--versions", description = "versions of each column")
+    int versions = 2;
+    @Parameter(names = "--filters", description = "user filters to stack on the system iterators")
+    int filters = 6;
+    @Parameter(names = "--blockSize", description = "entries in each block")
+    int blockSize = 256;
+    @Parameter(names = "--runs", description = "times to run each test")
+    int runs = 3;
+    @Parameter(names = "-help", help = true)
+    boolean help = false;
+  }
+
+  static TreeMap<Key,Value> createData(Opts opts) {
+    TreeMap<Key,Value> data = new TreeMap<>();
+    Value value = new Value(new byte[20]);
+    Text cf = new Text("cf");
+    Text cq = new Text("cq");
+    Text cv = new Text("A");
+    for (int i = 0; i < opts.entries; i++) {
+      Text row = new Text(FastFormat.toZeroPaddedString(i / opts.versions, 10, 10, ROW_PREFIX));
+      data.put(new Key(row, cf, cq, cv, 1000 - i % opts.versions), value);
+    }
+    return data;
+  }
+
+  static SortedKeyValueIterator<Key,Value> createStack(Opts opts, TreeMap<Key,Value> data)
+      throws IOException {
+    SortedKeyValueIterator<Key,Value> iter = new SortedMapIterator(data);
+    iter = new DeletingIterator(iter, false);
+    iter = new ColumnFamilySkippingIterator(iter);
+    iter = VisibilityFilter.wrap(iter, new Authorizations("A"), new byte[0]);
+
+    IteratorSetting is = new IteratorSetting(1, VersioningIterator.class);
+    VersioningIterator.setMaxVersions(is, 1);
+    VersioningIterator versioning = new VersioningIterator();
+    versioning.init(iter, is.getOptions(), null);
+    iter = versioning;
+
+    for (int i = 0; i < opts.filters; i++) {
+      Filter filter;
+      if (i % 3 == 0) {
+        filter = new ReqVisFilter();
+      } else if (i % 3 == 1) {
+        filter = new TimestampFilter();
+      } else {
+        filter = new AgeOffFilter();
+      }
+      // options that every entry passes, so that each filter does its work on every entry
+      is = new IteratorSetting(10 + i, "filter" + i, filter.getClass());
+      if (filter instanceof TimestampFilter) {
+        TimestampFilter.setRange(is, 0L, Long.MAX_VALUE);
+      } else if (filter instanceof AgeOffFilter) {
+        AgeOffFilter.setTTL(is, Long.MAX_VALUE / 2);
+        AgeOffFilter.setCurrentTime(is, 1000L);
+      }
+      filter.init(iter, is.getOptions(), null);
+      iter = filter;
+    }
+
+    iter.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+    return iter;
+  }
+
+  static long readByEntry(SortedKeyValueIterator<Key,Value> iter) throws IOException {
+    long count = 0;
+    while (iter.hasTop()) {
+      Key key = new Key(iter.getTopKey());
+      Value value = new Value(iter.getTopValue());
+      if (key.getSize() + value.getSize() > 0) {
+        count++;
+      }
+      iter.next();
+    }
+    return count;
+  }
+
+  static long readInBlocks(SortedKeyValueIterator<Key,Value> iter, int blockSize)
+      throws IOException {
+    KeyValueBlock block = new KeyValueBlock(blockSize);
+    long count = 0;
+    while (iter.hasTop()) {
+      block.clear();
+      block.fill(iter);
+      for (int i = 0; i < block.size(); i++) {
+        if (block.getKey(i).getSize() + block.getValue(i).getSize() > 0) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    JCommander jc = new JCommander(opts);
+    jc.setProgramName(BatchedIteratorBenchmark.class.getName());
+    jc.parse(args);
+    if (opts.help) {
+      jc.usage();
+      return;
+    }
+
+    TreeMap<Key,Value> data = createData(opts);
+    for (int r = 0; r < opts.runs; r++) {
+      long t1 = System.nanoTime();
+      long entryCount = readByEntry(createStack(opts, data));
+      long t2 = System.nanoTime();
+      long blockCount = readInBlocks(createStack(opts, data), opts.blockSize);
+      long t3 = System.nanoTime();
+
+      if (entryCount != blockCount) {
+        throw new IllegalStateException("read " + entryCount + " entries by entry and "
+            + blockCount + " in blocks");
+      }
+      System.out.printf("entries:%,12d  by entry entries/sec:%,14.2f"
+          + "  in blocks entries/sec:%,14.2f%n", entryCount,
+          entryCount / ((t2 - t1) / 1000000000.0), blockCount / ((t3 - t2) / 1000000000.0));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.OffHeapBlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.TinyLfuBlockCache;
+
+/**
+ * Compares the throughput and hit ratio of the block cache implementations with many threads
+ * reading through a cache that is smaller than the set of blocks being read.
+ *
+ * <p>
+ * The skewed workload reads blocks chosen from a zipfian distribution. The scan workload mixes the
+ * same skewed reads with sequential scans over blocks that are never read again, which is what a
+ * long batch scan or a compaction does to the data cache.
+ */
+public class BlockCachePerformanceTest {
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Picks items from {@code [0, n)} with a zipfian distribution.
+   */
+  private static class Zipf {
+    private final double[] cumulative;
+
+    Zipf(int n, double exponent) {
+      cumulative = new double[n];
+      double sum = 0;
+      for (int i = 0; i < n; i++) {
+        sum += 1.0 / Math.pow(i + 1, exponent);
+        cumulative[i] = sum;
+      }
+      for (int i = 0; i < n; i++) {
+        cumulative[i] /= sum;
+      }
+    }
+
+    int next(Random rand) {
+      int index = Arrays.binarySearch(cumulative, rand.nextDouble());
+      return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+    }
+  }
+
+  private static BlockCache createCache(String type, long cacheSize) {
+    if (type.equals("LRU"))
+      return new LruBlockCache(cacheSize, BLOCK_SIZE);
+    else if (type.equals("TINYLFU"))
+      return new TinyLfuBlockCache(cacheSize, BLOCK_SIZE);
+    else if (type.equals("OFFHEAP"))
+      return new OffHeapBlockCache(cacheSize, BLOCK_SIZE);
+    else
+      throw new IllegalArgumentException("cache type must be LRU, TINYLFU or OFFHEAP");
+  }
+
+  static void runPerformanceTest(final String type, final boolean scans, int numThreads,
+      final int opsPerThread, final int numBlocks, long cacheSize) throws Exception {
+
+    final BlockCache cache = createCache(type, cacheSize);
+    final Zipf zipf = new Zipf(numBlocks, 0.9);
+    final byte[] block = new byte[BLOCK_SIZE];
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int threadId = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(threadId);
+          int scanPos = 0;
+          for (int i = 0; i < opsPerThread; i++) {
+            String name;
+            if (scans && i % 2 == 0) {
+              // every thread scans its own range of blocks that no other thread reads
+              name = "scan_" + threadId + "_" + scanPos++;
+            } else {
+              name = "block_" + zipf.next(rand);
+            }
+
+            if (cache.getBlock(name) == null) {
+              cache.cacheBlock(name, block);
+            }
+          }
+        }
+      });
+    }
+
+    long t1 = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long t2 = System.currentTimeMillis();
+
+    BlockCache.Stats stats = cache.getStats();
+    long ops = (long) numThreads * opsPerThread;
+
+    System.out.printf(
+        "cache:%8s  workload:%7s  threads:%3d  ops/sec:%,12.2f  hit ratio:%6.2f%%%n", type,
+        scans ? "scan" : "skewed", numThreads, ops / ((t2 - t1) / 1000.0),
+        100.0 * stats.getHitCount() / stats.getRequestCount());
+
+    if (cache instanceof LruBlockCache) {
+      ((LruBlockCache) cache).shutdown();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+
+    if (args.length != 3) {
+      throw new IllegalArgumentException("Usage : " + BlockCachePerformanceTest.class.getName()
+          + " <cache type> <threads> <operations per thread>");
+    }
+
+    String type = args[0];
+    int threads = Integer.parseInt(args[1]);
+    int ops = Integer.parseInt(args[2]);
+
+    // a cache that holds a quarter of the distinct blocks read by the skewed workload
+    int numBlocks = 10000;
+    long cacheSize = (long) numBlocks * BLOCK_SIZE / 4;
+
+    for (int i = 0; i < 3; i++) {
+      runPerformanceTest(type, false, threads, ops, numBlocks, cacheSize);
+      runPerformanceTest(type, true, threads, ops, numBlocks, cacheSize);
+    }
+  }
+}
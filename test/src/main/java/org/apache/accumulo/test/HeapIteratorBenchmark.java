@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.MultiIterator;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.hadoop.io.Text;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures merging sorted sources with the loser tree of HeapIterator, and with a priority queue
+ * that removes and adds back the top source on every key, for numbers of sources like the files of
+ * a tablet. Keys are either spread evenly over the sources, or come in runs from one source, as
+ * when a large file is merged with a few small ones.
+ */
+public class HeapIteratorBenchmark {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static class Opts {
+    @Parameter(names = "--entries", description = "entries to merge in each run")
+    int entries = 2000000;
+    @Parameter(names = "--maxSources", description = "largest number of sources to test")
+    int maxSources = 64;
+    @Parameter(names = "--run", description = "average number of consecutive keys in one source")
+    int run = 1;
+    @Parameter(names = "--runs", description = "times to run each test")
+    int runs = 3;
+    @Parameter(names = "-help", help = true)
+    boolean help = false;
+  }
+
+  /**
+   * The merge HeapIterator used to do, for comparison.
+   */
+  static class PriorityQueueMerge {
+    private final PriorityQueue<SortedKeyValueIterator<Key,Value>> heap;
+
+    PriorityQueueMerge(List<SortedKeyValueIterator<Key,Value>> sources) {
+      heap = new PriorityQueue<>(sources.size(),
+          new Comparator<SortedKeyValueIterator<Key,Value>>() {
+            @Override
+            public int compare(SortedKeyValueIterator<Key,Value> o1,
+                SortedKeyValueIterator<Key,Value> o2) {
+              return o1.getTopKey().compareTo(o2.getTopKey());
+            }
+          });
+      for (SortedKeyValueIterator<Key,Value> source : sources) {
+        if (source.hasTop()) {
+          heap.add(source);
+        }
+      }
+    }
+
+    boolean hasTop() {
+      return !heap.isEmpty();
+    }
+
+    Key getTopKey() {
+      return heap.peek().getTopKey();
+    }
+
+    void next() throws IOException {
+      SortedKeyValueIterator<Key,Value> top = heap.remove();
+      top.next();
+      if (top.hasTop()) {
+        heap.add(top);
+      }
+    }
+  }
+
+  static List<TreeMap<Key,Value>> createSources(Opts opts, int numSources) {
+    Random rand = new Random(42);
+    List<TreeMap<Key,Value>> maps = new ArrayList<>();
+    for (int i = 0; i < numSources; i++) {
+      maps.add(new TreeMap<Key,Value>());
+    }
+    Value value = new Value(new byte[20]);
+    int row = 0;
+    while (row < opts.entries) {
+      TreeMap<Key,Value> map = maps.get(rand.nextInt(numSources));
+      int run = 1 + rand.nextInt(2 * opts.run);
+      for (int i = 0; i < run && row < opts.entries; i++) {
+        Key key = new Key(new Text(FastFormat.toZeroPaddedString(row++, 10, 10, ROW_PREFIX)),
+            new Text("cf"), new Text("cq"));
+        map.put(key, value);
+      }
+    }
+    return maps;
+  }
+
+  static List<SortedKeyValueIterator<Key,Value>> seekSources(List<TreeMap<Key,Value>> maps)
+      throws IOException {
+    List<SortedKeyValueIterator<Key,Value>> sources = new ArrayList<>();
+    for (TreeMap<Key,Value> map : maps) {
+      SortedMapIterator source = new SortedMapIterator(map);
+      source.seek(new Range(), Collections.<ByteSequence> emptySet(), false);
+      sources.add(source);
+    }
+    return sources;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    JCommander jc = new JCommander(opts);
+    jc.setProgramName(HeapIteratorBenchmark.class.getName());
+    jc.parse(args);
+    if (opts.help) {
+      jc.usage();
+      return;
+    }
+
+    for (int numSources = 2; numSources <= opts.maxSources; numSources *= 2) {
+      List<TreeMap<Key,Value>> maps = createSources(opts, numSources);
+      for (int r = 0; r < opts.runs; r++) {
+        long t1 = System.nanoTime();
+        // the sources are already positioned, so initializing adds them without seeking
+        MultiIterator merge = new MultiIterator(seekSources(maps), true);
+        long count = 0;
+        while (merge.hasTop()) {
+          count++;
+          merge.next();
+        }
+        long t2 = System.nanoTime();
+
+        PriorityQueueMerge pqMerge = new PriorityQueueMerge(seekSources(maps));
+        while (pqMerge.hasTop()) {
+          pqMerge.next();
+        }
+        long t3 = System.nanoTime();
+
+        System.out.printf("sources:%4d  loser tree entries/sec:%,14.2f"
+            + "  priority queue entries/sec:%,14.2f%n", numSources,
+            count / ((t2 - t1) / 1000000000.0), count / ((t3 - t2) / 1000000000.0));
+      }
+    }
+  }
+}
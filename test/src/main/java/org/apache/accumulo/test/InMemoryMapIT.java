@@ -215,6 +215,8 @@ public class InMemoryMapIT {
     InMemoryMap nativeMapWrapper = null;
     InMemoryMap localityGroupMap = null;
     InMemoryMap localityGroupMapWithNative = null;
+    InMemoryMap offHeapMap = null;
+    InMemoryMap localityGroupMapWithOffHeap = null;
 
     try {
       Map<String,String> defaultMapConfig = new HashMap<>();
@@ -235,6 +237,17 @@ public class InMemoryMapIT {
       localityGroupNativeConfig.put(Property.TSERV_NATIVEMAP_ENABLED.getKey(), "true");
       localityGroupNativeConfig.put(Property.TSERV_MEMDUMP_DIR.getKey(),
           tempFolder.newFolder().getAbsolutePath());
+      Map<String,String> offHeapMapConfig = new HashMap<>();
+      offHeapMapConfig.put(Property.TSERV_NATIVEMAP_ENABLED.getKey(), "false");
+      offHeapMapConfig.put(Property.TSERV_OFFHEAP_MAP_ENABLED.getKey(), "true");
+      offHeapMapConfig.put(Property.TSERV_MEMDUMP_DIR.getKey(),
+          tempFolder.newFolder().getAbsolutePath());
+      offHeapMapConfig.put(Property.TABLE_LOCALITY_GROUPS.getKey(), "");
+      Map<String,String> localityGroupOffHeapConfig = new HashMap<>();
+      localityGroupOffHeapConfig.put(Property.TSERV_NATIVEMAP_ENABLED.getKey(), "false");
+      localityGroupOffHeapConfig.put(Property.TSERV_OFFHEAP_MAP_ENABLED.getKey(), "true");
+      localityGroupOffHeapConfig.put(Property.TSERV_MEMDUMP_DIR.getKey(),
+          tempFolder.newFolder().getAbsolutePath());
 
       defaultMap = new InMemoryMap(new ConfigurationCopy(defaultMapConfig));
       nativeMapWrapper = new InMemoryMap(new ConfigurationCopy(nativeMapConfig));
@@ -242,6 +255,9 @@ public class InMemoryMapIT {
           updateConfigurationForLocalityGroups(new ConfigurationCopy(localityGroupConfig)));
       localityGroupMapWithNative = new InMemoryMap(
           updateConfigurationForLocalityGroups(new ConfigurationCopy(localityGroupNativeConfig)));
+      offHeapMap = new InMemoryMap(new ConfigurationCopy(offHeapMapConfig));
+      localityGroupMapWithOffHeap = new InMemoryMap(
+          updateConfigurationForLocalityGroups(new ConfigurationCopy(localityGroupOffHeapConfig)));
     } catch (Exception e) {
       log.error("Error getting new InMemoryMap ", e);
       fail(e.getMessage());
@@ -255,16 +271,23 @@ public class InMemoryMapIT {
         localityGroupMap.getMapType());
     assertEquals("Not a LocalityGroupMap with native", InMemoryMap.TYPE_LOCALITY_GROUP_MAP_NATIVE,
         localityGroupMapWithNative.getMapType());
+    assertEquals("Not an OffHeapMap", InMemoryMap.TYPE_OFFHEAP_MAP, offHeapMap.getMapType());
+    assertEquals("Not a LocalityGroupMap with off heap",
+        InMemoryMap.TYPE_LOCALITY_GROUP_MAP_OFFHEAP, localityGroupMapWithOffHeap.getMapType());
 
     defaultMap.mutate(mutations);
     nativeMapWrapper.mutate(mutations);
     localityGroupMap.mutate(mutations);
     localityGroupMapWithNative.mutate(mutations);
+    offHeapMap.mutate(mutations);
+    localityGroupMapWithOffHeap.mutate(mutations);
 
-    // let's use the transitive property to assert all four are equivalent
+    // let's use the transitive property to assert all six are equivalent
     assertMutatesEquivalent(mutations, defaultMap, nativeMapWrapper);
     assertMutatesEquivalent(mutations, defaultMap, localityGroupMap);
     assertMutatesEquivalent(mutations, defaultMap, localityGroupMapWithNative);
+    assertMutatesEquivalent(mutations, defaultMap, offHeapMap);
+    assertMutatesEquivalent(mutations, defaultMap, localityGroupMapWithOffHeap);
   }
 
   /**
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.tserver.InMemoryMap;
+import org.apache.hadoop.io.Text;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures how ingest into the in memory map of a single tablet scales with the number of threads
+ * writing to it, the way client threads writing to one hot tablet do.
+ */
+public class InMemoryMapIngestBenchmark {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static class Opts {
+    @Parameter(names = "--maxThreads", description = "largest number of writer threads to test")
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    @Parameter(names = "--seconds", description = "seconds to write for at each thread count")
+    int seconds = 10;
+    @Parameter(names = "--cols", description = "columns per mutation")
+    int cols = 10;
+    @Parameter(names = "--batch", description = "mutations applied per call")
+    int batch = 10;
+    @Parameter(names = "--nativeMap", description = "use the native map")
+    boolean nativeMap = false;
+    @Parameter(names = "--offHeapMap", description = "use the off heap map")
+    boolean offHeapMap = false;
+    @Parameter(names = "--localityGroups", description = "put half the columns in a group")
+    boolean localityGroups = false;
+    @Parameter(names = "-help", help = true)
+    boolean help = false;
+  }
+
+  static InMemoryMap createMap(Opts opts) throws Exception {
+    ConfigurationCopy config = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    config.set(Property.TSERV_NATIVEMAP_ENABLED, "" + opts.nativeMap);
+    config.set(Property.TSERV_OFFHEAP_MAP_ENABLED, "" + opts.offHeapMap);
+    if (opts.localityGroups) {
+      config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1",
+          LocalityGroupUtil.encodeColumnFamilies(Collections.singleton(new Text("cf0"))));
+      config.set(Property.TABLE_LOCALITY_GROUPS.getKey(), "lg1");
+    }
+    return new InMemoryMap(config);
+  }
+
+  static double runTest(final Opts opts, int numThreads) throws Exception {
+    final InMemoryMap imm = createMap(opts);
+    final AtomicLong keyValues = new AtomicLong(0);
+    final long end = System.currentTimeMillis() + opts.seconds * 1000L;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int threadId = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(threadId);
+          Value value = new Value("value".getBytes(UTF_8));
+          long written = 0;
+          while (System.currentTimeMillis() < end) {
+            List<Mutation> mutations = new ArrayList<>(opts.batch);
+            for (int i = 0; i < opts.batch; i++) {
+              int row = rand.nextInt(Integer.MAX_VALUE);
+              Mutation m = new Mutation(
+                  new Text(FastFormat.toZeroPaddedString(row, 10, 10, ROW_PREFIX)));
+              for (int c = 0; c < opts.cols; c++) {
+                m.put("cf" + (c % 2), "cq" + c, value);
+              }
+              mutations.add(m);
+            }
+            imm.mutate(mutations);
+            written += opts.batch * opts.cols;
+          }
+          keyValues.addAndGet(written);
+        }
+      });
+    }
+
+    long t1 = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long t2 = System.currentTimeMillis();
+
+    imm.delete(0);
+    return keyValues.get() / ((t2 - t1) / 1000.0);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    JCommander jc = new JCommander(opts);
+    jc.setProgramName(InMemoryMapIngestBenchmark.class.getName());
+    jc.parse(args);
+    if (opts.help) {
+      jc.usage();
+      return;
+    }
+
+    // warm up
+    runTest(opts, 1);
+
+    double single = 0;
+    for (int threads = 1; threads <= opts.maxThreads; threads *= 2) {
+      double rate = runTest(opts, threads);
+      if (threads == 1) {
+        single = rate;
+      }
+      System.out.printf("threads:%4d  key values/sec:%,14.2f  scaling:%6.2f%n", threads, rate,
+          rate / single);
+    }
+  }
+}
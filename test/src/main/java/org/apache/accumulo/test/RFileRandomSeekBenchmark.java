@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures how random seeks into one hot RFile scale with the number of threads seeking it. All
+ * threads share the open file, as deep copies of one reader do, and no block cache is used, so
+ * every seek reads a block from the file system.
+ */
+public class RFileRandomSeekBenchmark {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static class Opts {
+    @Parameter(names = "--file", description = "RFile to create and read")
+    String file = "/tmp/RFileRandomSeekBenchmark.rf";
+    @Parameter(names = "--rows", description = "rows to write to the file")
+    int rows = 1000000;
+    @Parameter(names = "--valueSize", description = "bytes in each value")
+    int valueSize = 100;
+    @Parameter(names = "--maxThreads", description = "largest number of reader threads to test")
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    @Parameter(names = "--seconds", description = "seconds to seek for at each thread count")
+    int seconds = 10;
+    @Parameter(names = "-help", help = true)
+    boolean help = false;
+  }
+
+  static Text row(int row) {
+    return new Text(FastFormat.toZeroPaddedString(row, 10, 10, ROW_PREFIX));
+  }
+
+  static void writeFile(Opts opts, FileSystem fs, Configuration conf) throws Exception {
+    FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(opts.file, fs, conf).withTableConfiguration(DefaultConfiguration.getInstance())
+        .build();
+    try {
+      writer.startDefaultLocalityGroup();
+      Random rand = new Random(42);
+      byte[] value = new byte[opts.valueSize];
+      for (int r = 0; r < opts.rows; r++) {
+        rand.nextBytes(value);
+        writer.append(new Key(row(r), new Text("cf"), new Text("cq")), new Value(value));
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  static double runTest(final Opts opts, FileSKVIterator reader, int numThreads)
+      throws Exception {
+    final AtomicLong seeks = new AtomicLong(0);
+    final long end = System.currentTimeMillis() + opts.seconds * 1000L;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int threadId = t;
+      final SortedKeyValueIterator<Key,Value> copy = reader.deepCopy(null);
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(threadId);
+          long done = 0;
+          try {
+            while (System.currentTimeMillis() < end) {
+              Text row = row(rand.nextInt(opts.rows));
+              copy.seek(new Range(row), Collections.<ByteSequence> emptySet(), false);
+              if (!copy.hasTop() || !copy.getTopKey().getRow().equals(row)) {
+                throw new IllegalStateException("Did not find row " + row);
+              }
+              done++;
+            }
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          seeks.addAndGet(done);
+        }
+      });
+    }
+
+    long t1 = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long t2 = System.currentTimeMillis();
+
+    reader.closeDeepCopies();
+    return seeks.get() / ((t2 - t1) / 1000.0);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    JCommander jc = new JCommander(opts);
+    jc.setProgramName(RFileRandomSeekBenchmark.class.getName());
+    jc.parse(args);
+    if (opts.help) {
+      jc.usage();
+      return;
+    }
+
+    Configuration conf = new Configuration();
+    FileSystem fs = new Path(opts.file).getFileSystem(conf);
+    writeFile(opts, fs, conf);
+
+    FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(opts.file, fs, conf).withTableConfiguration(DefaultConfiguration.getInstance())
+        .build();
+    try {
+      // warm up
+      runTest(opts, reader, 1);
+
+      double single = 0;
+      for (int threads = 1; threads <= opts.maxThreads; threads *= 2) {
+        double rate = runTest(opts, reader, threads);
+        if (threads == 1) {
+          single = rate;
+        }
+        System.out.printf("threads:%4d  seeks/sec:%,14.2f  scaling:%6.2f%n", threads, rate,
+            rate / single);
+      }
+    } finally {
+      reader.close();
+      fs.delete(new Path(opts.file), false);
+    }
+  }
+}
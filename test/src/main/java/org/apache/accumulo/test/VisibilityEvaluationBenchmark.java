@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.security.ColumnVisibility;
+import org.apache.accumulo.core.security.VisibilityEvaluator;
+import org.apache.accumulo.core.security.impl.CompiledVisibility;
+import org.apache.accumulo.core.security.impl.VisibilityCache;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+
+/**
+ * Compares evaluating column visibilities by walking their parse trees with evaluating their
+ * compiled form, and with the cached evaluation scans use. Labels and expressions are both drawn
+ * with a skew, so that a few labels and expressions are much more common than the rest, as they are
+ * in most tables.
+ */
+public class VisibilityEvaluationBenchmark {
+
+  static class Opts {
+    @Parameter(names = "--labels", description = "number of distinct labels")
+    int labels = 200;
+    @Parameter(names = "--expressions", description = "number of distinct expressions")
+    int expressions = 5000;
+    @Parameter(names = "--auths", description = "number of labels the scan is authorized for")
+    int auths = 20;
+    @Parameter(names = "--evaluations", description = "visibilities evaluated per run")
+    int evaluations = 10000000;
+    @Parameter(names = "--runs", description = "times to run each evaluation method")
+    int runs = 5;
+    @Parameter(names = "--seed", description = "seed for generating labels and expressions")
+    long seed = 42;
+    @Parameter(names = "-help", help = true)
+    boolean help = false;
+  }
+
+  /**
+   * @return a value in [0, n) where small values are much more likely than large ones
+   */
+  static int skewed(Random rand, int n) {
+    return (int) Math.min(n - 1, Math.floor(Math.pow(n + 1, rand.nextDouble()) - 1));
+  }
+
+  static String label(Random rand, Opts opts) {
+    return "L" + skewed(rand, opts.labels);
+  }
+
+  static String expression(Random rand, Opts opts) {
+    int shape = rand.nextInt(100);
+    if (shape < 40) {
+      return label(rand, opts);
+    } else if (shape < 65) {
+      return label(rand, opts) + "&" + label(rand, opts);
+    } else if (shape < 80) {
+      return label(rand, opts) + "|" + label(rand, opts);
+    } else if (shape < 95) {
+      return label(rand, opts) + "&(" + label(rand, opts) + "|" + label(rand, opts) + ")";
+    } else {
+      return "(" + label(rand, opts) + "|" + label(rand, opts) + ")&(" + label(rand, opts) + "|"
+          + label(rand, opts) + ")&" + label(rand, opts);
+    }
+  }
+
+  interface Method {
+    boolean evaluate(int expression) throws Exception;
+  }
+
+  static void run(String name, Method method, int[] stream, Opts opts) throws Exception {
+    for (int r = 0; r < opts.runs; r++) {
+      int visible = 0;
+      long t1 = System.nanoTime();
+      for (int i = 0; i < opts.evaluations; i++) {
+        if (method.evaluate(stream[i % stream.length])) {
+          visible++;
+        }
+      }
+      long t2 = System.nanoTime();
+      System.out.printf("%-10s run:%3d  evaluations/sec:%,16.2f  visible:%,d%n", name, r,
+          opts.evaluations / ((t2 - t1) / 1000000000.0), visible);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    JCommander jc = new JCommander(opts);
+    jc.setProgramName(VisibilityEvaluationBenchmark.class.getName());
+    jc.parse(args);
+    if (opts.help) {
+      jc.usage();
+      return;
+    }
+
+    Random rand = new Random(opts.seed);
+    List<String> labels = new ArrayList<>();
+    while (labels.size() < opts.auths) {
+      String label = label(rand, opts);
+      if (!labels.contains(label)) {
+        labels.add(label);
+      }
+    }
+    Authorizations auths = new Authorizations(labels.toArray(new String[labels.size()]));
+
+    final ByteSequence[] expressions = new ByteSequence[opts.expressions];
+    final ColumnVisibility[] parsed = new ColumnVisibility[opts.expressions];
+    final CompiledVisibility[] compiled = new CompiledVisibility[opts.expressions];
+    VisibilityCache cache = VisibilityCache.getInstance();
+    for (int i = 0; i < opts.expressions; i++) {
+      expressions[i] = new ArrayByteSequence(expression(rand, opts).getBytes(UTF_8));
+      parsed[i] = new ColumnVisibility(expressions[i].toArray());
+      compiled[i] = cache.compile(expressions[i]);
+    }
+
+    int[] stream = new int[1 << 20];
+    for (int i = 0; i < stream.length; i++) {
+      stream[i] = skewed(rand, opts.expressions);
+    }
+
+    final VisibilityEvaluator tree = new VisibilityEvaluator(auths);
+    final VisibilityCache.Evaluator evaluator = cache.getEvaluator(auths);
+
+    run("tree", new Method() {
+      @Override
+      public boolean evaluate(int expression) throws Exception {
+        return tree.evaluate(parsed[expression]);
+      }
+    }, stream, opts);
+    run("compiled", new Method() {
+      @Override
+      public boolean evaluate(int expression) {
+        return evaluator.evaluate(compiled[expression]);
+      }
+    }, stream, opts);
+    run("cached", new Method() {
+      @Override
+      public boolean evaluate(int expression) throws Exception {
+        return evaluator.evaluate(expressions[expression]);
+      }
+    }, stream, opts);
+  }
+}
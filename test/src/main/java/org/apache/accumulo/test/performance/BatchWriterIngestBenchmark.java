@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.cli.BatchWriterOpts;
+import org.apache.accumulo.core.cli.ClientOnRequiredTable;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.util.FastFormat;
+import org.apache.hadoop.io.Text;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures how ingest through a single batch writer scales with the number of threads sharing it.
+ * Run it against a table that {@link NullTserver} has adopted, so that the numbers reflect the
+ * client and not the tablet servers.
+ */
+public class BatchWriterIngestBenchmark {
+
+  private static final byte ROW_PREFIX[] = new byte[] {'r'};
+
+  static class Opts extends ClientOnRequiredTable {
+    @Parameter(names = "--maxThreads", description = "largest number of producer threads to test")
+    int maxThreads = Runtime.getRuntime().availableProcessors();
+    @Parameter(names = "--seconds", description = "seconds to write for at each thread count")
+    int seconds = 10;
+    @Parameter(names = "--cols", description = "columns per mutation")
+    int cols = 10;
+  }
+
+  static double runTest(final Opts opts, BatchWriterOpts bwOpts, int numThreads)
+      throws Exception {
+    Connector conn = opts.getConnector();
+    final BatchWriter bw = conn.createBatchWriter(opts.getTableName(),
+        bwOpts.getBatchWriterConfig());
+    final AtomicLong mutations = new AtomicLong(0);
+    final long end = System.currentTimeMillis() + opts.seconds * 1000L;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final int threadId = t;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          Random rand = new Random(threadId);
+          Value value = new Value("value".getBytes(UTF_8));
+          long written = 0;
+          try {
+            while (System.currentTimeMillis() < end) {
+              int row = rand.nextInt(Integer.MAX_VALUE);
+              Mutation m = new Mutation(
+                  new Text(FastFormat.toZeroPaddedString(row, 10, 10, ROW_PREFIX)));
+              for (int c = 0; c < opts.cols; c++) {
+                m.put("cf" + (c % 2), "cq" + c, value);
+              }
+              bw.addMutation(m);
+              written++;
+            }
+          } catch (MutationsRejectedException e) {
+            throw new RuntimeException(e);
+          }
+          mutations.addAndGet(written);
+        }
+      });
+    }
+
+    long t1 = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    bw.close();
+    long t2 = System.currentTimeMillis();
+
+    return mutations.get() / ((t2 - t1) / 1000.0);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    BatchWriterOpts bwOpts = new BatchWriterOpts();
+    opts.parseArgs(BatchWriterIngestBenchmark.class.getName(), args, bwOpts);
+
+    // warm up
+    runTest(opts, bwOpts, 1);
+
+    double single = 0;
+    for (int threads = 1; threads <= opts.maxThreads; threads *= 2) {
+      double rate = runTest(opts, bwOpts, threads);
+      if (threads == 1) {
+        single = rate;
+      }
+      System.out.printf("threads:%4d  mutations/sec:%,14.2f  scaling:%6.2f%n", threads, rate,
+          rate / single);
+    }
+  }
+}
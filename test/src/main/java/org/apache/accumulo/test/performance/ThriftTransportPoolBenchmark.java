@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.accumulo.test.performance;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.cli.Help;
+import org.apache.accumulo.core.client.ClientConfiguration;
+import org.apache.accumulo.core.client.impl.ClientContext;
+import org.apache.accumulo.core.client.impl.Credentials;
+import org.apache.accumulo.core.client.impl.ThriftTransportPool;
+import org.apache.accumulo.core.client.mock.MockInstance;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.util.Daemon;
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.thrift.transport.TTransport;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Measures how many connections per second threads can reserve from and return to the
+ * {@link ThriftTransportPool}. The pool connects to local sockets that accept connections and never
+ * read from them, so the numbers only reflect the pool.
+ */
+public class ThriftTransportPoolBenchmark {
+
+  static class Opts extends Help {
+    @Parameter(names = "--maxThreads", description = "largest number of threads to test")
+    int maxThreads = 128;
+    @Parameter(names = "--servers", description = "number of servers to spread connections over")
+    int servers = 4;
+    @Parameter(names = "--seconds", description = "seconds to run for at each thread count")
+    int seconds = 10;
+  }
+
+  private static HostAndPort startServer() throws IOException {
+    final ServerSocket server = new ServerSocket(0);
+    new Daemon("accept connections on " + server.getLocalPort()) {
+      @Override
+      public void run() {
+        // keep the connections open until the benchmark exits
+        List<Socket> sockets = new ArrayList<>();
+        try {
+          while (true) {
+            sockets.add(server.accept());
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }.start();
+    return HostAndPort.fromParts("localhost", server.getLocalPort());
+  }
+
+  static double runTest(final Opts opts, final ClientContext context,
+      final List<HostAndPort> servers, int numThreads) throws Exception {
+    final ThriftTransportPool pool = ThriftTransportPool.getInstance();
+    final AtomicLong operations = new AtomicLong(0);
+    final long end = System.currentTimeMillis() + opts.seconds * 1000L;
+
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < numThreads; t++) {
+      final HostAndPort server = servers.get(t % servers.size());
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          long count = 0;
+          try {
+            // only check the time every so often, it is slower than the pool
+            while ((count & 0xff) != 0 || System.currentTimeMillis() < end) {
+              TTransport transport = pool.getTransport(server, 0, context);
+              pool.returnTransport(transport);
+              count++;
+            }
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          operations.addAndGet(count);
+        }
+      });
+    }
+
+    long t1 = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long t2 = System.currentTimeMillis();
+
+    return operations.get() / ((t2 - t1) / 1000.0);
+  }
+
+  @SuppressWarnings("deprecation")
+  public static void main(String[] args) throws Exception {
+    Opts opts = new Opts();
+    opts.parseArgs(ThriftTransportPoolBenchmark.class.getName(), args);
+
+    List<HostAndPort> servers = new ArrayList<>();
+    for (int i = 0; i < opts.servers; i++) {
+      servers.add(startServer());
+    }
+    // the instance is only needed to create the context, no RPCs are made
+    ClientContext context = new ClientContext(new MockInstance(),
+        new Credentials("root", new PasswordToken("")), ClientConfiguration.create());
+
+    // keep idle connections for the whole run, so that connections are not opened while measuring
+    ThriftTransportPool.getInstance().setIdleTime(Long.MAX_VALUE / 2);
+
+    // warm up
+    runTest(opts, context, servers, 1);
+
+    double single = 0;
+    for (int threads = 1; threads <= opts.maxThreads; threads *= 2) {
+      double rate = runTest(opts, context, servers, threads);
+      if (threads == 1) {
+        single = rate;
+      }
+      System.out.printf("threads:%4d  reserve+return/sec:%,14.2f  scaling:%6.2f%n", threads, rate,
+          rate / single);
+    }
+  }
+}